@@ -1,10 +1,316 @@
 
 import avltree.AVLTree;
+import avltree.AVLTreeMap;
+import avltree.ArrayAVLTree;
+import avltree.ByteKeyAVLTree;
+import avltree.ConcurrentAVLTree;
+import avltree.DurableAVLTree;
+import avltree.FrozenAVLTree;
+import avltree.FrozenIntAVLTree;
+import avltree.IntAVLTree;
+import avltree.LongAVLTree;
+import avltree.MappedLongAVLTree;
+import avltree.PersistentAVLTree;
+import avltree.ShardedAVLTree;
+import btree.BPlusTree;
 import complements.BSTree;
+import complements.BinarySearchTree;
+import complements.KeyCodecs;
+import complements.TreeListener;
+import exceptions.ExceptionIsEmpty;
+import exceptions.ItemDuplicated;
+import exceptions.ItemNotFound;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import metrics.TreeMetrics;
+import wavltree.WAVLTree;
 
 public class TestAVL {
 
-    public static void main(String[] args) {
+    // Verificaciones que fallaron; con alguna el proceso termina con código 1
+    private static int failures = 0;
+
+    private interface Check {
+        void run() throws Exception;
+    }
+
+    // Corre una verificación: imprime el título y OK, o el error y la cuenta como fallida
+    private static void run(String title, Check check) {
+        System.out.println("\n" + title);
+        try {
+            check.run();
+            System.out.println("OK");
+        } catch (Exception | AssertionError e) {
+            failures++;
+            System.out.println("Error: " + e);
+        }
+    }
+
+    private interface Range<T> {
+        Iterator<Integer> range(T tree, Integer from, boolean fromInclusive, Integer to, boolean toInclusive);
+    }
+
+    // Una implementación de BinarySearchTree<Integer> para el test diferencial. Lo que no está en
+    // la interfaz (invariantes, recorrido, floor, ceiling, range) se agrega si la clase lo tiene;
+    // lo que queda en null no se prueba.
+    private static final class Subject<T extends BinarySearchTree<Integer>> {
+        final String name;
+        final Supplier<T> factory;
+        Consumer<T> invariants = tree -> { };
+        Consumer<T> close = tree -> { };
+        Function<T, Iterable<Integer>> elements;
+        BiFunction<T, Integer, Integer> floor;
+        BiFunction<T, Integer, Integer> ceiling;
+        Range<T> range;
+
+        Subject(String name, Supplier<T> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        Subject<T> invariants(Consumer<T> invariants) {
+            this.invariants = invariants;
+            return this;
+        }
+
+        Subject<T> close(Consumer<T> close) {
+            this.close = close;
+            return this;
+        }
+
+        Subject<T> elements(Function<T, Iterable<Integer>> elements) {
+            this.elements = elements;
+            return this;
+        }
+
+        Subject<T> ordered(BiFunction<T, Integer, Integer> floor, BiFunction<T, Integer, Integer> ceiling,
+                Range<T> range) {
+            this.floor = floor;
+            this.ceiling = ceiling;
+            this.range = range;
+            return this;
+        }
+    }
+
+    private static Subject<BSTree<Integer>> bstSubject(String name, Supplier<BSTree<Integer>> factory) {
+        return new Subject<>(name, factory).elements(tree -> tree).ordered(BSTree::floor, BSTree::ceiling, BSTree::range);
+    }
+
+    private static Subject<BPlusTree<Integer>> bPlusSubject(int order) {
+        return new Subject<>("BPlusTree(" + order + ")", () -> new BPlusTree<Integer>(order))
+                .invariants(BPlusTree::checkInvariants).elements(tree -> tree)
+                .ordered(BPlusTree::floor, BPlusTree::ceiling, BPlusTree::range);
+    }
+
+    // Todas las implementaciones de BinarySearchTree<Integer> del repositorio
+    private static List<Subject<?>> subjects(Path dir) {
+        List<Subject<?>> subjects = new ArrayList<>();
+        subjects.add(bstSubject("BSTree", BSTree::new));
+        subjects.add(bstSubject("AVLTree", () -> {
+            AVLTree<Integer> tree = new AVLTree<>();
+            tree.setSelfCheck(true);
+            return tree;
+        }));
+        for (int order : new int[] { 3, 4, 5, BPlusTree.DEFAULT_ORDER }) {
+            subjects.add(bPlusSubject(order));
+        }
+        subjects.add(new Subject<>("ArrayAVLTree", () -> new ArrayAVLTree<Integer>())
+                .invariants(ArrayAVLTree::checkInvariants));
+        subjects.add(new Subject<>("ShardedAVLTree hash", () -> new ShardedAVLTree<Integer>(4)).elements(tree -> tree));
+        subjects.add(new Subject<>("ShardedAVLTree rango", () -> new ShardedAVLTree<Integer>(new Integer[] { 50, 150, 250 }))
+                .elements(tree -> tree));
+        subjects.add(new Subject<>("ConcurrentAVLTree", () -> new ConcurrentAVLTree<Integer>())
+                .invariants(ConcurrentAVLTree::checkInvariants));
+        subjects.add(new Subject<>("PersistentAVLTree.Transient",
+                () -> PersistentAVLTree.<Integer>empty().asTransient()));
+        subjects.add(new Subject<>("WAVLTree", () -> new WAVLTree<Integer>())
+                .invariants(WAVLTree::checkInvariants).elements(tree -> tree));
+        subjects.add(new Subject<>("DurableAVLTree", () -> {
+            try {
+                return DurableAVLTree.open(dir, KeyCodecs.INT, policy("never"), 500);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).close(tree -> {
+            try {
+                tree.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        return subjects;
+    }
+
+    // Operaciones al azar contra un TreeSet, con claves chicas para que haya muchos duplicados,
+    // fallos y árboles que se vacían. Las invariantes se verifican después de cada operación.
+    private static <T extends BinarySearchTree<Integer>> void differential(Subject<T> subject, long seed)
+            throws Exception {
+        final int keys = 300;
+        Random random = new Random(seed);
+        T tree = subject.factory.get();
+        TreeSet<Integer> expected = new TreeSet<>();
+        try {
+            for (int i = 0; i < 6000; i++) {
+                int key = random.nextInt(keys + 20) - 10;
+                int op = random.nextInt(100);
+                String where = subject.name + ", operación " + i + " con " + key;
+                if (op < 30) {
+                    check(tree.add(key) == expected.add(key), where + ": add");
+                } else if (op < 40) {
+                    Integer removed = tree.remove(key);
+                    check(removed == null ? !expected.remove(key) : removed == key && expected.remove(key), where + ": remove");
+                } else if (op < 45) {
+                    boolean present = expected.contains(key);
+                    try {
+                        tree.insert(key);
+                        check(!present, where + ": insert aceptó un duplicado");
+                        expected.add(key);
+                    } catch (ItemDuplicated e) {
+                        check(present, where + ": insert rechazó una clave nueva");
+                    }
+                } else if (op < 50) {
+                    boolean empty = expected.isEmpty();
+                    try {
+                        tree.delete(key);
+                        check(!empty, where + ": delete no detectó el árbol vacío");
+                        expected.remove(key);
+                    } catch (ExceptionIsEmpty e) {
+                        check(empty, where + ": delete lanzó ExceptionIsEmpty con elementos");
+                    }
+                } else if (op < 60) {
+                    check(tree.contains(key) == expected.contains(key), where + ": contains");
+                    Integer found = tree.get(key);
+                    check(found == null ? !expected.contains(key) : found == key, where + ": get");
+                } else if (op < 65) {
+                    try {
+                        check(tree.search(key) == key && expected.contains(key), where + ": search");
+                    } catch (ItemNotFound e) {
+                        check(!expected.contains(key), where + ": search no encontró una clave presente");
+                    }
+                } else if (op < 70) {
+                    List<Integer> batch = new ArrayList<>();
+                    for (int j = random.nextInt(20); j > 0; j--) {
+                        batch.add(random.nextInt(keys));
+                    }
+                    boolean insert = random.nextBoolean();
+                    List<Integer> rejected = insert ? tree.insertAll(batch) : tree.deleteAll(batch);
+                    List<Integer> expectedRejected = new ArrayList<>();
+                    for (Integer x : batch) {
+                        if (insert ? !expected.add(x) : !expected.remove(x)) {
+                            expectedRejected.add(x);
+                        }
+                    }
+                    Collections.sort(rejected);
+                    Collections.sort(expectedRejected);
+                    check(rejected.equals(expectedRejected), where + ": rechazados del lote");
+                } else if (op < 80 && subject.floor != null) {
+                    check(Objects.equals(subject.floor.apply(tree, key), expected.floor(key)), where + ": floor");
+                    check(Objects.equals(subject.ceiling.apply(tree, key), expected.ceiling(key)), where + ": ceiling");
+                } else if (op < 90 && subject.range != null) {
+                    Integer from = random.nextInt(8) == 0 ? null : key;
+                    Integer to = random.nextInt(8) == 0 ? null : key + random.nextInt(60) - 10;
+                    boolean fromInclusive = random.nextBoolean();
+                    boolean toInclusive = random.nextBoolean();
+                    List<Integer> items = new ArrayList<>();
+                    subject.range.range(tree, from, fromInclusive, to, toInclusive).forEachRemaining(items::add);
+                    check(items.equals(subRange(expected, from, fromInclusive, to, toInclusive)),
+                            where + ": range(" + from + ", " + fromInclusive + ", " + to + ", " + toInclusive + ")");
+                }
+                check(tree.isEmpty() == expected.isEmpty(), where + ": isEmpty");
+                subject.invariants.accept(tree);
+
+                if (i % 2000 == 1999) {
+                    // Vaciar el árbol de a una clave, en orden aleatorio
+                    List<Integer> present = new ArrayList<>(expected);
+                    Collections.shuffle(present, random);
+                    for (Integer x : present) {
+                        check(Objects.equals(tree.remove(x), x), subject.name + ": vaciando, remove " + x);
+                        expected.remove(x);
+                        subject.invariants.accept(tree);
+                    }
+                    check(tree.isEmpty(), subject.name + ": no quedó vacío");
+                }
+                if (i % 500 == 499) {
+                    for (int x = -10; x < keys + 10; x++) {
+                        check(tree.contains(x) == expected.contains(x), subject.name + ": contenido, clave " + x);
+                    }
+                    if (subject.elements != null) {
+                        checkElements(subject.elements.apply(tree), expected, subject.name + ": recorrido en orden");
+                    }
+                }
+            }
+        } finally {
+            subject.close.accept(tree);
+        }
+    }
+
+    private static List<Integer> subRange(TreeSet<Integer> set, Integer from, boolean fromInclusive, Integer to,
+            boolean toInclusive) {
+        List<Integer> items = new ArrayList<>();
+        for (Integer x : set) {
+            if ((from == null || (fromInclusive ? x >= from : x > from))
+                    && (to == null || (toInclusive ? x <= to : x < to))) {
+                items.add(x);
+            }
+        }
+        return items;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    // Compara el recorrido en orden con el conjunto esperado (ya ordenado)
+    private static void checkElements(Iterable<Integer> actual, Collection<Integer> expected, String message) {
+        List<Integer> items = new ArrayList<>();
+        for (Integer x : actual) {
+            items.add(x);
+        }
+        check(items.equals(new ArrayList<>(expected)), message + ": " + items + " en vez de " + expected);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("wal-child")) {
+            walChild(Path.of(args[1]), args[2]);
+            return;
+        }
 
         try {
             AVLTree<Integer> avl0 = new AVLTree<>();
@@ -107,5 +413,1660 @@ public class TestAVL {
             System.out.println("Error: " + e.getMessage());
         }
 
+        run("AVLTree: self-check con inserciones y eliminaciones aleatorias", TestAVL::selfCheckChurn);
+        run("ConcurrentAVLTree: escritores y lectores en paralelo", TestAVL::concurrentStress);
+        run("PersistentAVLTree: versiones anteriores intactas y transient", TestAVL::persistentVersions);
+        run("AVLTree: insertAll/deleteAll por lotes", TestAVL::batchOperations);
+        run("AVLTree: join, split y operaciones de conjuntos", TestAVL::setOperations);
+        run("AVLTree: Finger y append", TestAVL::fingerOperations);
+        run("MappedLongAVLTree: reabrir sin reconstruir", TestAVL::mappedReopen);
+        run("AVLTreeMap: diferencial contra TreeMap", TestAVL::avlTreeMapDifferential);
+        run("ByteKeyAVLTree: diferencial contra TreeSet<byte[]>", TestAVL::byteKeyDifferential);
+        run("FrozenAVLTree/FrozenIntAVLTree: consultas contra TreeSet", TestAVL::frozenQueries);
+        run("IntAVLTree/LongAVLTree: diferencial contra TreeSet", TestAVL::primitiveDifferentials);
+        run("AVLTree: buildFrom y buildFromUnsorted", TestAVL::buildOperations);
+        run("AVLTree: rank y select", TestAVL::rankSelect);
+        run("TreeMetrics: contadores del listener", TestAVL::treeMetrics);
+        run("Recorridos: iteradores pre/post orden y spliterator", TestAVL::traversalIterators);
+        run("Snapshots: guardar y recargar BSTree/AVLTree", TestAVL::snapshotRoundTrip);
+        run("DurableAVLTree: caída del proceso con cada SyncPolicy", TestAVL::durableProcessCrash);
+        run("DurableAVLTree: checkpoints y recuperación del log", TestAVL::durableRecovery);
+        run("DurableAVLTree: checkpoint automático fallido", TestAVL::durableCheckpointFailure);
+        run("DurableAVLTree: checkpoint después de close()", TestAVL::durableCheckpointAfterClose);
+
+        Path differentialDir = Files.createTempDirectory("differential");
+        try {
+            for (Subject<?> subject : subjects(differentialDir.resolve("durable"))) {
+                run("Test diferencial contra TreeSet: " + subject.name, () -> differential(subject, 20));
+            }
+        } finally {
+            deleteTree(differentialDir);
+        }
+
+        if (failures > 0) {
+            System.out.println("\n" + failures + " verificaciones fallidas");
+            System.exit(1);
+        }
+    }
+
+    // Verificación de alturas y factores de balanceo con inserciones/eliminaciones aleatorias:
+    // con setSelfCheck(true) cada operación lanza IllegalStateException si algo no cuadra
+    private static void selfCheckChurn() throws Exception {
+        AVLTree<Integer> churn = new AVLTree<>();
+        churn.setSelfCheck(true);
+        Random random = new Random(42);
+        Set<Integer> present = new HashSet<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(500);
+            if (present.contains(key)) {
+                churn.delete(key);
+                present.remove(key);
+            } else {
+                churn.insert(key);
+                present.add(key);
+            }
+        }
+        check(churn.size() == present.size(), "Tamaño final " + churn.size() + ", esperado " + present.size());
+    }
+
+    // WRITERS hilos escriben cada uno en su rango propio y todos en un rango compartido, mientras
+    // READERS hilos leen. Al final el árbol tiene que coincidir con lo que dicen los resultados:
+    // en el rango propio, el conjunto que lleva cada escritor; en el compartido, una clave está
+    // si y solo si los add exitosos menos los remove exitosos de todos los hilos suman 1.
+    private static void concurrentStress() throws Exception {
+        final int writers = 4;
+        final int readers = 2;
+        final int own = 2000;      // Claves propias de cada escritor
+        final int shared = 200;    // Claves compartidas, después de las propias
+        final int stable = 500;    // Claves pares fijas al final: siempre presentes
+        final int operations = 100000;
+        int sharedBase = writers * own;
+        int stableBase = sharedBase + shared;
+
+        ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>();
+        for (int i = 0; i < stable; i++) {
+            tree.add(stableBase + 2 * i);
+        }
+        AtomicIntegerArray balance = new AtomicIntegerArray(shared);
+        List<Set<Integer>> expected = new ArrayList<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch writersDone = new CountDownLatch(writers);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            Set<Integer> mine = new HashSet<>();
+            expected.add(mine);
+            int base = w * own;
+            long seed = w;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    Random random = new Random(seed);
+                    for (int i = 0; i < operations; i++) {
+                        boolean insert = random.nextBoolean();
+                        if (random.nextInt(4) == 0) {
+                            int key = random.nextInt(shared);
+                            if (insert ? tree.add(sharedBase + key) : tree.remove(sharedBase + key) != null) {
+                                balance.addAndGet(key, insert ? 1 : -1);
+                            }
+                        } else {
+                            int key = base + random.nextInt(own);
+                            boolean changed = insert ? tree.add(key) : tree.remove(key) != null;
+                            if (changed != (insert ? mine.add(key) : mine.remove(key))) {
+                                throw new AssertionError("Resultado incorrecto para " + key);
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    writersDone.countDown();
+                }
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            long seed = 100 + r;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    Random random = new Random(seed);
+                    while (writersDone.getCount() > 0) {
+                        int key = stableBase + random.nextInt(2 * stable);
+                        if (tree.contains(key) != (key % 2 == 0)) {
+                            throw new AssertionError("Lectura incorrecta de la clave fija " + key);
+                        }
+                        tree.get(random.nextInt(stableBase));
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError("Falló un hilo", error.get());
+        }
+
+        tree.checkInvariants();
+        int size = stable;
+        for (int w = 0; w < writers; w++) {
+            for (int key = w * own; key < (w + 1) * own; key++) {
+                check(tree.contains(key) == expected.get(w).contains(key), "Clave propia " + key);
+            }
+            size += expected.get(w).size();
+        }
+        for (int key = 0; key < shared; key++) {
+            int net = balance.get(key);
+            check(net == 0 || net == 1, "Balance imposible " + net + " para la clave compartida " + key);
+            check(tree.contains(sharedBase + key) == (net == 1), "Clave compartida " + (sharedBase + key));
+            size += net;
+        }
+        check(tree.size() == size, "Tamaño " + tree.size() + ", esperado " + size);
+        System.out.println("Tamaño final: " + size);
+    }
+
+    // Cada operación crea una versión nueva; todas las anteriores tienen que seguir iguales.
+    // Cada tanto se hace un lote con un transient, que tampoco puede tocar la versión de origen.
+    private static void persistentVersions() throws Exception {
+        Random random = new Random(14);
+        List<PersistentAVLTree<Integer>> versions = new ArrayList<>();
+        List<TreeSet<Integer>> expected = new ArrayList<>();
+        versions.add(PersistentAVLTree.empty());
+        expected.add(new TreeSet<>());
+        for (int i = 0; i < 3000; i++) {
+            PersistentAVLTree<Integer> last = versions.get(versions.size() - 1);
+            TreeSet<Integer> next = new TreeSet<>(expected.get(expected.size() - 1));
+            PersistentAVLTree<Integer> version;
+            if (i % 100 == 99) {
+                PersistentAVLTree.Transient<Integer> edit = last.asTransient();
+                for (int j = 0; j < 200; j++) {
+                    int key = random.nextInt(300);
+                    if (random.nextBoolean()) {
+                        check(edit.add(key) == next.add(key), "Transient add " + key);
+                    } else {
+                        check((edit.remove(key) != null) == next.remove(key), "Transient remove " + key);
+                    }
+                    check(edit.size() == next.size(), "Tamaño del transient");
+                }
+                version = edit.persistent();
+                try {
+                    edit.add(0);
+                    check(false, "El transient cerrado aceptó cambios");
+                } catch (IllegalStateException e) {
+                    // Esperado
+                }
+            } else {
+                int key = random.nextInt(300);
+                if (random.nextInt(3) > 0) {
+                    version = last.add(key);
+                    check((version != last) == next.add(key), "add " + key);
+                } else {
+                    version = last.remove(key);
+                    check((version != last) == next.remove(key), "remove " + key);
+                }
+            }
+            version.checkInvariants();
+            versions.add(version);
+            expected.add(next);
+        }
+        for (int v = 0; v < versions.size(); v++) {
+            versions.get(v).checkInvariants();
+            check(versions.get(v).size() == expected.get(v).size(), "Tamaño de la versión " + v);
+            checkElements(versions.get(v), expected.get(v), "Versión " + v);
+        }
+        System.out.println("Versiones verificadas: " + versions.size());
+    }
+
+    // Lotes chicos y grandes (estos pasan el umbral de fork/join), con claves repetidas dentro
+    // del lote y claves que ya están o no en el árbol. Los rechazados tienen que ser exactamente
+    // los que un add/remove de a uno habría rechazado.
+    private static void batchOperations() throws Exception {
+        Random random = new Random(15);
+        AVLTree<Integer> tree = new AVLTree<>();
+        tree.setSelfCheck(true);
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int round = 0; round < 60; round++) {
+            int size = round % 10 == 9 ? 20000 : random.nextInt(200);
+            int range = round % 10 == 9 ? 60000 : 2000;
+            List<Integer> batch = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                batch.add(random.nextInt(range));
+            }
+            boolean insert = random.nextInt(3) > 0;
+            List<Integer> rejected = insert ? tree.insertAll(batch) : tree.deleteAll(batch);
+            List<Integer> expectedRejected = new ArrayList<>();
+            for (Integer key : batch) {
+                if (insert ? !expected.add(key) : !expected.remove(key)) {
+                    expectedRejected.add(key);
+                }
+            }
+            Collections.sort(rejected);
+            Collections.sort(expectedRejected);
+            check(rejected.equals(expectedRejected), (insert ? "insertAll" : "deleteAll") + " rechazó otras claves");
+            check(tree.size() == expected.size(), "Tamaño después del lote " + round);
+        }
+        checkElements(tree, expected, "Contenido final");
+        System.out.println("Elementos finales: " + tree.size());
+    }
+
+    private static AVLTree<Integer> randomTree(Random random, int size, int range, TreeSet<Integer> expected) {
+        AVLTree<Integer> tree = new AVLTree<>();
+        while (expected.size() < size) {
+            int key = random.nextInt(range);
+            check(tree.add(key) == expected.add(key), "add " + key);
+        }
+        return tree;
+    }
+
+    // Árboles de tamaños parecidos y muy distintos (camino de un elemento por vez), y grandes
+    // para el camino con fork/join. Las operaciones son destructivas: el argumento queda vacío.
+    private static void setOperations() throws Exception {
+        Random random = new Random(16);
+        int[][] sizes = { { 0, 50 }, { 50, 0 }, { 300, 300 }, { 2000, 40 }, { 40, 2000 }, { 20000, 20000 } };
+        for (int[] pair : sizes) {
+            for (int op = 0; op < 3; op++) {
+                int range = 2 * (pair[0] + pair[1]) + 10;
+                TreeSet<Integer> a = new TreeSet<>();
+                TreeSet<Integer> b = new TreeSet<>();
+                AVLTree<Integer> treeA = randomTree(random, pair[0], range, a);
+                AVLTree<Integer> treeB = randomTree(random, pair[1], range, b);
+                String name;
+                if (op == 0) {
+                    treeA.union(treeB);
+                    a.addAll(b);
+                    name = "union";
+                } else if (op == 1) {
+                    treeA.intersection(treeB);
+                    a.retainAll(b);
+                    name = "intersection";
+                } else {
+                    treeA.difference(treeB);
+                    a.removeAll(b);
+                    name = "difference";
+                }
+                String label = name + " " + pair[0] + "/" + pair[1];
+                treeA.checkInvariants();
+                check(treeA.size() == a.size(), "Tamaño de " + label);
+                checkElements(treeA, a, label);
+                check(treeB.isEmpty(), "El argumento de " + label + " no quedó vacío");
+            }
+        }
+
+        // split en claves presentes, ausentes y fuera del rango, y join de vuelta
+        for (int round = 0; round < 200; round++) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            AVLTree<Integer> tree = randomTree(random, random.nextInt(500), 2000, expected);
+            int key = random.nextInt(2200) - 100;
+            AVLTree<Integer> upper = tree.split(key);
+            tree.checkInvariants();
+            upper.checkInvariants();
+            checkElements(tree, expected.headSet(key, false), "split, parte menor en " + key);
+            checkElements(upper, expected.tailSet(key, true), "split, parte mayor en " + key);
+
+            // join necesita una clave que separe las dos partes
+            Integer separator = expected.ceiling(key);
+            if (separator != null) {
+                upper.remove(separator);
+                AVLTree<Integer> joined = AVLTree.join(tree, separator, upper);
+                joined.checkInvariants();
+                checkElements(joined, expected, "join en " + separator);
+                check(tree.isEmpty() && upper.isEmpty(), "join no vació sus argumentos");
+            }
+        }
+        try {
+            AVLTree<Integer> low = new AVLTree<>();
+            AVLTree<Integer> high = new AVLTree<>();
+            low.add(5);
+            high.add(3);
+            AVLTree.join(low, 4, high);
+            check(false, "join aceptó partes desordenadas");
+        } catch (IllegalArgumentException e) {
+            // Esperado
+        }
+    }
+
+    // Dos dedos sobre el mismo árbol mezclados con add/remove, append, lotes, split/union y
+    // destroyNodes: cada cambio hecho por fuera tiene que invalidar el camino guardado del dedo.
+    // Las claves caminan (localidad) o son uniformes, en rangos chicos y grandes.
+    private static void fingerOperations() throws Exception {
+        for (int seed = 0; seed < 12; seed++) {
+            Random random = new Random(seed);
+            AVLTree<Integer> tree = new AVLTree<>();
+            tree.setSelfCheck(true);
+            TreeSet<Integer> expected = new TreeSet<>();
+            AVLTree<Integer>.Finger first = tree.finger();
+            AVLTree<Integer>.Finger second = tree.finger();
+            int range = seed % 2 == 0 ? 500 : 100_000;
+            int cursor = 0;
+            for (int i = 0; i < 5000; i++) {
+                cursor += random.nextInt(21) - 8;
+                int key = seed % 3 == 0 ? random.nextInt(range) : Math.floorMod(cursor, range);
+                AVLTree<Integer>.Finger finger = random.nextBoolean() ? first : second;
+                int op = random.nextInt(100);
+                String label = "semilla " + seed + ", operación " + i;
+                if (op < 30) {
+                    check(finger.add(key) == expected.add(key), "Finger.add(" + key + "), " + label);
+                } else if (op < 45) {
+                    Integer removed = expected.remove(key) ? key : null;
+                    check(Objects.equals(finger.remove(key), removed), "Finger.remove(" + key + "), " + label);
+                } else if (op < 70) {
+                    check(finger.contains(key) == expected.contains(key), "Finger.contains(" + key + "), " + label);
+                } else if (op < 78) {
+                    check(tree.add(key) == expected.add(key), "add(" + key + "), " + label);
+                } else if (op < 83) {
+                    Integer removed = expected.remove(key) ? key : null;
+                    check(Objects.equals(tree.remove(key), removed), "remove(" + key + "), " + label);
+                } else if (op < 90) {
+                    // Casi siempre por encima del máximo; a veces por debajo, donde append equivale a add
+                    int max = expected.isEmpty() ? 0 : expected.last();
+                    int value = max + 1 + random.nextInt(3) - (random.nextInt(4) == 0 ? 5 : 0);
+                    check(tree.append(value) == expected.add(value), "append(" + value + "), " + label);
+                } else if (op < 91) {
+                    List<Integer> batch = new ArrayList<>();
+                    for (int j = 0; j < 20; j++) {
+                        batch.add(random.nextInt(range));
+                    }
+                    tree.insertAll(batch);
+                    expected.addAll(batch);
+                } else if (op < 92) {
+                    AVLTree<Integer> upper = tree.split(key);
+                    checkElements(upper, expected.tailSet(key, true), "split(" + key + "), " + label);
+                    tree.union(upper);
+                } else if (op < 93 && random.nextInt(20) == 0 && !tree.isEmpty()) {
+                    tree.destroyNodes();
+                    expected.clear();
+                } else {
+                    Integer found = expected.contains(key) ? key : null;
+                    check(Objects.equals(finger.get(key), found), "Finger.get(" + key + "), " + label);
+                }
+            }
+            check(tree.size() == expected.size(), "Tamaño final, semilla " + seed);
+            checkElements(tree, expected, "Contenido final, semilla " + seed);
+        }
+    }
+
+    // AVLTreeMap contra un TreeMap con el mismo Comparator (no el orden natural): put, compute*,
+    // merge y remove reutilizan el camino del descenso, y remove de un nodo con dos hijos mueve
+    // el sucesor. put sobre una clave existente no puede cambiar la forma, y una función que
+    // modifica el mapa dentro de compute tiene que detectarse.
+    private static void avlTreeMapDifferential() throws Exception {
+        // 37 es invertible módulo 1009, así que es un orden total sobre las claves 0..1008
+        Comparator<Integer> order = Comparator.comparingInt(key -> Math.floorMod(key * 37, 1009));
+        for (int seed = 0; seed < 4; seed++) {
+            Random random = new Random(seed);
+            AVLTreeMap<Integer, Integer> map = new AVLTreeMap<>(order);
+            TreeMap<Integer, Integer> expected = new TreeMap<>(order);
+            int keys = seed % 2 == 0 ? 60 : 400;
+            for (int i = 0; i < 8000; i++) {
+                Integer key = random.nextInt(keys);
+                Integer value = random.nextInt(5);
+                String label = "semilla " + seed + ", operación " + i + ", clave " + key;
+                switch (random.nextInt(14)) {
+                    case 0 -> {
+                        boolean present = expected.containsKey(key);
+                        String shape = map.breadthFirst();
+                        check(Objects.equals(map.put(key, value), expected.put(key, value)), "put, " + label);
+                        check(!present || shape.equals(map.breadthFirst()), "put sobre clave existente cambió la forma, " + label);
+                    }
+                    case 1 -> check(Objects.equals(map.putIfAbsent(key, value), expected.putIfAbsent(key, value)),
+                            "putIfAbsent, " + label);
+                    case 2 -> {
+                        try {
+                            map.insert(key, value);
+                            check(expected.putIfAbsent(key, value) == null, "insert aceptó un duplicado, " + label);
+                        } catch (ItemDuplicated e) {
+                            check(expected.containsKey(key), "insert rechazó una clave nueva, " + label);
+                        }
+                    }
+                    case 3 -> {
+                        BiFunction<Integer, Integer, Integer> function = (k, old) -> value == 0 ? null
+                                : old == null ? value : old + value;
+                        check(Objects.equals(map.compute(key, function), expected.compute(key, function)),
+                                "compute, " + label);
+                    }
+                    case 4 -> {
+                        BiFunction<Integer, Integer, Integer> function = (k, old) -> value == 0 ? null : old * 2 + k;
+                        check(Objects.equals(map.computeIfPresent(key, function), expected.computeIfPresent(key, function)),
+                                "computeIfPresent, " + label);
+                    }
+                    case 5 -> {
+                        Function<Integer, Integer> function = k -> value == 0 ? null : k + value;
+                        check(Objects.equals(map.computeIfAbsent(key, function), expected.computeIfAbsent(key, function)),
+                                "computeIfAbsent, " + label);
+                    }
+                    case 6 -> {
+                        BiFunction<Integer, Integer, Integer> function = (a, b) -> (a + b) % 4 == 0 ? null : a + b;
+                        check(Objects.equals(map.merge(key, value + 1, function), expected.merge(key, value + 1, function)),
+                                "merge, " + label);
+                    }
+                    case 7, 8 -> check(Objects.equals(map.remove(key), expected.remove(key)), "remove, " + label);
+                    case 9 -> {
+                        try {
+                            map.delete(key);
+                            check(!expected.isEmpty(), "delete no lanzó con el mapa vacío, " + label);
+                            expected.remove(key);
+                        } catch (ExceptionIsEmpty e) {
+                            check(expected.isEmpty(), "delete lanzó con el mapa no vacío, " + label);
+                        }
+                    }
+                    case 10 -> {
+                        check(Objects.equals(map.get(key), expected.get(key)), "get, " + label);
+                        check(map.getOrDefault(key, -1).equals(expected.getOrDefault(key, -1)), "getOrDefault, " + label);
+                        check(map.containsKey(key) == expected.containsKey(key), "containsKey, " + label);
+                        try {
+                            check(map.search(key).equals(expected.get(key)), "search, " + label);
+                        } catch (ItemNotFound e) {
+                            check(!expected.containsKey(key), "search no encontró la clave, " + label);
+                        }
+                    }
+                    case 11 -> {
+                        check(Objects.equals(map.floorKey(key), expected.floorKey(key)), "floorKey, " + label);
+                        check(Objects.equals(map.ceilingKey(key), expected.ceilingKey(key)), "ceilingKey, " + label);
+                        if (!expected.isEmpty()) {
+                            check(map.firstKey().equals(expected.firstKey()) && map.lastKey().equals(expected.lastKey()),
+                                    "firstKey/lastKey, " + label);
+                        }
+                    }
+                    case 12 -> {
+                        // La función usa el mapa: si agrega una clave compute lanza; si solo cambia un
+                        // valor (el camino del descenso queda pisado) compute tiene que terminar bien
+                        Integer other = random.nextInt(keys);
+                        boolean structural = !expected.containsKey(other);
+                        try {
+                            Integer result = map.compute(key, (k, old) -> {
+                                map.put(other, 1);
+                                return 2;
+                            });
+                            check(!structural, "compute no detectó la modificación, " + label);
+                            check(result == 2, "compute con put interno, " + label);
+                            expected.put(other, 1);
+                            expected.put(key, 2);
+                        } catch (ConcurrentModificationException e) {
+                            check(structural, "compute lanzó sin cambio de estructura, " + label);
+                            expected.put(other, 1);
+                        }
+                    }
+                    default -> {
+                        if (random.nextInt(200) == 0) {
+                            for (Integer present : new ArrayList<>(expected.keySet())) {
+                                check(Objects.equals(map.remove(present), expected.remove(present)), "vaciado, " + label);
+                            }
+                        }
+                    }
+                }
+                map.checkInvariants();
+                check(map.size() == expected.size() && map.isEmpty() == expected.isEmpty(), "Tamaño, " + label);
+                if (i % 500 == 0) {
+                    List<Integer> pairs = new ArrayList<>();
+                    map.forEach((k, v) -> {
+                        pairs.add(k);
+                        pairs.add(v);
+                    });
+                    List<Integer> expectedPairs = new ArrayList<>();
+                    expected.forEach((k, v) -> {
+                        expectedPairs.add(k);
+                        expectedPairs.add(v);
+                    });
+                    check(pairs.equals(expectedPairs), "Contenido, " + label);
+                }
+            }
+        }
+    }
+
+    // ByteKeyAVLTree contra un TreeSet con orden de bytes sin signo. Las claves comparten
+    // prefijos largos (uno es prefijo de otro), son a veces prefijo de otras claves y tienen
+    // bytes >= 0x80; la arena arranca mínima para que append compacte seguido.
+    private static void byteKeyDifferential() throws Exception {
+        byte[][] prefixes = new byte[3][];
+        prefixes[0] = "https://example.org/catálogo/productos/".getBytes("UTF-8");
+        prefixes[1] = Arrays.copyOf(prefixes[0], prefixes[0].length + 20); // Extiende al primero
+        Arrays.fill(prefixes[1], prefixes[0].length, prefixes[1].length, (byte) 0x80);
+        prefixes[2] = new byte[] { (byte) 0xFF, (byte) 0xFE, 0x00, 0x7F };
+        byte[] alphabet = { 0x00, 0x01, 'a', 0x7F, (byte) 0x80, (byte) 0xC3, (byte) 0xFF };
+        for (int seed = 0; seed < 3; seed++) {
+            Random random = new Random(seed);
+            ByteKeyAVLTree tree = new ByteKeyAVLTree(1, 16);
+            TreeSet<byte[]> expected = new TreeSet<>(Arrays::compareUnsigned);
+            long appended = 0;
+            for (int i = 0; i < 8000; i++) {
+                byte[] prefix = prefixes[random.nextInt(prefixes.length)];
+                byte[] key = Arrays.copyOf(prefix, prefix.length + random.nextInt(4));
+                for (int j = prefix.length; j < key.length; j++) {
+                    key[j] = alphabet[random.nextInt(alphabet.length)];
+                }
+                String label = "semilla " + seed + ", operación " + i + ", clave " + Arrays.toString(key);
+                int op = random.nextInt(10);
+                if (op < 4) {
+                    boolean added = expected.add(key.clone());
+                    check(tree.add(key) == added, "add, " + label);
+                    Arrays.fill(key, (byte) 0x55); // El árbol guarda su propia copia de la clave
+                    appended += added ? key.length : 0;
+                } else if (op < 7) {
+                    check(tree.remove(key) == expected.remove(key), "remove, " + label);
+                } else if (op < 8) {
+                    try {
+                        tree.insert(key);
+                        check(expected.add(key), "insert aceptó un duplicado, " + label);
+                        appended += key.length;
+                    } catch (ItemDuplicated e) {
+                        check(expected.contains(key), "insert rechazó una clave nueva, " + label);
+                    }
+                } else {
+                    check(tree.contains(key) == expected.contains(key), "contains, " + label);
+                }
+                tree.checkInvariants();
+                check(tree.size() == expected.size(), "Tamaño, " + label);
+                if (!expected.isEmpty()) {
+                    check(Arrays.equals(tree.findMin(), expected.first()), "findMin, " + label);
+                    check(Arrays.equals(tree.findMax(), expected.last()), "findMax, " + label);
+                }
+                if (i % 1000 == 0) {
+                    List<byte[]> keys = new ArrayList<>();
+                    tree.forEach(keys::add);
+                    check(keys.size() == expected.size(), "forEach, " + label);
+                    Iterator<byte[]> it = expected.iterator();
+                    for (byte[] found : keys) {
+                        check(Arrays.equals(found, it.next()), "forEach en orden, " + label);
+                    }
+                }
+            }
+            check(tree.arenaBytes() < appended, "La arena no se compactó: " + tree.arenaBytes() + " de " + appended);
+        }
+
+        // Claves String: el orden es el de sus bytes UTF-8
+        ByteKeyAVLTree strings = new ByteKeyAVLTree(1, 16);
+        TreeSet<byte[]> expected = new TreeSet<>(Arrays::compareUnsigned);
+        for (String key : new String[] { "ñandú", "nandu", "日本", "日", "\uD83D\uDE00", "\uFFFD", "", "a" }) {
+            check(strings.add(key) == expected.add(key.getBytes("UTF-8")), "add(String) " + key);
+        }
+        strings.checkInvariants();
+        List<byte[]> keys = new ArrayList<>();
+        strings.forEach(keys::add);
+        Iterator<byte[]> it = expected.iterator();
+        for (byte[] found : keys) {
+            check(Arrays.equals(found, it.next()), "Orden UTF-8 de las claves String");
+        }
+        check(strings.contains("日") && !strings.contains("日本語") && strings.remove("ñandú"), "contains/remove(String)");
+    }
+
+    // freeze() de AVLTree (sin prefijo, con prefijo exacto y con uno grueso que empata seguido) y
+    // de IntAVLTree contra un TreeSet, para cada n de 0 a 70 (todas las formas del arreglo de
+    // Eytzinger chico, con y sin lecturas adelantadas) y un n grande; las consultas incluyen
+    // valores por debajo del mínimo, por encima del máximo y entre claves.
+    private static void frozenQueries() throws Exception {
+        Random random = new Random(19);
+        for (int n = 0; n <= 71; n++) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            if (n <= 70) {
+                for (int i = 0; i < n; i++) {
+                    expected.add(3 * i - n);
+                }
+            } else {
+                while (expected.size() < 100_000) {
+                    expected.add(random.nextInt(2_000_000) - 1_000_000);
+                }
+            }
+            AVLTree<Integer> tree = new AVLTree<>();
+            IntAVLTree ints = new IntAVLTree();
+            for (Integer key : expected) {
+                tree.add(key);
+                ints.add(key);
+            }
+            List<Integer> queries = new ArrayList<>();
+            if (n <= 70) {
+                for (int x = -n - 4; x <= 2 * n + 4; x++) {
+                    queries.add(x);
+                }
+            } else {
+                for (int q = 0; q < 20_000; q++) {
+                    queries.add(random.nextInt(2_100_000) - 1_050_000);
+                }
+                queries.addAll(List.of(expected.first() - 1, expected.first(), expected.last(), expected.last() + 1));
+            }
+            String size = "n = " + expected.size();
+
+            List<ToLongFunction<Integer>> prefixes = Arrays.asList(null, Integer::longValue, key -> key >> 4);
+            for (ToLongFunction<Integer> prefix : prefixes) {
+                FrozenAVLTree<Integer> frozen = tree.freeze(prefix);
+                String label = size + (prefix == null ? ", sin prefijo" : ", con prefijo");
+                frozen.checkInvariants();
+                check(frozen.size() == expected.size() && frozen.isEmpty() == expected.isEmpty(), "Tamaño, " + label);
+                checkElements(frozen, expected, label);
+                checkFrozenEnds(frozen::findMin, frozen::findMax, expected, label);
+                for (Integer x : queries) {
+                    check(frozen.contains(x) == expected.contains(x), "contains(" + x + "), " + label);
+                    check(Objects.equals(frozen.get(x), expected.contains(x) ? x : null), "get(" + x + "), " + label);
+                    check(Objects.equals(frozen.floor(x), expected.floor(x)), "floor(" + x + "), " + label);
+                    check(Objects.equals(frozen.ceiling(x), expected.ceiling(x)), "ceiling(" + x + "), " + label);
+                }
+            }
+
+            FrozenIntAVLTree frozen = ints.freeze();
+            String label = size + ", FrozenIntAVLTree";
+            check(frozen.size() == expected.size() && frozen.isEmpty() == expected.isEmpty(), "Tamaño, " + label);
+            List<Integer> keys = new ArrayList<>();
+            frozen.forEach(keys::add);
+            check(keys.equals(new ArrayList<>(expected)), "forEach, " + label);
+            checkFrozenEnds(frozen::findMin, frozen::findMax, expected, label);
+            for (int x : queries) {
+                check(frozen.contains(x) == expected.contains(x), "contains(" + x + "), " + label);
+                Integer floor = expected.floor(x);
+                Integer ceiling = expected.ceiling(x);
+                check(frozen.floorOrElse(x, Integer.MIN_VALUE) == (floor == null ? Integer.MIN_VALUE : floor),
+                        "floorOrElse(" + x + "), " + label);
+                check(frozen.ceilingOrElse(x, Integer.MAX_VALUE) == (ceiling == null ? Integer.MAX_VALUE : ceiling),
+                        "ceilingOrElse(" + x + "), " + label);
+                try {
+                    check(frozen.floor(x) == floor, "floor(" + x + "), " + label);
+                } catch (ItemNotFound e) {
+                    check(floor == null, "floor(" + x + ") no encontró, " + label);
+                }
+                try {
+                    check(frozen.ceiling(x) == ceiling, "ceiling(" + x + "), " + label);
+                } catch (ItemNotFound e) {
+                    check(ceiling == null, "ceiling(" + x + ") no encontró, " + label);
+                }
+            }
+        }
+    }
+
+    private interface Extreme {
+        int get() throws ItemNotFound;
+    }
+
+    // findMin/findMax de un árbol congelado: ItemNotFound si está vacío
+    private static void checkFrozenEnds(Extreme min, Extreme max, TreeSet<Integer> expected, String label) {
+        try {
+            check(min.get() == expected.first() && max.get() == expected.last(), "findMin/findMax, " + label);
+        } catch (ItemNotFound e) {
+            check(expected.isEmpty(), "findMin/findMax no encontró, " + label);
+        }
+    }
+
+    // IntAVLTree y LongAVLTree son la misma clase con otro tipo de clave: el mismo driver las
+    // compara con un TreeSet, con claves separadas por step (más allá del rango de int en
+    // LongAVLTree) y los extremos del tipo
+    private interface PrimitiveTree {
+        boolean add(long x);
+        boolean remove(long x);
+        boolean contains(long x);
+        void insert(long x) throws ItemDuplicated;
+        void delete(long x) throws ExceptionIsEmpty;
+        long search(long x) throws ItemNotFound;
+        long findMin() throws ItemNotFound;
+        long findMax() throws ItemNotFound;
+        boolean isEmpty();
+        void forEach(LongConsumer action);
+        void checkInvariants();
+    }
+
+    private static void primitiveDifferentials() throws Exception {
+        IntAVLTree ints = new IntAVLTree();
+        primitiveDifferential("IntAVLTree", 1, Integer.MIN_VALUE, Integer.MAX_VALUE, new PrimitiveTree() {
+            @Override
+            public boolean add(long x) {
+                return ints.add((int) x);
+            }
+
+            @Override
+            public boolean remove(long x) {
+                return ints.remove((int) x);
+            }
+
+            @Override
+            public boolean contains(long x) {
+                return ints.contains((int) x);
+            }
+
+            @Override
+            public void insert(long x) throws ItemDuplicated {
+                ints.insert((int) x);
+            }
+
+            @Override
+            public void delete(long x) throws ExceptionIsEmpty {
+                ints.delete((int) x);
+            }
+
+            @Override
+            public long search(long x) throws ItemNotFound {
+                return ints.search((int) x);
+            }
+
+            @Override
+            public long findMin() throws ItemNotFound {
+                return ints.findMin();
+            }
+
+            @Override
+            public long findMax() throws ItemNotFound {
+                return ints.findMax();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return ints.isEmpty();
+            }
+
+            @Override
+            public void forEach(LongConsumer action) {
+                ints.forEach(action::accept);
+            }
+
+            @Override
+            public void checkInvariants() {
+                ints.checkInvariants();
+            }
+        });
+        LongAVLTree longs = new LongAVLTree();
+        primitiveDifferential("LongAVLTree", 1L << 34, Long.MIN_VALUE, Long.MAX_VALUE, new PrimitiveTree() {
+            @Override
+            public boolean add(long x) {
+                return longs.add(x);
+            }
+
+            @Override
+            public boolean remove(long x) {
+                return longs.remove(x);
+            }
+
+            @Override
+            public boolean contains(long x) {
+                return longs.contains(x);
+            }
+
+            @Override
+            public void insert(long x) throws ItemDuplicated {
+                longs.insert(x);
+            }
+
+            @Override
+            public void delete(long x) throws ExceptionIsEmpty {
+                longs.delete(x);
+            }
+
+            @Override
+            public long search(long x) throws ItemNotFound {
+                return longs.search(x);
+            }
+
+            @Override
+            public long findMin() throws ItemNotFound {
+                return longs.findMin();
+            }
+
+            @Override
+            public long findMax() throws ItemNotFound {
+                return longs.findMax();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return longs.isEmpty();
+            }
+
+            @Override
+            public void forEach(LongConsumer action) {
+                longs.forEach(action);
+            }
+
+            @Override
+            public void checkInvariants() {
+                longs.checkInvariants();
+            }
+        });
+    }
+
+    private static void primitiveDifferential(String name, long step, long min, long max, PrimitiveTree tree)
+            throws Exception {
+        Random random = new Random(5);
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 30_000; i++) {
+            int r = random.nextInt(100);
+            long key = r == 0 ? min : r == 1 ? max : (random.nextInt(600) - 300) * step;
+            String label = name + ", operación " + i + ", clave " + key;
+            int op = random.nextInt(10);
+            if (op < 4) {
+                check(tree.add(key) == expected.add(key), "add, " + label);
+            } else if (op < 7) {
+                check(tree.remove(key) == expected.remove(key), "remove, " + label);
+            } else if (op == 7) {
+                try {
+                    tree.insert(key);
+                    check(expected.add(key), "insert aceptó un duplicado, " + label);
+                } catch (ItemDuplicated e) {
+                    check(expected.contains(key), "insert rechazó una clave nueva, " + label);
+                }
+            } else if (op == 8) {
+                try {
+                    tree.delete(key);
+                    check(!expected.isEmpty(), "delete no lanzó con el árbol vacío, " + label);
+                    expected.remove(key);
+                } catch (ExceptionIsEmpty e) {
+                    check(expected.isEmpty(), "delete lanzó con el árbol no vacío, " + label);
+                }
+            } else {
+                check(tree.contains(key) == expected.contains(key), "contains, " + label);
+                try {
+                    check(tree.search(key) == key && expected.contains(key), "search, " + label);
+                } catch (ItemNotFound e) {
+                    check(!expected.contains(key), "search no encontró la clave, " + label);
+                }
+            }
+            tree.checkInvariants();
+            check(tree.isEmpty() == expected.isEmpty(), "isEmpty, " + label);
+            if (!expected.isEmpty()) {
+                check(tree.findMin() == expected.first() && tree.findMax() == expected.last(), "findMin/findMax, " + label);
+            }
+            if (i % 1000 == 0) {
+                List<Long> keys = new ArrayList<>();
+                tree.forEach(keys::add);
+                check(keys.equals(new ArrayList<>(expected)), "forEach, " + label);
+            }
+            if (i % 10_000 == 9_999) {
+                for (Long present : new ArrayList<>(expected)) {
+                    check(tree.remove(present) && expected.remove(present), "vaciado, " + label);
+                }
+                check(tree.isEmpty(), "No quedó vacío, " + label);
+            }
+        }
+    }
+
+    // buildFrom/buildFromUnsorted: entrada vacía, desordenada (IllegalArgumentException),
+    // con duplicados (ItemDuplicated), todos los tamaños chicos y 100k desordenados (por encima
+    // del umbral de ordenamiento en paralelo) seguidos de cambios
+    private static void buildOperations() throws Exception {
+        List<AVLTree<Integer>> empties = List.of(AVLTree.buildFrom(new Integer[0]),
+                AVLTree.buildFrom(Collections.<Integer>emptyIterator()), AVLTree.buildFromUnsorted(new Integer[0]));
+        for (AVLTree<Integer> tree : empties) {
+            tree.checkInvariants();
+            check(tree.isEmpty() && tree.size() == 0, "Árbol construido de una entrada vacía no está vacío");
+            check(tree.add(1) && tree.size() == 1, "add en árbol construido vacío");
+        }
+
+        Integer[][] unsorted = { { 1, 3, 2 }, { 2, 1 }, { 1, 2, 3, 4, 5, 0 } };
+        for (Integer[] items : unsorted) {
+            for (boolean iterator : new boolean[] { false, true }) {
+                try {
+                    if (iterator) {
+                        AVLTree.buildFrom(Arrays.asList(items).iterator());
+                    } else {
+                        AVLTree.buildFrom(items);
+                    }
+                    check(false, "buildFrom aceptó la entrada desordenada " + Arrays.toString(items));
+                } catch (IllegalArgumentException e) {
+                    // Esperado
+                }
+            }
+        }
+
+        Integer[] large = new Integer[100_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = 2 * i;
+        }
+        large[large.length - 1] = 0; // Duplicado por encima del umbral de ordenamiento en paralelo
+        Integer[][] duplicated = { { 1, 2, 2, 3 }, { 7, 7 }, { 5, 1, 5 }, large };
+        for (Integer[] items : duplicated) {
+            String label = items.length > 10 ? items.length + " claves" : Arrays.toString(items);
+            try {
+                AVLTree.buildFromUnsorted(items);
+                check(false, "buildFromUnsorted aceptó duplicados en " + label);
+            } catch (ItemDuplicated e) {
+                // Esperado
+            }
+        }
+        for (Integer[] items : new Integer[][] { duplicated[0], duplicated[1] }) {
+            for (boolean iterator : new boolean[] { false, true }) {
+                try {
+                    if (iterator) {
+                        AVLTree.buildFrom(Arrays.asList(items).iterator());
+                    } else {
+                        AVLTree.buildFrom(items);
+                    }
+                    check(false, "buildFrom aceptó duplicados en " + Arrays.toString(items));
+                } catch (ItemDuplicated e) {
+                    // Esperado
+                }
+            }
+        }
+
+        for (int n = 1; n <= 40; n++) {
+            Integer[] items = new Integer[n];
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < n; i++) {
+                items[i] = 3 * i;
+                expected.add(3 * i);
+            }
+            for (AVLTree<Integer> tree : List.of(AVLTree.buildFrom(items), AVLTree.buildFrom(expected.iterator()))) {
+                tree.checkInvariants();
+                check(tree.size() == n, "Tamaño de buildFrom con n = " + n);
+                checkElements(tree, expected, "buildFrom con n = " + n);
+            }
+        }
+
+        Random random = new Random(8);
+        Integer[] shuffled = new Integer[100_000];
+        for (int i = 0; i < shuffled.length; i++) {
+            shuffled[i] = 3 * i - 50_000;
+        }
+        Collections.shuffle(Arrays.asList(shuffled), random);
+        Integer[] original = shuffled.clone();
+        TreeSet<Integer> expected = new TreeSet<>(Arrays.asList(shuffled));
+        AVLTree<Integer> tree = AVLTree.buildFromUnsorted(shuffled);
+        check(Arrays.equals(shuffled, original), "buildFromUnsorted modificó su argumento");
+        tree.checkInvariants();
+        check(tree.size() == expected.size(), "Tamaño de buildFromUnsorted con 100k");
+        checkElements(tree, expected, "buildFromUnsorted con 100k");
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(400_000) - 100_000;
+            if (random.nextBoolean()) {
+                check(tree.add(key) == expected.add(key), "add(" + key + ") después de buildFromUnsorted");
+            } else {
+                check((tree.remove(key) != null) == expected.remove(key), "remove(" + key + ") después de buildFromUnsorted");
+            }
+            if (i % 10_000 == 0) {
+                tree.checkInvariants();
+            }
+        }
+        tree.checkInvariants();
+        check(tree.size() == expected.size(), "Tamaño después de los cambios");
+        checkElements(tree, expected, "Contenido después de los cambios");
+    }
+
+    // rank/select contra un TreeSet después de cambios por add/remove, lotes y split/union (todos
+    // tienen que mantener los tamaños de subárbol); select fuera de [0, size()) lanza
+    // IndexOutOfBoundsException
+    private static void rankSelect() throws Exception {
+        Random random = new Random(11);
+        AVLTree<Integer> tree = new AVLTree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int round = 0; round < 30; round++) {
+            for (int i = 0; i < 300; i++) {
+                int key = random.nextInt(2000);
+                if (random.nextInt(3) == 0) {
+                    check((tree.remove(key) != null) == expected.remove(key), "remove(" + key + ")");
+                } else {
+                    check(tree.add(key) == expected.add(key), "add(" + key + ")");
+                }
+            }
+            List<Integer> batch = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                batch.add(random.nextInt(2000));
+            }
+            if (round % 2 == 0) {
+                tree.insertAll(batch);
+                expected.addAll(batch);
+            } else {
+                tree.deleteAll(batch);
+                expected.removeAll(batch);
+            }
+            if (round % 5 == 0) {
+                int key = random.nextInt(2000);
+                AVLTree<Integer> upper = tree.split(key);
+                tree.union(upper);
+            }
+
+            String label = "ronda " + round + ", tamaño " + expected.size();
+            check(tree.size() == expected.size(), "Tamaño, " + label);
+            int k = 0;
+            for (Integer key : expected) {
+                check(tree.select(k).equals(key), "select(" + k + "), " + label);
+                k++;
+            }
+            for (int q = -1; q <= 2001; q++) {
+                check(tree.rank(q) == expected.headSet(q).size(), "rank(" + q + "), " + label);
+            }
+            for (int position : new int[] { -1, tree.size(), Integer.MIN_VALUE, Integer.MAX_VALUE }) {
+                try {
+                    tree.select(position);
+                    check(false, "select(" + position + ") no lanzó, " + label);
+                } catch (IndexOutOfBoundsException e) {
+                    // Esperado
+                }
+            }
+        }
+        try {
+            new AVLTree<Integer>().select(0);
+            check(false, "select(0) en un árbol vacío no lanzó");
+        } catch (IndexOutOfBoundsException e) {
+            // Esperado
+        }
+    }
+
+    // TreeMetrics conectado con attach: insertar en orden creciente solo rota a la izquierda y en
+    // orden decreciente solo a la derecha (n - k rotaciones para n = 2^k - 1, que deja el árbol
+    // perfecto); las dobles salen de tres claves en zigzag. Sin listener no se cuenta nada más.
+    private static void treeMetrics() throws Exception {
+        int levels = 10;
+        int n = (1 << levels) - 1;
+        for (boolean ascending : new boolean[] { true, false }) {
+            AVLTree<Integer> tree = new AVLTree<>();
+            TreeMetrics metrics = TreeMetrics.attach(tree);
+            for (int i = 0; i < n; i++) {
+                tree.add(ascending ? i : n - i);
+            }
+            TreeListener.Rotation expected = ascending ? TreeListener.Rotation.SINGLE_LEFT : TreeListener.Rotation.SINGLE_RIGHT;
+            for (TreeListener.Rotation rotation : TreeListener.Rotation.values()) {
+                long count = metrics.rotations(rotation);
+                check(count == (rotation == expected ? n - levels : 0), rotation + " con claves "
+                        + (ascending ? "crecientes" : "decrecientes") + ": " + count);
+            }
+            check(tree.height() == levels - 1, "Altura después de insertar en orden: " + tree.height());
+            check(metrics.getInserts() == n && metrics.latency(TreeListener.Operation.INSERT).count() == n,
+                    "Inserciones contadas: " + metrics.getInserts());
+            check(metrics.getMeanRebalanceSteps() > 0, "Sin pasos de rebalanceo");
+
+            tree.add(n / 2); // Duplicado: cuenta como inserción con sus comparaciones
+            for (int i = 0; i < 100; i++) {
+                tree.contains(i);
+            }
+            tree.remove(5);
+            tree.remove(-1);
+            check(metrics.getInserts() == n + 1 && metrics.getSearches() == 100 && metrics.getDeletes() == 2,
+                    "Operaciones contadas: " + metrics.getInserts() + "/" + metrics.getSearches() + "/" + metrics.getDeletes());
+            check(metrics.getMaxComparisons() > 0 && metrics.getMaxComparisons() <= levels + 1,
+                    "Máximo de comparaciones: " + metrics.getMaxComparisons());
+            check(metrics.getSize() == n - 1 && metrics.getHeight() == tree.height(), "Tamaño y altura leídos del árbol");
+
+            tree.setListener(null);
+            tree.add(-5);
+            tree.contains(3);
+            tree.remove(3);
+            check(metrics.getInserts() == n + 1 && metrics.getSearches() == 100 && metrics.getDeletes() == 2,
+                    "Se siguió contando sin listener");
+        }
+
+        int[][] zigzags = { { 3, 1, 2 }, { 1, 3, 2 } };
+        TreeListener.Rotation[] doubles = { TreeListener.Rotation.DOUBLE_LEFT_RIGHT, TreeListener.Rotation.DOUBLE_RIGHT_LEFT };
+        for (int z = 0; z < zigzags.length; z++) {
+            AVLTree<Integer> tree = new AVLTree<>();
+            TreeMetrics metrics = TreeMetrics.attach(tree);
+            for (int key : zigzags[z]) {
+                tree.add(key);
+            }
+            for (TreeListener.Rotation rotation : TreeListener.Rotation.values()) {
+                check(metrics.rotations(rotation) == (rotation == doubles[z] ? 1 : 0),
+                        rotation + " con " + Arrays.toString(zigzags[z]));
+            }
+            metrics.detach();
+            check(tree.getListener() == null, "detach no quitó el listener");
+        }
+
+        // percentileNanos recibe el nombre de la operación en cualquier caso, también con un
+        // Locale donde "i" no pasa a "I" en mayúsculas
+        Locale previous = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr"));
+            BSTree<Integer> tree = new BSTree<>();
+            TreeMetrics metrics = TreeMetrics.attach(tree);
+            tree.add(1);
+            tree.add(2);
+            check(metrics.getInserts() == 2, "BSTree no contó las inserciones");
+            check(metrics.percentileNanos("insert", 50) >= 0, "percentileNanos(\"insert\")");
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    // preOrderIterator/postOrderIterator contra un árbol de referencia con la misma forma: en un
+    // BSTree, el de insertar las claves en el mismo orden; en un AVLTree, el de insertarlas en
+    // el orden de breadthFirst(). El spliterator se divide hasta el final y sus partes, en
+    // orden, tienen que dar el recorrido en orden; stream().parallel() conserva ese orden.
+    private static void traversalIterators() throws Exception {
+        Random random = new Random(9);
+        for (int round = 0; round < 40; round++) {
+            int size = round < 5 ? round : random.nextInt(2000);
+            List<Integer> insertion = new ArrayList<>();
+            BSTree<Integer> plain = new BSTree<>();
+            AVLTree<Integer> balanced = new AVLTree<>();
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                int key = random.nextInt(10 * size + 10);
+                if (expected.add(key)) {
+                    insertion.add(key);
+                    plain.add(key);
+                    balanced.add(key);
+                }
+            }
+            List<Integer> levelOrder = new ArrayList<>();
+            for (String token : balanced.breadthFirst().split("\\s+")) {
+                if (!token.isEmpty() && !token.equals("|")) {
+                    levelOrder.add(Integer.valueOf(token));
+                }
+            }
+            checkTraversals(plain, new ShapeTree(insertion), "BSTree, n = " + size);
+            checkTraversals(balanced, new ShapeTree(levelOrder), "AVLTree, n = " + size);
+            for (BSTree<Integer> tree : List.of(plain, balanced)) {
+                String label = tree.getClass().getSimpleName() + ", n = " + size;
+                List<Integer> inOrder = new ArrayList<>(expected);
+                List<Integer> parts = new ArrayList<>();
+                splitAll(tree.spliterator(), parts, 0);
+                check(parts.equals(inOrder), "Partes del spliterator fuera de orden, " + label);
+                check(tree.stream().parallel().map(x -> x).collect(Collectors.toList()).equals(inOrder),
+                        "stream().parallel() no conserva el orden, " + label);
+                check(tree.stream().parallel().count() == size, "stream().parallel().count(), " + label);
+                check(tree.stream().parallel().filter(x -> x % 2 == 0).count()
+                        == inOrder.stream().filter(x -> x % 2 == 0).count(), "filter en paralelo, " + label);
+            }
+            Spliterator<Integer> sized = balanced.spliterator();
+            check(sized.hasCharacteristics(Spliterator.SIZED) && sized.getExactSizeIfKnown() == size,
+                    "El spliterator de AVLTree no informa el tamaño exacto, n = " + size);
+        }
+    }
+
+    // Divide hasta que no se pueda y agrega los elementos en orden de encuentro
+    private static void splitAll(Spliterator<Integer> spliterator, List<Integer> out, int depth) {
+        Spliterator<Integer> prefix = depth < 64 ? spliterator.trySplit() : null;
+        if (prefix != null) {
+            splitAll(prefix, out, depth + 1);
+            splitAll(spliterator, out, depth + 1);
+        } else {
+            spliterator.forEachRemaining(out::add);
+        }
+    }
+
+    private static void checkTraversals(BSTree<Integer> tree, ShapeTree shape, String label) {
+        List<Integer> pre = new ArrayList<>();
+        tree.preOrderIterator().forEachRemaining(pre::add);
+        List<Integer> post = new ArrayList<>();
+        tree.postOrderIterator().forEachRemaining(post::add);
+        check(pre.equals(shape.preOrder()), "preOrderIterator, " + label);
+        check(post.equals(shape.postOrder()), "postOrderIterator, " + label);
+        check(tree.postOrder().equals(joined(post)), "postOrder() distinto de su iterador, " + label);
+        // AVLTree.preOrder() agrega el factor de balanceo de cada nodo
+        check(tree instanceof AVLTree || tree.preOrder().equals(joined(pre)), "preOrder() distinto de su iterador, " + label);
+    }
+
+    private static String joined(List<Integer> keys) {
+        StringBuilder sb = new StringBuilder();
+        for (Integer key : keys) {
+            sb.append(key).append(" ");
+        }
+        return sb.toString();
+    }
+
+    // Árbol binario de búsqueda mínimo, sin balanceo, para calcular recorridos esperados
+    private static final class ShapeTree {
+        private final Map<Integer, Integer> left = new HashMap<>();
+        private final Map<Integer, Integer> right = new HashMap<>();
+        private Integer root;
+
+        ShapeTree(List<Integer> insertion) {
+            for (Integer key : insertion) {
+                if (root == null) {
+                    root = key;
+                    continue;
+                }
+                Integer node = root;
+                while (true) {
+                    Map<Integer, Integer> side = key < node ? left : right;
+                    Integer child = side.get(node);
+                    if (child == null) {
+                        side.put(node, key);
+                        break;
+                    }
+                    node = child;
+                }
+            }
+        }
+
+        List<Integer> preOrder() {
+            List<Integer> out = new ArrayList<>();
+            visit(root, out, true);
+            return out;
+        }
+
+        List<Integer> postOrder() {
+            List<Integer> out = new ArrayList<>();
+            visit(root, out, false);
+            return out;
+        }
+
+        private void visit(Integer node, List<Integer> out, boolean pre) {
+            if (node == null) {
+                return;
+            }
+            if (pre) {
+                out.add(node);
+            }
+            visit(left.get(node), out, pre);
+            visit(right.get(node), out, pre);
+            if (!pre) {
+                out.add(node);
+            }
+        }
+    }
+
+    // Ida y vuelta por canal y por archivo, con Integer (negativos y extremos incluidos) y String;
+    // un byte cambiado o un codec distinto tienen que rechazarse con IOException
+    private static void snapshotRoundTrip() throws Exception {
+        Random random = new Random(17);
+        for (int size : new int[] { 0, 1, 1000, 50000 }) {
+            AVLTree<Integer> tree = new AVLTree<>();
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int key : new int[] { Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0 }) {
+                if (expected.size() < size) {
+                    tree.add(key);
+                    expected.add(key);
+                }
+            }
+            while (expected.size() < size) {
+                int key = random.nextInt();
+                check(tree.add(key) == expected.add(key), "add " + key);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            tree.writeTo(Channels.newChannel(bytes), KeyCodecs.INT);
+            byte[] image = bytes.toByteArray();
+            AVLTree<Integer> copy = AVLTree.readFrom(Channels.newChannel(new ByteArrayInputStream(image)), KeyCodecs.INT);
+            copy.checkInvariants();
+            checkElements(copy, expected, "Recarga de AVLTree con " + size + " claves");
+            BSTree<Integer> plain = BSTree.readFrom(Channels.newChannel(new ByteArrayInputStream(image)), KeyCodecs.INT);
+            checkElements(plain, expected, "Recarga de BSTree con " + size + " claves");
+
+            if (size > 0) {
+                image[image.length / 2] ^= 0x10;
+                try {
+                    AVLTree.readFrom(Channels.newChannel(new ByteArrayInputStream(image)), KeyCodecs.INT);
+                    check(false, "Se aceptó un snapshot corrupto de " + size + " claves");
+                } catch (IOException e) {
+                    // Esperado
+                }
+            }
+        }
+
+        Path dir = Files.createTempDirectory("snapshot");
+        try {
+            AVLTree<String> words = new AVLTree<>();
+            TreeSet<String> expected = new TreeSet<>();
+            for (int i = 0; i < 5000; i++) {
+                String word = "clave/" + random.nextInt(100000) + (i % 7 == 0 ? "/ñandú" : "");
+                check(words.add(word) == expected.add(word), "add " + word);
+            }
+            Path file = dir.resolve("words.snap");
+            words.writeTo(file, KeyCodecs.STRING);
+            words.writeTo(file, KeyCodecs.STRING); // Reemplaza el anterior
+            AVLTree<String> copy = AVLTree.readFrom(file, KeyCodecs.STRING);
+            copy.checkInvariants();
+            check(copy.size() == expected.size(), "Tamaño de la recarga de Strings");
+            Set<String> reloaded = new TreeSet<>();
+            for (String word : copy) {
+                reloaded.add(word);
+            }
+            check(reloaded.equals(expected), "Recarga de Strings");
+            try {
+                AVLTree.readFrom(file, KeyCodecs.INT);
+                check(false, "Se aceptó un snapshot con otro codec");
+            } catch (IOException e) {
+                // Esperado
+            }
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    private static final int WAL_CHILD_KEYS = 1000;
+
+    private static DurableAVLTree.SyncPolicy policy(String name) {
+        switch (name) {
+            case "always":
+                return DurableAVLTree.SyncPolicy.always();
+            case "batched":
+                return DurableAVLTree.SyncPolicy.batched(64, 20);
+            default:
+                return DurableAVLTree.SyncPolicy.never();
+        }
+    }
+
+    // Proceso hijo: agrega WAL_CHILD_KEYS claves, quita las pares menores que 200 y termina con
+    // halt, sin close ni hooks de cierre. Con batched espera antes varias veces maxDelay, que es
+    // lo que esa política promete para llegar al disco.
+    private static void walChild(Path dir, String policy) throws Exception {
+        DurableAVLTree<Integer> tree = DurableAVLTree.open(dir, KeyCodecs.INT, policy(policy), 0);
+        for (int key = 0; key < WAL_CHILD_KEYS; key++) {
+            tree.add(key);
+        }
+        for (int key = 0; key < 200; key += 2) {
+            tree.remove(key);
+        }
+        if (policy.equals("batched")) {
+            Thread.sleep(200);
+        }
+        Runtime.getRuntime().halt(0);
+    }
+
+    // La caída del proceso no puede perder escrituras confirmadas con ninguna política:
+    // never escribe al sistema operativo antes de volver aunque no haga fsync
+    private static void durableProcessCrash() throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (String policy : new String[] { "always", "batched", "never" }) {
+            Path dir = Files.createTempDirectory("wal-" + policy);
+            try {
+                Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "TestAVL",
+                        "wal-child", dir.toString(), policy).redirectErrorStream(true).start();
+                byte[] output = child.getInputStream().readAllBytes();
+                check(child.waitFor(60, TimeUnit.SECONDS), "El proceso hijo con " + policy + " no terminó");
+                check(child.exitValue() == 0, "Falló el proceso hijo con " + policy + ": " + new String(output));
+
+                try (DurableAVLTree<Integer> tree = DurableAVLTree.open(dir, KeyCodecs.INT)) {
+                    int expected = WAL_CHILD_KEYS - 100;
+                    check(tree.recoveredRecords() == WAL_CHILD_KEYS + 100,
+                            policy + ": se recuperaron " + tree.recoveredRecords() + " registros");
+                    check(tree.size() == expected, policy + ": tamaño " + tree.size() + ", esperado " + expected);
+                    for (int key = 0; key < WAL_CHILD_KEYS; key++) {
+                        check(tree.contains(key) == (key >= 200 || key % 2 == 1), policy + ": clave " + key);
+                    }
+                }
+                System.out.println(policy + ": " + (WAL_CHILD_KEYS + 100) + " registros recuperados");
+            } finally {
+                deleteTree(dir);
+            }
+        }
+    }
+
+    // Archivos del directorio cuyo nombre empieza con prefix, ordenados por nombre
+    private static List<Path> files(Path dir, String prefix) throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> file.getFileName().toString().startsWith(prefix)).sorted().forEach(found::add);
+        }
+        return found;
+    }
+
+    private static void checkDurable(DurableAVLTree<Integer> tree, TreeSet<Integer> expected, String message) {
+        check(tree.size() == expected.size(), message + ": tamaño " + tree.size() + ", esperado " + expected.size());
+        for (Integer key : expected) {
+            check(tree.contains(key), message + ": falta " + key);
+        }
+    }
+
+    private static void durableRecovery() throws Exception {
+        Path dir = Files.createTempDirectory("wal");
+        try {
+            // Cierre normal y reapertura con cada política
+            for (String name : new String[] { "always", "batched", "never" }) {
+                Path sub = dir.resolve(name);
+                TreeSet<Integer> expected = new TreeSet<>();
+                Random random = new Random(18);
+                try (DurableAVLTree<Integer> tree = DurableAVLTree.open(sub, KeyCodecs.INT, policy(name), 0)) {
+                    for (int i = 0; i < 2000; i++) {
+                        int key = random.nextInt(500);
+                        if (random.nextInt(3) > 0) {
+                            check(tree.add(key) == expected.add(key), name + ": add " + key);
+                        } else {
+                            check((tree.remove(key) != null) == expected.remove(key), name + ": remove " + key);
+                        }
+                    }
+                }
+                try (DurableAVLTree<Integer> tree = DurableAVLTree.open(sub, KeyCodecs.INT)) {
+                    checkDurable(tree, expected, "Reapertura con " + name);
+                }
+            }
+
+            // Checkpoint manual: al reabrir se carga el checkpoint y se repite solo el log posterior
+            Path manual = dir.resolve("manual");
+            TreeSet<Integer> expected = new TreeSet<>();
+            try (DurableAVLTree<Integer> tree = DurableAVLTree.open(manual, KeyCodecs.INT, policy("always"), 0)) {
+                for (int key = 0; key < 500; key++) {
+                    tree.add(key);
+                    expected.add(key);
+                }
+                tree.checkpoint();
+                check(files(manual, "checkpoint-").size() == 1, "No quedó un único checkpoint");
+                for (int key = 0; key < 100; key++) {
+                    tree.remove(key);
+                    expected.remove(key);
+                    tree.add(1000 + key);
+                    expected.add(1000 + key);
+                }
+            }
+            try (DurableAVLTree<Integer> tree = DurableAVLTree.open(manual, KeyCodecs.INT)) {
+                check(tree.recoveredRecords() == 200, "Se repitieron " + tree.recoveredRecords() + " registros, no 200");
+                checkDurable(tree, expected, "Reapertura tras checkpoint");
+                tree.checkpoint();
+            }
+            try (DurableAVLTree<Integer> tree = DurableAVLTree.open(manual, KeyCodecs.INT)) {
+                check(tree.recoveredRecords() == 0, "El segundo checkpoint no cubrió todo el log");
+                checkDurable(tree, expected, "Reapertura tras el segundo checkpoint");
+            }
+
+            // Checkpoints automáticos cada 100 cambios: quedan 50 registros para repetir
+            Path automatic = dir.resolve("automatic");
+            try (DurableAVLTree<Integer> tree = DurableAVLTree.open(automatic, KeyCodecs.INT, policy("never"), 100)) {
+                for (int key = 0; key < 350; key++) {
+                    tree.add(key);
+                }
+            }
+            try (DurableAVLTree<Integer> tree = DurableAVLTree.open(automatic, KeyCodecs.INT)) {
+                check(tree.recoveredRecords() == 50, "Se repitieron " + tree.recoveredRecords() + " registros, no 50");
+                check(tree.size() == 350, "Tamaño después de los checkpoints automáticos");
+                check(files(automatic, "checkpoint-").size() == 1, "Quedaron checkpoints viejos");
+            }
+
+            // Con always cada add es una trama. Una trama final cortada o con un bit cambiado
+            // se descarta (y se trunca); lo anterior se recupera entero.
+            for (boolean torn : new boolean[] { true, false }) {
+                Path tail = dir.resolve(torn ? "torn" : "flipped");
+                try (DurableAVLTree<Integer> tree = DurableAVLTree.open(tail, KeyCodecs.INT, policy("always"), 0)) {
+                    for (int key = 0; key < 100; key++) {
+                        tree.add(key);
+                    }
+                }
+                List<Path> segments = files(tail, "wal-");
+                Path last = segments.get(segments.size() - 1);
+                byte[] contents = Files.readAllBytes(last);
+                if (torn) {
+                    contents = Arrays.copyOf(contents, contents.length - 2);
+                } else {
+                    contents[contents.length - 1] ^= 0x01;
+                }
+                Files.write(last, contents);
+                String label = torn ? "Trama final cortada" : "Trama final con un bit cambiado";
+                try (DurableAVLTree<Integer> tree = DurableAVLTree.open(tail, KeyCodecs.INT)) {
+                    check(tree.recoveredRecords() == 99, label + ": " + tree.recoveredRecords() + " registros");
+                    check(tree.size() == 99 && !tree.contains(99), label + ": se aplicó la trama dañada");
+                    tree.add(99);
+                }
+                try (DurableAVLTree<Integer> tree = DurableAVLTree.open(tail, KeyCodecs.INT)) {
+                    check(tree.size() == 100, label + ": se perdió lo escrito después de recuperar");
+                }
+            }
+
+            // Un segmento que no es el último no puede tener una trama dañada: es corrupción
+            List<Path> segments = files(dir.resolve("torn"), "wal-");
+            Path first = segments.get(0);
+            byte[] contents = Files.readAllBytes(first);
+            contents[contents.length / 2] ^= 0x01;
+            Files.write(first, contents);
+            try {
+                DurableAVLTree.open(dir.resolve("torn"), KeyCodecs.INT).close();
+                check(false, "Se abrió un log con un segmento intermedio corrupto");
+            } catch (IOException e) {
+                // Esperado
+            }
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    // Un directorio en el lugar del snapshot temporal hace fallar el primer checkpoint automático
+    // (el del segmento 1). El add que lo dispara ya está aplicado y en el log: tiene que volver
+    // normalmente, y el error aparece en close(), o desaparece si después un checkpoint() funciona.
+    private static void durableCheckpointFailure() throws Exception {
+        Path dir = Files.createTempDirectory("wal");
+        try {
+            for (boolean retry : new boolean[] { false, true }) {
+                Path sub = dir.resolve(retry ? "retry" : "close");
+                DurableAVLTree<Integer> tree = DurableAVLTree.open(sub, KeyCodecs.INT, policy("always"), 10);
+                Path blocker = sub.resolve(String.format("checkpoint-%020d.snap.tmp", 1));
+                Files.createDirectory(blocker);
+                for (int key = 0; key < 15; key++) {
+                    check(tree.add(key), "add " + key);
+                }
+                check(files(sub, "checkpoint-").equals(List.of(blocker)), "El checkpoint automático no debía completarse");
+                if (retry) {
+                    Files.delete(blocker);
+                    tree.checkpoint();
+                    tree.close();
+                } else {
+                    try {
+                        tree.close();
+                        check(false, "close() no reportó el checkpoint fallido");
+                    } catch (IOException e) {
+                        check(e.getCause() != null, "close() perdió la causa del checkpoint fallido");
+                    }
+                }
+                try (DurableAVLTree<Integer> reopened = DurableAVLTree.open(sub, KeyCodecs.INT)) {
+                    check(reopened.size() == 15, (retry ? "Con" : "Sin") + " reintento: tamaño " + reopened.size());
+                }
+            }
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    // Después de close() ni checkpoint() ni un checkpoint automático pueden crear archivos
+    private static void durableCheckpointAfterClose() throws Exception {
+        Path dir = Files.createTempDirectory("wal");
+        try {
+            DurableAVLTree<Integer> tree = DurableAVLTree.open(dir, KeyCodecs.INT, policy("always"), 1000);
+            for (int key = 0; key < 10; key++) {
+                check(tree.add(key), "add " + key);
+            }
+            tree.close();
+            List<Path> before = files(dir, "");
+            for (int attempt = 0; attempt < 2; attempt++) {
+                try {
+                    tree.checkpoint();
+                    check(false, "checkpoint() después de close() no lanzó IOException");
+                } catch (IOException e) {
+                    // Esperado
+                }
+            }
+            check(files(dir, "").equals(before), "checkpoint() después de close() creó archivos: " + files(dir, ""));
+            try (DurableAVLTree<Integer> reopened = DurableAVLTree.open(dir, KeyCodecs.INT)) {
+                check(reopened.size() == 10, "Tamaño al reabrir: " + reopened.size());
+            }
+
+            // close() concurrente con escritores que disparan checkpoints automáticos
+            Path racing = dir.resolve("racing");
+            DurableAVLTree<Integer> shared = DurableAVLTree.open(racing, KeyCodecs.INT, policy("never"), 20);
+            Thread[] writers = new Thread[4];
+            for (int t = 0; t < writers.length; t++) {
+                int base = t * 100_000;
+                writers[t] = new Thread(() -> {
+                    try {
+                        for (int key = base; ; key++) {
+                            shared.add(key);
+                        }
+                    } catch (UncheckedIOException e) {
+                        // El log se cerró
+                    }
+                });
+                writers[t].start();
+            }
+            Thread.sleep(50);
+            shared.close();
+            List<Path> closedFiles = files(racing, "");
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            check(files(racing, "").equals(closedFiles), "Se crearon archivos después de close()");
+            try (DurableAVLTree<Integer> reopened = DurableAVLTree.open(racing, KeyCodecs.INT)) {
+                reopened.size();
+            }
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    // Cambios al azar contra un TreeSet, close() y reapertura sin reconstruir; con más de un
+    // segmento mapeado. Un índice vacío se reabre vacío y un archivo ajeno se rechaza sin tocarlo.
+    private static void mappedReopen() throws Exception {
+        Path dir = Files.createTempDirectory("mapped");
+        try {
+            Path file = dir.resolve("index.avl");
+            Random random = new Random(7);
+            TreeSet<Long> expected = new TreeSet<>();
+            for (int round = 0; round < 3; round++) {
+                try (MappedLongAVLTree index = MappedLongAVLTree.open(file)) {
+                    checkMapped(index, expected, "Reapertura " + round);
+                    for (int i = 0; i < 20_000; i++) {
+                        long key = random.nextInt(5000) - 2500L;
+                        if (random.nextInt(3) == 0) {
+                            check(index.remove(key) == expected.remove(key), "remove(" + key + ")");
+                        } else {
+                            check(index.add(key) == expected.add(key), "add(" + key + ")");
+                        }
+                        if (i % 1000 == 0) {
+                            index.checkInvariants();
+                        }
+                    }
+                    if (round == 1) {
+                        // Pasa al segundo segmento mapeado (2^18 registros por segmento)
+                        for (long key = Long.MAX_VALUE - 300_000; key < Long.MAX_VALUE; key++) {
+                            index.add(key);
+                            expected.add(key);
+                        }
+                    }
+                    checkMapped(index, expected, "Antes de cerrar " + round);
+                }
+            }
+
+            Path empty = dir.resolve("empty.avl");
+            MappedLongAVLTree.open(empty).close();
+            try (MappedLongAVLTree index = MappedLongAVLTree.open(empty)) {
+                checkMapped(index, new TreeSet<>(), "Índice vacío reabierto");
+                check(index.add(1), "add en índice vacío reabierto");
+            }
+
+            // Archivos ajenos: texto corto, ceros del tamaño de la cabecera y un índice truncado
+            byte[] truncated = Arrays.copyOf(Files.readAllBytes(empty), 4096 + 24);
+            byte[][] foreign = { "esto no es un índice\n".getBytes("UTF-8"), new byte[4096], truncated };
+            for (int f = 0; f < foreign.length; f++) {
+                Path other = dir.resolve("foreign-" + f);
+                Files.write(other, foreign[f]);
+                try {
+                    MappedLongAVLTree.open(other).close();
+                    check(false, "Se abrió el archivo ajeno " + f);
+                } catch (IOException e) {
+                    // Esperado
+                }
+                check(Arrays.equals(Files.readAllBytes(other), foreign[f]), "Se modificó el archivo ajeno " + f);
+            }
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    private static void checkMapped(MappedLongAVLTree index, TreeSet<Long> expected, String message) throws Exception {
+        index.checkInvariants();
+        check(index.size() == expected.size(), message + ": tamaño " + index.size() + ", esperado " + expected.size());
+        check(index.isEmpty() == expected.isEmpty(), message + ": isEmpty");
+        if (!expected.isEmpty()) {
+            check(index.findMin() == expected.first() && index.findMax() == expected.last(), message + ": mínimo/máximo");
+        }
+        List<Long> keys = new ArrayList<>();
+        index.forEach(keys::add);
+        check(keys.equals(new ArrayList<>(expected)), message + ": contenido distinto");
+    }
+
+    // Borra el directorio temporal con todo su contenido
+    private static void deleteTree(Path dir) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.forEach(paths::add);
+        }
+        Collections.reverse(paths);
+        for (Path path : paths) {
+            Files.delete(path);
+        }
     }
 }
\ No newline at end of file
@@ -1,7 +1,20 @@
 package avltree;
 
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToLongFunction;
 import complements.*;
 import exceptions.*;
 
@@ -9,10 +22,14 @@ public class AVLTree<E extends Comparable<E>> extends BSTree<E> {
 
     class NodeAVL extends Node {
         protected int bf; // Factor de balanceo: altura(derecho) - altura(izquierdo)
+        protected int height; // Altura del subárbol con raíz en este nodo
+        protected int size;   // Cantidad de nodos del subárbol con raíz en este nodo
 
         public NodeAVL(E data) {
             super(data);
             this.bf = 0;
+            this.height = 0;
+            this.size = 1;
         }
 
         @Override
@@ -21,85 +38,152 @@ public class AVLTree<E extends Comparable<E>> extends BSTree<E> {
         }
     }
 
-    private boolean heightChanged; // Indica si la altura del subárbol cambió
+    // Altura máxima de un AVL con 2^31 nodos es ~45; la pila crece si hiciera falta
+    private static final int INITIAL_PATH = 64;
+
+    private NodeAVL[] path = newPath(INITIAL_PATH); // Camino raíz -> nodo de la última operación
+    private boolean selfCheck; // Verifica alturas y factores tras cada operación
+    private int modCount;      // Cambios de estructura: un Finger desactualizado vuelve a partir de la raíz
+    private int intactPrefix;  // Niveles [0, intactPrefix) del camino que el último rebalancePath no tocó
+    private Finger appendFinger; // Dedo de append, queda en la última clave insertada
+
+    // Activa o desactiva la verificación de invariantes después de cada insert/delete
+    public void setSelfCheck(boolean selfCheck) {
+        this.selfCheck = selfCheck;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private NodeAVL[] newPath(int length) {
+        return (NodeAVL[]) new AVLTree.NodeAVL[length];
+    }
+
+    private void push(int depth, NodeAVL node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, 2 * depth);
+        }
+        path[depth] = node;
+    }
 
     @Override
     public void insert(E x) throws ItemDuplicated {
-        this.heightChanged = false;
-        this.root = insert(x, (NodeAVL) this.root);
+        if (!add(x)) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
     }
 
-    protected Node insert(E x, NodeAVL node) throws ItemDuplicated {
-        NodeAVL result = node;
-        
-        if (node == null) {
-            // Caso base: crear nuevo nodo
-            this.heightChanged = true;
-            result = new NodeAVL(x);
-        } else {
+    // Inserta sin lanzar excepción; devuelve false si el elemento ya existía
+    @Override
+    public boolean add(E x) {
+        TreeListener observer = this.listener;
+        long start = observer == null ? 0 : System.nanoTime();
+        if (this.root == null) {
+            this.root = new NodeAVL(x);
+            modCount++;
+            if (observer != null) {
+                observer.onOperation(TreeListener.Operation.INSERT, 0, 0, System.nanoTime() - start);
+            }
+            return true;
+        }
+
+        // Descender guardando el camino
+        int depth = 0;
+        NodeAVL node = (NodeAVL) this.root;
+        while (true) {
             int comparison = x.compareTo(node.data);
-            
             if (comparison == 0) {
-                throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+                // Duplicado: el árbol no cambia
+                if (observer != null) {
+                    observer.onOperation(TreeListener.Operation.INSERT, depth + 1, 0, System.nanoTime() - start);
+                }
+                return false;
             }
-            
-            if (comparison < 0) {
-                // Insertar en subárbol izquierdo
-                result.left = insert(x, (NodeAVL) node.left);
-                
-                if (this.heightChanged) {
-                    switch (result.bf) {
-                        case 1:  // Era más alto a la derecha, ahora balanceado
-                            result.bf = 0;
-                            this.heightChanged = false;
-                            break;
-                        case 0:  // Era balanceado, ahora más alto a la izquierda
-                            result.bf = -1;
-                            this.heightChanged = true;
-                            break;
-                        case -1: // Era más alto a la izquierda, ahora desbalanceado
-                            result = balanceToRight(result);
-                            this.heightChanged = false;
-                            break;
-                    }
+            push(depth++, node);
+
+            NodeAVL next = (NodeAVL) (comparison < 0 ? node.left : node.right);
+            if (next == null) {
+                if (comparison < 0) {
+                    node.left = new NodeAVL(x);
+                } else {
+                    node.right = new NodeAVL(x);
                 }
-            } else {
-                // Insertar en subárbol derecho
-                result.right = insert(x, (NodeAVL) node.right);
-                
-                if (this.heightChanged) {
-                    switch (result.bf) {
-                        case -1: // Era más alto a la izquierda, ahora balanceado
-                            result.bf = 0;
-                            this.heightChanged = false;
-                            break;
-                        case 0:  // Era balanceado, ahora más alto a la derecha
-                            result.bf = 1;
-                            this.heightChanged = true;
-                            break;
-                        case 1:  // Era más alto a la derecha, ahora desbalanceado
-                            result = balanceToLeft(result);
-                            this.heightChanged = false;
-                            break;
-                    }
+                break;
+            }
+            node = next;
+        }
+
+        modCount++;
+        int steps = rebalancePath(depth);
+        if (this.selfCheck) {
+            checkInvariants();
+        }
+        if (observer != null) {
+            // Una comparación por nodo del camino
+            observer.onOperation(TreeListener.Operation.INSERT, depth, steps, System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    // Recorre el camino guardado de abajo hacia arriba actualizando alturas y rotando
+    // donde haga falta. Cuando la altura de un subárbol deja de cambiar ya no hay nada
+    // que balancear y solo se actualizan los tamaños hasta la raíz. Devuelve cuántos nodos
+    // se rebalancearon antes de cortar; los niveles de arriba quedan en intactPrefix.
+    private int rebalancePath(int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            NodeAVL node = path[i];
+            path[i] = null;
+            int oldHeight = node.height;
+
+            updateBalanceFactor(node);
+            NodeAVL balanced = node;
+            if (node.bf == 2) {
+                balanced = balanceToLeft(node);
+            } else if (node.bf == -2) {
+                balanced = balanceToRight(node);
+            }
+
+            if (balanced != node) {
+                replaceChild(i == 0 ? null : path[i - 1], node, balanced);
+            }
+            if (balanced.height == oldHeight) {
+                for (int j = i - 1; j >= 0; j--) {
+                    updateSize(path[j]);
+                    path[j] = null;
                 }
+                intactPrefix = i;
+                return depth - i;
             }
         }
-        return result;
+        intactPrefix = 0;
+        return depth;
+    }
+
+    private void replaceChild(NodeAVL parent, NodeAVL oldChild, NodeAVL newChild) {
+        if (parent == null) {
+            this.root = newChild;
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
     }
 
-    
     // Balancea cuando el subárbol derecho es más pesado (bf = 2)
     private NodeAVL balanceToLeft(NodeAVL node) {
         NodeAVL rightChild = (NodeAVL) node.right;
         
         if (rightChild.bf >= 0) {
             // Caso LL: Rotación simple a la izquierda
+            if (this.listener != null) {
+                this.listener.onRotation(TreeListener.Rotation.SINGLE_LEFT);
+            }
             node.bf = 0;
             rightChild.bf = 0;
             node = rotateLeft(node);
         } else {
             // Caso LR: Rotación doble (derecha-izquierda)
+            if (this.listener != null) {
+                this.listener.onRotation(TreeListener.Rotation.DOUBLE_RIGHT_LEFT);
+            }
             NodeAVL rightLeftChild = (NodeAVL) rightChild.left;
             
             // Actualizar factores de balanceo según el factor del nieto
@@ -133,11 +217,17 @@ public class AVLTree<E extends Comparable<E>> extends BSTree<E> {
         
         if (leftChild.bf <= 0) {
             // Caso RR: Rotación simple a la derecha
+            if (this.listener != null) {
+                this.listener.onRotation(TreeListener.Rotation.SINGLE_RIGHT);
+            }
             node.bf = 0;
             leftChild.bf = 0;
             node = rotateRight(node);
         } else {
             // Caso RL: Rotación doble (izquierda-derecha)
+            if (this.listener != null) {
+                this.listener.onRotation(TreeListener.Rotation.DOUBLE_LEFT_RIGHT);
+            }
             NodeAVL leftRightChild = (NodeAVL) leftChild.right;
             
             // Actualizar factores de balanceo según el factor del nieto
@@ -190,76 +280,856 @@ public class AVLTree<E extends Comparable<E>> extends BSTree<E> {
         if (isEmpty()) {
             throw new ExceptionIsEmpty("The tree is empty");
         }
-        this.heightChanged = false;
-        this.root = delete(x, (NodeAVL) this.root);
+        remove(x);
     }
 
-    protected Node delete(E x, NodeAVL node) throws ExceptionIsEmpty {
+    // Elimina sin lanzar excepción; devuelve el elemento quitado o null si no estaba
+    @Override
+    public E remove(E x) {
+        TreeListener observer = this.listener;
+        long start = observer == null ? 0 : System.nanoTime();
+        // Descender guardando el camino hasta el nodo a eliminar
+        int depth = 0;
+        NodeAVL node = (NodeAVL) this.root;
+        while (node != null) {
+            int comparison = x.compareTo(node.data);
+            if (comparison == 0) {
+                break;
+            }
+            push(depth++, node);
+            node = (NodeAVL) (comparison < 0 ? node.left : node.right);
+        }
         if (node == null) {
+            Arrays.fill(path, 0, depth, null);
+            if (observer != null) {
+                observer.onOperation(TreeListener.Operation.DELETE, depth, 0, System.nanoTime() - start);
+            }
             return null;
         }
+        E removed = node.data;
+        int comparisons = depth + 1;
+        int steps = unlink(node, depth);
+        if (this.selfCheck) {
+            checkInvariants();
+        }
+        if (observer != null) {
+            observer.onOperation(TreeListener.Operation.DELETE, comparisons, steps, System.nanoTime() - start);
+        }
+        return removed;
+    }
+
+    // Saca node del árbol; path[0, depth) tiene que ser el camino desde la raíz hasta su padre.
+    // Devuelve los pasos de rebalanceo.
+    private int unlink(NodeAVL node, int depth) {
+        modCount++;
+        // Case 3: Node with two children
+        // Se copia el sucesor y se elimina el sucesor, que tiene a lo sumo un hijo
+        if (node.left != null && node.right != null) {
+            NodeAVL target = node;
+            push(depth++, node);
+            node = (NodeAVL) node.right;
+            while (node.left != null) {
+                push(depth++, node);
+                node = (NodeAVL) node.left;
+            }
+            target.data = node.data;
+        }
+
+        // Case 1 y 2: Leaf node o nodo con un hijo, que ocupa su lugar
+        NodeAVL child = (NodeAVL) (node.left != null ? node.left : node.right);
+        replaceChild(depth == 0 ? null : path[depth - 1], node, child);
+        return rebalancePath(depth);
+    }
+
+    // Recalcula altura, factor de balanceo y tamaño a partir de los datos guardados en los hijos: O(1)
+    private void updateBalanceFactor(NodeAVL node) {
+        int leftHeight = height((NodeAVL) node.left);
+        int rightHeight = height((NodeAVL) node.right);
+        node.bf = rightHeight - leftHeight;
+        node.height = 1 + Math.max(leftHeight, rightHeight);
+        updateSize(node);
+    }
 
-        int comparison = x.compareTo(node.data);
+    private void updateSize(NodeAVL node) {
+        node.size = 1 + size((NodeAVL) node.left) + size((NodeAVL) node.right);
+    }
+
+    private int size(NodeAVL node) {
+        return node == null ? 0 : node.size;
+    }
 
-        if (comparison < 0) {
-            node.left = delete(x, (NodeAVL) node.left);
-            if (this.heightChanged) {
-                node = balanceAfterDelete(node);
+    // Cantidad de elementos en O(1)
+    @Override
+    public int size() {
+        return size((NodeAVL) root);
+    }
+
+    @Override
+    protected long subtreeSize(Node node) {
+        return size((NodeAVL) node);
+    }
+
+    // Cantidad de elementos menores que x, en O(log n)
+    public int rank(E x) {
+        int rank = 0;
+        NodeAVL node = (NodeAVL) root;
+        while (node != null) {
+            int comparison = x.compareTo(node.data);
+            if (comparison <= 0) {
+                node = (NodeAVL) node.left;
+            } else {
+                rank += size((NodeAVL) node.left) + 1;
+                node = (NodeAVL) node.right;
             }
-        } else if (comparison > 0) {
-            node.right = delete(x, (NodeAVL) node.right);
-            if (this.heightChanged) {
-                node = balanceAfterDelete(node);
+        }
+        return rank;
+    }
+
+    // k-ésimo menor elemento (k desde 0), en O(log n). Como List.get, una posición fuera de
+    // [0, size()) es un error del llamador
+    public E select(int k) {
+        if (k < 0 || k >= size()) {
+            throw new IndexOutOfBoundsException("Posición " + k + " fuera de rango para tamaño " + size());
+        }
+        NodeAVL node = (NodeAVL) root;
+        while (true) {
+            int leftSize = size((NodeAVL) node.left);
+            if (k < leftSize) {
+                node = (NodeAVL) node.left;
+            } else if (k == leftSize) {
+                return node.data;
+            } else {
+                k -= leftSize + 1;
+                node = (NodeAVL) node.right;
+            }
+        }
+    }
+
+    // Altura guardada en el nodo (-1 para el subárbol vacío)
+    private int height(NodeAVL node) {
+        return node == null ? -1 : node.height;
+    }
+
+    // Copia inmutable en un arreglo (orden de Eytzinger) para búsquedas con menos fallos de
+    // caché; los cambios posteriores al árbol no la afectan. O(n).
+    public FrozenAVLTree<E> freeze() {
+        return freeze(null);
+    }
+
+    // Igual que freeze() guardando prefix(x) junto a cada clave: el descenso compara longs y
+    // solo lee la clave cuando empatan. prefix debe respetar el orden: x < y implica
+    // prefix(x) <= prefix(y) (por ejemplo Integer::longValue).
+    public FrozenAVLTree<E> freeze(ToLongFunction<? super E> prefix) {
+        Object[] sorted = new Object[size()];
+        int i = 0;
+        for (E x : this) {
+            sorted[i++] = x;
+        }
+        return new FrozenAVLTree<E>(sorted, sorted.length, prefix);
+    }
+
+    // Altura del árbol en O(1)
+    @Override
+    public int height() {
+        return height((NodeAVL) root);
+    }
+
+    // A partir de este tamaño buildFromUnsorted ordena en paralelo
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+    // Construye en O(n) y sin rotaciones un árbol balanceado con elementos ya ordenados.
+    // Lanza IllegalArgumentException si la entrada no está ordenada e ItemDuplicated si repite elementos.
+    public static <T extends Comparable<T>> AVLTree<T> buildFrom(T[] sorted) throws ItemDuplicated {
+        checkSorted(sorted, sorted.length);
+        AVLTree<T> tree = new AVLTree<>();
+        tree.root = tree.buildBalanced(sorted, 0, sorted.length);
+        return tree;
+    }
+
+    // Igual que buildFrom(T[]) pero consumiendo un iterador ordenado
+    public static <T extends Comparable<T>> AVLTree<T> buildFrom(Iterator<? extends T> sorted) throws ItemDuplicated {
+        Object[] items = new Object[16];
+        int count = 0;
+        while (sorted.hasNext()) {
+            if (count == items.length) {
+                items = Arrays.copyOf(items, count + (count >> 1));
             }
+            items[count++] = sorted.next();
+        }
+        checkSorted(items, count);
+        AVLTree<T> tree = new AVLTree<>();
+        tree.root = tree.buildBalanced(items, 0, count);
+        return tree;
+    }
+
+    // Ordena una copia de los elementos (en paralelo si son muchos) y construye el árbol
+    public static <T extends Comparable<T>> AVLTree<T> buildFromUnsorted(T[] items) throws ItemDuplicated {
+        T[] sorted = items.clone();
+        if (sorted.length >= PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(sorted);
         } else {
-            // Case 1: Leaf node
-            if (node.left == null && node.right == null) {
-                this.heightChanged = true;
-                return null;
+            Arrays.sort(sorted);
+        }
+        return buildFrom(sorted);
+    }
+
+    // Recarga un snapshot de writeTo en O(n) y sin rotaciones
+    public static <T extends Comparable<T>> AVLTree<T> readFrom(ReadableByteChannel in, KeyCodec<T> codec)
+            throws IOException {
+        return load(new AVLTree<T>(), TreeSnapshot.read(in, codec));
+    }
+
+    public static <T extends Comparable<T>> AVLTree<T> readFrom(Path file, KeyCodec<T> codec) throws IOException {
+        return load(new AVLTree<T>(), TreeSnapshot.read(file, codec));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<T>> void checkSorted(Object[] items, int count) throws ItemDuplicated {
+        for (int i = 1; i < count; i++) {
+            int comparison = ((T) items[i - 1]).compareTo((T) items[i]);
+            if (comparison == 0) {
+                throw new ItemDuplicated(items[i] + " ya se encuentra en el árbol");
             }
-            // Case 2: Node with one child
-            if (node.left == null) {
-                this.heightChanged = true;
-                return node.right;
+            if (comparison > 0) {
+                throw new IllegalArgumentException("La entrada no está ordenada en la posición " + i);
             }
-            if (node.right == null) {
-                this.heightChanged = true;
-                return node.left;
+        }
+    }
+
+    // El elemento central de [from, to) es la raíz; la profundidad de la recursión es O(log n)
+    @Override
+    @SuppressWarnings("unchecked")
+    protected NodeAVL buildBalanced(Object[] items, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        NodeAVL node = new NodeAVL((E) items[mid]);
+        node.left = buildBalanced(items, from, mid);
+        node.right = buildBalanced(items, mid + 1, to);
+        updateBalanceFactor(node);
+        return node;
+    }
+
+    // A partir de esta cantidad de claves un subproblema de insertAll/deleteAll se reparte con fork/join
+    private static final int PARALLEL_BATCH_THRESHOLD = 1 << 13;
+
+    // Inserta un lote en una pasada: ordena las claves y las mezcla con el árbol usando join,
+    // en O(m log(n/m + 1)). Devuelve los duplicados (del árbol o repetidos en el lote).
+    @Override
+    public List<E> insertAll(Collection<? extends E> items) {
+        return applyBatch(items, true);
+    }
+
+    // Elimina un lote en una pasada; devuelve las claves que no estaban en el árbol
+    @Override
+    public List<E> deleteAll(Collection<? extends E> items) {
+        return applyBatch(items, false);
+    }
+
+    private List<E> applyBatch(Collection<? extends E> items, boolean insert) {
+        E[] keys = items.toArray(newKeys(0));
+        if (keys.length >= PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+
+        // Compactar las repetidas dentro del lote: se rechazan sin tocar el árbol
+        List<E> rejected = new ArrayList<>();
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (count > 0 && keys[count - 1].compareTo(keys[i]) == 0) {
+                rejected.add(keys[i]);
+            } else {
+                keys[count++] = keys[i];
             }
-            // Case 3: Node with two children
-            NodeAVL minNode = (NodeAVL) findMinNode(node.right);
-            node.data = minNode.data;
-            node.right = delete(node.data, (NodeAVL) node.right);
-            if (this.heightChanged) {
-                node = balanceAfterDelete(node);
+        }
+
+        boolean[] marks = new boolean[count]; // Claves rechazadas por el árbol
+        modCount++;
+        if (count >= PARALLEL_BATCH_THRESHOLD) {
+            root = ForkJoinPool.commonPool().invoke(new BatchTask((NodeAVL) root, keys, marks, 0, count, insert));
+        } else {
+            root = mergeBatch((NodeAVL) root, keys, marks, 0, count, insert);
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (marks[i]) {
+                rejected.add(keys[i]);
             }
         }
-        return node;
+        if (this.selfCheck) {
+            checkInvariants();
+        }
+        return rejected;
     }
 
-    private NodeAVL balanceAfterDelete(NodeAVL node) {
-        updateBalanceFactor(node);
-        if (node.bf == 2) {
-            return balanceToLeft(node);
-        } else if (node.bf == -2) {
-            return balanceToRight(node);
+    // Mezcla keys[from, to) con el subárbol: la raíz parte el rango en dos subproblemas
+    // independientes, que se resuelven en paralelo si son grandes, y se vuelven a unir con join
+    private NodeAVL mergeBatch(NodeAVL node, Object[] keys, boolean[] marks, int from, int to, boolean insert) {
+        if (from >= to) {
+            return node;
+        }
+        if (node == null) {
+            if (insert) {
+                return buildBalanced(keys, from, to);
+            }
+            Arrays.fill(marks, from, to, true);
+            return null;
+        }
+
+        int pos = Arrays.binarySearch(keys, from, to, node.data);
+        boolean found = pos >= 0;
+        int split = found ? pos : -(pos + 1);
+        int rightFrom = found ? pos + 1 : split;
+        if (found && insert) {
+            marks[pos] = true;
+        }
+
+        NodeAVL left;
+        NodeAVL right;
+        if (to - from >= PARALLEL_BATCH_THRESHOLD) {
+            BatchTask leftTask = new BatchTask((NodeAVL) node.left, keys, marks, from, split, insert);
+            leftTask.fork();
+            right = mergeBatch((NodeAVL) node.right, keys, marks, rightFrom, to, insert);
+            left = leftTask.join();
+        } else {
+            left = mergeBatch((NodeAVL) node.left, keys, marks, from, split, insert);
+            right = mergeBatch((NodeAVL) node.right, keys, marks, rightFrom, to, insert);
+        }
+
+        if (found && !insert) {
+            return join2(left, right);
+        }
+        return join(left, node, right);
+    }
+
+    @SuppressWarnings("serial") // Las tareas no se serializan
+    private final class BatchTask extends RecursiveTask<NodeAVL> {
+        private final NodeAVL node;
+        private final Object[] keys;
+        private final boolean[] marks;
+        private final int from;
+        private final int to;
+        private final boolean insert;
+
+        BatchTask(NodeAVL node, Object[] keys, boolean[] marks, int from, int to, boolean insert) {
+            this.node = node;
+            this.keys = keys;
+            this.marks = marks;
+            this.from = from;
+            this.to = to;
+            this.insert = insert;
+        }
+
+        @Override
+        protected NodeAVL compute() {
+            return mergeBatch(node, keys, marks, from, to, insert);
+        }
+    }
+
+    // Une left < node < right en un AVL balanceado, en O(|altura(left) - altura(right)|)
+    private NodeAVL join(NodeAVL left, NodeAVL node, NodeAVL right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            return joinRight(left, node, right);
+        }
+        if (rightHeight > leftHeight + 1) {
+            return joinLeft(left, node, right);
         }
+        node.left = left;
+        node.right = right;
+        updateBalanceFactor(node);
         return node;
     }
 
-    private void updateBalanceFactor(NodeAVL node) {
-        int leftHeight = height((NodeAVL) node.left);
-        int rightHeight = height((NodeAVL) node.right);
-        node.bf = rightHeight - leftHeight;
-        this.heightChanged = Math.abs(node.bf) <= 1;
+    // left es más alto: baja por su borde derecho hasta una altura compatible con right
+    private NodeAVL joinRight(NodeAVL left, NodeAVL node, NodeAVL right) {
+        NodeAVL inner = (NodeAVL) left.right;
+        NodeAVL joined;
+        if (height(inner) <= height(right) + 1) {
+            node.left = inner;
+            node.right = right;
+            updateBalanceFactor(node);
+            joined = node.height <= height((NodeAVL) left.left) + 1 ? node : rotateRight(node);
+            left.right = joined;
+            updateBalanceFactor(left);
+            return joined == node ? left : rotateLeft(left);
+        }
+        joined = joinRight(inner, node, right);
+        left.right = joined;
+        updateBalanceFactor(left);
+        return joined.height <= height((NodeAVL) left.left) + 1 ? left : rotateLeft(left);
     }
 
-    // Calcular la altura del árbol
-    private int height(NodeAVL node) {
+    // Simétrico de joinRight
+    private NodeAVL joinLeft(NodeAVL left, NodeAVL node, NodeAVL right) {
+        NodeAVL inner = (NodeAVL) right.left;
+        NodeAVL joined;
+        if (height(inner) <= height(left) + 1) {
+            node.left = left;
+            node.right = inner;
+            updateBalanceFactor(node);
+            joined = node.height <= height((NodeAVL) right.right) + 1 ? node : rotateLeft(node);
+            right.left = joined;
+            updateBalanceFactor(right);
+            return joined == node ? right : rotateRight(right);
+        }
+        joined = joinLeft(left, node, inner);
+        right.left = joined;
+        updateBalanceFactor(right);
+        return joined.height <= height((NodeAVL) right.right) + 1 ? right : rotateRight(right);
+    }
+
+    // Une left < right sin nodo intermedio: el mínimo de right hace de raíz
+    private NodeAVL join2(NodeAVL left, NodeAVL right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        NodeAVL[] min = newPath(1);
+        NodeAVL rest = removeMin(right, min);
+        return join(left, min[0], rest);
+    }
+
+    // Quita el mínimo del subárbol, lo deja en min[0] y devuelve el subárbol restante balanceado
+    private NodeAVL removeMin(NodeAVL node, NodeAVL[] min) {
+        if (node.left == null) {
+            min[0] = node;
+            return (NodeAVL) node.right;
+        }
+        NodeAVL left = removeMin((NodeAVL) node.left, min);
+        return join(left, node, (NodeAVL) node.right);
+    }
+
+    // ---- Dedos (finger search) ----
+    // Un Finger recuerda el camino hasta la última clave que tocó y el intervalo de claves de
+    // cada subárbol del camino. La operación siguiente sube solo hasta el primer nivel cuyo
+    // intervalo contiene la clave y baja desde ahí, así que cuesta O(altura de ese subárbol)
+    // en vez de O(log n). Sin punteros al padre el subárbol común de dos claves vecinas puede
+    // ser el de la raíz (una a cada lado), de modo que el O(log d) con d la distancia en rango
+    // se cumple amortizado para accesos secuenciales o casi ordenados, no en el peor caso.
+    // Cualquier cambio hecho por fuera del dedo (add, remove, otro dedo, lotes, split...) lo
+    // invalida y su próxima operación parte de la raíz.
+
+    // Dedo nuevo, sin posición: la primera operación desciende desde la raíz
+    public Finger finger() {
+        return new Finger();
+    }
+
+    // Igual que add, pero parte de la última clave agregada con append: con claves crecientes
+    // (timestamps, IDs secuenciales) no desciende desde la raíz y cuesta O(1) amortizado
+    public boolean append(E x) {
+        if (appendFinger == null) {
+            appendFinger = new Finger();
+        }
+        return appendFinger.add(x);
+    }
+
+    public final class Finger {
+        private NodeAVL[] nodes = newPath(INITIAL_PATH); // Camino raíz -> posición del dedo
+        private E[] low = newKeys(INITIAL_PATH);  // Cota inferior exclusiva del subárbol de cada nivel (null: sin cota)
+        private E[] high = newKeys(INITIAL_PATH); // Cota superior exclusiva
+        private int depth;       // Niveles válidos del camino; el dedo está en nodes[depth - 1]
+        private int expectedModCount;
+        private int comparison;  // Resultado de comparar la clave con nodes[depth - 1] en seek
+        private int comparisons; // Comparaciones de la última operación, para el listener
+
+        private Finger() {
+        }
+
+        public boolean contains(E x) {
+            return get(x) != null;
+        }
+
+        // Devuelve el elemento igual a x, o null si no está
+        public E get(E x) {
+            TreeListener observer = listener;
+            long start = observer == null ? 0 : System.nanoTime();
+            E found = seek(x) ? nodes[depth - 1].data : null;
+            if (observer != null) {
+                observer.onOperation(TreeListener.Operation.SEARCH, comparisons, 0, System.nanoTime() - start);
+            }
+            return found;
+        }
+
+        // Inserta sin lanzar excepción; devuelve false si el elemento ya existía.
+        // El dedo queda en el ancestro más bajo que el rebalanceo no movió.
+        public boolean add(E x) {
+            TreeListener observer = listener;
+            long start = observer == null ? 0 : System.nanoTime();
+            if (seek(x)) {
+                if (observer != null) {
+                    observer.onOperation(TreeListener.Operation.INSERT, comparisons, 0, System.nanoTime() - start);
+                }
+                return false;
+            }
+            int steps = 0;
+            if (depth == 0) {
+                root = new NodeAVL(x);
+                modCount++;
+            } else {
+                NodeAVL parent = nodes[depth - 1];
+                if (comparison < 0) {
+                    parent.left = new NodeAVL(x);
+                } else {
+                    parent.right = new NodeAVL(x);
+                }
+                for (int i = 0; i < depth; i++) {
+                    push(i, nodes[i]);
+                }
+                modCount++;
+                steps = rebalancePath(depth);
+                // Los niveles que el rebalanceo no tocó siguen valiendo: la operación
+                // siguiente parte de ahí
+                depth = intactPrefix;
+            }
+            expectedModCount = modCount;
+            if (selfCheck) {
+                checkInvariants();
+            }
+            if (observer != null) {
+                observer.onOperation(TreeListener.Operation.INSERT, comparisons, steps, System.nanoTime() - start);
+            }
+            return true;
+        }
+
+        // Elimina sin lanzar excepción; devuelve el elemento quitado o null si no estaba.
+        // El dedo queda en el ancestro más bajo que el rebalanceo no movió.
+        public E remove(E x) {
+            TreeListener observer = listener;
+            long start = observer == null ? 0 : System.nanoTime();
+            if (!seek(x)) {
+                if (observer != null) {
+                    observer.onOperation(TreeListener.Operation.DELETE, comparisons, 0, System.nanoTime() - start);
+                }
+                return null;
+            }
+            int target = depth - 1;
+            E removed = nodes[target].data;
+            for (int i = 0; i < target; i++) {
+                push(i, nodes[i]);
+            }
+            int steps = unlink(nodes[target], target);
+            // Con dos hijos el nodo sigue en su lugar con el dato del sucesor: lo que había
+            // debajo de él en el dedo ya no vale
+            depth = Math.min(intactPrefix, target + 1);
+            expectedModCount = modCount;
+            if (selfCheck) {
+                checkInvariants();
+            }
+            if (observer != null) {
+                observer.onOperation(TreeListener.Operation.DELETE, comparisons, steps, System.nanoTime() - start);
+            }
+            return removed;
+        }
+
+        // Deja el dedo en el nodo con x o en el nodo donde x se colgaría; devuelve true si x está
+        private boolean seek(E x) {
+            comparisons = 0;
+            if (expectedModCount != modCount || (depth > 0 && nodes[0] != root)) {
+                depth = 0;
+                expectedModCount = modCount;
+            }
+            // Subir hasta el primer subárbol cuyo intervalo contiene a x
+            int k = depth - 1;
+            while (k > 0 && !covers(k, x)) {
+                k--;
+            }
+            if (k < 0) {
+                if (root == null) {
+                    depth = 0;
+                    return false;
+                }
+                nodes[0] = rootAVL();
+                low[0] = null;
+                high[0] = null;
+                k = 0;
+            }
+
+            NodeAVL node = nodes[k];
+            while (true) {
+                comparisons++;
+                int c = x.compareTo(node.data);
+                NodeAVL next = c == 0 ? null : (NodeAVL) (c < 0 ? node.left : node.right);
+                if (next == null) {
+                    depth = k + 1;
+                    comparison = c;
+                    return c == 0;
+                }
+                if (++k == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * k);
+                    low = Arrays.copyOf(low, 2 * k);
+                    high = Arrays.copyOf(high, 2 * k);
+                }
+                nodes[k] = next;
+                low[k] = c < 0 ? low[k - 1] : node.data;
+                high[k] = c < 0 ? node.data : high[k - 1];
+                node = next;
+            }
+        }
+
+        private boolean covers(int k, E x) {
+            if (low[k] != null) {
+                comparisons++;
+                if (x.compareTo(low[k]) <= 0) {
+                    return false;
+                }
+            }
+            if (high[k] != null) {
+                comparisons++;
+                if (x.compareTo(high[k]) >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private E[] newKeys(int length) {
+        return (E[]) new Comparable[length];
+    }
+
+    // ---- join, split y operaciones de conjuntos ----
+    // Reutilizan los nodos de los árboles que reciben: son destructivas y los dejan vacíos.
+
+    // Árbol con left, key y right, si todo left < key < todo right, en O(log n).
+    // left y right quedan vacíos.
+    public static <T extends Comparable<T>> AVLTree<T> join(AVLTree<T> left, T key, AVLTree<T> right) {
+        try {
+            if ((!left.isEmpty() && left.findMax().compareTo(key) >= 0)
+                    || (!right.isEmpty() && right.findMin().compareTo(key) <= 0)) {
+                throw new IllegalArgumentException("join requiere left < " + key + " < right");
+            }
+        } catch (ItemNotFound e) {
+            throw new IllegalStateException(e);
+        }
+        AVLTree<T> tree = new AVLTree<>();
+        tree.root = tree.join(left.rootAVL(), tree.new NodeAVL(key), right.rootAVL());
+        left.root = null;
+        right.root = null;
+        left.modCount++;
+        right.modCount++;
+        return tree;
+    }
+
+    // Deja en este árbol los elementos menores que key y devuelve otro con los mayores o iguales, en O(log n)
+    public AVLTree<E> split(E key) {
+        SplitResult parts = new SplitResult();
+        split(rootAVL(), key, parts);
+        AVLTree<E> upper = new AVLTree<>();
+        this.root = parts.left;
+        this.modCount++;
+        upper.root = parts.match == null ? parts.right : join(null, parts.match, parts.right);
+        return upper;
+    }
+
+    // Agrega los elementos de other, en O(m log(n/m + 1)) con m el tamaño del menor. other queda vacío.
+    // Con árboles grandes de tamaño parecido los subproblemas se reparten con fork/join.
+    public void union(AVLTree<E> other) {
+        this.root = applySetOp(UNION, other);
+    }
+
+    // Conserva solo los elementos que también están en other. other queda vacío.
+    public void intersection(AVLTree<E> other) {
+        this.root = applySetOp(INTERSECTION, other);
+    }
+
+    // Quita los elementos que están en other. other queda vacío.
+    public void difference(AVLTree<E> other) {
+        this.root = applySetOp(DIFFERENCE, other);
+    }
+
+    private static final int UNION = 0;
+    private static final int INTERSECTION = 1;
+    private static final int DIFFERENCE = 2;
+
+    // A partir de esta cantidad de elementos (entre ambos subárboles) se reparte con fork/join
+    private static final int PARALLEL_SET_OP_THRESHOLD = 1 << 14;
+
+    // Si un árbol es más de SKEWED_RATIO veces mayor que el otro, recorrer el menor elemento por
+    // elemento, en O(m log n), le gana en la práctica a partir el mayor en muchos pedazos
+    private static final int SKEWED_RATIO = 16;
+
+    private NodeAVL applySetOp(int op, AVLTree<E> other) {
+        if (other == this) {
+            return op == DIFFERENCE ? null : rootAVL();
+        }
+        int sizeA = size();
+        int sizeB = other.size();
+        NodeAVL result;
+        if ((long) Math.min(sizeA, sizeB) * SKEWED_RATIO < Math.max(sizeA, sizeB)) {
+            result = skewedSetOp(op, other, sizeA <= sizeB);
+        } else if (sizeA + sizeB >= PARALLEL_SET_OP_THRESHOLD) {
+            result = ForkJoinPool.commonPool().invoke(new SetOpTask(op, rootAVL(), other.rootAVL()));
+        } else {
+            result = setOp(op, rootAVL(), other.rootAVL());
+        }
+        other.root = null;
+        other.modCount++;
+        this.modCount++;
+        if (this.selfCheck) {
+            this.root = result;
+            checkInvariants();
+        }
+        return result;
+    }
+
+    // Operación entre un árbol chico y uno grande, elemento por elemento
+    private NodeAVL skewedSetOp(int op, AVLTree<E> other, boolean thisIsSmaller) {
+        AVLTree<E> small = thisIsSmaller ? this : other;
+        AVLTree<E> large = thisIsSmaller ? other : this;
+        switch (op) {
+            case UNION:
+                for (E x : small) {
+                    large.add(x);
+                }
+                return large.rootAVL();
+            case INTERSECTION:
+                return filter(small, large, true);
+            default:
+                if (thisIsSmaller) {
+                    return filter(this, other, false);
+                }
+                for (E x : other) {
+                    remove(x);
+                }
+                return rootAVL();
+        }
+    }
+
+    // Árbol balanceado con los elementos de source que están (keep) o no están en probe
+    private NodeAVL filter(AVLTree<E> source, AVLTree<E> probe, boolean keep) {
+        Object[] kept = new Object[source.size()];
+        int count = 0;
+        for (E x : source) {
+            if (probe.contains(x) == keep) {
+                kept[count++] = x;
+            }
+        }
+        return buildBalanced(kept, 0, count);
+    }
+
+    // La raíz de un árbol parte al otro con split; los dos subproblemas son independientes
+    private NodeAVL setOp(int op, NodeAVL a, NodeAVL b) {
+        if (a == null) {
+            return op == UNION ? b : null;
+        }
+        if (b == null) {
+            return op == INTERSECTION ? null : a;
+        }
+
+        // Unión e intersección parten b con la raíz de a; la diferencia parte a con la raíz de b
+        NodeAVL pivot = op == DIFFERENCE ? b : a;
+        SplitResult parts = new SplitResult();
+        split(op == DIFFERENCE ? a : b, pivot.data, parts);
+        NodeAVL pivotLeft = (NodeAVL) pivot.left;
+        NodeAVL pivotRight = (NodeAVL) pivot.right;
+
+        NodeAVL left;
+        NodeAVL right;
+        if (size(a) + size(b) >= PARALLEL_SET_OP_THRESHOLD) {
+            SetOpTask leftTask = new SetOpTask(op, op == DIFFERENCE ? parts.left : pivotLeft,
+                    op == DIFFERENCE ? pivotLeft : parts.left);
+            leftTask.fork();
+            right = setOp(op, op == DIFFERENCE ? parts.right : pivotRight, op == DIFFERENCE ? pivotRight : parts.right);
+            left = leftTask.join();
+        } else {
+            left = setOp(op, op == DIFFERENCE ? parts.left : pivotLeft, op == DIFFERENCE ? pivotLeft : parts.left);
+            right = setOp(op, op == DIFFERENCE ? parts.right : pivotRight, op == DIFFERENCE ? pivotRight : parts.right);
+        }
+
+        switch (op) {
+            case UNION:
+                return join(left, pivot, right);
+            case INTERSECTION:
+                return parts.match != null ? join(left, pivot, right) : join2(left, right);
+            default:
+                return join2(left, right);
+        }
+    }
+
+    @SuppressWarnings("serial") // Las tareas no se serializan
+    private final class SetOpTask extends RecursiveTask<NodeAVL> {
+        private final int op;
+        private final NodeAVL a;
+        private final NodeAVL b;
+
+        SetOpTask(int op, NodeAVL a, NodeAVL b) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        protected NodeAVL compute() {
+            return setOp(op, a, b);
+        }
+    }
+
+    // Partes de un split: menores, el nodo igual a la clave (o null) y mayores
+    private final class SplitResult {
+        NodeAVL left;
+        NodeAVL match;
+        NodeAVL right;
+    }
+
+    // Parte el subárbol por key uniendo con join lo que queda a cada lado del camino, en O(log n)
+    private void split(NodeAVL node, E key, SplitResult out) {
+        if (node == null) {
+            out.left = null;
+            out.match = null;
+            out.right = null;
+            return;
+        }
+        int comparison = key.compareTo(node.data);
+        NodeAVL left = (NodeAVL) node.left;
+        NodeAVL right = (NodeAVL) node.right;
+        if (comparison == 0) {
+            out.left = left;
+            out.match = node;
+            out.right = right;
+        } else if (comparison < 0) {
+            split(left, key, out);
+            out.right = join(out.right, node, right);
+        } else {
+            split(right, key, out);
+            out.left = join(left, node, out.left);
+        }
+    }
+
+    private NodeAVL rootAVL() {
+        return (NodeAVL) root;
+    }
+
+    // Recorre el árbol completo y comprueba que las alturas y factores guardados sean correctos
+    public void checkInvariants() {
+        checkInvariants((NodeAVL) root);
+    }
+
+    private int checkInvariants(NodeAVL node) {
         if (node == null) {
             return -1;
         }
-        return 1 + Math.max(height((NodeAVL) node.left), height((NodeAVL) node.right));
+        int leftHeight = checkInvariants((NodeAVL) node.left);
+        int rightHeight = checkInvariants((NodeAVL) node.right);
+        int expected = 1 + Math.max(leftHeight, rightHeight);
+        if (node.height != expected) {
+            throw new IllegalStateException("Altura incorrecta en " + node.data
+                    + ": guardada " + node.height + ", real " + expected);
+        }
+        if (node.bf != rightHeight - leftHeight || Math.abs(node.bf) > 1) {
+            throw new IllegalStateException("Factor de balanceo incorrecto en " + node);
+        }
+        if (node.size != 1 + size((NodeAVL) node.left) + size((NodeAVL) node.right)) {
+            throw new IllegalStateException("Tamaño incorrecto en " + node);
+        }
+        return expected;
     }
 
     // Recorrido BFS
@@ -292,16 +1162,21 @@ public class AVLTree<E extends Comparable<E>> extends BSTree<E> {
     @Override
     public String preOrder() {
         StringBuilder sb = new StringBuilder();
-        preOrder((NodeAVL) root, sb);
-        return sb.toString();
-    }
+        Deque<Node> stack = new ArrayDeque<>();
+        if (root != null) {
+            stack.push(root);
+        }
 
-    private void preOrder(NodeAVL node, StringBuilder sb) {
-        if (node != null) {
+        while (!stack.isEmpty()) {
+            NodeAVL node = (NodeAVL) stack.pop();
             sb.append(node.data).append(" (bf=").append(node.bf).append(") ");
-            preOrder((NodeAVL) node.left, sb);
-            preOrder((NodeAVL) node.right, sb);
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+            }
         }
+        return sb.toString();
     }
 }
-
@@ -0,0 +1,573 @@
+package avltree;
+
+import exceptions.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Mapa ordenado sobre un AVL: clave y valor en el mismo nodo, sin objetos Entry envolventes
+// ni sondas para buscar. Actualizar el valor de una clave existente no toca la forma del árbol.
+// El orden es el del Comparator dado o, sin él, el natural de las claves (Comparable).
+// Los valores no pueden ser null: null significa "sin valor" en get y en compute.
+public class AVLTreeMap<K, V> {
+
+    static final class Node<K, V> {
+        final K key;
+        V value;
+        Node<K, V> left;
+        Node<K, V> right;
+        int height; // Altura del subárbol con raíz en este nodo
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final int INITIAL_PATH = 64;
+
+    private final Comparator<? super K> comparator; // null: orden natural
+    private Node<K, V> root;
+    private int size;
+    private int modCount; // Cambios de estructura; compute detecta si la función modificó el mapa
+    private int descents; // Descensos que llenaron path; compute detecta si la función lo pisó
+    private Node<K, V>[] path = newPath(INITIAL_PATH); // Camino raíz -> nodo de la última operación
+
+    // Orden natural: las claves tienen que implementar Comparable
+    public AVLTreeMap() {
+        this(null);
+    }
+
+    public AVLTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(K a, K b) {
+        return comparator == null ? ((Comparable<? super K>) a).compareTo(b) : comparator.compare(a, b);
+    }
+
+    // Cantidad de claves en O(1)
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    // ---- Búsqueda ----
+
+    // Valor asociado a key, o null si no está
+    public V get(K key) {
+        Node<K, V> node = find(key);
+        return node == null ? null : node.value;
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        Node<K, V> node = find(key);
+        return node == null ? defaultValue : node.value;
+    }
+
+    public boolean containsKey(K key) {
+        return find(key) != null;
+    }
+
+    // Igual que get pero lanzando ItemNotFound si la clave no está
+    public V search(K key) throws ItemNotFound {
+        Node<K, V> node = find(key);
+        if (node == null) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return node.value;
+    }
+
+    private Node<K, V> find(K key) {
+        Objects.requireNonNull(key);
+        Node<K, V> node = root;
+        if (comparator == null) {
+            // Sin Comparator se evita la indirección por comparación
+            @SuppressWarnings("unchecked")
+            Comparable<? super K> k = (Comparable<? super K>) key;
+            while (node != null) {
+                int comparison = k.compareTo(node.key);
+                if (comparison == 0) {
+                    return node;
+                }
+                node = comparison < 0 ? node.left : node.right;
+            }
+            return null;
+        }
+        while (node != null) {
+            int comparison = comparator.compare(key, node.key);
+            if (comparison == 0) {
+                return node;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    // ---- Inserción y actualización ----
+
+    // Asocia value a key; devuelve el valor anterior o null si la clave era nueva.
+    // Si la clave ya estaba solo se reemplaza el valor: no hay rotaciones.
+    public V put(K key, V value) {
+        Objects.requireNonNull(value);
+        int depth = descend(key);
+        if (depth < 0) {
+            Node<K, V> node = path[~depth];
+            Arrays.fill(path, 0, ~depth + 1, null);
+            V previous = node.value;
+            node.value = value;
+            return previous;
+        }
+        attach(depth, key, value);
+        return null;
+    }
+
+    // Inserta solo si la clave no estaba; devuelve el valor existente o null si insertó
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(value);
+        int depth = descend(key);
+        if (depth < 0) {
+            Arrays.fill(path, 0, ~depth, null);
+            return existing(depth);
+        }
+        attach(depth, key, value);
+        return null;
+    }
+
+    // Variante de Map.put que lanza si la clave ya existía, como insert en los árboles
+    public void insert(K key, V value) throws ItemDuplicated {
+        if (putIfAbsent(key, value) != null) {
+            throw new ItemDuplicated(key + " ya se encuentra en el árbol");
+        }
+    }
+
+    // Calcula el nuevo valor a partir del actual (null si la clave no está) con un solo
+    // descenso: un resultado null elimina la clave, otro valor la inserta o la actualiza.
+    // La función no debe modificar el mapa.
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        int depth = descend(key);
+        if (depth < 0) {
+            return recompute(~depth, function);
+        }
+        int expectedModCount = modCount;
+        int expectedDescents = descents;
+        V value = function.apply(key, null);
+        depth = revalidate(key, depth, expectedModCount, expectedDescents);
+        if (value == null) {
+            Arrays.fill(path, 0, depth, null);
+        } else {
+            attach(depth, key, value);
+        }
+        return value;
+    }
+
+    // Solo si la clave está: reemplaza su valor (en el lugar) o la elimina si el resultado es null
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        int depth = descend(key);
+        if (depth >= 0) {
+            Arrays.fill(path, 0, depth, null);
+            return null;
+        }
+        return recompute(~depth, function);
+    }
+
+    // Aplica function al nodo encontrado en path[depth]
+    private V recompute(int depth, BiFunction<? super K, ? super V, ? extends V> function) {
+        Node<K, V> node = path[depth];
+        int expectedModCount = modCount;
+        int expectedDescents = descents;
+        V value = function.apply(node.key, node.value);
+        depth = ~revalidate(node.key, ~depth, expectedModCount, expectedDescents);
+        if (value == null) {
+            unlink(node, depth);
+        } else {
+            Arrays.fill(path, 0, depth + 1, null);
+            node.value = value;
+        }
+        return value;
+    }
+
+    // Valor de key, calculándolo e insertándolo si no estaba (con un solo descenso)
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        int depth = descend(key);
+        if (depth < 0) {
+            Arrays.fill(path, 0, ~depth, null);
+            return existing(depth);
+        }
+        int expectedModCount = modCount;
+        int expectedDescents = descents;
+        V value = function.apply(key);
+        depth = revalidate(key, depth, expectedModCount, expectedDescents);
+        if (value == null) {
+            Arrays.fill(path, 0, depth, null);
+        } else {
+            attach(depth, key, value);
+        }
+        return value;
+    }
+
+    // Combina value con el valor actual (o lo inserta si no había); null elimina la clave
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+        Objects.requireNonNull(value);
+        return compute(key, (k, old) -> old == null ? value : function.apply(old, value));
+    }
+
+    private V existing(int depth) {
+        Node<K, V> node = path[~depth];
+        path[~depth] = null;
+        return node.value;
+    }
+
+    // Después de llamar a la función de compute: lanza si cambió la estructura. Si usó el mapa
+    // sin cambiarla (put sobre una clave existente, remove de una ausente) pisó path, y se vuelve
+    // a bajar; depth es el resultado del descenso original.
+    private int revalidate(K key, int depth, int expectedModCount, int expectedDescents) {
+        if (modCount != expectedModCount) {
+            Arrays.fill(path, 0, path.length, null);
+            throw new ConcurrentModificationException("La función modificó el mapa");
+        }
+        return descents == expectedDescents ? depth : descend(key);
+    }
+
+    // Baja buscando key y deja el camino en path. Si la encuentra devuelve ~profundidad
+    // (path[~resultado] es el nodo); si no, la profundidad de la hoja donde va (path[0..d)).
+    private int descend(K key) {
+        Objects.requireNonNull(key);
+        descents++;
+        int depth = 0;
+        Node<K, V> node = root;
+        while (node != null) {
+            int comparison = compare(key, node.key);
+            push(depth, node);
+            if (comparison == 0) {
+                return ~depth;
+            }
+            depth++;
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return depth;
+    }
+
+    // Cuelga un nodo nuevo del último nodo del camino y rebalancea
+    private void attach(int depth, K key, V value) {
+        Node<K, V> node = new Node<>(key, value);
+        if (depth == 0) {
+            root = node;
+        } else {
+            Node<K, V> parent = path[depth - 1];
+            if (compare(key, parent.key) < 0) {
+                parent.left = node;
+            } else {
+                parent.right = node;
+            }
+        }
+        size++;
+        modCount++;
+        rebalancePath(depth);
+    }
+
+    // ---- Eliminación ----
+
+    // Elimina la clave; devuelve su valor o null si no estaba
+    public V remove(K key) {
+        int depth = descend(key);
+        if (depth >= 0) {
+            Arrays.fill(path, 0, depth, null);
+            return null;
+        }
+        Node<K, V> node = path[~depth];
+        unlink(node, ~depth);
+        return node.value;
+    }
+
+    public void delete(K key) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        remove(key);
+    }
+
+    // Quita node, que está en path[depth] con sus ancestros en path[0..depth)
+    private void unlink(Node<K, V> node, int depth) {
+        if (node.left != null && node.right != null) {
+            // Nodo con dos hijos: el sucesor ocupa su lugar. Las claves son finales, así que
+            // se mueve el nodo (con su valor) en vez de copiar clave y valor.
+            int targetDepth = depth++;
+            Node<K, V> successor = node.right;
+            while (successor.left != null) {
+                push(depth++, successor);
+                successor = successor.left;
+            }
+            replaceChild(depth - 1 == targetDepth ? node : path[depth - 1], successor, successor.right);
+            successor.left = node.left;
+            successor.right = node.right;
+            successor.height = node.height;
+            replaceChild(targetDepth == 0 ? null : path[targetDepth - 1], node, successor);
+            path[targetDepth] = successor;
+        } else {
+            Node<K, V> child = node.left != null ? node.left : node.right;
+            replaceChild(depth == 0 ? null : path[depth - 1], node, child);
+            path[depth] = null;
+        }
+        node.left = null;
+        node.right = null;
+        size--;
+        modCount++;
+        rebalancePath(depth);
+    }
+
+    // ---- Balanceo (igual que LongAVLTree) ----
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Node<K, V>[] newPath(int length) {
+        return (Node<K, V>[]) new Node[length];
+    }
+
+    private void push(int depth, Node<K, V> node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, 2 * depth);
+        }
+        path[depth] = node;
+    }
+
+    // Actualiza alturas y rota de abajo hacia arriba; se detiene cuando una altura no cambia
+    private void rebalancePath(int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            Node<K, V> node = path[i];
+            path[i] = null;
+            int oldHeight = node.height;
+
+            updateHeight(node);
+            Node<K, V> balanced = node;
+            int bf = balanceFactor(node);
+            if (bf == 2) {
+                balanced = balanceToLeft(node);
+            } else if (bf == -2) {
+                balanced = balanceToRight(node);
+            }
+
+            if (balanced != node) {
+                replaceChild(i == 0 ? null : path[i - 1], node, balanced);
+            }
+            if (balanced.height == oldHeight) {
+                Arrays.fill(path, 0, i, null);
+                return;
+            }
+        }
+    }
+
+    private void replaceChild(Node<K, V> parent, Node<K, V> oldChild, Node<K, V> newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? -1 : node.height;
+    }
+
+    private static int balanceFactor(Node<?, ?> node) {
+        return height(node.right) - height(node.left);
+    }
+
+    private static void updateHeight(Node<?, ?> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+    }
+
+    // Balancea cuando el subárbol derecho es más pesado (bf = 2)
+    private static <K, V> Node<K, V> balanceToLeft(Node<K, V> node) {
+        if (balanceFactor(node.right) < 0) {
+            // Rotación doble (derecha-izquierda)
+            node.right = rotateRight(node.right);
+        }
+        return rotateLeft(node);
+    }
+
+    // Balancea cuando el subárbol izquierdo es más pesado (bf = -2)
+    private static <K, V> Node<K, V> balanceToRight(Node<K, V> node) {
+        if (balanceFactor(node.left) > 0) {
+            // Rotación doble (izquierda-derecha)
+            node.left = rotateLeft(node.left);
+        }
+        return rotateRight(node);
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(Node<K, V> node) {
+        Node<K, V> newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    private static <K, V> Node<K, V> rotateRight(Node<K, V> node) {
+        Node<K, V> newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    // ---- Claves extremas y vecinas ----
+
+    public K firstKey() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        Node<K, V> node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.key;
+    }
+
+    public K lastKey() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        Node<K, V> node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.key;
+    }
+
+    // Mayor clave <= key, o null si no existe
+    public K floorKey(K key) {
+        Node<K, V> node = root;
+        Node<K, V> best = null;
+        while (node != null) {
+            int comparison = compare(key, node.key);
+            if (comparison == 0) {
+                return node.key;
+            }
+            if (comparison > 0) {
+                best = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return best == null ? null : best.key;
+    }
+
+    // Menor clave >= key, o null si no existe
+    public K ceilingKey(K key) {
+        Node<K, V> node = root;
+        Node<K, V> best = null;
+        while (node != null) {
+            int comparison = compare(key, node.key);
+            if (comparison == 0) {
+                return node.key;
+            }
+            if (comparison < 0) {
+                best = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return best == null ? null : best.key;
+    }
+
+    // Altura del árbol en O(1)
+    public int height() {
+        return height(root);
+    }
+
+    // ---- Recorridos ----
+
+    // Recorre los pares en orden de clave sin crear objetos por par
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Deque<Node<K, V>> stack = new ArrayDeque<>();
+        Node<K, V> node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            action.accept(node.key, node.value);
+            node = node.right;
+        }
+    }
+
+    // RECORRIDO IN ORDEN: clave=valor
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        forEach((key, value) -> sb.append(key).append('=').append(value).append(" "));
+        return sb.toString();
+    }
+
+    // Recorrido BFS de las claves, con separador por niveles: muestra la forma del árbol
+    public String breadthFirst() {
+        StringBuilder sb = new StringBuilder();
+        Deque<Node<K, V>> queue = new ArrayDeque<>();
+        if (root != null) {
+            queue.offer(root);
+        }
+        while (!queue.isEmpty()) {
+            int levelSize = queue.size();
+            for (int i = 0; i < levelSize; i++) {
+                Node<K, V> current = queue.poll();
+                sb.append(current.key).append(" ");
+                if (current.left != null) {
+                    queue.offer(current.left);
+                }
+                if (current.right != null) {
+                    queue.offer(current.right);
+                }
+            }
+            sb.append("| "); // Separador por niveles
+        }
+        return sb.toString();
+    }
+
+    // Comprueba alturas, factores de balanceo, orden de las claves y el tamaño
+    public void checkInvariants() {
+        int[] count = new int[1];
+        checkInvariants(root, null, null, count);
+        if (count[0] != size) {
+            throw new IllegalStateException("Tamaño inconsistente: " + count[0] + " != " + size);
+        }
+    }
+
+    private int checkInvariants(Node<K, V> node, K low, K high, int[] count) {
+        if (node == null) {
+            return -1;
+        }
+        if ((low != null && compare(node.key, low) <= 0) || (high != null && compare(node.key, high) >= 0)) {
+            throw new IllegalStateException("Orden incorrecto en " + node.key);
+        }
+        if (node.value == null) {
+            throw new IllegalStateException("Valor null en " + node.key);
+        }
+        count[0]++;
+        int leftHeight = checkInvariants(node.left, low, node.key, count);
+        int rightHeight = checkInvariants(node.right, node.key, high, count);
+        if (node.height != 1 + Math.max(leftHeight, rightHeight) || Math.abs(rightHeight - leftHeight) > 1) {
+            throw new IllegalStateException("Altura o factor de balanceo incorrecto en " + node.key);
+        }
+        return node.height;
+    }
+}
@@ -0,0 +1,384 @@
+package avltree;
+
+import complements.BinarySearchTree;
+import exceptions.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+// AVL con los nodos guardados en arreglos paralelos (claves, hijos y alturas) en vez de
+// objetos NodeAVL. Los huecos que deja delete se reutilizan mediante una lista libre,
+// así que en régimen estable insert/delete no asignan memoria.
+public class ArrayAVLTree<E extends Comparable<E>> implements BinarySearchTree<E> {
+
+    private static final int NIL = 0; // El índice 0 representa el hijo vacío (altura -1)
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] keys;
+    private int[] left;   // En los huecos libres enlaza la lista libre
+    private int[] right;
+    private int[] height;
+
+    private int root = NIL;
+    private int size;
+    private int used = 1;      // Índices en [1, used) ya entregados alguna vez
+    private int freeList = NIL;
+    private int[] path = new int[64];
+
+    public ArrayAVLTree() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ArrayAVLTree(int initialCapacity) {
+        int capacity = Math.max(2, initialCapacity + 1);
+        keys = new Object[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        height = new int[capacity];
+        height[NIL] = -1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void insert(E x) throws ItemDuplicated {
+        if (!add(x)) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
+    }
+
+    @Override
+    public boolean add(E x) {
+        if (root == NIL) {
+            root = allocate(x);
+            return true;
+        }
+
+        int depth = 0;
+        int node = root;
+        while (true) {
+            int comparison = x.compareTo(key(node));
+            if (comparison == 0) {
+                return false;
+            }
+            push(depth++, node);
+            int next = comparison < 0 ? left[node] : right[node];
+            if (next == NIL) {
+                // allocate puede reemplazar los arreglos: se enlaza después
+                int created = allocate(x);
+                if (comparison < 0) {
+                    left[node] = created;
+                } else {
+                    right[node] = created;
+                }
+                break;
+            }
+            node = next;
+        }
+        rebalancePath(depth);
+        return true;
+    }
+
+    @Override
+    public E search(E x) throws ItemNotFound {
+        E result = get(x);
+        if (result == null) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return result;
+    }
+
+    @Override
+    public E get(E x) {
+        int node = find(x);
+        return node == NIL ? null : key(node);
+    }
+
+    @Override
+    public boolean contains(E x) {
+        return find(x) != NIL;
+    }
+
+    private int find(E x) {
+        int node = root;
+        while (node != NIL) {
+            int comparison = x.compareTo(key(node));
+            if (comparison == 0) {
+                return node;
+            }
+            node = comparison < 0 ? left[node] : right[node];
+        }
+        return NIL;
+    }
+
+    @Override
+    public void delete(E x) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        remove(x);
+    }
+
+    @Override
+    public E remove(E x) {
+        int depth = 0;
+        int node = root;
+        while (node != NIL) {
+            int comparison = x.compareTo(key(node));
+            if (comparison == 0) {
+                break;
+            }
+            push(depth++, node);
+            node = comparison < 0 ? left[node] : right[node];
+        }
+        if (node == NIL) {
+            return null;
+        }
+        E removed = key(node);
+
+        // Nodo con dos hijos: se copia la clave del sucesor y se libera el sucesor
+        if (left[node] != NIL && right[node] != NIL) {
+            int target = node;
+            push(depth++, node);
+            node = right[node];
+            while (left[node] != NIL) {
+                push(depth++, node);
+                node = left[node];
+            }
+            keys[target] = keys[node];
+        }
+
+        int child = left[node] != NIL ? left[node] : right[node];
+        replaceChild(depth == 0 ? NIL : path[depth - 1], node, child);
+        release(node);
+        rebalancePath(depth);
+        return removed;
+    }
+
+    public E findMin() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        int node = root;
+        while (left[node] != NIL) {
+            node = left[node];
+        }
+        return key(node);
+    }
+
+    public E findMax() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        int node = root;
+        while (right[node] != NIL) {
+            node = right[node];
+        }
+        return key(node);
+    }
+
+    // Altura del árbol en O(1)
+    public int height() {
+        return height[root];
+    }
+
+    @SuppressWarnings("unchecked")
+    private E key(int node) {
+        return (E) keys[node];
+    }
+
+    // Toma un hueco de la lista libre o, si no hay, el siguiente índice sin usar
+    private int allocate(E x) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (used == keys.length) {
+                grow();
+            }
+            node = used++;
+        }
+        keys[node] = x;
+        left[node] = NIL;
+        right[node] = NIL;
+        height[node] = 0;
+        size++;
+        return node;
+    }
+
+    private void release(int node) {
+        keys[node] = null; // Suelta la referencia para el GC
+        right[node] = NIL;
+        left[node] = freeList;
+        freeList = node;
+        size--;
+    }
+
+    private void grow() {
+        int capacity = keys.length + (keys.length >> 1) + 1;
+        keys = Arrays.copyOf(keys, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        height = Arrays.copyOf(height, capacity);
+    }
+
+    private void push(int depth, int node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, 2 * depth);
+        }
+        path[depth] = node;
+    }
+
+    private void replaceChild(int parent, int oldChild, int newChild) {
+        if (parent == NIL) {
+            root = newChild;
+        } else if (left[parent] == oldChild) {
+            left[parent] = newChild;
+        } else {
+            right[parent] = newChild;
+        }
+    }
+
+    // Recorrido ascendente igual al de AVLTree: se detiene cuando la altura no cambia
+    private void rebalancePath(int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            int node = path[i];
+            int oldHeight = height[node];
+
+            updateHeight(node);
+            int balanced = node;
+            int bf = balanceFactor(node);
+            if (bf == 2) {
+                balanced = balanceToLeft(node);
+            } else if (bf == -2) {
+                balanced = balanceToRight(node);
+            }
+
+            if (balanced != node) {
+                replaceChild(i == 0 ? NIL : path[i - 1], node, balanced);
+            }
+            if (height[balanced] == oldHeight) {
+                return;
+            }
+        }
+    }
+
+    private int balanceFactor(int node) {
+        return height[right[node]] - height[left[node]];
+    }
+
+    private void updateHeight(int node) {
+        height[node] = 1 + Math.max(height[left[node]], height[right[node]]);
+    }
+
+    // Balancea cuando el subárbol derecho es más pesado (bf = 2)
+    private int balanceToLeft(int node) {
+        if (balanceFactor(right[node]) < 0) {
+            // Rotación doble (derecha-izquierda)
+            right[node] = rotateRight(right[node]);
+        }
+        return rotateLeft(node);
+    }
+
+    // Balancea cuando el subárbol izquierdo es más pesado (bf = -2)
+    private int balanceToRight(int node) {
+        if (balanceFactor(left[node]) > 0) {
+            // Rotación doble (izquierda-derecha)
+            left[node] = rotateLeft(left[node]);
+        }
+        return rotateRight(node);
+    }
+
+    private int rotateLeft(int node) {
+        int newRoot = right[node];
+        right[node] = left[newRoot];
+        left[newRoot] = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    private int rotateRight(int node) {
+        int newRoot = left[node];
+        left[node] = right[newRoot];
+        right[newRoot] = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    // RECORRIDO IN ORDEN
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        int[] stack = new int[Math.max(1, height[root] + 1)];
+        int top = 0;
+        int node = root;
+        while (node != NIL || top > 0) {
+            while (node != NIL) {
+                stack[top++] = node;
+                node = left[node];
+            }
+            node = stack[--top];
+            sb.append(keys[node]).append(" ");
+            node = right[node];
+        }
+        return sb.toString();
+    }
+
+    // Recorrido BFS
+    public String breadthFirst() {
+        StringBuilder sb = new StringBuilder();
+        Queue<Integer> queue = new ArrayDeque<>();
+        if (root != NIL) {
+            queue.offer(root);
+        }
+        while (!queue.isEmpty()) {
+            for (int i = queue.size(); i > 0; i--) {
+                int current = queue.poll();
+                sb.append(keys[current]).append(" ");
+                if (left[current] != NIL) {
+                    queue.offer(left[current]);
+                }
+                if (right[current] != NIL) {
+                    queue.offer(right[current]);
+                }
+            }
+            sb.append("| "); // Separador por niveles
+        }
+        return sb.toString();
+    }
+
+    // Comprueba alturas, factores de balanceo, orden y el conteo de nodos vivos
+    public void checkInvariants() {
+        int[] count = new int[1];
+        checkInvariants(root, null, null, count);
+        if (count[0] != size) {
+            throw new IllegalStateException("Tamaño incorrecto: " + size + " guardado, " + count[0] + " reales");
+        }
+    }
+
+    private int checkInvariants(int node, E low, E high, int[] count) {
+        if (node == NIL) {
+            return -1;
+        }
+        count[0]++;
+        E key = key(node);
+        if ((low != null && key.compareTo(low) <= 0) || (high != null && key.compareTo(high) >= 0)) {
+            throw new IllegalStateException("Orden incorrecto en " + key);
+        }
+        int leftHeight = checkInvariants(left[node], low, key, count);
+        int rightHeight = checkInvariants(right[node], key, high, count);
+        if (height[node] != 1 + Math.max(leftHeight, rightHeight) || Math.abs(rightHeight - leftHeight) > 1) {
+            throw new IllegalStateException("Altura o factor de balanceo incorrecto en " + key);
+        }
+        return height[node];
+    }
+}
@@ -0,0 +1,507 @@
+package avltree;
+
+import exceptions.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// AVL para claves byte[] (o String en UTF-8) largas con prefijos comunes: URLs, rutas, IDs
+// jerárquicos. Los nodos son índices en arreglos paralelos, como en ArrayAVLTree, y los bytes
+// de todas las claves están seguidos en un único arreglo (arena), sin un objeto por clave.
+// Durante el descenso se lleva el prefijo común de x con la cota inferior y con la superior
+// del subárbol actual; cualquier clave del subárbol comparte con x al menos el menor de los
+// dos, así que cada comparación empieza después de esos bytes en vez de desde el principio.
+// Orden: bytes sin signo, lexicográfico (en UTF-8 coincide con el orden por code point;
+// String.compareTo compara UTF-16 y difiere solo entre caracteres suplementarios y U+E000..U+FFFF).
+public class ByteKeyAVLTree {
+
+    private static final int NIL = 0; // El índice 0 representa el hijo vacío (altura -1)
+    private static final int FREE = -1; // length de un nodo liberado
+    private static final int INITIAL_CAPACITY = 16;
+
+    private byte[] arena;
+    private int arenaUsed;
+    private int garbage; // Bytes de claves eliminadas que siguen en la arena hasta compactar
+
+    private int[] offset; // Clave del nodo: arena[offset, offset + length)
+    private int[] length;
+    private int[] left;   // En los huecos libres enlaza la lista libre
+    private int[] right;
+    private int[] height;
+
+    private int root = NIL;
+    private int size;
+    private int used = 1;
+    private int freeList = NIL;
+    private int[] path = new int[64];
+
+    public ByteKeyAVLTree() {
+        this(INITIAL_CAPACITY, INITIAL_CAPACITY * 32);
+    }
+
+    // Capacidad inicial en claves y en bytes de clave
+    public ByteKeyAVLTree(int initialKeys, int initialArenaBytes) {
+        int capacity = Math.max(2, initialKeys + 1);
+        offset = new int[capacity];
+        length = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        height = new int[capacity];
+        height[NIL] = -1;
+        arena = new byte[Math.max(16, initialArenaBytes)];
+    }
+
+    private static byte[] utf8(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Altura del árbol en O(1)
+    public int height() {
+        return height[root];
+    }
+
+    // Bytes ocupados por la arena (claves vivas más las eliminadas pendientes de compactar)
+    public long arenaBytes() {
+        return arena.length;
+    }
+
+    // ---- Comparación ----
+
+    // Compara x con la clave de node sabiendo que los primeros start bytes coinciden.
+    // Devuelve 0 si son iguales; si no, ±(m + 1) con m el largo del prefijo común y el signo
+    // de x - clave.
+    private int compare(byte[] x, int node, int start) {
+        int from = offset[node];
+        int keyLength = length[node];
+        int m = Arrays.mismatch(x, start, x.length, arena, from + start, from + keyLength);
+        if (m < 0) {
+            return 0;
+        }
+        m += start;
+        int sign;
+        if (m == x.length) {
+            sign = -1; // x es prefijo de la clave
+        } else if (m == keyLength) {
+            sign = 1;
+        } else {
+            sign = (x[m] & 0xFF) < (arena[from + m] & 0xFF) ? -1 : 1;
+        }
+        return sign * (m + 1);
+    }
+
+    // ---- Búsqueda ----
+
+    public boolean contains(byte[] x) {
+        return find(x) != NIL;
+    }
+
+    public boolean contains(String x) {
+        return contains(utf8(x));
+    }
+
+    public String search(String x) throws ItemNotFound {
+        if (!contains(x)) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return x;
+    }
+
+    private int find(byte[] x) {
+        int lowLcp = 0;  // Prefijo común de x con la cota inferior del subárbol
+        int highLcp = 0; // y con la superior
+        int node = root;
+        while (node != NIL) {
+            int comparison = compare(x, node, Math.min(lowLcp, highLcp));
+            if (comparison == 0) {
+                return node;
+            }
+            if (comparison < 0) {
+                highLcp = -comparison - 1;
+                node = left[node];
+            } else {
+                lowLcp = comparison - 1;
+                node = right[node];
+            }
+        }
+        return NIL;
+    }
+
+    // ---- Inserción ----
+
+    public void insert(byte[] x) throws ItemDuplicated {
+        if (!add(x)) {
+            throw new ItemDuplicated(new String(x, StandardCharsets.UTF_8) + " ya se encuentra en el árbol");
+        }
+    }
+
+    public void insert(String x) throws ItemDuplicated {
+        if (!add(x)) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
+    }
+
+    public boolean add(String x) {
+        return add(utf8(x));
+    }
+
+    // Inserta sin lanzar excepción; devuelve false si la clave ya existía. Se copian los
+    // bytes de x a la arena: el arreglo puede reutilizarse después.
+    public boolean add(byte[] x) {
+        if (root == NIL) {
+            root = allocate(x);
+            return true;
+        }
+
+        int depth = 0;
+        int lowLcp = 0;
+        int highLcp = 0;
+        int node = root;
+        while (true) {
+            int comparison = compare(x, node, Math.min(lowLcp, highLcp));
+            if (comparison == 0) {
+                return false;
+            }
+            push(depth++, node);
+            int next;
+            if (comparison < 0) {
+                highLcp = -comparison - 1;
+                next = left[node];
+            } else {
+                lowLcp = comparison - 1;
+                next = right[node];
+            }
+            if (next == NIL) {
+                // allocate puede reemplazar los arreglos: se enlaza después
+                int created = allocate(x);
+                if (comparison < 0) {
+                    left[node] = created;
+                } else {
+                    right[node] = created;
+                }
+                break;
+            }
+            node = next;
+        }
+        rebalancePath(depth);
+        return true;
+    }
+
+    // ---- Eliminación ----
+
+    public void delete(byte[] x) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        remove(x);
+    }
+
+    public void delete(String x) throws ExceptionIsEmpty {
+        delete(utf8(x));
+    }
+
+    public boolean remove(String x) {
+        return remove(utf8(x));
+    }
+
+    // Elimina sin lanzar excepción; devuelve false si la clave no estaba
+    public boolean remove(byte[] x) {
+        int depth = 0;
+        int lowLcp = 0;
+        int highLcp = 0;
+        int node = root;
+        while (node != NIL) {
+            int comparison = compare(x, node, Math.min(lowLcp, highLcp));
+            if (comparison == 0) {
+                break;
+            }
+            push(depth++, node);
+            if (comparison < 0) {
+                highLcp = -comparison - 1;
+                node = left[node];
+            } else {
+                lowLcp = comparison - 1;
+                node = right[node];
+            }
+        }
+        if (node == NIL) {
+            return false;
+        }
+        garbage += length[node];
+
+        // Nodo con dos hijos: el nodo pasa a apuntar a los bytes del sucesor y se libera el sucesor
+        if (left[node] != NIL && right[node] != NIL) {
+            int target = node;
+            push(depth++, node);
+            node = right[node];
+            while (left[node] != NIL) {
+                push(depth++, node);
+                node = left[node];
+            }
+            offset[target] = offset[node];
+            length[target] = length[node];
+        }
+
+        int child = left[node] != NIL ? left[node] : right[node];
+        replaceChild(depth == 0 ? NIL : path[depth - 1], node, child);
+        release(node);
+        rebalancePath(depth);
+        return true;
+    }
+
+    // ---- Mínimo, máximo y recorridos ----
+
+    public byte[] findMin() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        int node = root;
+        while (left[node] != NIL) {
+            node = left[node];
+        }
+        return key(node);
+    }
+
+    public byte[] findMax() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        int node = root;
+        while (right[node] != NIL) {
+            node = right[node];
+        }
+        return key(node);
+    }
+
+    // Copia de la clave de node
+    private byte[] key(int node) {
+        return Arrays.copyOfRange(arena, offset[node], offset[node] + length[node]);
+    }
+
+    private String keyString(int node) {
+        return new String(arena, offset[node], length[node], StandardCharsets.UTF_8);
+    }
+
+    // Recorre las claves en orden; cada una se entrega como una copia
+    public void forEach(Consumer<byte[]> action) {
+        int[] stack = new int[Math.max(1, height[root] + 1)];
+        int top = 0;
+        int node = root;
+        while (node != NIL || top > 0) {
+            while (node != NIL) {
+                stack[top++] = node;
+                node = left[node];
+            }
+            node = stack[--top];
+            action.accept(key(node));
+            node = right[node];
+        }
+    }
+
+    // RECORRIDO IN ORDEN, con las claves decodificadas como UTF-8
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        forEach(key -> sb.append(new String(key, StandardCharsets.UTF_8)).append(" "));
+        return sb.toString();
+    }
+
+    // ---- Nodos y arena ----
+
+    // Toma un hueco de la lista libre o el siguiente índice y copia la clave al final de la arena
+    private int allocate(byte[] x) {
+        int at = append(x);
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (used == offset.length) {
+                grow();
+            }
+            node = used++;
+        }
+        offset[node] = at;
+        length[node] = x.length;
+        left[node] = NIL;
+        right[node] = NIL;
+        height[node] = 0;
+        size++;
+        return node;
+    }
+
+    private void release(int node) {
+        length[node] = FREE;
+        right[node] = NIL;
+        left[node] = freeList;
+        freeList = node;
+        size--;
+    }
+
+    private void grow() {
+        int capacity = offset.length + (offset.length >> 1) + 1;
+        offset = Arrays.copyOf(offset, capacity);
+        length = Arrays.copyOf(length, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        height = Arrays.copyOf(height, capacity);
+    }
+
+    // Copia x al final de la arena y devuelve su posición. Si no entra, compacta cuando la
+    // mitad de la arena es basura y si no la agranda; así la basura nunca supera a lo vivo
+    // por mucho y el costo de compactar se amortiza entre las eliminaciones.
+    private int append(byte[] x) {
+        if (arena.length - arenaUsed < x.length) {
+            long live = (long) arenaUsed - garbage;
+            long needed = live + x.length;
+            if (needed > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("La arena de claves supera los 2 GB");
+            }
+            long capacity = garbage >= arenaUsed / 2 ? Math.max(arena.length, needed)
+                    : Math.max(needed, arena.length + (arena.length >> 1));
+            compact((int) Math.min(capacity + (capacity >> 3), Integer.MAX_VALUE - 8));
+        }
+        int at = arenaUsed;
+        System.arraycopy(x, 0, arena, at, x.length);
+        arenaUsed += x.length;
+        return at;
+    }
+
+    // Copia solo las claves vivas a una arena nueva, en orden de nodo
+    private void compact(int capacity) {
+        byte[] compacted = new byte[capacity];
+        int at = 0;
+        for (int node = 1; node < used; node++) {
+            if (length[node] != FREE) {
+                System.arraycopy(arena, offset[node], compacted, at, length[node]);
+                offset[node] = at;
+                at += length[node];
+            }
+        }
+        arena = compacted;
+        arenaUsed = at;
+        garbage = 0;
+    }
+
+    // ---- Balanceo (igual que ArrayAVLTree) ----
+
+    private void push(int depth, int node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, 2 * depth);
+        }
+        path[depth] = node;
+    }
+
+    private void replaceChild(int parent, int oldChild, int newChild) {
+        if (parent == NIL) {
+            root = newChild;
+        } else if (left[parent] == oldChild) {
+            left[parent] = newChild;
+        } else {
+            right[parent] = newChild;
+        }
+    }
+
+    private void rebalancePath(int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            int node = path[i];
+            int oldHeight = height[node];
+
+            updateHeight(node);
+            int balanced = node;
+            int bf = balanceFactor(node);
+            if (bf == 2) {
+                balanced = balanceToLeft(node);
+            } else if (bf == -2) {
+                balanced = balanceToRight(node);
+            }
+
+            if (balanced != node) {
+                replaceChild(i == 0 ? NIL : path[i - 1], node, balanced);
+            }
+            if (height[balanced] == oldHeight) {
+                return;
+            }
+        }
+    }
+
+    private int balanceFactor(int node) {
+        return height[right[node]] - height[left[node]];
+    }
+
+    private void updateHeight(int node) {
+        height[node] = 1 + Math.max(height[left[node]], height[right[node]]);
+    }
+
+    // Balancea cuando el subárbol derecho es más pesado (bf = 2)
+    private int balanceToLeft(int node) {
+        if (balanceFactor(right[node]) < 0) {
+            // Rotación doble (derecha-izquierda)
+            right[node] = rotateRight(right[node]);
+        }
+        return rotateLeft(node);
+    }
+
+    // Balancea cuando el subárbol izquierdo es más pesado (bf = -2)
+    private int balanceToRight(int node) {
+        if (balanceFactor(left[node]) > 0) {
+            // Rotación doble (izquierda-derecha)
+            left[node] = rotateLeft(left[node]);
+        }
+        return rotateRight(node);
+    }
+
+    private int rotateLeft(int node) {
+        int newRoot = right[node];
+        right[node] = left[newRoot];
+        left[newRoot] = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    private int rotateRight(int node) {
+        int newRoot = left[node];
+        left[node] = right[newRoot];
+        right[newRoot] = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    // Comprueba alturas, factores de balanceo, orden de las claves, el conteo de nodos vivos
+    // y que las claves estén dentro de la parte usada de la arena
+    public void checkInvariants() {
+        int[] count = new int[1];
+        checkInvariants(root, NIL, NIL, count);
+        if (count[0] != size) {
+            throw new IllegalStateException("Tamaño incorrecto: " + size + " guardado, " + count[0] + " reales");
+        }
+    }
+
+    private int checkInvariants(int node, int low, int high, int[] count) {
+        if (node == NIL) {
+            return -1;
+        }
+        count[0]++;
+        if (length[node] < 0 || offset[node] < 0 || offset[node] + length[node] > arenaUsed) {
+            throw new IllegalStateException("Clave fuera de la arena en el nodo " + node);
+        }
+        byte[] key = key(node);
+        if ((low != NIL && compare(key, low, 0) <= 0) || (high != NIL && compare(key, high, 0) >= 0)) {
+            throw new IllegalStateException("Orden incorrecto en " + keyString(node));
+        }
+        int leftHeight = checkInvariants(left[node], low, node, count);
+        int rightHeight = checkInvariants(right[node], node, high, count);
+        if (height[node] != 1 + Math.max(leftHeight, rightHeight) || Math.abs(rightHeight - leftHeight) > 1) {
+            throw new IllegalStateException("Altura o factor de balanceo incorrecto en " + keyString(node));
+        }
+        return height[node];
+    }
+}
@@ -0,0 +1,815 @@
+package avltree;
+
+import complements.BinarySearchTree;
+import exceptions.*;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+// AVL seguro para varios hilos según el árbol relajado de Bronson, Casper, Chafi y
+// Olukotun ("A Practical Concurrent Binary Search Tree", PPoPP 2010).
+//
+// - search/get/contains no toman locks: descienden validando la versión de cada nodo
+//   (control de concurrencia optimista) y reintentan si una rotación los afectó.
+// - Las escrituras bloquean solo los nodos que modifican (padre antes que hijo).
+// - delete de un nodo con dos hijos solo lo marca como ausente (nodo de ruteo); se
+//   desenlaza más tarde, cuando le queda a lo sumo un hijo.
+// - El balanceo es relajado: cada hilo repara el daño de altura que causó, así que con
+//   el árbol en reposo vuelve a cumplir el invariante AVL.
+// No hay estado compartido por operación: cada llamada guarda su estado en variables locales.
+public class ConcurrentAVLTree<E extends Comparable<E>> implements BinarySearchTree<E> {
+
+    // Bits de la versión: desenlazado, rotación en curso y contador de rotaciones
+    private static final long UNLINKED = 1L;
+    private static final long SHRINKING = 2L;
+    private static final long SHRINK_COUNT_INCR = 4L;
+
+    private static final int SPIN_COUNT = 100;
+
+    // Resultados especiales de las operaciones internas
+    private static final Object RETRY = new Object();
+    private static final Object ABSENT = new Object();
+
+    // Condiciones de un nodo para el balanceo (una altura >= 0 indica que solo hay que corregirla)
+    private static final int UNLINK_REQUIRED = -1;
+    private static final int REBALANCE_REQUIRED = -2;
+    private static final int NOTHING_REQUIRED = -3;
+
+    private static final class Node<E> {
+        final E key;
+        volatile boolean present; // false: nodo de ruteo que sigue en el árbol por tener dos hijos
+        volatile int height;      // 1 para una hoja; 0 para el hijo vacío
+        volatile long version;
+        volatile Node<E> parent;
+        volatile Node<E> left;
+        volatile Node<E> right;
+
+        Node(E key, int height, boolean present, Node<E> parent) {
+            this.key = key;
+            this.height = height;
+            this.present = present;
+            this.parent = parent;
+        }
+
+        Node<E> child(int dir) {
+            return dir < 0 ? left : right;
+        }
+
+        void setChild(int dir, Node<E> node) {
+            if (dir < 0) {
+                left = node;
+            } else {
+                right = node;
+            }
+        }
+
+        // Espera a que termine la rotación que modifica este nodo: unas vueltas activas (las
+        // rotaciones son cortas) y después se bloquea en el lock de quien rota
+        void waitUntilShrinkCompleted(long ovl) {
+            if (!isShrinking(ovl)) {
+                return;
+            }
+            for (int tries = 0; tries < SPIN_COUNT; tries++) {
+                if (version != ovl) {
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+            // Quien rota tiene el lock del nodo: al obtenerlo la rotación terminó
+            synchronized (this) {
+            }
+        }
+    }
+
+    // Centinela: su hijo derecho es la raíz
+    private final Node<E> rootHolder = new Node<>(null, 1, false, null);
+    private final LongAdder count = new LongAdder();
+
+    private static boolean isShrinking(long ovl) {
+        return (ovl & SHRINKING) != 0;
+    }
+
+    private static boolean isUnlinked(long ovl) {
+        return (ovl & UNLINKED) != 0;
+    }
+
+    private static boolean isShrinkingOrUnlinked(long ovl) {
+        return (ovl & (SHRINKING | UNLINKED)) != 0;
+    }
+
+    private static long beginChange(long ovl) {
+        return ovl | SHRINKING;
+    }
+
+    private static long endChange(long ovl) {
+        return (ovl & ~SHRINKING) + SHRINK_COUNT_INCR;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    // Cantidad de elementos; exacta solo si no hay escrituras en curso
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, count.sum());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count.sum() == 0;
+    }
+
+    // ---- Lectura optimista ----
+
+    @Override
+    public E search(E x) throws ItemNotFound {
+        E result = get(x);
+        if (result == null) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return result;
+    }
+
+    @Override
+    public boolean contains(E x) {
+        return get(x) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(E x) {
+        while (true) {
+            Node<E> right = rootHolder.right;
+            if (right == null) {
+                return null;
+            }
+            int rightCmp = x.compareTo(right.key);
+            if (rightCmp == 0) {
+                return right.present ? right.key : null;
+            }
+            long ovl = right.version;
+            if (isShrinkingOrUnlinked(ovl)) {
+                right.waitUntilShrinkCompleted(ovl);
+            } else if (right == rootHolder.right) {
+                Object result = attemptGet(x, right, rightCmp, ovl);
+                if (result != RETRY) {
+                    return result == ABSENT ? null : (E) result;
+                }
+            }
+        }
+    }
+
+    // Desciende desde node hacia dirToC; nodeOVL es la versión de node que validó el camino hasta él
+    private Object attemptGet(E x, Node<E> node, int dirToC, long nodeOVL) {
+        while (true) {
+            Node<E> child = node.child(dirToC);
+            if (child == null) {
+                if (node.version != nodeOVL) {
+                    return RETRY;
+                }
+                return ABSENT;
+            }
+
+            int childCmp = x.compareTo(child.key);
+            if (childCmp == 0) {
+                return child.present ? child.key : ABSENT;
+            }
+
+            long childOVL = child.version;
+            if (isShrinkingOrUnlinked(childOVL)) {
+                child.waitUntilShrinkCompleted(childOVL);
+                if (node.version != nodeOVL) {
+                    return RETRY;
+                }
+            } else if (child != node.child(dirToC)) {
+                if (node.version != nodeOVL) {
+                    return RETRY;
+                }
+            } else {
+                if (node.version != nodeOVL) {
+                    return RETRY;
+                }
+                // A partir de aquí el camino hasta child es válido; child se valida solo
+                Object result = attemptGet(x, child, childCmp, childOVL);
+                if (result != RETRY) {
+                    return result;
+                }
+            }
+        }
+    }
+
+    // ---- Escrituras ----
+
+    @Override
+    public void insert(E x) throws ItemDuplicated {
+        if (!add(x)) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
+    }
+
+    @Override
+    public boolean add(E x) {
+        return update(x, true) == ABSENT;
+    }
+
+    @Override
+    public void delete(E x) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        remove(x);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(E x) {
+        Object result = update(x, false);
+        return result == ABSENT ? null : (E) result;
+    }
+
+    // Inserta (insert = true) o elimina x. Devuelve la clave que estaba presente o ABSENT.
+    private Object update(E x, boolean insert) {
+        while (true) {
+            Node<E> right = rootHolder.right;
+            if (right == null) {
+                if (!insert) {
+                    return ABSENT;
+                }
+                synchronized (rootHolder) {
+                    if (rootHolder.right == null) {
+                        rootHolder.right = new Node<>(x, 1, true, rootHolder);
+                        rootHolder.height = 2;
+                        count.increment();
+                        return ABSENT;
+                    }
+                }
+            } else {
+                long ovl = right.version;
+                if (isShrinkingOrUnlinked(ovl)) {
+                    right.waitUntilShrinkCompleted(ovl);
+                } else if (right == rootHolder.right) {
+                    Object result = attemptUpdate(x, insert, rootHolder, right, ovl);
+                    if (result != RETRY) {
+                        return result;
+                    }
+                }
+            }
+        }
+    }
+
+    private Object attemptUpdate(E x, boolean insert, Node<E> parent, Node<E> node, long nodeOVL) {
+        int cmp = x.compareTo(node.key);
+        if (cmp == 0) {
+            return attemptNodeUpdate(insert, parent, node);
+        }
+
+        while (true) {
+            Node<E> child = node.child(cmp);
+            if (node.version != nodeOVL) {
+                return RETRY;
+            }
+
+            if (child == null) {
+                // x no está en el árbol
+                if (!insert) {
+                    return ABSENT;
+                }
+                boolean success;
+                Node<E> damaged;
+                synchronized (node) {
+                    // Con el lock de node ninguna rotación futura puede afectarnos
+                    if (node.version != nodeOVL) {
+                        return RETRY;
+                    }
+                    if (node.child(cmp) != null) {
+                        // Otra inserción ganó la carrera: reintentar desde node
+                        success = false;
+                        damaged = null;
+                    } else {
+                        node.setChild(cmp, new Node<>(x, 1, true, node));
+                        count.increment();
+                        success = true;
+                        damaged = fixHeight_nl(node);
+                    }
+                }
+                if (success) {
+                    // La altura se termina de reparar fuera del lock
+                    fixHeightAndRebalance(damaged);
+                    return ABSENT;
+                }
+            } else {
+                long childOVL = child.version;
+                if (isShrinkingOrUnlinked(childOVL)) {
+                    child.waitUntilShrinkCompleted(childOVL);
+                } else if (child != node.child(cmp)) {
+                    // Reintentar: child cambió antes de poder validarlo
+                } else {
+                    if (node.version != nodeOVL) {
+                        return RETRY;
+                    }
+                    Object result = attemptUpdate(x, insert, node, child, childOVL);
+                    if (result != RETRY) {
+                        return result;
+                    }
+                }
+            }
+        }
+    }
+
+    // Actualiza el nodo cuya clave es x
+    private Object attemptNodeUpdate(boolean insert, Node<E> parent, Node<E> node) {
+        if (!insert && !node.present) {
+            return ABSENT;
+        }
+
+        if (!insert && (node.left == null || node.right == null)) {
+            // Posible desenlace: se bloquea primero el padre
+            Node<E> damaged;
+            synchronized (parent) {
+                if (isUnlinked(parent.version) || node.parent != parent) {
+                    return RETRY;
+                }
+                synchronized (node) {
+                    if (!node.present) {
+                        return ABSENT;
+                    }
+                    if (!attemptUnlink_nl(parent, node)) {
+                        return RETRY;
+                    }
+                }
+                count.decrement();
+                damaged = fixHeight_nl(parent);
+            }
+            fixHeightAndRebalance(damaged);
+            return node.key;
+        }
+
+        synchronized (node) {
+            if (isUnlinked(node.version)) {
+                return RETRY;
+            }
+            boolean present = node.present;
+            if (insert) {
+                if (present) {
+                    return node.key;
+                }
+                // Un nodo de ruteo vuelve a contener su clave
+                node.present = true;
+                count.increment();
+                return ABSENT;
+            }
+            if (!present) {
+                return ABSENT;
+            }
+            if (node.left == null || node.right == null) {
+                // Ahora se podría desenlazar: reintentar por ese camino
+                return RETRY;
+            }
+            // Dos hijos: queda como nodo de ruteo
+            node.present = false;
+            count.decrement();
+            return node.key;
+        }
+    }
+
+    // parent y node bloqueados. Quita node si tiene a lo sumo un hijo.
+    private boolean attemptUnlink_nl(Node<E> parent, Node<E> node) {
+        Node<E> parentL = parent.left;
+        Node<E> parentR = parent.right;
+        if (parentL != node && parentR != node) {
+            // node ya no es hijo de parent
+            return false;
+        }
+
+        Node<E> left = node.left;
+        Node<E> right = node.right;
+        if (left != null && right != null) {
+            return false;
+        }
+        Node<E> splice = left != null ? left : right;
+
+        if (parentL == node) {
+            parent.left = splice;
+        } else {
+            parent.right = splice;
+        }
+        if (splice != null) {
+            splice.parent = parent;
+        }
+
+        node.version = UNLINKED;
+        node.present = false;
+        return true;
+    }
+
+    // ---- Balanceo relajado ----
+
+    private int nodeCondition(Node<E> node) {
+        Node<E> nL = node.left;
+        Node<E> nR = node.right;
+
+        if ((nL == null || nR == null) && !node.present) {
+            return UNLINK_REQUIRED;
+        }
+
+        int hN = node.height;
+        int hL0 = height(nL);
+        int hR0 = height(nR);
+
+        // Sin locks el resultado es solo una pista
+        int hNRepl = 1 + Math.max(hL0, hR0);
+        int bal = hL0 - hR0;
+
+        if (bal < -1 || bal > 1) {
+            return REBALANCE_REQUIRED;
+        }
+        return hN != hNRepl ? hNRepl : NOTHING_REQUIRED;
+    }
+
+    // Sube desde node reparando alturas, desenlazando nodos de ruteo y rotando.
+    // Si una rotación devuelve un nodo más profundo, el padre de la rotación queda pendiente:
+    // su altura se revisa cuando termina la reparación de abajo.
+    private void fixHeightAndRebalance(Node<E> node) {
+        ArrayDeque<Node<E>> pending = null;
+        while (true) {
+            if (node == null || node.parent == null || isUnlinked(node.version)) {
+                if (pending == null || pending.isEmpty()) {
+                    return;
+                }
+                node = pending.pop();
+                continue;
+            }
+            int condition = nodeCondition(node);
+            if (condition == NOTHING_REQUIRED) {
+                node = null;
+                continue;
+            }
+
+            if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+                synchronized (node) {
+                    node = fixHeight_nl(node);
+                }
+            } else {
+                Node<E> nParent = node.parent;
+                synchronized (nParent) {
+                    if (!isUnlinked(nParent.version) && node.parent == nParent) {
+                        Node<E> next;
+                        synchronized (node) {
+                            next = rebalance_nl(nParent, node);
+                        }
+                        if (next != null && next != nParent && next != nParent.parent && next.parent != nParent) {
+                            if (pending == null) {
+                                pending = new ArrayDeque<>();
+                            }
+                            if (pending.peek() != nParent) {
+                                pending.push(nParent);
+                            }
+                        }
+                        node = next;
+                    }
+                    // Si no, se reintenta con el padre actual
+                }
+            }
+        }
+    }
+
+    // node bloqueado. Corrige su altura y devuelve el siguiente nodo dañado (o null).
+    private Node<E> fixHeight_nl(Node<E> node) {
+        int condition = nodeCondition(node);
+        switch (condition) {
+            case REBALANCE_REQUIRED:
+            case UNLINK_REQUIRED:
+                return node;
+            case NOTHING_REQUIRED:
+                return null;
+            default:
+                node.height = condition;
+                // El padre queda dañado pero no tenemos su lock
+                return node.parent;
+        }
+    }
+
+    // nParent y n bloqueados. Devuelve un nodo dañado o null si no queda nada por hacer.
+    private Node<E> rebalance_nl(Node<E> nParent, Node<E> n) {
+        Node<E> nL = n.left;
+        Node<E> nR = n.right;
+
+        if ((nL == null || nR == null) && !n.present) {
+            if (attemptUnlink_nl(nParent, n)) {
+                return fixHeight_nl(nParent);
+            }
+            return n;
+        }
+
+        int hN = n.height;
+        int hL0 = height(nL);
+        int hR0 = height(nR);
+        int hNRepl = 1 + Math.max(hL0, hR0);
+        int bal = hL0 - hR0;
+
+        if (bal > 1) {
+            return rebalanceToRight_nl(nParent, n, nL, hR0);
+        } else if (bal < -1) {
+            return rebalanceToLeft_nl(nParent, n, nR, hL0);
+        } else if (hNRepl != hN) {
+            n.height = hNRepl;
+            return fixHeight_nl(nParent);
+        }
+        return null;
+    }
+
+    // El subárbol izquierdo es más alto: rotación simple a la derecha, o doble si L.R es más alto que L.L
+    private Node<E> rebalanceToRight_nl(Node<E> nParent, Node<E> n, Node<E> nL, int hR0) {
+        synchronized (nL) {
+            int hL = nL.height;
+            if (hL - hR0 <= 1) {
+                return n; // Reintentar
+            }
+            Node<E> nLR = nL.right;
+            int hLL0 = height(nL.left);
+            int hLR0 = height(nLR);
+            if (hLL0 >= hLR0) {
+                return rotateRight_nl(nParent, n, nL, hR0, hLL0, nLR, hLR0);
+            }
+            synchronized (nLR) {
+                int hLR = nLR.height;
+                if (hLL0 >= hLR) {
+                    return rotateRight_nl(nParent, n, nL, hR0, hLL0, nLR, hLR);
+                }
+                int hLRL = height(nLR.left);
+                int b = hLL0 - hLRL;
+                if (b >= -1 && b <= 1) {
+                    return rotateRightOverLeft_nl(nParent, n, nL, hR0, hLL0, nLR, hLRL);
+                }
+            }
+            // La rotación doble dejaría nL desbalanceado: primero se balancea nL por separado
+            return rebalanceToLeft_nl(n, nL, nLR, hLL0);
+        }
+    }
+
+    // Simétrico de rebalanceToRight_nl
+    private Node<E> rebalanceToLeft_nl(Node<E> nParent, Node<E> n, Node<E> nR, int hL0) {
+        synchronized (nR) {
+            int hR = nR.height;
+            if (hL0 - hR >= -1) {
+                return n; // Reintentar
+            }
+            Node<E> nRL = nR.left;
+            int hRL0 = height(nRL);
+            int hRR0 = height(nR.right);
+            if (hRR0 >= hRL0) {
+                return rotateLeft_nl(nParent, n, hL0, nR, nRL, hRL0, hRR0);
+            }
+            synchronized (nRL) {
+                int hRL = nRL.height;
+                if (hRR0 >= hRL) {
+                    return rotateLeft_nl(nParent, n, hL0, nR, nRL, hRL, hRR0);
+                }
+                int hRLR = height(nRL.right);
+                int b = hRR0 - hRLR;
+                if (b >= -1 && b <= 1) {
+                    return rotateLeftOverRight_nl(nParent, n, hL0, nR, nRL, hRR0, hRLR);
+                }
+            }
+            return rebalanceToRight_nl(n, nR, nRL, hRR0);
+        }
+    }
+
+    private Node<E> rotateRight_nl(Node<E> nParent, Node<E> n, Node<E> nL, int hR, int hLL, Node<E> nLR, int hLR) {
+        long nodeOVL = n.version;
+        n.version = beginChange(nodeOVL);
+
+        Node<E> nPL = nParent.left;
+
+        // El orden de los enlaces mantiene válidos los recorridos concurrentes salvo por n
+        n.left = nLR;
+        if (nLR != null) {
+            nLR.parent = n;
+        }
+        nL.right = n;
+        n.parent = nL;
+        if (nPL == n) {
+            nParent.left = nL;
+        } else {
+            nParent.right = nL;
+        }
+        nL.parent = nParent;
+
+        int hNRepl = 1 + Math.max(hLR, hR);
+        n.height = hNRepl;
+        nL.height = 1 + Math.max(hLL, hNRepl);
+
+        n.version = endChange(nodeOVL);
+
+        // Se devuelve el nodo dañado más profundo que no podemos reparar con estos locks
+        int balN = hLR - hR;
+        if (balN < -1 || balN > 1) {
+            return n;
+        }
+        if ((nLR == null || hR == 0) && !n.present) {
+            return n;
+        }
+        int balL = hLL - hNRepl;
+        if (balL < -1 || balL > 1) {
+            return nL;
+        }
+        if (hLL == 0 && !nL.present) {
+            return nL;
+        }
+        return fixHeight_nl(nParent);
+    }
+
+    private Node<E> rotateLeft_nl(Node<E> nParent, Node<E> n, int hL, Node<E> nR, Node<E> nRL, int hRL, int hRR) {
+        long nodeOVL = n.version;
+        n.version = beginChange(nodeOVL);
+
+        Node<E> nPL = nParent.left;
+
+        n.right = nRL;
+        if (nRL != null) {
+            nRL.parent = n;
+        }
+        nR.left = n;
+        n.parent = nR;
+        if (nPL == n) {
+            nParent.left = nR;
+        } else {
+            nParent.right = nR;
+        }
+        nR.parent = nParent;
+
+        int hNRepl = 1 + Math.max(hL, hRL);
+        n.height = hNRepl;
+        nR.height = 1 + Math.max(hNRepl, hRR);
+
+        n.version = endChange(nodeOVL);
+
+        int balN = hRL - hL;
+        if (balN < -1 || balN > 1) {
+            return n;
+        }
+        if ((nRL == null || hL == 0) && !n.present) {
+            return n;
+        }
+        int balR = hRR - hNRepl;
+        if (balR < -1 || balR > 1) {
+            return nR;
+        }
+        if (hRR == 0 && !nR.present) {
+            return nR;
+        }
+        return fixHeight_nl(nParent);
+    }
+
+    private Node<E> rotateRightOverLeft_nl(Node<E> nParent, Node<E> n, Node<E> nL, int hR, int hLL,
+            Node<E> nLR, int hLRL) {
+        long nodeOVL = n.version;
+        long leftOVL = nL.version;
+
+        Node<E> nPL = nParent.left;
+        Node<E> nLRL = nLR.left;
+        Node<E> nLRR = nLR.right;
+        int hLRR = height(nLRR);
+
+        n.version = beginChange(nodeOVL);
+        nL.version = beginChange(leftOVL);
+
+        n.left = nLRR;
+        if (nLRR != null) {
+            nLRR.parent = n;
+        }
+        nL.right = nLRL;
+        if (nLRL != null) {
+            nLRL.parent = nL;
+        }
+        nLR.left = nL;
+        nL.parent = nLR;
+        nLR.right = n;
+        n.parent = nLR;
+        if (nPL == n) {
+            nParent.left = nLR;
+        } else {
+            nParent.right = nLR;
+        }
+        nLR.parent = nParent;
+
+        int hNRepl = 1 + Math.max(hLRR, hR);
+        n.height = hNRepl;
+        int hLRepl = 1 + Math.max(hLL, hLRL);
+        nL.height = hLRepl;
+
+        n.version = endChange(nodeOVL);
+        nL.version = endChange(leftOVL);
+
+        // Si nL es de ruteo y quedó con un solo hijo se desenlaza ya: tenemos los locks de nLR y nL
+        if ((hLL == 0 || hLRL == 0) && !nL.present && attemptUnlink_nl(nLR, nL)) {
+            hLRepl = hLRepl - 1;
+        }
+        nLR.height = 1 + Math.max(hLRepl, hNRepl);
+
+        int balN = hLRR - hR;
+        if (balN < -1 || balN > 1) {
+            return n;
+        }
+        if ((nLRR == null || hR == 0) && !n.present) {
+            return n;
+        }
+        int balLR = hLRepl - hNRepl;
+        if (balLR < -1 || balLR > 1) {
+            return nLR;
+        }
+        return fixHeight_nl(nParent);
+    }
+
+    private Node<E> rotateLeftOverRight_nl(Node<E> nParent, Node<E> n, int hL, Node<E> nR, Node<E> nRL,
+            int hRR, int hRLR) {
+        long nodeOVL = n.version;
+        long rightOVL = nR.version;
+
+        Node<E> nPL = nParent.left;
+        Node<E> nRLL = nRL.left;
+        Node<E> nRLR = nRL.right;
+        int hRLL = height(nRLL);
+
+        n.version = beginChange(nodeOVL);
+        nR.version = beginChange(rightOVL);
+
+        n.right = nRLL;
+        if (nRLL != null) {
+            nRLL.parent = n;
+        }
+        nR.left = nRLR;
+        if (nRLR != null) {
+            nRLR.parent = nR;
+        }
+        nRL.right = nR;
+        nR.parent = nRL;
+        nRL.left = n;
+        n.parent = nRL;
+        if (nPL == n) {
+            nParent.left = nRL;
+        } else {
+            nParent.right = nRL;
+        }
+        nRL.parent = nParent;
+
+        int hNRepl = 1 + Math.max(hL, hRLL);
+        n.height = hNRepl;
+        int hRRepl = 1 + Math.max(hRLR, hRR);
+        nR.height = hRRepl;
+
+        n.version = endChange(nodeOVL);
+        nR.version = endChange(rightOVL);
+
+        if ((hRR == 0 || hRLR == 0) && !nR.present && attemptUnlink_nl(nRL, nR)) {
+            hRRepl = hRRepl - 1;
+        }
+        nRL.height = 1 + Math.max(hNRepl, hRRepl);
+
+        int balN = hRLL - hL;
+        if (balN < -1 || balN > 1) {
+            return n;
+        }
+        if ((nRLL == null || hL == 0) && !n.present) {
+            return n;
+        }
+        int balRL = hRRepl - hNRepl;
+        if (balRL < -1 || balRL > 1) {
+            return nRL;
+        }
+        return fixHeight_nl(nParent);
+    }
+
+    // ---- Verificación (solo con el árbol en reposo) ----
+
+    // Comprueba orden, alturas, balance AVL, enlaces al padre y el conteo de elementos
+    public void checkInvariants() {
+        long[] present = new long[1];
+        checkInvariants(rootHolder.right, rootHolder, null, null, present);
+        if (present[0] != count.sum()) {
+            throw new IllegalStateException("Tamaño incorrecto: " + count.sum() + " guardado, " + present[0] + " reales");
+        }
+    }
+
+    private int checkInvariants(Node<E> node, Node<E> parent, E low, E high, long[] present) {
+        if (node == null) {
+            return 0;
+        }
+        if (node.parent != parent || isShrinkingOrUnlinked(node.version)) {
+            throw new IllegalStateException("Enlace o versión incorrectos en " + node.key);
+        }
+        if ((low != null && node.key.compareTo(low) <= 0) || (high != null && node.key.compareTo(high) >= 0)) {
+            throw new IllegalStateException("Orden incorrecto en " + node.key);
+        }
+        if (node.present) {
+            present[0]++;
+        } else if (node.left == null || node.right == null) {
+            throw new IllegalStateException("Nodo de ruteo sin desenlazar: " + node.key);
+        }
+        int hL = checkInvariants(node.left, node, low, node.key, present);
+        int hR = checkInvariants(node.right, node, node.key, high, present);
+        if (node.height != 1 + Math.max(hL, hR) || Math.abs(hL - hR) > 1) {
+            throw new IllegalStateException("Altura o balance incorrecto en " + node.key + " h=" + node.height + " hL=" + hL + " hR=" + hR);
+        }
+        return node.height;
+    }
+}
@@ -0,0 +1,439 @@
+package avltree;
+
+import complements.BinarySearchTree;
+import complements.KeyCodec;
+import complements.TreeSnapshot;
+import exceptions.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+
+// AVLTree cuyas inserciones y eliminaciones se registran en un log de escritura anticipada
+// (WriteAheadLog) dentro de un directorio. Cada tanto se guarda un checkpoint (TreeSnapshot)
+// y se borran los segmentos de log que cubre. Al abrir el directorio se carga el último
+// checkpoint y se repite el log posterior.
+//
+// Archivos: checkpoint-<n>.snap contiene el árbol con los segmentos wal-<m>.log, m <= n, ya
+// aplicados. Un checkpoint solo aparece completo (se escribe aparte y se renombra).
+//
+// Qué sobrevive a una caída depende de SyncPolicy. Los errores de E/S del log en add/remove se
+// lanzan como UncheckedIOException y el árbol queda sin aceptar más escrituras. Si falla un
+// checkpoint automático, la operación que lo disparó ya quedó aplicada y en el log, así que
+// vuelve normalmente: el error se guarda y lo lanza el próximo checkpoint() o close().
+public class DurableAVLTree<E extends Comparable<E>> implements BinarySearchTree<E>, Closeable {
+
+    // Cuándo llega el log al disco
+    public static final class SyncPolicy {
+        final boolean waitForSync;
+        final boolean background;
+        final int maxRecords;
+        final long maxDelayNanos;
+
+        private SyncPolicy(boolean waitForSync, boolean background, int maxRecords, long maxDelayNanos) {
+            this.waitForSync = waitForSync;
+            this.background = background;
+            this.maxRecords = maxRecords;
+            this.maxDelayNanos = maxDelayNanos;
+        }
+
+        // Cada escritura vuelve cuando su registro está en disco. Los hilos concurrentes
+        // comparten el fsync (commit agrupado). No se pierde nada confirmado.
+        public static SyncPolicy always() {
+            return new SyncPolicy(true, false, 0, 0);
+        }
+
+        // Las escrituras no esperan; un hilo hace fsync al juntarse maxRecords registros o cuando
+        // el más viejo espera maxDelayMillis. Una caída pierde a lo sumo esa ventana.
+        public static SyncPolicy batched(int maxRecords, long maxDelayMillis) {
+            if (maxRecords < 1 || maxDelayMillis < 0) {
+                throw new IllegalArgumentException("Lote inválido: " + maxRecords + " registros, " + maxDelayMillis + " ms");
+            }
+            return new SyncPolicy(false, true, maxRecords, maxDelayMillis * 1_000_000);
+        }
+
+        // Sin fsync: cada escritura vuelve cuando su registro está escrito al sistema operativo
+        // (write sin force; los hilos concurrentes comparten la escritura) y el log solo se
+        // sincroniza en checkpoint() y close(). Sobrevive a la caída del proceso, no a la de la máquina.
+        // El write por operación la hace más lenta que batched, que escribe en el hilo de fondo.
+        public static SyncPolicy never() {
+            return new SyncPolicy(false, false, 0, 0);
+        }
+
+        @Override
+        public String toString() {
+            if (waitForSync) {
+                return "always";
+            }
+            return background ? "batched(" + maxRecords + ", " + maxDelayNanos / 1_000_000 + "ms)" : "never";
+        }
+    }
+
+    // Los registros seguidos de la misma operación se aplican juntos con insertAll/deleteAll
+    // (mezcla con join) en lugar de uno por uno: el resultado es el mismo porque dentro de
+    // una racha el orden no importa
+    private static final class ReplayBatch<E extends Comparable<E>> implements WriteAheadLog.Replay<E> {
+        private static final int MAX_BATCH = 1 << 20;
+
+        private final AVLTree<E> tree;
+        private final List<E> keys = new ArrayList<>();
+        private byte op;
+
+        ReplayBatch(AVLTree<E> tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        public void apply(byte op, E key) {
+            if (op != this.op || keys.size() == MAX_BATCH) {
+                flush();
+                this.op = op;
+            }
+            keys.add(key);
+        }
+
+        void flush() {
+            if (op == WriteAheadLog.INSERT) {
+                tree.insertAll(keys);
+            } else if (op == WriteAheadLog.DELETE) {
+                tree.deleteAll(keys);
+            }
+            keys.clear();
+        }
+    }
+
+    private final Path dir;
+    private final KeyCodec<E> codec;
+    private final long checkpointEvery;
+    private final AVLTree<E> tree;
+    private final WriteAheadLog<E> log;
+    private final StampedLock lock = new StampedLock();
+    private final Object checkpointLock = new Object();
+    private final AtomicBoolean checkpointing = new AtomicBoolean();
+    private IOException checkpointFailure; // Último checkpoint automático fallido (con checkpointLock)
+    private boolean closed;                // Con checkpointLock
+    private final long recovered;
+
+    private DurableAVLTree(Path dir, KeyCodec<E> codec, SyncPolicy policy, long checkpointEvery) throws IOException {
+        this.dir = dir;
+        this.codec = codec;
+        this.checkpointEvery = checkpointEvery;
+
+        Files.createDirectories(dir);
+        long checkpoint = -1;
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file); // Checkpoint que no llegó a renombrarse
+                } else if (parseCheckpoint(name) >= 0) {
+                    checkpoint = Math.max(checkpoint, parseCheckpoint(name));
+                } else if (WriteAheadLog.parseSegment(name) >= 0) {
+                    segments.add(WriteAheadLog.parseSegment(name));
+                }
+            }
+        }
+        Collections.sort(segments);
+
+        this.tree = checkpoint >= 0 ? AVLTree.readFrom(dir.resolve(checkpointName(checkpoint)), codec) : new AVLTree<>();
+        ReplayBatch<E> batch = new ReplayBatch<>(tree);
+        long replayed = 0;
+        long last = Math.max(checkpoint, 0);
+        for (int i = 0; i < segments.size(); i++) {
+            long segment = segments.get(i);
+            if (segment <= checkpoint) {
+                continue; // Quedó de un checkpoint que no llegó a limpiar
+            }
+            replayed += WriteAheadLog.replay(dir.resolve(WriteAheadLog.segmentName(segment)), codec,
+                    i == segments.size() - 1, batch);
+            last = segment;
+        }
+        batch.flush();
+        this.recovered = replayed;
+        this.log = new WriteAheadLog<>(dir, codec, policy, last + 1);
+        if (checkpoint >= 0) {
+            removeCovered(checkpoint);
+        }
+    }
+
+    // Abre (o crea) el índice con fsync por escritura y checkpoint cada millón de cambios
+    public static <T extends Comparable<T>> DurableAVLTree<T> open(Path dir, KeyCodec<T> codec) throws IOException {
+        return open(dir, codec, SyncPolicy.always(), 1_000_000);
+    }
+
+    // checkpointEvery: cambios registrados tras los que se hace un checkpoint (0 = solo checkpoint())
+    public static <T extends Comparable<T>> DurableAVLTree<T> open(Path dir, KeyCodec<T> codec, SyncPolicy policy,
+            long checkpointEvery) throws IOException {
+        if (checkpointEvery < 0) {
+            throw new IllegalArgumentException("checkpointEvery negativo: " + checkpointEvery);
+        }
+        return new DurableAVLTree<>(dir, codec, policy, checkpointEvery);
+    }
+
+    // Registros del log que se repitieron al abrir
+    public long recoveredRecords() {
+        return recovered;
+    }
+
+    // ---- Escrituras: se aplican en memoria y se registran bajo el mismo lock, así el orden
+    // del log es el de aplicación; la espera del fsync queda fuera del lock ----
+
+    @Override
+    public void insert(E x) throws ItemDuplicated {
+        if (!add(x)) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
+    }
+
+    @Override
+    public boolean add(E x) {
+        long lsn;
+        long stamp = lock.writeLock();
+        try {
+            if (!tree.add(x)) {
+                return false;
+            }
+            try {
+                lsn = log.append(WriteAheadLog.INSERT, x);
+            } catch (IOException e) {
+                tree.remove(x); // No quedó registrado: se deshace
+                throw new UncheckedIOException(e);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        commit(lsn);
+        return true;
+    }
+
+    @Override
+    public void delete(E x) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        remove(x);
+    }
+
+    @Override
+    public E remove(E x) {
+        E removed;
+        long lsn;
+        long stamp = lock.writeLock();
+        try {
+            removed = tree.remove(x);
+            if (removed == null) {
+                return null;
+            }
+            try {
+                lsn = log.append(WriteAheadLog.DELETE, x);
+            } catch (IOException e) {
+                tree.add(removed);
+                throw new UncheckedIOException(e);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        commit(lsn);
+        return removed;
+    }
+
+    private void commit(long lsn) {
+        try {
+            log.commit(lsn);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (checkpointEvery > 0 && log.sinceRotation() >= checkpointEvery && checkpointing.compareAndSet(false, true)) {
+            try {
+                automaticCheckpoint();
+            } finally {
+                checkpointing.set(false);
+            }
+        }
+    }
+
+    // ---- Lecturas ----
+
+    @Override
+    public E search(E x) throws ItemNotFound {
+        E result = get(x);
+        if (result == null) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return result;
+    }
+
+    @Override
+    public E get(E x) {
+        long stamp = lock.readLock();
+        try {
+            return tree.get(x);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(E x) {
+        return get(x) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        long stamp = lock.readLock();
+        try {
+            return tree.isEmpty();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return tree.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public String inOrder() {
+        long stamp = lock.readLock();
+        try {
+            return tree.inOrder();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // ---- Checkpoint ----
+
+    // Guarda el árbol como checkpoint y borra el log que ya no hace falta. Solo copia las claves
+    // y rota el log con las escrituras bloqueadas; el snapshot se escribe después.
+    // Si falla y antes había fallado uno automático, ese error va como suprimido.
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            IOException earlier = checkpointFailure;
+            checkpointFailure = null;
+            try {
+                writeCheckpoint();
+            } catch (IOException e) {
+                if (earlier != null) {
+                    e.addSuppressed(earlier);
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Checkpoint disparado por add/remove: la operación ya está aplicada y en el log, así que
+    // el error no se lanza ahí; queda para el próximo checkpoint() o close()
+    private void automaticCheckpoint() {
+        synchronized (checkpointLock) {
+            if (closed) {
+                return; // Un close() concurrente ganó; el log ya tiene la operación
+            }
+            try {
+                writeCheckpoint();
+                checkpointFailure = null;
+            } catch (IOException e) {
+                if (checkpointFailure != null) {
+                    e.addSuppressed(checkpointFailure);
+                }
+                checkpointFailure = e;
+            }
+        }
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Object[] keys;
+        long covered;
+        long stamp = lock.readLock();
+        try {
+            keys = new Object[tree.size()];
+            int i = 0;
+            for (E x : tree) {
+                keys[i++] = x;
+            }
+            covered = log.rotate();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        @SuppressWarnings("unchecked")
+        List<E> sorted = (List<E>) (List<?>) Arrays.asList(keys);
+        TreeSnapshot.write(sorted, keys.length, codec, dir.resolve(checkpointName(covered)));
+        syncDirectory();
+        removeCovered(covered);
+    }
+
+    // Borra los checkpoints anteriores y los segmentos incluidos en el checkpoint dado
+    private void removeCovered(long checkpoint) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long older = parseCheckpoint(name);
+                long segment = WriteAheadLog.parseSegment(name);
+                if ((older >= 0 && older < checkpoint) || (segment >= 0 && segment <= checkpoint)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    // El rename del checkpoint tiene que estar en disco antes de borrar el log que reemplaza
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Algunos sistemas no permiten abrir directorios; ahí el rename ya es durable
+        }
+    }
+
+    private static String checkpointName(long segment) {
+        return String.format("checkpoint-%020d.snap", segment);
+    }
+
+    private static long parseCheckpoint(String name) {
+        if (!name.startsWith("checkpoint-") || !name.endsWith(".snap")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(11, name.length() - 5));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Sincroniza y cierra el log; el próximo open lo repite desde el último checkpoint.
+    // Espera a que termine un checkpoint en curso, para no volver mientras todavía escribe archivos.
+    // Si quedó sin resolver un checkpoint automático fallido, lo lanza después de cerrar.
+    @Override
+    public void close() throws IOException {
+        IOException failure;
+        synchronized (checkpointLock) {
+            long stamp = lock.writeLock();
+            try {
+                log.close();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            closed = true;
+            failure = checkpointFailure;
+            checkpointFailure = null;
+        }
+        if (failure != null) {
+            throw new IOException("Falló un checkpoint automático; el log está completo y se repite al abrir", failure);
+        }
+    }
+}
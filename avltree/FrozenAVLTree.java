@@ -0,0 +1,218 @@
+package avltree;
+
+import exceptions.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
+
+// Copia inmutable de un AVLTree para cargas casi solo de lectura (ver AVLTree.freeze()).
+// Las claves se guardan en un arreglo en orden de Eytzinger (el de un heap binario: los hijos
+// de k están en 2k y 2k+1), así el descenso no sigue punteros entre nodos dispersos:
+// los primeros niveles quedan juntos en unas pocas líneas de caché y los dos hijos de cada
+// nodo comparten línea. Los descendientes de k a PREFETCH_LEVELS niveles son contiguos, y
+// se leen por adelantado para que su línea llegue mientras se compara (Java no tiene prefetch).
+// Con claves objeto cada comparación lee la clave, en otra parte del heap. freeze(prefix) guarda
+// además un long por clave que respeta el orden (Integer::longValue, los primeros bytes de un
+// String...) y solo se compara la clave cuando los prefijos empatan. Para int sin ninguna
+// indirección está FrozenIntAVLTree.
+public final class FrozenAVLTree<E extends Comparable<E>> implements Iterable<E> {
+
+    // Con 16 referencias (u 8 prefijos) por línea de caché, los descendientes de k a 4 (3)
+    // niveles ocupan una sola línea
+    private static final int PREFETCH_LEVELS = 4;
+    private static final int PREFIX_PREFETCH_LEVELS = 3;
+
+    private final Object[] keys;   // keys[1..n] en orden de Eytzinger; keys[0] no se usa
+    private final long[] prefixes; // prefixes[k] = prefix(keys[k]), o null sin prefijo
+    private final ToLongFunction<? super E> prefix;
+    private final int n;
+
+    // sorted: claves en orden estrictamente creciente (no se verifica). prefix puede ser null;
+    // si no, a.compareTo(b) < 0 tiene que implicar prefix(a) <= prefix(b).
+    FrozenAVLTree(Object[] sorted, int n, ToLongFunction<? super E> prefix) {
+        this.n = n;
+        this.keys = new Object[n + 1];
+        this.prefix = prefix;
+        this.prefixes = prefix == null ? null : new long[n + 1];
+        fill(sorted, 0, 1);
+    }
+
+    // Recorre el árbol implícito en orden y asigna las claves ordenadas; devuelve la siguiente
+    private int fill(Object[] sorted, int i, int k) {
+        if (k <= n) {
+            i = fill(sorted, i, 2 * k);
+            keys[k] = sorted[i++];
+            if (prefixes != null) {
+                prefixes[k] = prefix.applyAsLong(at(k));
+            }
+            i = fill(sorted, i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public E search(E x) throws ItemNotFound {
+        E result = get(x);
+        if (result == null) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return result;
+    }
+
+    // Elemento igual a x, o null si no está
+    public E get(E x) {
+        E candidate = at(ceilingIndex(x));
+        return candidate != null && candidate.compareTo(x) == 0 ? candidate : null;
+    }
+
+    public boolean contains(E x) {
+        return get(x) != null;
+    }
+
+    // Mayor elemento <= x, o null si no existe
+    public E floor(E x) {
+        return at(floorIndex(x));
+    }
+
+    // Menor elemento >= x, o null si no existe
+    public E ceiling(E x) {
+        return at(ceilingIndex(x));
+    }
+
+    public E findMin() throws ItemNotFound {
+        if (n == 0) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        return at(Integer.highestOneBit(n));
+    }
+
+    public E findMax() throws ItemNotFound {
+        if (n == 0) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        // El último nodo del camino siempre a la derecha
+        int k = 1;
+        while (2 * k + 1 <= n) {
+            k = 2 * k + 1;
+        }
+        return at(k);
+    }
+
+    // Cada paso agrega un bit al índice: 1 si se bajó a la derecha. El menor >= x es el último
+    // nodo donde se bajó a la izquierda: se quitan los unos del final y ese cero.
+    private int ceilingIndex(E x) {
+        int k = descend(x, false);
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    // Simétrico: el mayor <= x es el último nodo donde se bajó a la derecha
+    private int floorIndex(E x) {
+        int k = descend(x, true);
+        return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+    }
+
+    // Baja hasta salir del arreglo yendo a la derecha si la clave es < x (<= x con inclusive)
+    private int descend(E x, boolean inclusive) {
+        int k = 1;
+        long touched = 0;
+        if (prefixes == null) {
+            for (int limit = n >>> PREFETCH_LEVELS; k <= limit;) {
+                touched += keys[k << PREFETCH_LEVELS] == null ? 0 : 1;
+                k = 2 * k + (goesRight(at(k).compareTo(x), inclusive) ? 1 : 0);
+            }
+            while (k <= n) {
+                k = 2 * k + (goesRight(at(k).compareTo(x), inclusive) ? 1 : 0);
+            }
+        } else {
+            long px = prefix.applyAsLong(x);
+            for (int limit = n >>> PREFIX_PREFETCH_LEVELS; k <= limit;) {
+                touched += prefixes[k << PREFIX_PREFETCH_LEVELS];
+                k = 2 * k + (goesRight(compareAt(k, px, x), inclusive) ? 1 : 0);
+            }
+            while (k <= n) {
+                k = 2 * k + (goesRight(compareAt(k, px, x), inclusive) ? 1 : 0);
+            }
+        }
+        FrozenIntAVLTree.keep(touched);
+        return k;
+    }
+
+    private static boolean goesRight(int comparison, boolean inclusive) {
+        return inclusive ? comparison <= 0 : comparison < 0;
+    }
+
+    // Compara keys[k] con x mirando la clave solo si los prefijos empatan
+    private int compareAt(int k, long px, E x) {
+        long p = prefixes[k];
+        return p != px ? (p < px ? -1 : 1) : at(k).compareTo(x);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E at(int k) {
+        return (E) keys[k]; // keys[0] es null: "no existe"
+    }
+
+    // Recorrido en orden del árbol implícito
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            // Siguiente índice en orden; 0 al terminar
+            private int k = n == 0 ? 0 : Integer.highestOneBit(n);
+
+            @Override
+            public boolean hasNext() {
+                return k != 0;
+            }
+
+            @Override
+            public E next() {
+                if (k == 0) {
+                    throw new NoSuchElementException();
+                }
+                E x = at(k);
+                if (2 * k + 1 <= n) {
+                    // Sucesor: el mínimo del subárbol derecho
+                    k = 2 * k + 1;
+                    while (2 * k <= n) {
+                        k = 2 * k;
+                    }
+                } else {
+                    // Subir mientras se venga de un hijo derecho, y una vez más
+                    k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+                }
+                return x;
+            }
+        };
+    }
+
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        for (E x : this) {
+            sb.append(x).append(" ");
+        }
+        return sb.toString();
+    }
+
+    // Verifica que el recorrido en orden sea estrictamente creciente y cubra las n claves
+    public void checkInvariants() {
+        E previous = null;
+        int count = 0;
+        for (E x : this) {
+            if (x == null || (previous != null && previous.compareTo(x) >= 0)) {
+                throw new IllegalStateException("Claves fuera de orden después de " + previous);
+            }
+            previous = x;
+            count++;
+        }
+        if (count != n) {
+            throw new IllegalStateException("Tamaño inconsistente: " + count + " != " + n);
+        }
+    }
+}
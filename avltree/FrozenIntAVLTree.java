@@ -0,0 +1,163 @@
+package avltree;
+
+import exceptions.*;
+import java.util.function.IntConsumer;
+
+// FrozenAVLTree para claves int (ver IntAVLTree.freeze()): las claves están directamente en
+// el arreglo en orden de Eytzinger, sin objetos. Una línea de caché tiene 16 claves, así que
+// los primeros cuatro niveles ocupan una sola línea, igual que los descendientes de cualquier
+// nodo cuatro niveles más abajo: se leen por adelantado durante el descenso.
+public final class FrozenIntAVLTree {
+
+    private static final int PREFETCH_LEVELS = 4;
+
+    // Destino de las lecturas adelantadas; el JIT no puede descartarlas porque su resultado
+    // decide si se escribe aquí (casi nunca: no hay escrituras compartidas entre lectores)
+    private static long sink;
+
+    private final int[] keys; // keys[1..n] en orden de Eytzinger; keys[0] no se usa
+    private final int n;
+
+    // sorted: las primeras n posiciones en orden estrictamente creciente (no se verifica)
+    FrozenIntAVLTree(int[] sorted, int n) {
+        this.n = n;
+        this.keys = new int[n + 1];
+        fill(sorted, 0, 1);
+    }
+
+    private int fill(int[] sorted, int i, int k) {
+        if (k <= n) {
+            i = fill(sorted, i, 2 * k);
+            keys[k] = sorted[i++];
+            i = fill(sorted, i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public int search(int x) throws ItemNotFound {
+        if (!contains(x)) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return x;
+    }
+
+    public boolean contains(int x) {
+        int k = ceilingIndex(x);
+        return k != 0 && keys[k] == x;
+    }
+
+    // Mayor clave <= x
+    public int floor(int x) throws ItemNotFound {
+        int k = floorIndex(x);
+        if (k == 0) {
+            throw new ItemNotFound("No hay claves <= " + x);
+        }
+        return keys[k];
+    }
+
+    // Menor clave >= x
+    public int ceiling(int x) throws ItemNotFound {
+        int k = ceilingIndex(x);
+        if (k == 0) {
+            throw new ItemNotFound("No hay claves >= " + x);
+        }
+        return keys[k];
+    }
+
+    // Igual que floor pero devolviendo absent en lugar de lanzar, para los caminos calientes
+    public int floorOrElse(int x, int absent) {
+        int k = floorIndex(x);
+        return k == 0 ? absent : keys[k];
+    }
+
+    public int ceilingOrElse(int x, int absent) {
+        int k = ceilingIndex(x);
+        return k == 0 ? absent : keys[k];
+    }
+
+    public int findMin() throws ItemNotFound {
+        if (n == 0) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        return keys[Integer.highestOneBit(n)];
+    }
+
+    public int findMax() throws ItemNotFound {
+        if (n == 0) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        int k = 1;
+        while (2 * k + 1 <= n) {
+            k = 2 * k + 1;
+        }
+        return keys[k];
+    }
+
+    // Mismo descenso que FrozenAVLTree.ceilingIndex
+    private int ceilingIndex(int x) {
+        int k = 1;
+        long touched = 0;
+        for (int limit = n >>> PREFETCH_LEVELS; k <= limit;) {
+            touched += keys[k << PREFETCH_LEVELS];
+            k = 2 * k + (keys[k] < x ? 1 : 0);
+        }
+        while (k <= n) {
+            k = 2 * k + (keys[k] < x ? 1 : 0);
+        }
+        keep(touched);
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    private int floorIndex(int x) {
+        int k = 1;
+        long touched = 0;
+        for (int limit = n >>> PREFETCH_LEVELS; k <= limit;) {
+            touched += keys[k << PREFETCH_LEVELS];
+            k = 2 * k + (keys[k] <= x ? 1 : 0);
+        }
+        while (k <= n) {
+            k = 2 * k + (keys[k] <= x ? 1 : 0);
+        }
+        keep(touched);
+        return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+    }
+
+    static void keep(long touched) {
+        if (touched == 0x5EED_CAFE_F00DL) {
+            sink = touched;
+        }
+    }
+
+    // Recorre las claves en orden
+    public void forEach(IntConsumer action) {
+        if (n == 0) {
+            return;
+        }
+        int k = Integer.highestOneBit(n);
+        while (k != 0) {
+            action.accept(keys[k]);
+            if (2 * k + 1 <= n) {
+                k = 2 * k + 1;
+                while (2 * k <= n) {
+                    k = 2 * k;
+                }
+            } else {
+                k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+            }
+        }
+    }
+
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        forEach(key -> sb.append(key).append(" "));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,365 @@
+package avltree;
+
+import exceptions.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.function.LongConsumer;
+
+// AVL especializado para claves long: sin boxing ni Comparable en los caminos calientes.
+// Misma semántica que AVLTree; el factor de balanceo se deriva de las alturas guardadas.
+// Es una copia línea por línea de IntAVLTree con long en lugar de int (sin freeze()): Java no
+// especializa genéricos en primitivos. Un cambio en una va también en la otra; TestAVL prueba
+// las dos con el mismo driver.
+public class LongAVLTree {
+
+    static final class Node {
+        final long key;
+        Node left;
+        Node right;
+        int height; // Altura del subárbol con raíz en este nodo
+
+        Node(long key) {
+            this.key = key;
+        }
+    }
+
+    private static final int INITIAL_PATH = 64;
+
+    Node root;
+    private Node[] path = new Node[INITIAL_PATH]; // Camino raíz -> nodo de la última operación
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public void insert(long x) throws ItemDuplicated {
+        if (!add(x)) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
+    }
+
+    // Inserta sin lanzar excepción; devuelve false si la clave ya existía
+    public boolean add(long x) {
+        if (root == null) {
+            root = new Node(x);
+            return true;
+        }
+
+        int depth = 0;
+        Node node = root;
+        while (true) {
+            if (x == node.key) {
+                return false;
+            }
+            push(depth++, node);
+            if (x < node.key) {
+                if (node.left == null) {
+                    node.left = new Node(x);
+                    break;
+                }
+                node = node.left;
+            } else {
+                if (node.right == null) {
+                    node.right = new Node(x);
+                    break;
+                }
+                node = node.right;
+            }
+        }
+        rebalancePath(depth);
+        return true;
+    }
+
+    public long search(long x) throws ItemNotFound {
+        if (!contains(x)) {
+            throw new ItemNotFound(x + " no se encuentra en el árbol");
+        }
+        return x;
+    }
+
+    public boolean contains(long x) {
+        Node node = root;
+        while (node != null) {
+            if (x == node.key) {
+                return true;
+            }
+            node = x < node.key ? node.left : node.right;
+        }
+        return false;
+    }
+
+    public void delete(long x) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        remove(x);
+    }
+
+    // Elimina sin lanzar excepción; devuelve false si la clave no estaba
+    public boolean remove(long x) {
+        int depth = 0;
+        Node node = root;
+        while (node != null && x != node.key) {
+            push(depth++, node);
+            node = x < node.key ? node.left : node.right;
+        }
+        if (node == null) {
+            Arrays.fill(path, 0, depth, null);
+            return false;
+        }
+
+        // Nodo con dos hijos: el sucesor ocupa su lugar
+        if (node.left != null && node.right != null) {
+            Node target = node;
+            int targetDepth = depth;
+            push(depth++, node);
+            Node successor = node.right;
+            while (successor.left != null) {
+                push(depth++, successor);
+                successor = successor.left;
+            }
+            // Las claves son finales: se reemplaza el nodo en vez de copiar la clave
+            replaceChild(depth - 1 == targetDepth ? target : path[depth - 1], successor, successor.right);
+            successor.left = target.left;
+            successor.right = target.right;
+            successor.height = target.height;
+            replaceChild(targetDepth == 0 ? null : path[targetDepth - 1], target, successor);
+            path[targetDepth] = successor;
+        } else {
+            Node child = node.left != null ? node.left : node.right;
+            replaceChild(depth == 0 ? null : path[depth - 1], node, child);
+        }
+
+        rebalancePath(depth);
+        return true;
+    }
+
+    public long findMin() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        Node node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.key;
+    }
+
+    public long findMax() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        Node node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.key;
+    }
+
+    // Altura del árbol en O(1)
+    public int height() {
+        return height(root);
+    }
+
+    private static int height(Node node) {
+        return node == null ? -1 : node.height;
+    }
+
+    private static int balanceFactor(Node node) {
+        return height(node.right) - height(node.left);
+    }
+
+    private static void updateHeight(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+    }
+
+    private void push(int depth, Node node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, 2 * depth);
+        }
+        path[depth] = node;
+    }
+
+    // Mismo recorrido ascendente que AVLTree: actualiza alturas, rota y se detiene
+    // cuando la altura de un subárbol no cambia
+    private void rebalancePath(int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            Node node = path[i];
+            path[i] = null;
+            int oldHeight = node.height;
+
+            updateHeight(node);
+            Node balanced = node;
+            int bf = balanceFactor(node);
+            if (bf == 2) {
+                balanced = balanceToLeft(node);
+            } else if (bf == -2) {
+                balanced = balanceToRight(node);
+            }
+
+            if (balanced != node) {
+                replaceChild(i == 0 ? null : path[i - 1], node, balanced);
+            }
+            if (balanced.height == oldHeight) {
+                Arrays.fill(path, 0, i, null);
+                return;
+            }
+        }
+    }
+
+    private void replaceChild(Node parent, Node oldChild, Node newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+    }
+
+    // Balancea cuando el subárbol derecho es más pesado (bf = 2)
+    private static Node balanceToLeft(Node node) {
+        if (balanceFactor(node.right) < 0) {
+            // Rotación doble (derecha-izquierda)
+            node.right = rotateRight(node.right);
+        }
+        return rotateLeft(node);
+    }
+
+    // Balancea cuando el subárbol izquierdo es más pesado (bf = -2)
+    private static Node balanceToRight(Node node) {
+        if (balanceFactor(node.left) > 0) {
+            // Rotación doble (izquierda-derecha)
+            node.left = rotateLeft(node.left);
+        }
+        return rotateRight(node);
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    // Recorre las claves en orden sin crear objetos por clave
+    public void forEach(LongConsumer action) {
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            action.accept(node.key);
+            node = node.right;
+        }
+    }
+
+    // RECORRIDO IN ORDEN
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        forEach(key -> sb.append(key).append(" "));
+        return sb.toString();
+    }
+
+    // Recorrido en Pre-orden, con el factor de balanceo como en AVLTree
+    public String preOrder() {
+        StringBuilder sb = new StringBuilder();
+        Deque<Node> stack = new ArrayDeque<>();
+        if (root != null) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            sb.append(node.key).append(" (bf=").append(balanceFactor(node)).append(") ");
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+        }
+        return sb.toString();
+    }
+
+    // RECORRIDO EN POST ORDEN
+    public String postOrder() {
+        StringBuilder sb = new StringBuilder();
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        Node lastVisited = null;
+        while (node != null || !stack.isEmpty()) {
+            if (node != null) {
+                stack.push(node);
+                node = node.left;
+            } else {
+                Node top = stack.peek();
+                if (top.right != null && top.right != lastVisited) {
+                    node = top.right;
+                } else {
+                    sb.append(top.key).append(" ");
+                    lastVisited = stack.pop();
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    // Recorrido BFS
+    public String breadthFirst() {
+        StringBuilder sb = new StringBuilder();
+        Queue<Node> queue = new ArrayDeque<>();
+        if (root != null) {
+            queue.offer(root);
+        }
+        while (!queue.isEmpty()) {
+            for (int i = queue.size(); i > 0; i--) {
+                Node current = queue.poll();
+                sb.append(current.key).append(" ");
+                if (current.left != null) {
+                    queue.offer(current.left);
+                }
+                if (current.right != null) {
+                    queue.offer(current.right);
+                }
+            }
+            sb.append("| "); // Separador por niveles
+        }
+        return sb.toString();
+    }
+
+    // Comprueba alturas, factores de balanceo y orden de las claves
+    public void checkInvariants() {
+        checkInvariants(root, false, 0, false, 0);
+    }
+
+    private static int checkInvariants(Node node, boolean hasLow, long low, boolean hasHigh, long high) {
+        if (node == null) {
+            return -1;
+        }
+        if ((hasLow && node.key <= low) || (hasHigh && node.key >= high)) {
+            throw new IllegalStateException("Orden incorrecto en " + node.key);
+        }
+        int leftHeight = checkInvariants(node.left, hasLow, low, true, node.key);
+        int rightHeight = checkInvariants(node.right, true, node.key, hasHigh, high);
+        if (node.height != 1 + Math.max(leftHeight, rightHeight) || Math.abs(rightHeight - leftHeight) > 1) {
+            throw new IllegalStateException("Altura o factor de balanceo incorrecto en " + node.key);
+        }
+        return node.height;
+    }
+}
@@ -0,0 +1,498 @@
+package avltree;
+
+import exceptions.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// AVL de claves long cuyos nodos viven fuera del heap, en un archivo mapeado en memoria.
+// Cada nodo es un registro de tamaño fijo; al reabrir el archivo el árbol está listo
+// sin reconstruirlo. El balanceo es el mismo que en AVLTree/ArrayAVLTree.
+//
+// Formato (little-endian en cualquier plataforma): cabecera de HEADER_BYTES seguida de
+// registros de RECORD_BYTES:
+//   key (long) | left (int) | right (int) | height (int) | reservado (int)
+// El registro 0 es el hijo vacío. Los huecos liberados se encadenan por left.
+// Los cambios llegan al disco con force() o close(); tras una caída sin force()
+// el archivo puede quedar inconsistente.
+public class MappedLongAVLTree implements Closeable {
+
+    private static final long MAGIC = 0x41564C4D41505631L; // "AVLMAPV1"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 4096;
+    private static final int RECORD_BYTES = 24;
+    private static final int SEGMENT_SHIFT = 18; // 2^18 registros (6 MB) por segmento mapeado
+    private static final int SEGMENT_RECORDS = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_RECORDS - 1;
+
+    // Desplazamientos dentro de la cabecera
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 8;
+    private static final int H_RECORD_BYTES = 12;
+    private static final int H_ROOT = 16;
+    private static final int H_FREE_LIST = 20;
+    private static final int H_USED = 24;
+    private static final int H_SIZE = 32;
+
+    // Desplazamientos dentro de un registro
+    private static final int R_KEY = 0;
+    private static final int R_LEFT = 8;
+    private static final int R_RIGHT = 12;
+    private static final int R_HEIGHT = 16;
+
+    private static final int NIL = 0;
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    private int root;
+    private int freeList;
+    private int used;
+    private long size;
+    private int[] path = new int[64];
+
+    private MappedLongAVLTree(FileChannel channel) throws IOException {
+        this.channel = channel;
+
+        long length = channel.size();
+        if (length == 0) {
+            // Archivo nuevo: se reserva el registro 0 como hijo vacío
+            header = map(0, HEADER_BYTES);
+            header.putLong(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, VERSION);
+            header.putInt(H_RECORD_BYTES, RECORD_BYTES);
+            used = 1;
+            ensureCapacity(1);
+            setHeight(NIL, -1);
+            writeHeader();
+            return;
+        }
+
+        // La cabecera se valida con read antes de mapear: mapear en READ_WRITE agranda el archivo
+        // y no hay que tocar uno ajeno
+        if (length < HEADER_BYTES) {
+            throw new IOException("El archivo no es un índice AVL mapeado: " + length + " bytes");
+        }
+        ByteBuffer fields = ByteBuffer.allocate(H_SIZE + Long.BYTES).order(BYTE_ORDER);
+        while (fields.hasRemaining()) {
+            if (channel.read(fields, fields.position()) < 0) {
+                throw new IOException("Cabecera incompleta");
+            }
+        }
+        if (fields.getLong(H_MAGIC) != MAGIC) {
+            throw new IOException("El archivo no es un índice AVL mapeado");
+        }
+        if (fields.getInt(H_VERSION) != VERSION || fields.getInt(H_RECORD_BYTES) != RECORD_BYTES) {
+            throw new IOException("Versión de índice no soportada: " + fields.getInt(H_VERSION));
+        }
+        root = fields.getInt(H_ROOT);
+        freeList = fields.getInt(H_FREE_LIST);
+        used = fields.getInt(H_USED);
+        size = fields.getLong(H_SIZE);
+        long segmentCount = ((long) used + SEGMENT_RECORDS - 1) >>> SEGMENT_SHIFT;
+        if (used < 1 || root < 0 || root >= used || freeList < 0 || freeList >= used || size < 0 || size >= used
+                || length < HEADER_BYTES + segmentCount * SEGMENT_RECORDS * RECORD_BYTES) {
+            throw new IOException("Índice dañado o truncado: " + used + " registros en " + length + " bytes");
+        }
+        header = map(0, HEADER_BYTES);
+        ensureCapacity(used);
+    }
+
+    // Abre el índice guardado en file, o lo crea vacío si no existe
+    public static MappedLongAVLTree open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new MappedLongAVLTree(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void insert(long x) throws ItemDuplicated {
+        if (!add(x)) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
+    }
+
+    public boolean add(long x) {
+        if (root == NIL) {
+            root = allocate(x);
+            writeHeader();
+            return true;
+        }
+
+        int depth = 0;
+        int node = root;
+        while (true) {
+            long key = key(node);
+            if (x == key) {
+                return false;
+            }
+            push(depth++, node);
+            int next = x < key ? left(node) : right(node);
+            if (next == NIL) {
+                int created = allocate(x);
+                if (x < key) {
+                    setLeft(node, created);
+                } else {
+                    setRight(node, created);
+                }
+                break;
+            }
+            node = next;
+        }
+        rebalancePath(depth);
+        writeHeader();
+        return true;
+    }
+
+    public long search(long x) throws ItemNotFound {
+        if (!contains(x)) {
+            throw new ItemNotFound(x + " no se encuentra en el árbol");
+        }
+        return x;
+    }
+
+    public boolean contains(long x) {
+        int node = root;
+        while (node != NIL) {
+            long key = key(node);
+            if (x == key) {
+                return true;
+            }
+            node = x < key ? left(node) : right(node);
+        }
+        return false;
+    }
+
+    public void delete(long x) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        remove(x);
+    }
+
+    public boolean remove(long x) {
+        int depth = 0;
+        int node = root;
+        while (node != NIL) {
+            long key = key(node);
+            if (x == key) {
+                break;
+            }
+            push(depth++, node);
+            node = x < key ? left(node) : right(node);
+        }
+        if (node == NIL) {
+            return false;
+        }
+
+        // Nodo con dos hijos: se copia la clave del sucesor y se libera el sucesor
+        if (left(node) != NIL && right(node) != NIL) {
+            int target = node;
+            push(depth++, node);
+            node = right(node);
+            while (left(node) != NIL) {
+                push(depth++, node);
+                node = left(node);
+            }
+            setKey(target, key(node));
+        }
+
+        int child = left(node) != NIL ? left(node) : right(node);
+        replaceChild(depth == 0 ? NIL : path[depth - 1], node, child);
+        release(node);
+        rebalancePath(depth);
+        writeHeader();
+        return true;
+    }
+
+    public long findMin() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        int node = root;
+        while (left(node) != NIL) {
+            node = left(node);
+        }
+        return key(node);
+    }
+
+    public long findMax() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        int node = root;
+        while (right(node) != NIL) {
+            node = right(node);
+        }
+        return key(node);
+    }
+
+    public int height() {
+        return height(root);
+    }
+
+    // Recorre las claves en orden
+    public void forEach(LongConsumer action) {
+        int[] stack = new int[Math.max(1, height() + 1)];
+        int top = 0;
+        int node = root;
+        while (node != NIL || top > 0) {
+            while (node != NIL) {
+                stack[top++] = node;
+                node = left(node);
+            }
+            node = stack[--top];
+            action.accept(key(node));
+            node = right(node);
+        }
+    }
+
+    // RECORRIDO IN ORDEN
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        forEach(key -> sb.append(key).append(" "));
+        return sb.toString();
+    }
+
+    // Escribe al disco los cambios pendientes
+    public void force() {
+        header.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    // Comprueba alturas, factores de balanceo, orden y el conteo de nodos
+    public void checkInvariants() {
+        long[] count = new long[1];
+        checkInvariants(root, false, 0, false, 0, count);
+        if (count[0] != size) {
+            throw new IllegalStateException("Tamaño incorrecto: " + size + " guardado, " + count[0] + " reales");
+        }
+    }
+
+    private int checkInvariants(int node, boolean hasLow, long low, boolean hasHigh, long high, long[] count) {
+        if (node == NIL) {
+            return -1;
+        }
+        count[0]++;
+        long key = key(node);
+        if ((hasLow && key <= low) || (hasHigh && key >= high)) {
+            throw new IllegalStateException("Orden incorrecto en " + key);
+        }
+        int leftHeight = checkInvariants(left(node), hasLow, low, true, key, count);
+        int rightHeight = checkInvariants(right(node), true, key, hasHigh, high, count);
+        if (height(node) != 1 + Math.max(leftHeight, rightHeight) || Math.abs(rightHeight - leftHeight) > 1) {
+            throw new IllegalStateException("Altura o factor de balanceo incorrecto en " + key);
+        }
+        return height(node);
+    }
+
+    // Acceso a los registros
+
+    private MappedByteBuffer segment(int node) {
+        return segments[node >>> SEGMENT_SHIFT];
+    }
+
+    private static int offset(int node) {
+        return (node & SEGMENT_MASK) * RECORD_BYTES;
+    }
+
+    private long key(int node) {
+        return segment(node).getLong(offset(node) + R_KEY);
+    }
+
+    private int left(int node) {
+        return segment(node).getInt(offset(node) + R_LEFT);
+    }
+
+    private int right(int node) {
+        return segment(node).getInt(offset(node) + R_RIGHT);
+    }
+
+    private int height(int node) {
+        return segment(node).getInt(offset(node) + R_HEIGHT);
+    }
+
+    private void setKey(int node, long key) {
+        segment(node).putLong(offset(node) + R_KEY, key);
+    }
+
+    private void setLeft(int node, int child) {
+        segment(node).putInt(offset(node) + R_LEFT, child);
+    }
+
+    private void setRight(int node, int child) {
+        segment(node).putInt(offset(node) + R_RIGHT, child);
+    }
+
+    private void setHeight(int node, int height) {
+        segment(node).putInt(offset(node) + R_HEIGHT, height);
+    }
+
+    private void writeHeader() {
+        header.putInt(H_ROOT, root);
+        header.putInt(H_FREE_LIST, freeList);
+        header.putInt(H_USED, used);
+        header.putLong(H_SIZE, size);
+    }
+
+    private MappedByteBuffer map(long position, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+        buffer.order(BYTE_ORDER);
+        return buffer;
+    }
+
+    // Mapea segmentos hasta cubrir 'records' registros; el archivo crece de a un segmento
+    private void ensureCapacity(int records) {
+        try {
+            while ((long) segments.length * SEGMENT_RECORDS < records) {
+                long position = HEADER_BYTES + (long) segments.length * SEGMENT_RECORDS * RECORD_BYTES;
+                MappedByteBuffer segment = map(position, (long) SEGMENT_RECORDS * RECORD_BYTES);
+                segments = Arrays.copyOf(segments, segments.length + 1);
+                segments[segments.length - 1] = segment;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int allocate(long key) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left(node);
+        } else {
+            if (used == Integer.MAX_VALUE) {
+                throw new IllegalStateException("El índice alcanzó el máximo de registros");
+            }
+            ensureCapacity(used + 1);
+            node = used++;
+        }
+        setKey(node, key);
+        setLeft(node, NIL);
+        setRight(node, NIL);
+        setHeight(node, 0);
+        size++;
+        return node;
+    }
+
+    private void release(int node) {
+        setRight(node, NIL);
+        setLeft(node, freeList);
+        freeList = node;
+        size--;
+    }
+
+    private void push(int depth, int node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, 2 * depth);
+        }
+        path[depth] = node;
+    }
+
+    private void replaceChild(int parent, int oldChild, int newChild) {
+        if (parent == NIL) {
+            root = newChild;
+        } else if (left(parent) == oldChild) {
+            setLeft(parent, newChild);
+        } else {
+            setRight(parent, newChild);
+        }
+    }
+
+    // Recorrido ascendente igual al de AVLTree: se detiene cuando la altura no cambia
+    private void rebalancePath(int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            int node = path[i];
+            int oldHeight = height(node);
+
+            updateHeight(node);
+            int balanced = node;
+            int bf = balanceFactor(node);
+            if (bf == 2) {
+                balanced = balanceToLeft(node);
+            } else if (bf == -2) {
+                balanced = balanceToRight(node);
+            }
+
+            if (balanced != node) {
+                replaceChild(i == 0 ? NIL : path[i - 1], node, balanced);
+            }
+            if (height(balanced) == oldHeight) {
+                return;
+            }
+        }
+    }
+
+    private int balanceFactor(int node) {
+        return height(right(node)) - height(left(node));
+    }
+
+    private void updateHeight(int node) {
+        setHeight(node, 1 + Math.max(height(left(node)), height(right(node))));
+    }
+
+    // Balancea cuando el subárbol derecho es más pesado (bf = 2)
+    private int balanceToLeft(int node) {
+        if (balanceFactor(right(node)) < 0) {
+            setRight(node, rotateRight(right(node)));
+        }
+        return rotateLeft(node);
+    }
+
+    // Balancea cuando el subárbol izquierdo es más pesado (bf = -2)
+    private int balanceToRight(int node) {
+        if (balanceFactor(left(node)) > 0) {
+            setLeft(node, rotateLeft(left(node)));
+        }
+        return rotateRight(node);
+    }
+
+    private int rotateLeft(int node) {
+        int newRoot = right(node);
+        setRight(node, left(newRoot));
+        setLeft(newRoot, node);
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    private int rotateRight(int node) {
+        int newRoot = left(node);
+        setLeft(node, right(newRoot));
+        setRight(newRoot, node);
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+}
@@ -0,0 +1,486 @@
+package avltree;
+
+import complements.BinarySearchTree;
+import exceptions.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// AVL persistente: insert y delete devuelven una versión nueva y dejan intacta la anterior.
+// Solo se copian los nodos del camino modificado (O(log n) por operación); el resto de los
+// subárboles se comparte entre versiones. Cada versión es inmutable, así que puede leerse
+// desde varios hilos sin locks ni copias.
+// Para cargas por lotes, asTransient() da una vista mutable que modifica en sitio los nodos
+// que ella misma creó; persistent() la cierra y devuelve la versión resultante.
+public final class PersistentAVLTree<E extends Comparable<E>> implements Iterable<E> {
+
+    static final class Node<E> {
+        E data;
+        Node<E> left;
+        Node<E> right;
+        int height; // Altura del subárbol; -1 para el hijo vacío, igual que en AVLTree
+        final Edit<E> owner; // Única edición que puede modificar este nodo en sitio
+
+        Node(E data, Node<E> left, Node<E> right, int height, Edit<E> owner) {
+            this.data = data;
+            this.left = left;
+            this.right = right;
+            this.height = height;
+            this.owner = owner;
+        }
+    }
+
+    // Estado de una actualización: dueño de los nodos nuevos y resultado de la operación.
+    // Los nodos guardan una referencia a su Edit, así que no debe retener datos al terminar.
+    static class Edit<E> {
+        boolean changed;
+        E removed;
+    }
+
+    private static final PersistentAVLTree<?> EMPTY = new PersistentAVLTree<>(null, 0);
+
+    private final Node<E> root;
+    private final int size;
+
+    private PersistentAVLTree(Node<E> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<T>> PersistentAVLTree<T> empty() {
+        return (PersistentAVLTree<T>) EMPTY;
+    }
+
+    // ---- Actualizaciones (devuelven una versión nueva) ----
+
+    // Versión con x agregado; lanza ItemDuplicated si x ya estaba
+    public PersistentAVLTree<E> insert(E x) throws ItemDuplicated {
+        PersistentAVLTree<E> result = add(x);
+        if (result == this) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
+        return result;
+    }
+
+    // Versión con x agregado, o esta misma versión si x ya estaba
+    public PersistentAVLTree<E> add(E x) {
+        Edit<E> edit = new Edit<>();
+        Node<E> newRoot = insert(root, x, edit);
+        return edit.changed ? new PersistentAVLTree<>(newRoot, size + 1) : this;
+    }
+
+    // Versión sin x (esta misma si x no estaba); lanza ExceptionIsEmpty si el árbol está vacío
+    public PersistentAVLTree<E> delete(E x) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        return remove(x);
+    }
+
+    // Versión sin x, o esta misma versión si x no estaba
+    public PersistentAVLTree<E> remove(E x) {
+        Edit<E> edit = new Edit<>();
+        Node<E> newRoot = delete(root, x, edit);
+        edit.removed = null;
+        return edit.changed ? new PersistentAVLTree<>(newRoot, size - 1) : this;
+    }
+
+    // ---- Consultas ----
+
+    public E search(E x) throws ItemNotFound {
+        E result = get(x);
+        if (result == null) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return result;
+    }
+
+    public E get(E x) {
+        return get(root, x);
+    }
+
+    public boolean contains(E x) {
+        return get(root, x) != null;
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int height() {
+        return height(root);
+    }
+
+    public E findMin() throws ItemNotFound {
+        if (root == null) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        Node<E> node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.data;
+    }
+
+    public E findMax() throws ItemNotFound {
+        if (root == null) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        Node<E> node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.data;
+    }
+
+    // Recorrido en orden; la versión no cambia, así que el iterador no se invalida
+    @Override
+    public Iterator<E> iterator() {
+        return new InOrderIterator<>(root);
+    }
+
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        for (E x : this) {
+            sb.append(x).append(" ");
+        }
+        return sb.toString();
+    }
+
+    // Vista mutable que parte de esta versión
+    public Transient<E> asTransient() {
+        return new Transient<>(root, size);
+    }
+
+    // Comprueba orden, alturas, balance y tamaño
+    public void checkInvariants() {
+        int[] count = new int[1];
+        checkInvariants(root, null, null, count);
+        if (count[0] != size) {
+            throw new IllegalStateException("Tamaño incorrecto: " + size + " guardado, " + count[0] + " reales");
+        }
+    }
+
+    private static <E extends Comparable<E>> int checkInvariants(Node<E> node, E low, E high, int[] count) {
+        if (node == null) {
+            return -1;
+        }
+        if ((low != null && node.data.compareTo(low) <= 0) || (high != null && node.data.compareTo(high) >= 0)) {
+            throw new IllegalStateException("Orden incorrecto en " + node.data);
+        }
+        count[0]++;
+        int hL = checkInvariants(node.left, low, node.data, count);
+        int hR = checkInvariants(node.right, node.data, high, count);
+        if (node.height != 1 + Math.max(hL, hR) || Math.abs(hR - hL) > 1) {
+            throw new IllegalStateException("Altura o balance incorrecto en " + node.data);
+        }
+        return node.height;
+    }
+
+    // ---- Modo transient ----
+
+    // Árbol mutable para actualizaciones por lotes. Modifica en sitio los nodos que creó y copia
+    // los compartidos con versiones persistentes, que nunca cambian. No es seguro entre hilos.
+    public static final class Transient<E extends Comparable<E>> extends Edit<E> implements BinarySearchTree<E> {
+        private Node<E> root;
+        private int size;
+        private boolean closed;
+
+        Transient(Node<E> root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        private void ensureOpen() {
+            if (closed) {
+                throw new IllegalStateException("El transient ya se convirtió en persistente");
+            }
+        }
+
+        @Override
+        public void insert(E x) throws ItemDuplicated {
+            if (!add(x)) {
+                throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+            }
+        }
+
+        @Override
+        public boolean add(E x) {
+            ensureOpen();
+            changed = false;
+            root = PersistentAVLTree.insert(root, x, this);
+            if (changed) {
+                size++;
+            }
+            return changed;
+        }
+
+        @Override
+        public void delete(E x) throws ExceptionIsEmpty {
+            if (isEmpty()) {
+                throw new ExceptionIsEmpty("The tree is empty");
+            }
+            remove(x);
+        }
+
+        @Override
+        public E remove(E x) {
+            ensureOpen();
+            changed = false;
+            removed = null;
+            root = PersistentAVLTree.delete(root, x, this);
+            if (!changed) {
+                return null;
+            }
+            size--;
+            E result = removed;
+            removed = null;
+            return result;
+        }
+
+        @Override
+        public E search(E x) throws ItemNotFound {
+            E result = get(x);
+            if (result == null) {
+                throw new ItemNotFound("El elemento no se encuentra en el árbol");
+            }
+            return result;
+        }
+
+        @Override
+        public E get(E x) {
+            ensureOpen();
+            return PersistentAVLTree.get(root, x);
+        }
+
+        @Override
+        public boolean contains(E x) {
+            return get(x) != null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            ensureOpen();
+            return root == null;
+        }
+
+        public int size() {
+            ensureOpen();
+            return size;
+        }
+
+        // Cierra el transient y devuelve la versión persistente con todos los cambios
+        public PersistentAVLTree<E> persistent() {
+            ensureOpen();
+            closed = true;
+            PersistentAVLTree<E> result = root == null ? empty() : new PersistentAVLTree<>(root, size);
+            root = null; // Los nodos referencian al transient: no debe retener versiones
+            return result;
+        }
+    }
+
+    // ---- Operaciones sobre nodos ----
+
+    private static <E extends Comparable<E>> E get(Node<E> node, E x) {
+        while (node != null) {
+            int comparison = x.compareTo(node.data);
+            if (comparison == 0) {
+                return node.data;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? -1 : node.height;
+    }
+
+    // Factor de balanceo: altura(derecho) - altura(izquierdo)
+    private static int bf(Node<?> node) {
+        return height(node.right) - height(node.left);
+    }
+
+    private static void updateHeight(Node<?> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+    }
+
+    // El mismo nodo si pertenece a esta edición; si no, una copia que sí le pertenece
+    private static <E> Node<E> editable(Node<E> node, Edit<E> edit) {
+        if (node.owner == edit) {
+            return node;
+        }
+        return new Node<>(node.data, node.left, node.right, node.height, edit);
+    }
+
+    private static <E extends Comparable<E>> Node<E> insert(Node<E> node, E x, Edit<E> edit) {
+        if (node == null) {
+            edit.changed = true;
+            return new Node<>(x, null, null, 0, edit);
+        }
+        int comparison = x.compareTo(node.data);
+        if (comparison == 0) {
+            return node;
+        }
+        if (comparison < 0) {
+            Node<E> left = insert(node.left, x, edit);
+            if (!edit.changed) {
+                return node;
+            }
+            node = editable(node, edit);
+            node.left = left;
+        } else {
+            Node<E> right = insert(node.right, x, edit);
+            if (!edit.changed) {
+                return node;
+            }
+            node = editable(node, edit);
+            node.right = right;
+        }
+        return rebalance(node, edit);
+    }
+
+    private static <E extends Comparable<E>> Node<E> delete(Node<E> node, E x, Edit<E> edit) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = x.compareTo(node.data);
+        if (comparison < 0) {
+            Node<E> left = delete(node.left, x, edit);
+            if (!edit.changed) {
+                return node;
+            }
+            node = editable(node, edit);
+            node.left = left;
+        } else if (comparison > 0) {
+            Node<E> right = delete(node.right, x, edit);
+            if (!edit.changed) {
+                return node;
+            }
+            node = editable(node, edit);
+            node.right = right;
+        } else {
+            edit.changed = true;
+            edit.removed = node.data;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Dos hijos: se copia el sucesor y se elimina del subárbol derecho, como en AVLTree
+            Node<E> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            Node<E> right = deleteMin(node.right, edit);
+            node = editable(node, edit);
+            node.data = successor.data;
+            node.right = right;
+        }
+        return rebalance(node, edit);
+    }
+
+    private static <E extends Comparable<E>> Node<E> deleteMin(Node<E> node, Edit<E> edit) {
+        if (node.left == null) {
+            return node.right;
+        }
+        Node<E> left = deleteMin(node.left, edit);
+        node = editable(node, edit);
+        node.left = left;
+        return rebalance(node, edit);
+    }
+
+    // node ya pertenece a la edición; corrige su altura y rota si quedó desbalanceado
+    private static <E> Node<E> rebalance(Node<E> node, Edit<E> edit) {
+        updateHeight(node);
+        int bf = bf(node);
+        if (bf == 2) {
+            return balanceToLeft(node, edit);
+        }
+        if (bf == -2) {
+            return balanceToRight(node, edit);
+        }
+        return node;
+    }
+
+    // Balancea cuando el subárbol derecho es más pesado (bf = 2)
+    private static <E> Node<E> balanceToLeft(Node<E> node, Edit<E> edit) {
+        if (bf(node.right) >= 0) {
+            // Caso LL: Rotación simple a la izquierda
+            return rotateLeft(node, edit);
+        }
+        // Caso LR: Rotación doble (derecha-izquierda)
+        node.right = rotateRight(node.right, edit);
+        return rotateLeft(node, edit);
+    }
+
+    // Balancea cuando el subárbol izquierdo es más pesado (bf = -2)
+    private static <E> Node<E> balanceToRight(Node<E> node, Edit<E> edit) {
+        if (bf(node.left) <= 0) {
+            // Caso RR: Rotación simple a la derecha
+            return rotateRight(node, edit);
+        }
+        // Caso RL: Rotación doble (izquierda-derecha)
+        node.left = rotateLeft(node.left, edit);
+        return rotateRight(node, edit);
+    }
+
+    // Rotación simple a la izquierda; copia los nodos que cambian si no son de la edición
+    private static <E> Node<E> rotateLeft(Node<E> node, Edit<E> edit) {
+        node = editable(node, edit);
+        Node<E> newRoot = editable(node.right, edit);
+        node.right = newRoot.left;
+        newRoot.left = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    // Rotación simple a la derecha
+    private static <E> Node<E> rotateRight(Node<E> node, Edit<E> edit) {
+        node = editable(node, edit);
+        Node<E> newRoot = editable(node.left, edit);
+        node.left = newRoot.right;
+        newRoot.right = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    private static final class InOrderIterator<E> implements Iterator<E> {
+        private final Deque<Node<E>> stack = new ArrayDeque<>();
+
+        InOrderIterator(Node<E> node) {
+            pushLeft(node);
+        }
+
+        private void pushLeft(Node<E> node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<E> node = stack.pop();
+            pushLeft(node.right);
+            return node.data;
+        }
+    }
+}
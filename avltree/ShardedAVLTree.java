@@ -0,0 +1,315 @@
+package avltree;
+
+import complements.BinarySearchTree;
+import exceptions.*;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.StampedLock;
+
+// N AVLTree independientes, cada uno con su propio StampedLock, detrás de BinarySearchTree.
+// Los hilos que escriben en shards distintos no se bloquean entre sí.
+// - Por hash: reparte uniformemente cualquier distribución de claves.
+// - Por rango: splitters ordenados; el shard i guarda las claves en [splitters[i-1], splitters[i]),
+//   así findMin/findMax y el recorrido en orden solo necesitan mirar los shards en orden.
+// Las operaciones que cruzan shards (isEmpty, size, findMin, findMax, iterator) toman los
+// locks de lectura de a uno: con escrituras concurrentes ven un estado que puede no haber
+// existido en ningún instante, igual que size() de las colecciones concurrentes.
+public class ShardedAVLTree<E extends Comparable<E>> implements BinarySearchTree<E>, Iterable<E> {
+
+    private static final class Shard<E extends Comparable<E>> {
+        final AVLTree<E> tree = new AVLTree<>();
+        final StampedLock lock = new StampedLock();
+    }
+
+    private final Shard<E>[] shards;
+    private final E[] splitters; // null si se reparte por hash
+
+    // Reparte por hash entre la cantidad de shards indicada
+    public ShardedAVLTree(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un shard: " + shardCount);
+        }
+        this.shards = newShards(shardCount);
+        this.splitters = null;
+    }
+
+    // Reparte por rango; splitters debe estar ordenado y sin repetidos (splitters.length + 1 shards)
+    public ShardedAVLTree(E[] splitters) {
+        for (int i = 1; i < splitters.length; i++) {
+            if (splitters[i - 1].compareTo(splitters[i]) >= 0) {
+                throw new IllegalArgumentException("Los splitters no están ordenados en la posición " + i);
+            }
+        }
+        this.shards = newShards(splitters.length + 1);
+        this.splitters = splitters.clone();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E extends Comparable<E>> Shard<E>[] newShards(int count) {
+        Shard<E>[] shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard<>();
+        }
+        return shards;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public boolean isRangePartitioned() {
+        return splitters != null;
+    }
+
+    // Índice del shard al que pertenece x
+    int shardOf(E x) {
+        if (splitters != null) {
+            int pos = Arrays.binarySearch(splitters, x);
+            return pos >= 0 ? pos + 1 : -(pos + 1);
+        }
+        int h = x.hashCode();
+        h ^= h >>> 16;
+        return (h & 0x7fffffff) % shards.length;
+    }
+
+    private Shard<E> shardFor(E x) {
+        return shards[shardOf(x)];
+    }
+
+    // ---- Operaciones sobre un shard ----
+
+    @Override
+    public void insert(E x) throws ItemDuplicated {
+        if (!add(x)) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
+    }
+
+    @Override
+    public boolean add(E x) {
+        Shard<E> shard = shardFor(x);
+        long stamp = shard.lock.writeLock();
+        try {
+            return shard.tree.add(x);
+        } finally {
+            shard.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public E search(E x) throws ItemNotFound {
+        E result = get(x);
+        if (result == null) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return result;
+    }
+
+    // AVLTree no tolera lecturas durante una rotación, así que se usa el lock de lectura
+    // en lugar de una lectura optimista
+    @Override
+    public E get(E x) {
+        Shard<E> shard = shardFor(x);
+        long stamp = shard.lock.readLock();
+        try {
+            return shard.tree.get(x);
+        } finally {
+            shard.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(E x) {
+        return get(x) != null;
+    }
+
+    @Override
+    public void delete(E x) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        remove(x);
+    }
+
+    @Override
+    public E remove(E x) {
+        Shard<E> shard = shardFor(x);
+        long stamp = shard.lock.writeLock();
+        try {
+            return shard.tree.remove(x);
+        } finally {
+            shard.lock.unlockWrite(stamp);
+        }
+    }
+
+    // ---- Operaciones sobre todos los shards ----
+
+    @Override
+    public boolean isEmpty() {
+        for (Shard<E> shard : shards) {
+            long stamp = shard.lock.readLock();
+            try {
+                if (!shard.tree.isEmpty()) {
+                    return false;
+                }
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard<E> shard : shards) {
+            long stamp = shard.lock.readLock();
+            try {
+                size += shard.tree.size();
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    public E findMin() throws ItemNotFound {
+        return extreme(true);
+    }
+
+    public E findMax() throws ItemNotFound {
+        return extreme(false);
+    }
+
+    // Mínimo (min = true) o máximo entre los shards. Por rango basta el primer shard no vacío.
+    private E extreme(boolean min) throws ItemNotFound {
+        E best = null;
+        for (int i = 0; i < shards.length; i++) {
+            Shard<E> shard = shards[min ? i : shards.length - 1 - i];
+            long stamp = shard.lock.readLock();
+            try {
+                if (shard.tree.isEmpty()) {
+                    continue;
+                }
+                E candidate = min ? shard.tree.findMin() : shard.tree.findMax();
+                if (best == null || (min ? candidate.compareTo(best) < 0 : candidate.compareTo(best) > 0)) {
+                    best = candidate;
+                }
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+            if (splitters != null) {
+                break;
+            }
+        }
+        if (best == null) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        return best;
+    }
+
+    // Recorrido en orden: copia cada shard bajo su lock de lectura. Por rango las copias ya están
+    // ordenadas y no se solapan, así que se recorren una tras otra; por hash se mezclan (k-way
+    // merge). Las escrituras posteriores no afectan al iterador.
+    @Override
+    public Iterator<E> iterator() {
+        Object[][] snapshots = new Object[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            Shard<E> shard = shards[i];
+            long stamp = shard.lock.readLock();
+            try {
+                Object[] items = new Object[shard.tree.size()];
+                int k = 0;
+                for (E x : shard.tree) {
+                    items[k++] = x;
+                }
+                snapshots[i] = items;
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+        return splitters != null ? new ConcatIterator(snapshots) : new MergeIterator(snapshots);
+    }
+
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        for (E x : this) {
+            sb.append(x).append(" ");
+        }
+        return sb.toString();
+    }
+
+    private final class ConcatIterator implements Iterator<E> {
+        private final Object[][] snapshots;
+        private int shard;
+        private int position;
+
+        ConcatIterator(Object[][] snapshots) {
+            this.snapshots = snapshots;
+            skipEmpty();
+        }
+
+        private void skipEmpty() {
+            while (shard < snapshots.length && position == snapshots[shard].length) {
+                shard++;
+                position = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return shard < snapshots.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (shard == snapshots.length) {
+                throw new NoSuchElementException();
+            }
+            E x = (E) snapshots[shard][position++];
+            skipEmpty();
+            return x;
+        }
+    }
+
+    private final class MergeIterator implements Iterator<E> {
+        // Cada cursor es {shard, posición}; el heap los ordena por el elemento actual
+        private final Object[][] snapshots;
+        private final PriorityQueue<int[]> heap;
+
+        MergeIterator(Object[][] snapshots) {
+            this.snapshots = snapshots;
+            this.heap = new PriorityQueue<>(Math.max(1, snapshots.length), (a, b) -> at(a).compareTo(at(b)));
+            for (int i = 0; i < snapshots.length; i++) {
+                if (snapshots[i].length > 0) {
+                    heap.add(new int[] { i, 0 });
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private E at(int[] cursor) {
+            return (E) snapshots[cursor[0]][cursor[1]];
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            int[] cursor = heap.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+            E x = at(cursor);
+            if (++cursor[1] < snapshots[cursor[0]].length) {
+                heap.add(cursor);
+            }
+            return x;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package avltree;
+
+import complements.KeyCodec;
+import complements.TreeSnapshot;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+// Log de escritura anticipada de DurableAVLTree, dividido en segmentos wal-<n>.log.
+// Los registros (operación + clave) se acumulan en memoria y se escriben en tramas:
+//   largo (int) | cantidad de registros (int) | CRC32C de los registros (int) | registros
+// Una sola escritura/fsync a la vez; los hilos que llegan mientras tanto esperan y el
+// siguiente escribe todo lo acumulado en una trama (commit agrupado).
+// Cada segmento empieza con magic (8 bytes, "AVLWAL01") y versión (int).
+final class WriteAheadLog<E> implements Closeable {
+
+    static final byte INSERT = 1;
+    static final byte DELETE = 2;
+
+    private static final long MAGIC = 0x31304C41574C5641L; // "AVLWAL01"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int FRAME_HEADER_BYTES = 12;
+
+    // Aplica los registros recuperados
+    interface Replay<E> {
+        void apply(byte op, E key);
+    }
+
+    private final Path dir;
+    private final KeyCodec<E> codec;
+    private final DurableAVLTree.SyncPolicy policy;
+    private final TreeSnapshot.Output encoder = new TreeSnapshot.Output(new PendingSink());
+    private final Thread flusher; // null salvo con SyncPolicy.batched
+
+    private FileChannel channel;
+    private long segment;
+    private ByteBuffer pending = newFrame(); // Registros todavía no escritos
+    private ByteBuffer spare = newFrame();   // Trama que se reutiliza después de escribirla
+    private int pendingRecords;
+
+    // Números de registro: appended >= written >= synced
+    private long appended;
+    private long written;
+    private long synced;
+    private long rotatedAt;
+    private long oldestUnsynced; // nanoTime del primer registro sin fsync
+    private boolean flushing;    // Un hilo está escribiendo una trama
+    private boolean closed;
+    private IOException failure;
+
+    WriteAheadLog(Path dir, KeyCodec<E> codec, DurableAVLTree.SyncPolicy policy, long segment) throws IOException {
+        this.dir = dir;
+        this.codec = codec;
+        this.policy = policy;
+        this.segment = segment;
+        this.channel = createSegment(segment);
+        if (policy.background) {
+            flusher = new Thread(this::runFlusher, "wal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    static String segmentName(long segment) {
+        return String.format("wal-%020d.log", segment);
+    }
+
+    // Número de segmento de un nombre de archivo, o -1 si no es un segmento
+    static long parseSegment(String name) {
+        if (!name.startsWith("wal-") || !name.endsWith(".log")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(4, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private FileChannel createSegment(long number) throws IOException {
+        FileChannel created = FileChannel.open(dir.resolve(segmentName(number)), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            created.write(header);
+        }
+        return created;
+    }
+
+    // Agrega un registro en memoria y devuelve su número; todavía no está en el archivo
+    synchronized long append(byte op, E key) throws IOException {
+        checkUsable();
+        int mark = pending.position();
+        try {
+            encoder.writeByte(op);
+            codec.encode(null, key, encoder);
+            encoder.flush();
+        } catch (IOException | RuntimeException e) {
+            // Se descarta el registro a medio codificar, también lo que quedó en el encoder
+            encoder.flush();
+            pending.position(mark);
+            throw e;
+        }
+        if (appended == synced) {
+            oldestUnsynced = System.nanoTime();
+        }
+        pendingRecords++;
+        appended++;
+        if (flusher != null && (appended - synced >= policy.maxRecords || appended - synced == 1)) {
+            notifyAll();
+        }
+        return appended;
+    }
+
+    // Espera lo que pida la política para el registro lsn. Sin fsync (SyncPolicy.never) igual se
+    // escribe al sistema operativo antes de volver: así sobrevive a la caída del proceso.
+    void commit(long lsn) throws IOException {
+        if (policy.waitForSync) {
+            sync(lsn, true);
+        } else if (flusher == null) {
+            sync(lsn, false);
+        }
+    }
+
+    // Deja escrito (y con force, en disco) todo hasta el registro lsn. Si otro hilo está
+    // escribiendo se espera: al terminar puede haber cubierto lsn, y si no, uno de los que
+    // esperan escribe todo lo acumulado mientras tanto.
+    void sync(long lsn, boolean force) throws IOException {
+        ByteBuffer frame;
+        int records;
+        long target;
+        synchronized (this) {
+            while (true) {
+                checkFailure();
+                if ((force ? synced : written) >= lsn) {
+                    return;
+                }
+                if (!flushing) {
+                    break;
+                }
+                await(0);
+            }
+            flushing = true;
+            frame = pending;
+            records = pendingRecords;
+            pending = spare;
+            pendingRecords = 0;
+            target = appended;
+        }
+        try {
+            writeFrame(frame, records);
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+        synchronized (this) {
+            frame.clear();
+            spare = frame;
+            written = target;
+            if (force) {
+                synced = target;
+            }
+            flushing = false;
+            notifyAll();
+        }
+    }
+
+    private void writeFrame(ByteBuffer frame, int records) throws IOException {
+        frame.flip();
+        if (!frame.hasRemaining()) {
+            return;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(frame.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(frame.remaining()).putInt(records).putInt((int) crc.getValue()).flip();
+        ByteBuffer[] parts = { header, frame };
+        while (frame.hasRemaining()) {
+            channel.write(parts);
+        }
+    }
+
+    // Registros agregados desde la última rotación (para decidir cuándo hacer checkpoint)
+    synchronized long sinceRotation() {
+        return appended - rotatedAt;
+    }
+
+    // Deja en disco el segmento actual y empieza uno nuevo. Devuelve el número del segmento
+    // cerrado. Quien llama impide que se agreguen registros mientras tanto.
+    long rotate() throws IOException {
+        sync(currentAppended(), true);
+        synchronized (this) {
+            while (flushing) {
+                await(0);
+            }
+            checkUsable(); // Cerrado: no se crea un segmento nuevo
+            flushing = true;
+        }
+        long closedSegment = segment;
+        try {
+            FileChannel next = createSegment(segment + 1);
+            channel.close();
+            channel = next;
+            segment++;
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+        synchronized (this) {
+            rotatedAt = appended;
+            flushing = false;
+            notifyAll();
+        }
+        return closedSegment;
+    }
+
+    private synchronized long currentAppended() {
+        return appended;
+    }
+
+    // Con SyncPolicy.batched: fsync cuando se juntan maxRecords registros o cuando el más
+    // viejo sin fsync cumple maxDelay
+    private void runFlusher() {
+        try {
+            while (true) {
+                long target;
+                synchronized (this) {
+                    while (!closed && failure == null && appended - synced < policy.maxRecords) {
+                        if (appended == synced) {
+                            await(0);
+                            continue;
+                        }
+                        long left = oldestUnsynced + policy.maxDelayNanos - System.nanoTime();
+                        if (left <= 0) {
+                            break;
+                        }
+                        await(Math.max(1, left / 1_000_000));
+                    }
+                    if (closed || failure != null) {
+                        return;
+                    }
+                    target = appended;
+                }
+                sync(target, true);
+            }
+        } catch (IOException e) {
+            // Queda en failure; las escrituras siguientes lo reportan
+        }
+    }
+
+    // Escribe y sincroniza lo pendiente y cierra el segmento
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        try {
+            if (failure == null) {
+                sync(currentAppended(), true);
+            }
+        } finally {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            if (flusher != null) {
+                try {
+                    flusher.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            channel.close();
+        }
+    }
+
+    private void await(long millis) throws InterruptedIOException {
+        try {
+            wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido esperando el log");
+        }
+    }
+
+    private synchronized void fail(IOException e) {
+        failure = e;
+        flushing = false;
+        notifyAll();
+    }
+
+    private void checkUsable() throws IOException {
+        if (closed) {
+            throw new IOException("El log está cerrado");
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("El log dejó de escribir tras un error", failure);
+        }
+    }
+
+    private static ByteBuffer newFrame() {
+        return ByteBuffer.allocate(64 * 1024);
+    }
+
+    // Destino de encoder: agrega al final de pending, agrandándolo si hace falta
+    private final class PendingSink implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int bytes = src.remaining();
+            if (pending.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            pending.put(src);
+            return bytes;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // ---- Recuperación ----
+
+    // Aplica los registros del segmento. Una trama incompleta o con checksum inválido al final
+    // del último segmento es una escritura cortada por la caída: se trunca el archivo ahí.
+    // En otro segmento es corrupción, porque rotate() sincroniza antes de crear el siguiente.
+    static <E> long replay(Path file, KeyCodec<E> codec, boolean last, Replay<E> replay) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Segmento de log demasiado grande: " + file);
+            }
+            ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            if (size == 0) {
+                return 0; // Segmento recién creado o truncado en una recuperación anterior
+            }
+            if (size < HEADER_BYTES) {
+                return truncate(in, 0, last, file, 0);
+            }
+            if (data.getLong() != MAGIC || data.getInt() != VERSION) {
+                throw new IOException("El archivo no es un segmento de log compatible: " + file);
+            }
+            long applied = 0;
+            while (data.hasRemaining()) {
+                int start = data.position();
+                if (data.remaining() < FRAME_HEADER_BYTES) {
+                    return truncate(in, start, last, file, applied);
+                }
+                int length = data.getInt();
+                int records = data.getInt();
+                int expected = data.getInt();
+                if (length <= 0 || records <= 0 || length > data.remaining()) {
+                    return truncate(in, start, last, file, applied);
+                }
+                ByteBuffer frame = data.slice(data.position(), length);
+                CRC32C crc = new CRC32C();
+                crc.update(frame.duplicate());
+                if ((int) crc.getValue() != expected) {
+                    return truncate(in, start, last, file, applied);
+                }
+                TreeSnapshot.Input decoder = new TreeSnapshot.Input(frame);
+                for (int i = 0; i < records; i++) {
+                    byte op = decoder.readByte();
+                    if (op != INSERT && op != DELETE) {
+                        throw new IOException("Registro de log desconocido: " + op + " en " + file);
+                    }
+                    replay.apply(op, codec.decode(null, decoder));
+                }
+                applied += records;
+                data.position(data.position() + length);
+            }
+            return applied;
+        }
+    }
+
+    private static long truncate(FileChannel in, long at, boolean last, Path file, long applied) throws IOException {
+        if (!last) {
+            throw new IOException("Segmento de log corrupto en el byte " + at + ": " + file);
+        }
+        in.truncate(at);
+        in.force(true);
+        return applied;
+    }
+}
@@ -0,0 +1,99 @@
+package benchmark;
+
+import avltree.AVLTree;
+import exceptions.ItemDuplicated;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Lotes de m claves sobre un AVLTree de n elementos: add/remove clave por clave frente a
+ * insertAll/deleteAll. "clustered" son claves vecinas (un rango contiguo), "random" son
+ * claves uniformes; la mitad de cada lote ya está en el árbol.
+ *
+ *   java -Xmx8g -cp out benchmark.BatchBenchmark 1000000 1000,10000,100000
+ */
+public class BatchBenchmark {
+
+    public static void main(String[] args) throws ItemDuplicated {
+        int n = args.length > 0 ? (int) Double.parseDouble(args[0]) : 1_000_000;
+        String batchSizes = args.length > 1 ? args[1] : "1000,10000,100000";
+        Integer[] sorted = KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.SORTED, n, 42));
+        Harness harness = new Harness(3, 5);
+        warmUpBatches();
+
+        System.out.printf("%-24s %9s %7s %s%n", "op", "n", "m", Harness.Result.header());
+        for (String size : batchSizes.split(",")) {
+            int m = (int) Double.parseDouble(size);
+            for (String kind : new String[] { "clustered", "random" }) {
+                List<Integer> batch = batch(kind, n, m);
+                report("add loop " + kind, n, m, harness.measure(m, () -> {
+                    AVLTree<Integer> tree = build(sorted);
+                    return () -> {
+                        int added = 0;
+                        for (Integer key : batch) {
+                            if (tree.add(key)) {
+                                added++;
+                            }
+                        }
+                        Harness.consume(added);
+                    };
+                }));
+                report("insertAll " + kind, n, m, harness.measure(m, () -> {
+                    AVLTree<Integer> tree = build(sorted);
+                    return () -> Harness.consume(tree.insertAll(batch).size());
+                }));
+                report("remove loop " + kind, n, m, harness.measure(m, () -> {
+                    AVLTree<Integer> tree = build(sorted);
+                    return () -> {
+                        int removed = 0;
+                        for (Integer key : batch) {
+                            if (tree.remove(key) != null) {
+                                removed++;
+                            }
+                        }
+                        Harness.consume(removed);
+                    };
+                }));
+                report("deleteAll " + kind, n, m, harness.measure(m, () -> {
+                    AVLTree<Integer> tree = build(sorted);
+                    return () -> Harness.consume(tree.deleteAll(batch).size());
+                }));
+            }
+        }
+    }
+
+    // Cada ronda del harness hace una sola llamada a insertAll/deleteAll, pocas para que el JIT
+    // compile la mezcla recursiva; se calienta antes con árboles chicos
+    private static void warmUpBatches() {
+        Integer[] small = KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.SORTED, 10_000, 42));
+        List<Integer> batch = batch("random", small.length, 1000);
+        AVLTree<Integer> tree = build(small);
+        for (int i = 0; i < 2000; i++) {
+            Harness.consume(tree.insertAll(batch).size() + tree.deleteAll(batch).size());
+        }
+    }
+
+    // El árbol tiene las claves pares 0..2n-2; el lote mezcla pares (presentes) e impares (nuevas)
+    private static List<Integer> batch(String kind, int n, int m) {
+        Random random = new Random(7);
+        List<Integer> batch = new ArrayList<>(m);
+        int start = random.nextInt(Math.max(1, 2 * n - m));
+        for (int i = 0; i < m; i++) {
+            batch.add(kind.equals("clustered") ? start + i : random.nextInt(2 * n));
+        }
+        return batch;
+    }
+
+    private static AVLTree<Integer> build(Integer[] sorted) {
+        try {
+            return AVLTree.buildFrom(sorted);
+        } catch (ItemDuplicated e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void report(String op, int n, int m, Harness.Result result) {
+        System.out.printf("%-24s %9d %7d %s%n", op, n, m, result);
+    }
+}
@@ -0,0 +1,57 @@
+package benchmark;
+
+import avltree.AVLTree;
+import exceptions.ItemDuplicated;
+
+/*
+ * Construcción de un AVLTree con n claves: n inserciones frente a buildFrom (entrada
+ * ordenada) y buildFromUnsorted (entrada aleatoria, ordenada en paralelo).
+ *
+ *   java -Xmx8g -cp out benchmark.BulkLoadBenchmark 1000000,20000000
+ */
+public class BulkLoadBenchmark {
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "100000,1000000";
+        Harness harness = new Harness(2, 3);
+        System.out.printf("%-20s %9s %s%n", "op", "n", Harness.Result.header());
+        for (String size : sizes.split(",")) {
+            int n = (int) Double.parseDouble(size);
+            Integer[] sorted = KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.SORTED, n, 42));
+            Integer[] shuffled = KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, 42));
+
+            report("insert sorted", n, harness.measure(n, () -> () -> {
+                AVLTree<Integer> tree = new AVLTree<>();
+                for (Integer key : sorted) {
+                    tree.add(key);
+                }
+                Harness.consume(tree.height());
+            }));
+            report("buildFrom sorted", n, harness.measure(n, () -> () -> {
+                try {
+                    Harness.consume(AVLTree.buildFrom(sorted).height());
+                } catch (ItemDuplicated e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            report("insert random", n, harness.measure(n, () -> () -> {
+                AVLTree<Integer> tree = new AVLTree<>();
+                for (Integer key : shuffled) {
+                    tree.add(key);
+                }
+                Harness.consume(tree.height());
+            }));
+            report("buildFromUnsorted", n, harness.measure(n, () -> () -> {
+                try {
+                    Harness.consume(AVLTree.buildFromUnsorted(shuffled).height());
+                } catch (ItemDuplicated e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+    }
+
+    private static void report(String op, int n, Harness.Result result) {
+        System.out.printf("%-20s %9d %s%n", op, n, result);
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import avltree.AVLTree;
+import complements.TreeListener.Rotation;
+import metrics.TreeMetrics;
+import wavltree.WAVLTree;
+
+/*
+ * Churn con muchas eliminaciones, AVLTree frente a WAVLTree: cada ronda elimina la mitad
+ * de las claves en orden aleatorio y después las vuelve a insertar, así el árbol termina
+ * igual que empezó. Además del tiempo se cuentan los cambios de estructura por operación:
+ * rotaciones (una doble cuenta dos) y nodos reescritos al rebalancear (alturas recalculadas
+ * en AVLTree, rangos cambiados en WAVLTree), que es lo que se paga en un árbol persistente
+ * o compartido entre hilos.
+ *
+ *   java -cp out benchmark.ChurnBenchmark 100000,1000000
+ */
+public class ChurnBenchmark {
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "100000,1000000";
+        Harness harness = new Harness(2, 5);
+
+        System.out.printf("%-22s %9s %s %10s %10s%n", "op", "n", Harness.Result.header(), "rot/op", "rebal/op");
+        for (String size : sizes.split(",")) {
+            int n = (int) Double.parseDouble(size);
+            Integer[] keys = KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, 42));
+            // Mitad de las claves (las múltiplos de 4), en otro orden aleatorio
+            int[] half = KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n / 2, 7);
+            for (int i = 0; i < half.length; i++) {
+                half[i] *= 2;
+            }
+            Integer[] churn = KeyStreams.box(half);
+
+            AVLTree<Integer> avl = new AVLTree<>();
+            WAVLTree<Integer> wavl = new WAVLTree<>();
+            for (Integer key : keys) {
+                avl.add(key);
+                wavl.add(key);
+            }
+
+            Harness.Result avlTime = harness.measure(2L * churn.length, () -> () -> round(avl, churn));
+            TreeMetrics metrics = TreeMetrics.attach(avl);
+            round(avl, churn);
+            avl.setListener(null);
+            long avlRotations = 0;
+            for (Rotation rotation : Rotation.values()) {
+                long count = metrics.rotations(rotation);
+                avlRotations += rotation == Rotation.SINGLE_LEFT || rotation == Rotation.SINGLE_RIGHT ? count : 2 * count;
+            }
+            long avlUpdates = metrics.getInserts() + metrics.getDeletes();
+            report("churn AVLTree", n, avlTime, (double) avlRotations / avlUpdates, metrics.getMeanRebalanceSteps());
+
+            Harness.Result wavlTime = harness.measure(2L * churn.length, () -> () -> round(wavl, churn));
+            long rotations = wavl.rotations();
+            long rankChanges = wavl.rankChanges();
+            round(wavl, churn);
+            double updates = 2.0 * churn.length;
+            report("churn WAVLTree", n, wavlTime, (wavl.rotations() - rotations) / updates,
+                    (wavl.rankChanges() - rankChanges) / updates);
+            System.out.printf("%-22s %9d altura AVLTree %d, WAVLTree %d (rango de la raíz %d)%n", "", n,
+                    avl.height(), wavl.height(), wavl.rootRank());
+        }
+    }
+
+    private static void round(AVLTree<Integer> tree, Integer[] churn) {
+        for (Integer key : churn) {
+            tree.remove(key);
+        }
+        for (Integer key : churn) {
+            tree.add(key);
+        }
+    }
+
+    private static void round(WAVLTree<Integer> tree, Integer[] churn) {
+        for (Integer key : churn) {
+            tree.remove(key);
+        }
+        for (Integer key : churn) {
+            tree.add(key);
+        }
+    }
+
+    private static void report(String op, int n, Harness.Result result, double rotations, double rebalanced) {
+        System.out.printf("%-22s %9d %s %10.3f %10.3f%n", op, n, result, rotations, rebalanced);
+    }
+}
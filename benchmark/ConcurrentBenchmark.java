@@ -0,0 +1,214 @@
+package benchmark;
+
+import avltree.AVLTree;
+import avltree.ConcurrentAVLTree;
+import avltree.ShardedAVLTree;
+import complements.BinarySearchTree;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/*
+ * Throughput con varios hilos: AVLTree detrás de un lock global frente a
+ * ConcurrentAVLTree (lecturas optimistas), ShardedAVLTree (un lock por shard) y
+ * ConcurrentSkipListSet como referencia.
+ * Cada hilo hace lecturas (contains) y escrituras (add/remove alternados) sobre
+ * claves uniformes en [0, 2n), así el árbol se mantiene cerca de n elementos.
+ *
+ *   java -cp out benchmark.ConcurrentBenchmark --threads 1,2,4,8,16,32,64 --mixes 100,90,50
+ *
+ * Opciones (separadas por comas): --structures, --threads, --mixes (porcentaje de
+ * lecturas), --size N, --millis N (duración de cada medición), --warmup N, --iterations N,
+ * --shards N (shards de ShardedAVLTree, por defecto 16).
+ */
+public class ConcurrentBenchmark {
+
+    private static int shards = 16;
+
+    // Conjunto compartido entre hilos
+    interface SharedSet {
+        boolean contains(int key);
+
+        void add(int key);
+
+        void remove(int key);
+    }
+
+    static Map<String, Supplier<SharedSet>> subjects() {
+        Map<String, Supplier<SharedSet>> subjects = new LinkedHashMap<>();
+        subjects.put("AVLTree+lock", () -> new SharedSet() {
+            final AVLTree<Integer> tree = new AVLTree<>();
+
+            public synchronized boolean contains(int key) {
+                return tree.contains(key);
+            }
+
+            public synchronized void add(int key) {
+                tree.add(key);
+            }
+
+            public synchronized void remove(int key) {
+                tree.remove(key);
+            }
+        });
+        subjects.put("ConcurrentAVL", () -> adapt(new ConcurrentAVLTree<>()));
+        subjects.put("ShardedAVL", () -> adapt(new ShardedAVLTree<>(shards)));
+        subjects.put("SkipListSet", () -> new SharedSet() {
+            final ConcurrentSkipListSet<Integer> set = new ConcurrentSkipListSet<>();
+
+            public boolean contains(int key) {
+                return set.contains(key);
+            }
+
+            public void add(int key) {
+                set.add(key);
+            }
+
+            public void remove(int key) {
+                set.remove(key);
+            }
+        });
+        return subjects;
+    }
+
+    private static SharedSet adapt(BinarySearchTree<Integer> tree) {
+        return new SharedSet() {
+            public boolean contains(int key) {
+                return tree.contains(key);
+            }
+
+            public void add(int key) {
+                tree.add(key);
+            }
+
+            public void remove(int key) {
+                tree.remove(key);
+            }
+        };
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<String> structures = new ArrayList<>(subjects().keySet());
+        int[] threads = { 1, 2, 4, 8, 16, 32, 64 };
+        int[] mixes = { 100, 90, 50 };
+        int n = 1_000_000;
+        long millis = 1000;
+        int warmup = 1;
+        int iterations = 3;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--structures":
+                    structures = Arrays.asList(value.split(","));
+                    break;
+                case "--threads":
+                    threads = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--mixes":
+                    mixes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--size":
+                    n = (int) Double.parseDouble(value);
+                    break;
+                case "--millis":
+                    millis = Long.parseLong(value);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(value);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(value);
+                    break;
+                case "--shards":
+                    shards = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+
+        int[] keys = KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, 42);
+        System.out.printf("%-14s %6s %7s %14s%n", "structure", "reads", "threads", "ops/s");
+        for (int mix : mixes) {
+            for (String structure : structures) {
+                SharedSet set = subjects().get(structure).get();
+                for (int key : keys) {
+                    set.add(key);
+                }
+                for (int t : threads) {
+                    for (int w = 0; w < warmup; w++) {
+                        run(set, t, mix, 2 * n, millis);
+                    }
+                    double total = 0;
+                    for (int it = 0; it < iterations; it++) {
+                        total += run(set, t, mix, 2 * n, millis);
+                    }
+                    System.out.printf("%-14s %5d%% %7d %14.0f%n", structure, mix, t, total / iterations);
+                }
+            }
+        }
+    }
+
+    // Corre threads hilos durante millis ms y devuelve las operaciones por segundo
+    static double run(SharedSet set, int threads, int readPercent, int keyRange, long millis)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        long[] counts = new long[threads * 16]; // Separados para no compartir línea de caché
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(id * 7919L + 1);
+                long ops = 0;
+                long hits = 0;
+                boolean insertNext = true;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (!stop.get()) {
+                    for (int i = 0; i < 64; i++) {
+                        int key = random.nextInt(keyRange);
+                        if (random.nextInt(100) < readPercent) {
+                            if (set.contains(key)) {
+                                hits++;
+                            }
+                        } else {
+                            if (insertNext) {
+                                set.add(key);
+                            } else {
+                                set.remove(key);
+                            }
+                            insertNext = !insertNext;
+                        }
+                    }
+                    ops += 64;
+                }
+                counts[id * 16] = ops;
+                Harness.consume(hits);
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(millis);
+        stop.set(true);
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            total += counts[t * 16];
+        }
+        long elapsed = System.nanoTime() - begin;
+        return total * 1e9 / elapsed;
+    }
+}
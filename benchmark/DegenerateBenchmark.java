@@ -0,0 +1,54 @@
+package benchmark;
+
+import complements.BSTree;
+
+/*
+ * Ejecuta las operaciones de BSTree sobre un árbol degenerado (una cadena de n nodos,
+ * la forma que produce insertar claves ordenadas). La cadena se arma directamente
+ * porque construirla con add costaría O(n^2).
+ *
+ *   java -Xmx4g -cp out benchmark.DegenerateBenchmark 10000000
+ */
+public class DegenerateBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? (int) Double.parseDouble(args[0]) : 10_000_000;
+        BSTree<Integer> tree = chain(n);
+        Harness harness = new Harness(1, 3);
+        Integer last = 2 * (n - 1);
+        Integer beyond = 2 * n;
+        Integer missing = 2 * n + 1;
+
+        System.out.printf("%-14s %9s %s%n", "op", "n", Harness.Result.header());
+        report("height", n, harness.measure(1, () -> () -> Harness.consume(tree.height())));
+        report("contains", n, harness.measure(1, () -> () -> Harness.consume(tree.contains(last) ? 1 : 0)));
+        report("add/remove", n, harness.measure(2, () -> () -> {
+            tree.add(beyond);
+            tree.remove(beyond);
+        }));
+        report("miss", n, harness.measure(1, () -> () -> Harness.consume(tree.get(missing) == null ? 0 : 1)));
+        report("inOrder", n, harness.measure(1, () -> () -> Harness.consume(tree.inOrder().length())));
+        report("preOrder", n, harness.measure(1, () -> () -> Harness.consume(tree.preOrder().length())));
+        report("postOrder", n, harness.measure(1, () -> () -> Harness.consume(tree.postOrder().length())));
+    }
+
+    private static void report(String op, int n, Harness.Result result) {
+        System.out.printf("%-14s %9d %s%n", op, n, result);
+    }
+
+    // Cadena inclinada a la derecha con las claves 0, 2, 4, ...
+    static BSTree<Integer> chain(int n) {
+        BSTree<Integer> tree = new BSTree<>();
+        BSTree<Integer>.Node last = null;
+        for (int i = 0; i < n; i++) {
+            BSTree<Integer>.Node node = tree.new Node(2 * i);
+            if (last == null) {
+                tree.root = node;
+            } else {
+                last.right = node;
+            }
+            last = node;
+        }
+        return tree;
+    }
+}
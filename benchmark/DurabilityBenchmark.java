@@ -0,0 +1,120 @@
+package benchmark;
+
+import avltree.DurableAVLTree;
+import avltree.DurableAVLTree.SyncPolicy;
+import complements.KeyCodecs;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/*
+ * Inserciones por segundo en un DurableAVLTree con cada SyncPolicy y distinta cantidad de
+ * hilos (con always los hilos comparten fsync), y tiempo de recuperación al reabrir
+ * repitiendo el log o cargando un checkpoint. Los tiempos de fsync dependen del disco; la
+ * recuperación, como en SnapshotBenchmark, mejora con una generación joven grande (-Xmn).
+ *
+ *   java -cp out benchmark.DurabilityBenchmark --threads 1,4,16 --millis 3000 --recover 2000000
+ */
+public class DurabilityBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String threadCounts = "1,4,16";
+        long millis = 2000;
+        int recoverRecords = 1_000_000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--threads" -> threadCounts = args[i + 1];
+                case "--millis" -> millis = Long.parseLong(args[i + 1]);
+                case "--recover" -> recoverRecords = (int) Double.parseDouble(args[i + 1]);
+                default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+
+        SyncPolicy[] policies = { SyncPolicy.always(), SyncPolicy.batched(1000, 10), SyncPolicy.never() };
+        System.out.printf("%-20s %8s %12s %14s%n", "policy", "threads", "ops/s", "us/op (hilo)");
+        for (SyncPolicy policy : policies) {
+            for (String count : threadCounts.split(",")) {
+                int threads = Integer.parseInt(count);
+                Path dir = Files.createTempDirectory("avl-wal");
+                try {
+                    throughput(dir, policy, threads, Math.min(millis, 300)); // Calentamiento
+                    long ops = throughput(dir, policy, threads, millis);
+                    double opsPerSecond = ops * 1000.0 / millis;
+                    System.out.printf("%-20s %8d %12.0f %14.1f%n", policy, threads, opsPerSecond,
+                            threads * 1e6 / opsPerSecond);
+                } finally {
+                    deleteDirectory(dir);
+                }
+            }
+        }
+        recovery(recoverRecords);
+    }
+
+    // Inserciones completadas por todos los hilos durante millis
+    private static long throughput(Path dir, SyncPolicy policy, int threads, long millis) throws Exception {
+        LongAdder ops = new LongAdder();
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(dir, KeyCodecs.INT, policy, 0)) {
+            long deadline = System.nanoTime() + millis * 1_000_000;
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                SplittableRandom random = new SplittableRandom(t * 7919L + System.nanoTime());
+                workers[t] = new Thread(() -> {
+                    long done = 0;
+                    while (System.nanoTime() < deadline) {
+                        tree.add(random.nextInt());
+                        done++;
+                    }
+                    ops.add(done);
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        return ops.sum();
+    }
+
+    // Reabrir tras n registros: repitiendo todo el log, o desde un checkpoint sin log pendiente
+    private static void recovery(int n) throws IOException {
+        Path dir = Files.createTempDirectory("avl-wal");
+        try {
+            try (DurableAVLTree<Integer> tree = DurableAVLTree.open(dir, KeyCodecs.INT, SyncPolicy.never(), 0)) {
+                SplittableRandom random = new SplittableRandom(42);
+                for (int i = 0; i < n; i++) {
+                    tree.add(random.nextInt());
+                }
+            }
+            long start = System.nanoTime();
+            try (DurableAVLTree<Integer> tree = DurableAVLTree.open(dir, KeyCodecs.INT, SyncPolicy.never(), 0)) {
+                report("reopen replaying log", start, tree.recoveredRecords(), tree.size());
+                start = System.nanoTime();
+                tree.checkpoint();
+                report("checkpoint", start, 0, tree.size());
+            }
+            start = System.nanoTime();
+            try (DurableAVLTree<Integer> tree = DurableAVLTree.open(dir, KeyCodecs.INT, SyncPolicy.never(), 0)) {
+                report("reopen from checkpoint", start, tree.recoveredRecords(), tree.size());
+            }
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    private static void report(String phase, long start, long replayed, int size) {
+        System.out.printf("%-24s %10.1f ms  registros repetidos %9d  claves %9d%n", phase,
+                (System.nanoTime() - start) / 1e6, replayed, size);
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package benchmark;
+
+import avltree.AVLTree;
+import java.util.SplittableRandom;
+import java.util.function.BiConsumer;
+import metrics.TreeMetrics;
+
+/*
+ * Accesos con localidad en AVLTree: descenso desde la raíz (add/contains) frente a un
+ * Finger y frente a append. Tres cargas:
+ *   - claves crecientes (timestamps en orden),
+ *   - claves casi ordenadas: cada una se intercambia con otra a lo sumo WINDOW lugares
+ *     más adelante,
+ *   - búsquedas que caminan por el árbol: cada una queda a lo sumo STEP posiciones en rango
+ *     de la anterior; y búsquedas uniformes, para ver lo que cuesta el dedo sin localidad.
+ * La última columna son las comparaciones por operación (con el listener de TreeMetrics).
+ *
+ *   java -cp out benchmark.FingerBenchmark 100000,1000000
+ */
+public class FingerBenchmark {
+
+    private static final int WINDOW = 16;
+    private static final int STEP = 8;
+    private static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "100000,1000000";
+        Harness harness = new Harness(3, 5);
+
+        System.out.printf("%-28s %9s %s %8s%n", "op", "n", Harness.Result.header(), "cmp/op");
+        for (String size : sizes.split(",")) {
+            int n = (int) Double.parseDouble(size);
+            Integer[] sorted = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                sorted[i] = 2 * i;
+            }
+            Integer[] nearSorted = nearSorted(sorted, 42);
+
+            insert(harness, "sorted add", n, sorted, AVLTree::add);
+            insert(harness, "sorted append", n, sorted, AVLTree::append);
+            insert(harness, "near-sorted add", n, nearSorted, AVLTree::add);
+            insert(harness, "near-sorted append", n, nearSorted, AVLTree::append);
+            insert(harness, "near-sorted finger.add", n, nearSorted, null);
+
+            AVLTree<Integer> tree = new AVLTree<>();
+            for (Integer key : KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, 42))) {
+                tree.add(key);
+            }
+            Integer[] walk = walk(n, 7);
+            Integer[] uniform = KeyStreams.box(KeyStreams.lookups(KeyStreams.Distribution.RANDOM, n, LOOKUPS, 7));
+            search(harness, "local contains", n, tree, walk, false);
+            search(harness, "local finger.contains", n, tree, walk, true);
+            search(harness, "uniform contains", n, tree, uniform, false);
+            search(harness, "uniform finger.contains", n, tree, uniform, true);
+        }
+    }
+
+    // Inserta keys en un árbol nuevo con insert, o con un Finger si insert es null
+    private static void insert(Harness harness, String op, int n, Integer[] keys,
+            BiConsumer<AVLTree<Integer>, Integer> insert) {
+        Harness.Result result = harness.measure(keys.length, () -> {
+            AVLTree<Integer> fresh = new AVLTree<>();
+            return () -> fill(fresh, keys, insert);
+        });
+        AVLTree<Integer> counted = new AVLTree<>();
+        TreeMetrics metrics = TreeMetrics.attach(counted);
+        fill(counted, keys, insert);
+        report(op, n, result, metrics.getMeanComparisons());
+    }
+
+    private static void fill(AVLTree<Integer> tree, Integer[] keys, BiConsumer<AVLTree<Integer>, Integer> insert) {
+        if (insert == null) {
+            AVLTree<Integer>.Finger finger = tree.finger();
+            for (Integer key : keys) {
+                finger.add(key);
+            }
+        } else {
+            for (Integer key : keys) {
+                insert.accept(tree, key);
+            }
+        }
+    }
+
+    private static void search(Harness harness, String op, int n, AVLTree<Integer> tree, Integer[] keys,
+            boolean useFinger) {
+        Harness.Result result = harness.measure(keys.length, () -> () -> Harness.consume(lookup(tree, keys, useFinger)));
+        TreeMetrics metrics = TreeMetrics.attach(tree);
+        lookup(tree, keys, useFinger);
+        tree.setListener(null);
+        report(op, n, result, metrics.getMeanComparisons());
+    }
+
+    private static int lookup(AVLTree<Integer> tree, Integer[] keys, boolean useFinger) {
+        int found = 0;
+        if (useFinger) {
+            AVLTree<Integer>.Finger finger = tree.finger();
+            for (Integer key : keys) {
+                found += finger.contains(key) ? 1 : 0;
+            }
+        } else {
+            for (Integer key : keys) {
+                found += tree.contains(key) ? 1 : 0;
+            }
+        }
+        return found;
+    }
+
+    // Copia de sorted donde cada clave se intercambia con otra a lo sumo WINDOW lugares más adelante
+    private static Integer[] nearSorted(Integer[] sorted, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Integer[] keys = sorted.clone();
+        for (int i = 0; i < keys.length; i++) {
+            int j = Math.min(keys.length - 1, i + random.nextInt(WINDOW + 1));
+            Integer swap = keys[i];
+            keys[i] = keys[j];
+            keys[j] = swap;
+        }
+        return keys;
+    }
+
+    // Paseo aleatorio sobre las claves 0, 2, ..., 2(n-1): pasos de a lo sumo STEP en rango,
+    // con claves impares (ausentes) en la mitad de las búsquedas
+    private static Integer[] walk(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Integer[] keys = new Integer[LOOKUPS];
+        int position = n / 2;
+        for (int i = 0; i < LOOKUPS; i++) {
+            position = Math.floorMod(position + random.nextInt(2 * STEP + 1) - STEP, n);
+            keys[i] = 2 * position + (i & 1);
+        }
+        return keys;
+    }
+
+    private static void report(String op, int n, Harness.Result result, double comparisons) {
+        System.out.printf("%-28s %9d %s %8.1f%n", op, n, result, comparisons);
+    }
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import avltree.AVLTree;
+import avltree.IntAVLTree;
+import avltree.LongAVLTree;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/*
+ * Memoria retenida por cada estructura con n claves aleatorias distintas.
+ *
+ *   java -Xmx8g -cp out benchmark.FootprintBenchmark 1000000,10000000
+ */
+public class FootprintBenchmark {
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "1000000";
+        System.out.printf("%-18s %10s %14s %10s%n", "structure", "n", "bytes", "B/key");
+        for (String size : sizes.split(",")) {
+            int n = (int) Double.parseDouble(size);
+            int[] keys = KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, 42);
+            report("AVLTree<Integer>", n, i -> {
+                AVLTree<Integer> tree = new AVLTree<>();
+                for (int key : keys) {
+                    tree.add(key);
+                }
+                return tree;
+            });
+            report("AVLTree<Long>", n, i -> {
+                AVLTree<Long> tree = new AVLTree<>();
+                for (int key : keys) {
+                    tree.add((long) key);
+                }
+                return tree;
+            });
+            report("TreeMap<Integer>", n, i -> {
+                TreeMap<Integer, Boolean> map = new TreeMap<>();
+                for (int key : keys) {
+                    map.put(key, Boolean.TRUE);
+                }
+                return map;
+            });
+            report("IntAVLTree", n, i -> {
+                IntAVLTree tree = new IntAVLTree();
+                for (int key : keys) {
+                    tree.add(key);
+                }
+                return tree;
+            });
+            report("LongAVLTree", n, i -> {
+                LongAVLTree tree = new LongAVLTree();
+                for (int key : keys) {
+                    tree.add(key);
+                }
+                return tree;
+            });
+        }
+    }
+
+    // Mide el heap usado antes y después de construir la estructura, manteniéndola viva
+    static void report(String name, int n, IntFunction<Object> builder) {
+        long before = usedHeap();
+        Object structure = builder.apply(n);
+        long after = usedHeap();
+        Harness.consume(structure.hashCode());
+        long bytes = after - before;
+        System.out.printf("%-18s %10d %14d %10.1f%n", name, n, bytes, (double) bytes / n);
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Varias pasadas de GC hasta que el valor se estabiliza
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,107 @@
+package benchmark;
+
+import avltree.AVLTree;
+import avltree.FrozenAVLTree;
+import avltree.FrozenIntAVLTree;
+import avltree.IntAVLTree;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/*
+ * Búsquedas sobre el árbol vivo frente a su copia congelada (freeze(), orden de Eytzinger),
+ * con claves objeto (AVLTree, con y sin prefijo) y primitivas (IntAVLTree). Los árboles se
+ * arman insertando en orden aleatorio, como un índice real, así los nodos quedan dispersos
+ * en el heap. "miss" busca claves impares, que no están; floor y ceiling también.
+ *
+ *   java -Xmx4g -cp out benchmark.FreezeBenchmark 10000,1000000,10000000
+ */
+public class FreezeBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "10000,1000000";
+        Harness harness = new Harness(3, 5);
+
+        System.out.printf("%-28s %9s %s%n", "op", "n", Harness.Result.header());
+        for (String size : sizes.split(",")) {
+            int n = (int) Double.parseDouble(size);
+            AVLTree<Integer> tree = new AVLTree<>();
+            IntAVLTree intTree = new IntAVLTree();
+            for (int key : KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, 42)) {
+                tree.add(key);
+                intTree.add(key);
+            }
+            FrozenAVLTree<Integer> frozen = tree.freeze();
+            FrozenAVLTree<Integer> prefixed = tree.freeze(Integer::longValue);
+            FrozenIntAVLTree frozenInt = intTree.freeze();
+            int[] hits = KeyStreams.lookups(KeyStreams.Distribution.RANDOM, n, LOOKUPS, 42);
+            int[] misses = KeyStreams.lookups(KeyStreams.Distribution.ADVERSARIAL, n, LOOKUPS, 42);
+            Integer[] boxedHits = KeyStreams.box(hits);
+            Integer[] boxedMisses = KeyStreams.box(misses);
+
+            contains(harness, "contains hit AVLTree", n, boxedHits, tree::contains);
+            contains(harness, "contains hit Frozen", n, boxedHits, frozen::contains);
+            contains(harness, "contains hit Frozen prefix", n, boxedHits, prefixed::contains);
+            contains(harness, "contains miss AVLTree", n, boxedMisses, tree::contains);
+            contains(harness, "contains miss Frozen", n, boxedMisses, frozen::contains);
+            contains(harness, "contains miss Frozen prefix", n, boxedMisses, prefixed::contains);
+            lookup(harness, "floor AVLTree", n, boxedMisses, tree::floor);
+            lookup(harness, "floor Frozen", n, boxedMisses, frozen::floor);
+            lookup(harness, "floor Frozen prefix", n, boxedMisses, prefixed::floor);
+            lookup(harness, "ceiling AVLTree", n, boxedMisses, tree::ceiling);
+            lookup(harness, "ceiling Frozen", n, boxedMisses, frozen::ceiling);
+            lookup(harness, "ceiling Frozen prefix", n, boxedMisses, prefixed::ceiling);
+            containsInt(harness, "contains hit IntAVLTree", n, hits, intTree::contains);
+            containsInt(harness, "contains hit FrozenInt", n, hits, frozenInt::contains);
+            lookupInt(harness, "floor FrozenInt", n, misses, key -> frozenInt.floorOrElse(key, 0));
+        }
+    }
+
+    private static void contains(Harness harness, String op, int n, Integer[] keys, Predicate<Integer> contains) {
+        report(op, n, harness.measure(keys.length, () -> () -> {
+            int found = 0;
+            for (Integer key : keys) {
+                found += contains.test(key) ? 1 : 0;
+            }
+            Harness.consume(found);
+        }));
+    }
+
+    private static void lookup(Harness harness, String op, int n, Integer[] keys, UnaryOperator<Integer> lookup) {
+        report(op, n, harness.measure(keys.length, () -> () -> {
+            long sum = 0;
+            for (Integer key : keys) {
+                Integer result = lookup.apply(key);
+                sum += result == null ? 0 : result;
+            }
+            Harness.consume(sum);
+        }));
+    }
+
+    private static void containsInt(Harness harness, String op, int n, int[] keys, IntPredicate contains) {
+        report(op, n, harness.measure(keys.length, () -> () -> {
+            int found = 0;
+            for (int key : keys) {
+                found += contains.test(key) ? 1 : 0;
+            }
+            Harness.consume(found);
+        }));
+    }
+
+    private static void lookupInt(Harness harness, String op, int n, int[] keys, IntUnaryOperator lookup) {
+        report(op, n, harness.measure(keys.length, () -> () -> {
+            long sum = 0;
+            for (int key : keys) {
+                sum += lookup.applyAsInt(key);
+            }
+            Harness.consume(sum);
+        }));
+    }
+
+    private static void report(String op, int n, Harness.Result result) {
+        System.out.printf("%-28s %9d %s%n", op, n, result);
+    }
+}
@@ -0,0 +1,113 @@
+package benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+// Medición al estilo JMH sin dependencias: iteraciones de calentamiento, iteraciones
+// medidas, throughput y bytes asignados por operación (equivalente a -prof gc).
+public final class Harness {
+
+    // Resultado de una medición; error != null si la estructura no terminó (p. ej. StackOverflowError)
+    public static final class Result {
+        public final double nsPerOp;
+        public final double bytesPerOp;
+        public final long gcCount;
+        public final long gcMillis;
+        public final String error;
+
+        Result(double nsPerOp, double bytesPerOp, long gcCount, long gcMillis, String error) {
+            this.nsPerOp = nsPerOp;
+            this.bytesPerOp = bytesPerOp;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+            this.error = error;
+        }
+
+        public double opsPerSecond() {
+            return 1e9 / nsPerOp;
+        }
+
+        @Override
+        public String toString() {
+            if (error != null) {
+                return String.format("%14s %12s %10s %8s", error, "-", "-", "-");
+            }
+            return String.format("%14.1f %12.0f %10.1f %4d/%-4d", nsPerOp, opsPerSecond(), bytesPerOp, gcCount, gcMillis);
+        }
+
+        public static String header() {
+            return String.format("%14s %12s %10s %9s", "ns/op", "ops/s", "B/op", "gc n/ms");
+        }
+    }
+
+    private static volatile long sink; // Evita que el JIT descarte los resultados
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+
+    public Harness(int warmupIterations, int measuredIterations) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+    }
+
+    public static void consume(long value) {
+        sink += value;
+    }
+
+    // setup se ejecuta fuera del tiempo medido y devuelve el cuerpo que se mide;
+    // cada ejecución del cuerpo cuenta como opsPerRound operaciones
+    public Result measure(long opsPerRound, Supplier<Runnable> setup) {
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                setup.get().run();
+            }
+            long totalNanos = 0;
+            long totalBytes = 0;
+            long gcCount = 0;
+            long gcMillis = 0;
+            for (int i = 0; i < measuredIterations; i++) {
+                Runnable body = setup.get();
+                long gcCountBefore = gcCount();
+                long gcMillisBefore = gcMillis();
+                long bytesBefore = allocatedBytes();
+                long start = System.nanoTime();
+                body.run();
+                totalNanos += System.nanoTime() - start;
+                totalBytes += allocatedBytes() - bytesBefore;
+                gcCount += gcCount() - gcCountBefore;
+                gcMillis += gcMillis() - gcMillisBefore;
+            }
+            double ops = (double) opsPerRound * measuredIterations;
+            return new Result(totalNanos / ops, totalBytes / ops, gcCount, gcMillis, null);
+        } catch (StackOverflowError e) {
+            return new Result(Double.NaN, Double.NaN, 0, 0, "StackOverflow");
+        } catch (OutOfMemoryError e) {
+            return new Result(Double.NaN, Double.NaN, 0, 0, "OutOfMemory");
+        }
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+}
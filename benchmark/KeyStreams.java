@@ -0,0 +1,134 @@
+package benchmark;
+
+import java.util.Random;
+
+// Generadores de claves para los benchmarks. Todas las claves son pares (2*i), de
+// modo que cualquier clave impar es una búsqueda fallida garantizada.
+public final class KeyStreams {
+
+    public enum Distribution {
+        SORTED,      // Inserción ascendente, búsquedas ascendentes
+        RANDOM,      // Inserción en orden aleatorio, búsquedas uniformes
+        ZIPFIAN,     // Inserción aleatoria, búsquedas concentradas en pocas claves calientes
+        ADVERSARIAL  // Inserción en zigzag (min, max, min+1, max-1...), búsquedas fallidas
+    }
+
+    private KeyStreams() {
+    }
+
+    // Orden en que se insertan las n claves distintas
+    public static int[] insertOrder(Distribution distribution, int n, long seed) {
+        int[] keys = new int[n];
+        switch (distribution) {
+            case SORTED:
+                for (int i = 0; i < n; i++) {
+                    keys[i] = 2 * i;
+                }
+                break;
+            case RANDOM:
+            case ZIPFIAN:
+                for (int i = 0; i < n; i++) {
+                    keys[i] = 2 * i;
+                }
+                shuffle(keys, new Random(seed));
+                break;
+            case ADVERSARIAL:
+                int low = 0;
+                int high = n - 1;
+                for (int i = 0; i < n; i++) {
+                    keys[i] = 2 * ((i & 1) == 0 ? low++ : high--);
+                }
+                break;
+        }
+        return keys;
+    }
+
+    // Secuencia de m búsquedas sobre un árbol que contiene las claves de insertOrder(n)
+    public static int[] lookups(Distribution distribution, int n, int m, long seed) {
+        int[] keys = new int[m];
+        Random random = new Random(seed + 1);
+        switch (distribution) {
+            case SORTED:
+                for (int i = 0; i < m; i++) {
+                    keys[i] = 2 * (i % n);
+                }
+                break;
+            case RANDOM:
+                for (int i = 0; i < m; i++) {
+                    keys[i] = 2 * random.nextInt(n);
+                }
+                break;
+            case ZIPFIAN:
+                // Las claves calientes se dispersan con una permutación para no favorecer el mínimo
+                int[] rankToKey = insertOrder(Distribution.RANDOM, n, seed + 2);
+                Zipf zipf = new Zipf(n, 0.99, random);
+                for (int i = 0; i < m; i++) {
+                    keys[i] = rankToKey[zipf.next()];
+                }
+                break;
+            case ADVERSARIAL:
+                for (int i = 0; i < m; i++) {
+                    keys[i] = 2 * random.nextInt(n) + 1;
+                }
+                break;
+        }
+        return keys;
+    }
+
+    public static Integer[] box(int[] keys) {
+        Integer[] boxed = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            boxed[i] = keys[i];
+        }
+        return boxed;
+    }
+
+    private static void shuffle(int[] keys, Random random) {
+        for (int i = keys.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+    }
+
+    // Generador Zipfian de Gray et al. ("Quickly generating billion-record synthetic databases")
+    private static final class Zipf {
+        private final int n;
+        private final double theta;
+        private final double alpha;
+        private final double zetan;
+        private final double eta;
+        private final Random random;
+
+        Zipf(int n, double theta, Random random) {
+            this.n = n;
+            this.theta = theta;
+            this.random = random;
+            this.zetan = zeta(n, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(2, theta) / zetan);
+        }
+
+        int next() {
+            double u = random.nextDouble();
+            double uz = u * zetan;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return Math.min(1, n - 1);
+            }
+            int rank = (int) (n * Math.pow(eta * u - eta + 1, alpha));
+            return Math.min(rank, n - 1);
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package benchmark;
+
+import avltree.AVLTree;
+import avltree.AVLTreeMap;
+import java.util.TreeMap;
+
+/*
+ * Pares clave/valor: AVLTreeMap frente a un AVLTree de objetos Entry (una clave con su valor,
+ * comparados solo por la clave; cada búsqueda arma una Entry de sonda) y frente a TreeMap.
+ * "update" suma 1 al valor de claves existentes (contadores), sin cambiar la forma del árbol.
+ *
+ *   java -cp out benchmark.MapBenchmark 10000,1000000
+ */
+public class MapBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+
+    // Lo que había que hacer antes de AVLTreeMap para guardar valores en un AVLTree
+    private static final class Entry implements Comparable<Entry> {
+        final Integer key;
+        long value;
+
+        Entry(Integer key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return key.compareTo(other.key);
+        }
+    }
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "10000,1000000";
+        Harness harness = new Harness(3, 5);
+
+        System.out.printf("%-24s %9s %s%n", "op", "n", Harness.Result.header());
+        for (String size : sizes.split(",")) {
+            int n = (int) Double.parseDouble(size);
+            AVLTree<Entry> entries = new AVLTree<>();
+            AVLTreeMap<Integer, Long> map = new AVLTreeMap<>();
+            TreeMap<Integer, Long> treeMap = new TreeMap<>();
+            for (int key : KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, 42)) {
+                entries.add(new Entry(key, 0));
+                map.put(key, 0L);
+                treeMap.put(key, 0L);
+            }
+            Integer[] keys = KeyStreams.box(KeyStreams.lookups(KeyStreams.Distribution.RANDOM, n, LOOKUPS, 42));
+
+            report("get AVLTree<Entry>", n, harness.measure(keys.length, () -> () -> {
+                long sum = 0;
+                for (Integer key : keys) {
+                    Entry entry = entries.get(new Entry(key, 0));
+                    sum += entry == null ? 0 : entry.value + 1;
+                }
+                Harness.consume(sum);
+            }));
+            report("get AVLTreeMap", n, harness.measure(keys.length, () -> () -> {
+                long sum = 0;
+                for (Integer key : keys) {
+                    Long value = map.get(key);
+                    sum += value == null ? 0 : value + 1;
+                }
+                Harness.consume(sum);
+            }));
+            report("get TreeMap", n, harness.measure(keys.length, () -> () -> {
+                long sum = 0;
+                for (Integer key : keys) {
+                    Long value = treeMap.get(key);
+                    sum += value == null ? 0 : value + 1;
+                }
+                Harness.consume(sum);
+            }));
+            report("update AVLTree<Entry>", n, harness.measure(keys.length, () -> () -> {
+                for (Integer key : keys) {
+                    Entry entry = entries.get(new Entry(key, 0));
+                    if (entry != null) {
+                        entry.value++;
+                    }
+                }
+            }));
+            report("update AVLTreeMap", n, harness.measure(keys.length, () -> () -> {
+                for (Integer key : keys) {
+                    map.computeIfPresent(key, (k, value) -> value + 1);
+                }
+            }));
+            report("update TreeMap", n, harness.measure(keys.length, () -> () -> {
+                for (Integer key : keys) {
+                    treeMap.computeIfPresent(key, (k, value) -> value + 1);
+                }
+            }));
+        }
+    }
+
+    private static void report(String op, int n, Harness.Result result) {
+        System.out.printf("%-24s %9d %s%n", op, n, result);
+    }
+}
@@ -0,0 +1,70 @@
+package benchmark;
+
+import avltree.LongAVLTree;
+import avltree.MappedLongAVLTree;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ * Arranque en frío del índice: reabrir un MappedLongAVLTree ya construido frente a
+ * reconstruir un LongAVLTree insertando todas las claves, y búsquedas en ambos.
+ *
+ *   java -cp out benchmark.MappedIndexBenchmark 10000000
+ */
+public class MappedIndexBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? (int) Double.parseDouble(args[0]) : 1_000_000;
+        int[] keys = KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, 42);
+        int[] lookups = KeyStreams.lookups(KeyStreams.Distribution.RANDOM, n, n, 42);
+        Path file = Files.createTempFile("avl-index", ".idx");
+        Files.delete(file);
+
+        try {
+            long start = System.nanoTime();
+            try (MappedLongAVLTree index = MappedLongAVLTree.open(file)) {
+                for (int key : keys) {
+                    index.add(key);
+                }
+            }
+            report("mapped build+close", start, n);
+
+            start = System.nanoTime();
+            LongAVLTree heap = new LongAVLTree();
+            for (int key : keys) {
+                heap.add(key);
+            }
+            report("heap rebuild", start, n);
+
+            start = System.nanoTime();
+            try (MappedLongAVLTree index = MappedLongAVLTree.open(file)) {
+                report("mapped reopen", start, n);
+
+                start = System.nanoTime();
+                long hits = 0;
+                for (int key : lookups) {
+                    hits += index.contains(key) ? 1 : 0;
+                }
+                report("mapped search", start, n);
+                Harness.consume(hits);
+            }
+
+            start = System.nanoTime();
+            long hits = 0;
+            for (int key : lookups) {
+                hits += heap.contains(key) ? 1 : 0;
+            }
+            report("heap search", start, n);
+            Harness.consume(hits);
+            System.out.printf("archivo: %d bytes%n", Files.size(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void report(String phase, long start, int n) {
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-20s %9d claves %10.1f ms %8.1f ns/clave%n", phase, n, nanos / 1e6, (double) nanos / n);
+    }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import avltree.AVLTree;
+import complements.BSTree;
+import metrics.TreeMetrics;
+
+/*
+ * Costo de las métricas (setListener/TreeMetrics) en AVLTree y BSTree: búsquedas y churn
+ * (eliminar e insertar de nuevo) con las métricas desactivadas y activadas. Desactivadas
+ * tienen que quedar en el ruido respecto del árbol sin instrumentar (comparar con
+ * TreeBenchmark en la versión anterior); activadas se paga sobre todo System.nanoTime().
+ *
+ *   java -cp out benchmark.MetricsBenchmark 10000,1000000
+ */
+public class MetricsBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "10000,1000000";
+        Harness harness = new Harness(3, 5);
+
+        System.out.printf("%-26s %9s %s%n", "op", "n", Harness.Result.header());
+        for (String size : sizes.split(",")) {
+            int n = (int) Double.parseDouble(size);
+            int[] keys = KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, 42);
+            Integer[] lookups = KeyStreams.box(KeyStreams.lookups(KeyStreams.Distribution.RANDOM, n, LOOKUPS, 42));
+            AVLTree<Integer> avl = new AVLTree<>();
+            BSTree<Integer> bst = new BSTree<>();
+            for (int key : keys) {
+                avl.add(key);
+                bst.add(key);
+            }
+            TreeMetrics avlMetrics = TreeMetrics.attach(avl);
+            TreeMetrics bstMetrics = TreeMetrics.attach(bst);
+
+            for (boolean enabled : new boolean[] { false, true }) {
+                avl.setListener(enabled ? avlMetrics : null);
+                bst.setListener(enabled ? bstMetrics : null);
+                String state = enabled ? "on" : "off";
+                report("search AVLTree " + state, n, search(harness, avl, lookups));
+                report("churn AVLTree " + state, n, churn(harness, avl, lookups));
+                report("search BSTree " + state, n, search(harness, bst, lookups));
+                report("churn BSTree " + state, n, churn(harness, bst, lookups));
+            }
+            System.out.println(avlMetrics);
+        }
+    }
+
+    private static Harness.Result search(Harness harness, BSTree<Integer> tree, Integer[] keys) {
+        return harness.measure(keys.length, () -> () -> {
+            int found = 0;
+            for (Integer key : keys) {
+                found += tree.contains(key) ? 1 : 0;
+            }
+            Harness.consume(found);
+        });
+    }
+
+    // Cada clave se elimina y se vuelve a insertar: el tamaño no cambia entre rondas
+    private static Harness.Result churn(Harness harness, BSTree<Integer> tree, Integer[] keys) {
+        return harness.measure(2L * keys.length, () -> () -> {
+            for (Integer key : keys) {
+                if (tree.remove(key) != null) {
+                    tree.add(key);
+                }
+            }
+        });
+    }
+
+    private static void report(String op, int n, Harness.Result result) {
+        System.out.printf("%-26s %9d %s%n", op, n, result);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import avltree.AVLTree;
+import exceptions.ItemDuplicated;
+import java.util.Iterator;
+import java.util.Random;
+
+/*
+ * rank/select sobre un AVLTree frente a contar con un recorrido en orden.
+ * El costo extra de mantener los tamaños en insert/delete se mide con
+ * TreeBenchmark --structures AVLTree.
+ *
+ *   java -cp out benchmark.OrderStatisticBenchmark 1000000
+ */
+public class OrderStatisticBenchmark {
+
+    public static void main(String[] args) throws ItemDuplicated {
+        int n = args.length > 0 ? (int) Double.parseDouble(args[0]) : 1_000_000;
+        AVLTree<Integer> tree = AVLTree.buildFrom(
+                KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.SORTED, n, 42)));
+        int queries = 100_000;
+        int[] positions = new int[queries];
+        Integer[] keys = new Integer[queries];
+        Random random = new Random(42);
+        for (int i = 0; i < queries; i++) {
+            positions[i] = random.nextInt(n);
+            keys[i] = random.nextInt(2 * n);
+        }
+        Harness harness = new Harness(3, 5);
+
+        System.out.printf("%-18s %9s %s%n", "op", "n", Harness.Result.header());
+        System.out.printf("%-18s %9d %s%n", "select", n, harness.measure(queries, () -> () -> {
+            long sum = 0;
+            for (int k : positions) {
+                sum += tree.select(k);
+            }
+            Harness.consume(sum);
+        }));
+        System.out.printf("%-18s %9d %s%n", "rank", n, harness.measure(queries, () -> () -> {
+            long sum = 0;
+            for (Integer key : keys) {
+                sum += tree.rank(key);
+            }
+            Harness.consume(sum);
+        }));
+        System.out.printf("%-18s %9d %s%n", "select by walking", n, harness.measure(10, () -> () -> {
+            long sum = 0;
+            for (int q = 0; q < 10; q++) {
+                Iterator<Integer> it = tree.iterator();
+                for (int i = 0; i < positions[q]; i++) {
+                    it.next();
+                }
+                sum += it.next();
+            }
+            Harness.consume(sum);
+        }));
+    }
+}
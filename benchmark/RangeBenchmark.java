@@ -0,0 +1,53 @@
+package benchmark;
+
+import avltree.AVLTree;
+import exceptions.ItemDuplicated;
+import java.util.Iterator;
+import java.util.Random;
+
+/*
+ * Consultas por rango de k claves sobre un AVLTree de n claves: range() frente a
+ * volcar inOrder() y filtrar, que era la única opción antes.
+ *
+ *   java -cp out benchmark.RangeBenchmark 1000000 100
+ */
+public class RangeBenchmark {
+
+    public static void main(String[] args) throws ItemDuplicated {
+        int n = args.length > 0 ? (int) Double.parseDouble(args[0]) : 1_000_000;
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        AVLTree<Integer> tree = AVLTree.buildFrom(
+                KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.SORTED, n, 42)));
+        int queries = 10_000;
+        Integer[] starts = new Integer[queries];
+        Random random = new Random(42);
+        for (int i = 0; i < queries; i++) {
+            starts[i] = 2 * random.nextInt(Math.max(1, n - k));
+        }
+        Harness harness = new Harness(3, 5);
+
+        System.out.printf("%-18s %9s %5s %s%n", "op", "n", "k", Harness.Result.header());
+        System.out.printf("%-18s %9d %5d %s%n", "range", n, k, harness.measure(queries, () -> () -> {
+            long sum = 0;
+            for (Integer from : starts) {
+                for (Iterator<Integer> it = tree.range(from, from + 2 * k); it.hasNext();) {
+                    sum += it.next();
+                }
+            }
+            Harness.consume(sum);
+        }));
+        System.out.printf("%-18s %9d %5d %s%n", "inOrder + filter", n, k, harness.measure(3, () -> () -> {
+            long sum = 0;
+            for (int q = 0; q < 3; q++) {
+                int from = starts[q];
+                for (String token : tree.inOrder().split(" ")) {
+                    int key = Integer.parseInt(token);
+                    if (key >= from && key < from + 2 * k) {
+                        sum += key;
+                    }
+                }
+            }
+            Harness.consume(sum);
+        }));
+    }
+}
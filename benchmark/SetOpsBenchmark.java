@@ -0,0 +1,137 @@
+package benchmark;
+
+import avltree.AVLTree;
+import exceptions.ItemDuplicated;
+
+/*
+ * union/intersection/difference entre dos AVLTree frente a recorrer uno e
+ * insertar/buscar/eliminar cada elemento en el otro. El primer árbol tiene n
+ * claves pares; el segundo m claves que se solapan a medias con el primero.
+ *
+ *   java -Xmx8g -cp out benchmark.SetOpsBenchmark 1000000 1000,1000000
+ */
+public class SetOpsBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? (int) Double.parseDouble(args[0]) : 1_000_000;
+        String sizes = args.length > 1 ? args[1] : "1000,100000,1000000";
+        Integer[] first = KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.SORTED, n, 42));
+        Harness harness = new Harness(3, 5);
+        warmUpSetOps();
+
+        System.out.printf("%-20s %9s %9s %s%n", "op", "n", "m", Harness.Result.header());
+        for (String size : sizes.split(",")) {
+            int m = (int) Double.parseDouble(size);
+            Integer[] second = overlapping(n, m);
+
+            report("union", n, m, harness.measure(m, () -> {
+                AVLTree<Integer> a = build(first);
+                AVLTree<Integer> b = build(second);
+                settle();
+                return () -> {
+                    a.union(b);
+                    Harness.consume(a.size());
+                };
+            }));
+            report("union by add", n, m, harness.measure(m, () -> {
+                AVLTree<Integer> a = build(first);
+                AVLTree<Integer> b = build(second);
+                settle();
+                return () -> {
+                    for (Integer x : b) {
+                        a.add(x);
+                    }
+                    Harness.consume(a.size());
+                };
+            }));
+            report("intersection", n, m, harness.measure(m, () -> {
+                AVLTree<Integer> a = build(first);
+                AVLTree<Integer> b = build(second);
+                settle();
+                return () -> {
+                    a.intersection(b);
+                    Harness.consume(a.size());
+                };
+            }));
+            report("intersection by get", n, m, harness.measure(m, () -> {
+                AVLTree<Integer> a = build(first);
+                AVLTree<Integer> b = build(second);
+                settle();
+                return () -> {
+                    AVLTree<Integer> result = new AVLTree<>();
+                    for (Integer x : b) {
+                        if (a.contains(x)) {
+                            result.add(x);
+                        }
+                    }
+                    Harness.consume(result.size());
+                };
+            }));
+            report("difference", n, m, harness.measure(m, () -> {
+                AVLTree<Integer> a = build(first);
+                AVLTree<Integer> b = build(second);
+                settle();
+                return () -> {
+                    a.difference(b);
+                    Harness.consume(a.size());
+                };
+            }));
+            report("difference by rm", n, m, harness.measure(m, () -> {
+                AVLTree<Integer> a = build(first);
+                AVLTree<Integer> b = build(second);
+                settle();
+                return () -> {
+                    for (Integer x : b) {
+                        a.remove(x);
+                    }
+                    Harness.consume(a.size());
+                };
+            }));
+        }
+    }
+
+    // Cada ronda hace una sola operación, pocas para que el JIT compile la recursión; se calienta antes
+    private static void warmUpSetOps() {
+        Integer[] small = KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.SORTED, 10_000, 42));
+        // Tamaños parecidos (join) y muy desparejos (elemento por elemento)
+        for (int m : new int[] { 2_000, 100 }) {
+            Integer[] other = overlapping(small.length, m);
+            for (int i = 0; i < 500; i++) {
+                AVLTree<Integer> a = build(small);
+                a.union(build(other));
+                a.intersection(build(other));
+                a.difference(build(other));
+                Harness.consume(a.size());
+            }
+        }
+    }
+
+    // m claves ordenadas repartidas en [0, 2n): la mitad pares (en el primer árbol) y la mitad impares
+    private static Integer[] overlapping(int n, int m) {
+        Integer[] keys = new Integer[m];
+        long step = Math.max(1, (2L * n) / m);
+        for (int i = 0; i < m; i++) {
+            long key = i * step + (i & 1);
+            keys[i] = (int) Math.min(key, 2L * n - 1 - (m - 1 - i));
+        }
+        return keys;
+    }
+
+    // Los árboles de la preparación son grandes: se recolecta antes de medir para que su GC
+    // no caiga dentro de la operación medida
+    private static void settle() {
+        System.gc();
+    }
+
+    private static AVLTree<Integer> build(Integer[] sorted) {
+        try {
+            return AVLTree.buildFrom(sorted);
+        } catch (ItemDuplicated e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void report(String op, int n, int m, Harness.Result result) {
+        System.out.printf("%-20s %9d %9d %s%n", op, n, m, result);
+    }
+}
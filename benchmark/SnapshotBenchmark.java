@@ -0,0 +1,86 @@
+package benchmark;
+
+import avltree.AVLTree;
+import complements.KeyCodecs;
+import exceptions.ItemDuplicated;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Persistencia de un AVLTree de n claves: snapshot binario (writeTo/readFrom) frente a
+ * volcar inOrder() como texto y reinsertar cada clave.
+ *
+ * La recarga asigna n nodos que siguen vivos: con una generación joven chica el tiempo lo
+ * domina el GC copiándolos, de ahí -Xmn.
+ *
+ *   java -Xms4g -Xmx4g -Xmn2500m -cp out benchmark.SnapshotBenchmark 10000000
+ */
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws IOException, ItemDuplicated {
+        int n = args.length > 0 ? (int) Double.parseDouble(args[0]) : 1_000_000;
+        AVLTree<Integer> tree = AVLTree.buildFromUnsorted(
+                KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, 42)));
+        Path file = Files.createTempFile("avl-snapshot", ".bin");
+        warmUp(file);
+
+        try {
+            // La primera pasada incluye los fallos de página del archivo nuevo
+            for (int i = 0; i < 3; i++) {
+                long start = System.nanoTime();
+                tree.writeTo(file, KeyCodecs.INT);
+                report("snapshot write", start, n);
+            }
+
+            System.gc();
+            long start = System.nanoTime();
+            AVLTree<Integer> mapped = AVLTree.readFrom(file, KeyCodecs.INT);
+            report("reload mapped", start, n);
+            Harness.consume(mapped.height());
+            mapped = null;
+
+            System.gc();
+            start = System.nanoTime();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                AVLTree<Integer> streamed = AVLTree.readFrom(channel, KeyCodecs.INT);
+                report("reload stream", start, n);
+                Harness.consume(streamed.height());
+            }
+            System.out.printf("snapshot: %d bytes (%.2f bytes/clave)%n", Files.size(file),
+                    (double) Files.size(file) / n);
+
+            start = System.nanoTime();
+            String text = tree.inOrder();
+            report("text dump", start, n);
+
+            System.gc();
+            start = System.nanoTime();
+            AVLTree<Integer> parsed = new AVLTree<>();
+            for (String key : text.split(" ")) {
+                parsed.add(Integer.parseInt(key));
+            }
+            report("text reload", start, n);
+            Harness.consume(parsed.height());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Las mediciones son de una sola pasada: se compilan antes escritura y lectura con un árbol chico
+    private static void warmUp(Path file) throws IOException, ItemDuplicated {
+        AVLTree<Integer> small = AVLTree.buildFromUnsorted(
+                KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, 100_000, 7)));
+        for (int i = 0; i < 20; i++) {
+            small.writeTo(file, KeyCodecs.INT);
+            Harness.consume(AVLTree.readFrom(file, KeyCodecs.INT).height());
+        }
+    }
+
+    private static void report(String phase, long start, int n) {
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-20s %9d claves %10.1f ms %8.1f ns/clave%n", phase, n, nanos / 1e6, (double) nanos / n);
+    }
+}
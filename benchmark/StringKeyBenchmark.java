@@ -0,0 +1,119 @@
+package benchmark;
+
+import avltree.AVLTree;
+import avltree.ByteKeyAVLTree;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/*
+ * Claves largas con prefijos comunes (URLs de una API con IDs jerárquicos): AVLTree<String>
+ * frente a ByteKeyAVLTree, con búsquedas de claves ya codificadas (byte[]) y de String que
+ * se codifican en cada búsqueda. Al final, memoria retenida por clave.
+ *
+ *   java -Xmx4g -cp out benchmark.StringKeyBenchmark 100000,1000000
+ */
+public class StringKeyBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "100000,1000000";
+        Harness harness = new Harness(3, 5);
+
+        System.out.printf("%-30s %9s %s%n", "op", "n", Harness.Result.header());
+        for (String size : sizes.split(",")) {
+            int n = (int) Double.parseDouble(size);
+            String[] keys = urls(n, 42);
+            AVLTree<String> tree = new AVLTree<>();
+            ByteKeyAVLTree byteTree = new ByteKeyAVLTree();
+            for (String key : keys) {
+                tree.add(key);
+                byteTree.add(key);
+            }
+            // Mitad claves presentes, mitad ausentes con el mismo prefijo largo
+            SplittableRandom random = new SplittableRandom(7);
+            String[] lookups = new String[LOOKUPS];
+            byte[][] encoded = new byte[LOOKUPS][];
+            for (int i = 0; i < LOOKUPS; i++) {
+                String key = keys[random.nextInt(n)];
+                lookups[i] = (i & 1) == 0 ? key : key + "-";
+                encoded[i] = lookups[i].getBytes(StandardCharsets.UTF_8);
+            }
+
+            report("contains AVLTree<String>", n, harness.measure(LOOKUPS, () -> () -> {
+                int found = 0;
+                for (String key : lookups) {
+                    found += tree.contains(key) ? 1 : 0;
+                }
+                Harness.consume(found);
+            }));
+            report("contains ByteKey byte[]", n, harness.measure(LOOKUPS, () -> () -> {
+                int found = 0;
+                for (byte[] key : encoded) {
+                    found += byteTree.contains(key) ? 1 : 0;
+                }
+                Harness.consume(found);
+            }));
+            report("contains ByteKey String", n, harness.measure(LOOKUPS, () -> () -> {
+                int found = 0;
+                for (String key : lookups) {
+                    found += byteTree.contains(key) ? 1 : 0;
+                }
+                Harness.consume(found);
+            }));
+            report("insert AVLTree<String>", n, harness.measure(n, () -> {
+                AVLTree<String> fresh = new AVLTree<>();
+                return () -> {
+                    for (String key : keys) {
+                        fresh.add(key);
+                    }
+                };
+            }));
+            report("insert ByteKey", n, harness.measure(n, () -> {
+                ByteKeyAVLTree fresh = new ByteKeyAVLTree(n, n * 64);
+                return () -> {
+                    for (String key : keys) {
+                        fresh.add(key);
+                    }
+                };
+            }));
+        }
+
+        // Las claves String cuentan en la memoria del AVLTree; en ByteKeyAVLTree quedan solo los bytes
+        System.out.printf("%n%-18s %10s %14s %10s%n", "structure", "n", "bytes", "B/key");
+        for (String size : sizes.split(",")) {
+            int n = (int) Double.parseDouble(size);
+            FootprintBenchmark.report("AVLTree<String>", n, i -> {
+                AVLTree<String> tree = new AVLTree<>();
+                for (String key : urls(n, 42)) {
+                    tree.add(key);
+                }
+                return tree;
+            });
+            FootprintBenchmark.report("ByteKeyAVLTree", n, i -> {
+                ByteKeyAVLTree tree = new ByteKeyAVLTree();
+                for (String key : urls(n, 42)) {
+                    tree.add(key);
+                }
+                return tree;
+            });
+        }
+    }
+
+    // n URLs distintas en orden aleatorio: https://api.example.com/v2/tenants/<t>/projects/<p>/items/<i>
+    static String[] urls(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] keys = new String[n];
+        int[] order = KeyStreams.insertOrder(KeyStreams.Distribution.RANDOM, n, seed);
+        for (int i = 0; i < n; i++) {
+            int id = order[i] >>> 1; // insertOrder da claves pares distintas
+            keys[i] = "https://api.example.com/v2/tenants/" + (id % 37) + "/projects/" + (id % 1009)
+                    + "/items/" + String.format("%010d", id) + (random.nextInt(4) == 0 ? "/history" : "");
+        }
+        return keys;
+    }
+
+    private static void report(String op, int n, Harness.Result result) {
+        System.out.printf("%-30s %9d %s%n", op, n, result);
+    }
+}
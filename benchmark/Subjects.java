@@ -0,0 +1,154 @@
+package benchmark;
+
+import avltree.AVLTree;
+import avltree.ArrayAVLTree;
+import avltree.IntAVLTree;
+import btree.BPlusTree;
+import complements.BSTree;
+import complements.BinarySearchTree;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import wavltree.WAVLTree;
+
+// Registro de las estructuras que se comparan en los benchmarks
+public final class Subjects {
+
+    private static final Map<String, Supplier<TreeSubject>> SUBJECTS = new LinkedHashMap<>();
+
+    static {
+        register("BSTree", BSTree<Integer>::new, BSTree::inOrder, null);
+        register("AVLTree", AVLTree<Integer>::new, AVLTree::inOrder, AVLTree::breadthFirst);
+        SUBJECTS.put("TreeMap", TreeMapSubject::new);
+        SUBJECTS.put("IntAVLTree", IntAVLTreeSubject::new);
+        register("ArrayAVLTree", ArrayAVLTree<Integer>::new, ArrayAVLTree::inOrder, ArrayAVLTree::breadthFirst);
+        register("BPlusTree", BPlusTree<Integer>::new, BPlusTree::inOrder, BPlusTree::breadthFirst);
+        register("WAVLTree", WAVLTree<Integer>::new, WAVLTree::inOrder, WAVLTree::breadthFirst);
+    }
+
+    private static <T extends BinarySearchTree<Integer>> void register(String name, Supplier<T> factory,
+            Function<T, String> inOrder, Function<T, String> breadthFirst) {
+        SUBJECTS.put(name, () -> new BinarySearchTreeSubject<>(factory.get(), inOrder, breadthFirst));
+    }
+
+    private Subjects() {
+    }
+
+    public static Map<String, Supplier<TreeSubject>> all() {
+        return SUBJECTS;
+    }
+
+    public static Supplier<TreeSubject> get(String name) {
+        Supplier<TreeSubject> supplier = SUBJECTS.get(name);
+        if (supplier == null) {
+            throw new IllegalArgumentException("Estructura desconocida: " + name + " " + SUBJECTS.keySet());
+        }
+        return supplier;
+    }
+
+    // Adaptador para cualquier BinarySearchTree<Integer>; los recorridos se pasan aparte
+    // porque no son parte de la interfaz (breadthFirst es null si la estructura no lo tiene)
+    static final class BinarySearchTreeSubject<T extends BinarySearchTree<Integer>> implements TreeSubject {
+        private final T tree;
+        private final Function<T, String> inOrder;
+        private final Function<T, String> breadthFirst;
+
+        BinarySearchTreeSubject(T tree, Function<T, String> inOrder, Function<T, String> breadthFirst) {
+            this.tree = tree;
+            this.inOrder = inOrder;
+            this.breadthFirst = breadthFirst;
+        }
+
+        @Override
+        public void insert(Integer key) {
+            tree.add(key);
+        }
+
+        @Override
+        public boolean search(Integer key) {
+            return tree.contains(key);
+        }
+
+        @Override
+        public void delete(Integer key) {
+            tree.remove(key);
+        }
+
+        @Override
+        public int inOrder() {
+            return inOrder.apply(tree).length();
+        }
+
+        @Override
+        public int breadthFirst() {
+            return breadthFirst == null ? -1 : breadthFirst.apply(tree).length();
+        }
+    }
+
+    static class TreeMapSubject implements TreeSubject {
+        private final TreeMap<Integer, Integer> map = new TreeMap<>();
+
+        @Override
+        public void insert(Integer key) {
+            map.put(key, key);
+        }
+
+        @Override
+        public boolean search(Integer key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public void delete(Integer key) {
+            map.remove(key);
+        }
+
+        @Override
+        public int inOrder() {
+            // Mismo trabajo que BSTree.inOrder(): recorrer y construir el texto
+            StringBuilder sb = new StringBuilder();
+            for (Integer key : map.keySet()) {
+                sb.append(key).append(" ");
+            }
+            return sb.length();
+        }
+
+        @Override
+        public int breadthFirst() {
+            return -1;
+        }
+    }
+
+    // Las claves se desencapsulan en el adaptador; el árbol no ve ningún Integer (por eso no
+    // implementa BinarySearchTree y no usa el adaptador genérico)
+    static class IntAVLTreeSubject implements TreeSubject {
+        private final IntAVLTree tree = new IntAVLTree();
+
+        @Override
+        public void insert(Integer key) {
+            tree.add(key);
+        }
+
+        @Override
+        public boolean search(Integer key) {
+            return tree.contains(key);
+        }
+
+        @Override
+        public void delete(Integer key) {
+            tree.remove(key);
+        }
+
+        @Override
+        public int inOrder() {
+            return tree.inOrder().length();
+        }
+
+        @Override
+        public int breadthFirst() {
+            return tree.breadthFirst().length();
+        }
+    }
+}
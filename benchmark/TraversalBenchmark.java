@@ -0,0 +1,39 @@
+package benchmark;
+
+import avltree.AVLTree;
+import exceptions.ItemDuplicated;
+import java.util.Iterator;
+
+/*
+ * Recorrido completo de un AVLTree: construir el String de inOrder() frente al
+ * iterador perezoso y a stream() secuencial y paralelo.
+ *
+ *   java -cp out benchmark.TraversalBenchmark 1000000
+ */
+public class TraversalBenchmark {
+
+    public static void main(String[] args) throws ItemDuplicated {
+        int n = args.length > 0 ? (int) Double.parseDouble(args[0]) : 1_000_000;
+        AVLTree<Integer> tree = AVLTree.buildFrom(
+                KeyStreams.box(KeyStreams.insertOrder(KeyStreams.Distribution.SORTED, n, 42)));
+        Harness harness = new Harness(3, 5);
+
+        System.out.printf("%-18s %9s %s%n", "op", "n", Harness.Result.header());
+        report("inOrder String", n, harness.measure(n, () -> () -> Harness.consume(tree.inOrder().length())));
+        report("iterator", n, harness.measure(n, () -> () -> {
+            long sum = 0;
+            for (Iterator<Integer> it = tree.iterator(); it.hasNext();) {
+                sum += it.next();
+            }
+            Harness.consume(sum);
+        }));
+        report("stream", n, harness.measure(n, () -> () ->
+                Harness.consume(tree.stream().mapToLong(Integer::longValue).sum())));
+        report("stream parallel", n, harness.measure(n, () -> () ->
+                Harness.consume(tree.stream().parallel().mapToLong(Integer::longValue).sum())));
+    }
+
+    private static void report(String op, int n, Harness.Result result) {
+        System.out.printf("%-18s %9d %s%n", op, n, result);
+    }
+}
@@ -0,0 +1,167 @@
+package benchmark;
+
+import benchmark.KeyStreams.Distribution;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/*
+ * Compara las estructuras de Subjects (BSTree, AVLTree, BPlusTree, TreeMap...) en insert,
+ * search, delete y recorridos.
+ *
+ *   javac -encoding UTF-8 -d out $(find . -name '*.java')
+ *   java -Xmx8g -cp out benchmark.TreeBenchmark --sizes 1000,100000 --dists RANDOM,SORTED
+ *
+ * Opciones (todas separadas por comas): --structures, --dists, --ops
+ * (insert,search,delete,churn,inorder,bfs), --sizes, --warmup N, --iterations N, --seed N.
+ * Por defecto se miden todas las estructuras y distribuciones con tamaños 1e3 a 1e7.
+ */
+public class TreeBenchmark {
+
+    public static void main(String[] args) {
+        List<String> structures = new ArrayList<>(Subjects.all().keySet());
+        List<String> ops = Arrays.asList("insert", "search", "delete", "churn", "inorder", "bfs");
+        List<Distribution> dists = Arrays.asList(Distribution.values());
+        int[] sizes = { 1_000, 10_000, 100_000, 1_000_000, 10_000_000 };
+        int warmup = 2;
+        int iterations = 5;
+        long seed = 42;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--structures":
+                    structures = Arrays.asList(value.split(","));
+                    break;
+                case "--ops":
+                    ops = Arrays.asList(value.split(","));
+                    break;
+                case "--dists":
+                    dists = new ArrayList<>();
+                    for (String d : value.split(",")) {
+                        dists.add(Distribution.valueOf(d.toUpperCase()));
+                    }
+                    break;
+                case "--sizes":
+                    sizes = Arrays.stream(value.split(",")).mapToInt(s -> (int) Double.parseDouble(s)).toArray();
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(value);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+
+        Harness harness = new Harness(warmup, iterations);
+        System.out.printf("%-12s %-12s %-8s %9s %s%n", "structure", "dist", "op", "n", Harness.Result.header());
+        for (int n : sizes) {
+            for (Distribution dist : dists) {
+                Integer[] insertKeys = KeyStreams.box(KeyStreams.insertOrder(dist, n, seed));
+                Integer[] lookupKeys = KeyStreams.box(KeyStreams.lookups(dist, n, n, seed));
+                for (String structure : structures) {
+                    Supplier<TreeSubject> factory = Subjects.get(structure);
+                    for (String op : ops) {
+                        Harness.Result result = run(harness, op, factory, insertKeys, lookupKeys);
+                        if (result != null) {
+                            System.out.printf("%-12s %-12s %-8s %9d %s%n", structure, dist, op, n, result);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    static Harness.Result run(Harness harness, String op, Supplier<TreeSubject> factory,
+            Integer[] insertKeys, Integer[] lookupKeys) {
+        int n = insertKeys.length;
+        switch (op) {
+            case "insert":
+                return harness.measure(n, () -> {
+                    TreeSubject subject = factory.get();
+                    return () -> {
+                        for (Integer key : insertKeys) {
+                            subject.insert(key);
+                        }
+                    };
+                });
+            case "search": {
+                TreeSubject[] built = new TreeSubject[1];
+                return harness.measure(lookupKeys.length, () -> {
+                    if (built[0] == null) {
+                        built[0] = build(factory, insertKeys);
+                    }
+                    TreeSubject subject = built[0];
+                    return () -> {
+                        long hits = 0;
+                        for (Integer key : lookupKeys) {
+                            if (subject.search(key)) {
+                                hits++;
+                            }
+                        }
+                        Harness.consume(hits);
+                    };
+                });
+            }
+            case "delete":
+                return harness.measure(n, () -> {
+                    TreeSubject subject = build(factory, insertKeys);
+                    return () -> {
+                        for (Integer key : insertKeys) {
+                            subject.delete(key);
+                        }
+                    };
+                });
+            case "churn": {
+                // Régimen estable: cada clave se borra y se vuelve a insertar
+                TreeSubject[] built = new TreeSubject[1];
+                return harness.measure(2L * lookupKeys.length, () -> {
+                    if (built[0] == null) {
+                        built[0] = build(factory, insertKeys);
+                    }
+                    TreeSubject subject = built[0];
+                    return () -> {
+                        for (Integer key : lookupKeys) {
+                            subject.delete(key);
+                            subject.insert(key);
+                        }
+                    };
+                });
+            }
+            case "inorder":
+            case "bfs": {
+                boolean bfs = op.equals("bfs");
+                TreeSubject[] built = new TreeSubject[1];
+                Harness.Result result = harness.measure(n, () -> {
+                    if (built[0] == null) {
+                        built[0] = build(factory, insertKeys);
+                    }
+                    TreeSubject subject = built[0];
+                    return () -> Harness.consume(bfs ? subject.breadthFirst() : subject.inOrder());
+                });
+                // Estructuras sin recorrido por niveles no se reportan
+                if (bfs && built[0] != null && built[0].breadthFirst() < 0) {
+                    return null;
+                }
+                return result;
+            }
+            default:
+                throw new IllegalArgumentException("Operación desconocida: " + op);
+        }
+    }
+
+    private static TreeSubject build(Supplier<TreeSubject> factory, Integer[] keys) {
+        TreeSubject subject = factory.get();
+        for (Integer key : keys) {
+            subject.insert(key);
+        }
+        return subject;
+    }
+}
@@ -0,0 +1,17 @@
+package benchmark;
+
+// Estructura bajo prueba. Las claves llegan ya encapsuladas para no medir el boxing.
+public interface TreeSubject {
+
+    void insert(Integer key);
+
+    boolean search(Integer key);
+
+    void delete(Integer key);
+
+    // Devuelven un valor derivado del recorrido para que el JIT no lo elimine
+    int inOrder();
+
+    // -1 si la estructura no ofrece recorrido por niveles
+    int breadthFirst();
+}
@@ -0,0 +1,658 @@
+package btree;
+
+import complements.BinarySearchTree;
+import exceptions.*;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Árbol B+ detrás de BinarySearchTree: nodos anchos con las claves ordenadas en un arreglo,
+// así una búsqueda recorre unos pocos niveles (log_order n) en lugar de ~log2 n punteros.
+// - Los elementos están solo en las hojas; los nodos internos guardan separadores:
+//   keys[i] <= todo elemento de children[i + 1] y > todo elemento de children[i].
+// - Las hojas están enlazadas en orden, así los recorridos y range() no vuelven a subir.
+// - order es la cantidad máxima de hijos de un nodo interno; cada nodo guarda hasta order - 1
+//   claves y, salvo la raíz, al menos (order - 1) / 2.
+public class BPlusTree<E extends Comparable<E>> implements BinarySearchTree<E>, Iterable<E> {
+
+    public static final int DEFAULT_ORDER = 64;
+
+    private abstract static class Node {
+        final Object[] keys; // Una posición extra para el desborde antes de dividir
+        int count;
+
+        Node(int order) {
+            this.keys = new Object[order];
+        }
+    }
+
+    private static final class Leaf extends Node {
+        Leaf next;
+
+        Leaf(int order) {
+            super(order);
+        }
+    }
+
+    private static final class Internal extends Node {
+        final Node[] children; // count + 1 hijos
+
+        Internal(int order) {
+            super(order);
+            this.children = new Node[order + 1];
+        }
+    }
+
+    private final int order;
+    private final int maxKeys;
+    private final int minKeys;
+    private Node root;
+    private int size;
+    private int height; // Niveles por debajo de la raíz; las hojas están todas a esta profundidad
+
+    // Camino raíz -> hoja de la última operación: nodos y posición del hijo elegido en cada uno
+    private Internal[] path = new Internal[16];
+    private int[] slots = new int[16];
+
+    public BPlusTree() {
+        this(DEFAULT_ORDER);
+    }
+
+    public BPlusTree(int order) {
+        if (order < 3) {
+            throw new IllegalArgumentException("El orden mínimo es 3: " + order);
+        }
+        this.order = order;
+        this.maxKeys = order - 1;
+        this.minKeys = (order - 1) / 2;
+    }
+
+    public int order() {
+        return order;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Niveles de nodos internos por encima de las hojas (0 si la raíz es una hoja, -1 si está vacío)
+    public int height() {
+        return root == null ? -1 : height;
+    }
+
+    // ---- Búsqueda ----
+
+    @Override
+    public E search(E x) throws ItemNotFound {
+        E result = get(x);
+        if (result == null) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return result;
+    }
+
+    @Override
+    public E get(E x) {
+        if (root == null) {
+            return null;
+        }
+        Leaf leaf = findLeaf(x, false);
+        int pos = indexOf(leaf, x);
+        return pos >= 0 ? key(leaf, pos) : null;
+    }
+
+    @Override
+    public boolean contains(E x) {
+        return get(x) != null;
+    }
+
+    // Baja hasta la hoja que contendría x; con record guarda el camino en path/slots
+    private Leaf findLeaf(E x, boolean record) {
+        Node node = root;
+        for (int depth = 0; depth < height; depth++) {
+            Internal internal = (Internal) node;
+            int slot = childIndex(internal, x);
+            if (record) {
+                path[depth] = internal;
+                slots[depth] = slot;
+            }
+            node = internal.children[slot];
+        }
+        return (Leaf) node;
+    }
+
+    // Hijo por el que se baja: cantidad de separadores <= x
+    private int childIndex(Internal node, E x) {
+        int low = 0;
+        int high = node.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key(node, mid).compareTo(x) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Posición de x en la hoja, o -(punto de inserción) - 1
+    private int indexOf(Leaf leaf, E x) {
+        int low = 0;
+        int high = leaf.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = key(leaf, mid).compareTo(x);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E key(Node node, int i) {
+        return (E) node.keys[i];
+    }
+
+    // ---- Inserción ----
+
+    @Override
+    public void insert(E x) throws ItemDuplicated {
+        if (!add(x)) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
+    }
+
+    // Inserta en la hoja y, si desborda, la divide; el separador sube y puede dividir a los padres
+    @Override
+    public boolean add(E x) {
+        if (root == null) {
+            Leaf leaf = new Leaf(order);
+            leaf.keys[0] = x;
+            leaf.count = 1;
+            root = leaf;
+            size = 1;
+            height = 0;
+            return true;
+        }
+        ensurePath();
+        Leaf leaf = findLeaf(x, true);
+        int pos = indexOf(leaf, x);
+        if (pos >= 0) {
+            clearPath();
+            return false;
+        }
+        insertAt(leaf, -(pos + 1), x);
+        size++;
+        if (leaf.count > maxKeys) {
+            splitLeaf(leaf);
+        }
+        clearPath();
+        return true;
+    }
+
+    private void splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf(order);
+        int keep = leaf.count / 2;
+        moveSuffix(leaf, keep, right);
+        right.next = leaf.next;
+        leaf.next = right;
+        insertSeparator(height - 1, right.keys[0], right);
+    }
+
+    // Agrega el separador y el nuevo hijo derecho al padre del nivel depth (-1: nueva raíz)
+    private void insertSeparator(int depth, Object separator, Node right) {
+        while (true) {
+            if (depth < 0) {
+                Internal newRoot = new Internal(order);
+                newRoot.keys[0] = separator;
+                newRoot.children[0] = root;
+                newRoot.children[1] = right;
+                newRoot.count = 1;
+                root = newRoot;
+                height++;
+                return;
+            }
+            Internal parent = path[depth];
+            int slot = slots[depth];
+            System.arraycopy(parent.keys, slot, parent.keys, slot + 1, parent.count - slot);
+            System.arraycopy(parent.children, slot + 1, parent.children, slot + 2, parent.count - slot);
+            parent.keys[slot] = separator;
+            parent.children[slot + 1] = right;
+            parent.count++;
+            if (parent.count <= maxKeys) {
+                return;
+            }
+            // El separador del medio sube; no queda en ninguna de las dos mitades
+            Internal sibling = new Internal(order);
+            int mid = parent.count / 2;
+            separator = parent.keys[mid];
+            int moved = parent.count - mid - 1;
+            System.arraycopy(parent.keys, mid + 1, sibling.keys, 0, moved);
+            System.arraycopy(parent.children, mid + 1, sibling.children, 0, moved + 1);
+            Arrays.fill(parent.keys, mid, parent.count, null);
+            Arrays.fill(parent.children, mid + 1, parent.count + 1, null);
+            sibling.count = moved;
+            parent.count = mid;
+            right = sibling;
+            depth--;
+        }
+    }
+
+    // ---- Eliminación ----
+
+    @Override
+    public void delete(E x) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        remove(x);
+    }
+
+    // Quita de la hoja; si queda con menos de minKeys pide prestado a un hermano o se fusiona
+    // con él, y la fusión puede dejar corto al padre
+    @Override
+    public E remove(E x) {
+        if (root == null) {
+            return null;
+        }
+        ensurePath();
+        Leaf leaf = findLeaf(x, true);
+        int pos = indexOf(leaf, x);
+        if (pos < 0) {
+            clearPath();
+            return null;
+        }
+        E removed = key(leaf, pos);
+        removeAt(leaf, pos);
+        size--;
+        if (height == 0) {
+            if (leaf.count == 0) {
+                root = null;
+            }
+        } else if (leaf.count < minKeys) {
+            rebalance(height - 1, leaf);
+        }
+        clearPath();
+        return removed;
+    }
+
+    // node es el hijo slots[depth] de path[depth] y tiene menos de minKeys claves
+    private void rebalance(int depth, Node node) {
+        while (depth >= 0) {
+            Internal parent = path[depth];
+            int slot = slots[depth];
+            Node left = slot > 0 ? parent.children[slot - 1] : null;
+            Node right = slot < parent.count ? parent.children[slot + 1] : null;
+
+            if (left != null && left.count > minKeys) {
+                borrowFromLeft(parent, slot, left, node);
+                return;
+            }
+            if (right != null && right.count > minKeys) {
+                borrowFromRight(parent, slot, node, right);
+                return;
+            }
+            // Fusión con el hermano izquierdo (o el derecho en node): el padre pierde un separador
+            if (left != null) {
+                merge(parent, slot - 1, left, node);
+            } else {
+                merge(parent, slot, node, right);
+            }
+            if (depth == 0) {
+                if (parent.count == 0) {
+                    root = parent.children[0];
+                    height--;
+                }
+                return;
+            }
+            if (parent.count >= minKeys) {
+                return;
+            }
+            node = parent;
+            depth--;
+        }
+    }
+
+    private void borrowFromLeft(Internal parent, int slot, Node left, Node node) {
+        if (node instanceof Leaf) {
+            insertAt(node, 0, left.keys[left.count - 1]);
+            removeAt(left, left.count - 1);
+            parent.keys[slot - 1] = node.keys[0];
+        } else {
+            // Rotación a través del padre: el separador baja y la última clave de left sube
+            Internal to = (Internal) node;
+            Internal from = (Internal) left;
+            System.arraycopy(to.keys, 0, to.keys, 1, to.count);
+            System.arraycopy(to.children, 0, to.children, 1, to.count + 1);
+            to.keys[0] = parent.keys[slot - 1];
+            to.children[0] = from.children[from.count];
+            to.count++;
+            parent.keys[slot - 1] = from.keys[from.count - 1];
+            from.keys[from.count - 1] = null;
+            from.children[from.count] = null;
+            from.count--;
+        }
+    }
+
+    private void borrowFromRight(Internal parent, int slot, Node node, Node right) {
+        if (node instanceof Leaf) {
+            node.keys[node.count++] = right.keys[0];
+            removeAt(right, 0);
+            parent.keys[slot] = right.keys[0];
+        } else {
+            Internal to = (Internal) node;
+            Internal from = (Internal) right;
+            to.keys[to.count] = parent.keys[slot];
+            to.children[to.count + 1] = from.children[0];
+            to.count++;
+            parent.keys[slot] = from.keys[0];
+            System.arraycopy(from.keys, 1, from.keys, 0, from.count - 1);
+            System.arraycopy(from.children, 1, from.children, 0, from.count);
+            from.keys[from.count - 1] = null;
+            from.children[from.count] = null;
+            from.count--;
+        }
+    }
+
+    // Vuelca right en left (hijos leftSlot y leftSlot + 1 de parent) y lo quita del padre
+    private void merge(Internal parent, int leftSlot, Node left, Node right) {
+        if (left instanceof Leaf) {
+            moveSuffix(right, 0, left);
+            ((Leaf) left).next = ((Leaf) right).next;
+        } else {
+            Internal to = (Internal) left;
+            Internal from = (Internal) right;
+            to.keys[to.count] = parent.keys[leftSlot];
+            System.arraycopy(from.keys, 0, to.keys, to.count + 1, from.count);
+            System.arraycopy(from.children, 0, to.children, to.count + 1, from.count + 1);
+            to.count += from.count + 1;
+        }
+        System.arraycopy(parent.keys, leftSlot + 1, parent.keys, leftSlot, parent.count - leftSlot - 1);
+        System.arraycopy(parent.children, leftSlot + 2, parent.children, leftSlot + 1, parent.count - leftSlot - 1);
+        parent.keys[parent.count - 1] = null;
+        parent.children[parent.count] = null;
+        parent.count--;
+    }
+
+    // ---- Utilidades de nodos ----
+
+    private static void insertAt(Node node, int pos, Object x) {
+        System.arraycopy(node.keys, pos, node.keys, pos + 1, node.count - pos);
+        node.keys[pos] = x;
+        node.count++;
+    }
+
+    private static void removeAt(Node node, int pos) {
+        System.arraycopy(node.keys, pos + 1, node.keys, pos, node.count - pos - 1);
+        node.keys[--node.count] = null;
+    }
+
+    // Mueve el sufijo de source que empieza en from al final de target
+    private static void moveSuffix(Node source, int from, Node target) {
+        int length = source.count - from;
+        System.arraycopy(source.keys, from, target.keys, target.count, length);
+        Arrays.fill(source.keys, from, source.count, null);
+        source.count = from;
+        target.count += length;
+    }
+
+    private void ensurePath() {
+        if (path.length <= height) {
+            path = Arrays.copyOf(path, height * 2);
+            slots = Arrays.copyOf(slots, height * 2);
+        }
+    }
+
+    private void clearPath() {
+        Arrays.fill(path, 0, height + 1 < path.length ? height + 1 : path.length, null);
+    }
+
+    // ---- Mínimo, máximo, vecinos ----
+
+    public E findMin() throws ItemNotFound {
+        if (root == null) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        return key(leftmostLeaf(), 0);
+    }
+
+    public E findMax() throws ItemNotFound {
+        if (root == null) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        Node node = root;
+        while (node instanceof Internal) {
+            node = ((Internal) node).children[node.count];
+        }
+        return key(node, node.count - 1);
+    }
+
+    private Leaf leftmostLeaf() {
+        Node node = root;
+        while (node instanceof Internal) {
+            node = ((Internal) node).children[0];
+        }
+        return (Leaf) node;
+    }
+
+    // Menor elemento >= x, o null si no existe
+    public E ceiling(E x) {
+        if (root == null) {
+            return null;
+        }
+        Leaf leaf = findLeaf(x, false);
+        int pos = indexOf(leaf, x);
+        int at = pos >= 0 ? pos : -(pos + 1);
+        if (at == leaf.count) {
+            // Todo lo de esta hoja es menor: el siguiente está al principio de la hoja que sigue
+            return leaf.next == null ? null : key(leaf.next, 0);
+        }
+        return key(leaf, at);
+    }
+
+    // Mayor elemento <= x, o null si no existe
+    public E floor(E x) {
+        if (root == null) {
+            return null;
+        }
+        // Subárbol inmediatamente a la izquierda del camino, por si la hoja no tiene nada <= x
+        Node leftOfPath = null;
+        Node node = root;
+        while (node instanceof Internal) {
+            int slot = childIndex((Internal) node, x);
+            if (slot > 0) {
+                leftOfPath = ((Internal) node).children[slot - 1];
+            }
+            node = ((Internal) node).children[slot];
+        }
+        int pos = indexOf((Leaf) node, x);
+        int at = pos >= 0 ? pos : -(pos + 1) - 1;
+        if (at >= 0) {
+            return key(node, at);
+        }
+        if (leftOfPath == null) {
+            return null;
+        }
+        while (leftOfPath instanceof Internal) {
+            leftOfPath = ((Internal) leftOfPath).children[leftOfPath.count];
+        }
+        return key(leftOfPath, leftOfPath.count - 1);
+    }
+
+    // ---- Recorridos ----
+
+    // En orden siguiendo el enlace entre hojas
+    @Override
+    public Iterator<E> iterator() {
+        return new LeafIterator(root == null ? null : leftmostLeaf(), 0, null, false);
+    }
+
+    // Elementos en [from, to) en orden
+    public Iterator<E> range(E from, E to) {
+        return range(from, true, to, false);
+    }
+
+    // Elementos entre from y to en orden, en O(log n + k) para k resultados.
+    // Un límite null deja ese extremo abierto.
+    public Iterator<E> range(E from, boolean fromInclusive, E to, boolean toInclusive) {
+        if (root == null) {
+            return new LeafIterator(null, 0, null, false);
+        }
+        if (from == null) {
+            return new LeafIterator(leftmostLeaf(), 0, to, toInclusive);
+        }
+        Leaf leaf = findLeaf(from, false);
+        int pos = indexOf(leaf, from);
+        int at = pos >= 0 ? (fromInclusive ? pos : pos + 1) : -(pos + 1);
+        return new LeafIterator(leaf, at, to, toInclusive);
+    }
+
+    private final class LeafIterator implements Iterator<E> {
+        private Leaf leaf;
+        private int pos;
+        private final E to;
+        private final boolean toInclusive;
+
+        LeafIterator(Leaf leaf, int pos, E to, boolean toInclusive) {
+            this.leaf = leaf;
+            this.pos = pos;
+            this.to = to;
+            this.toInclusive = toInclusive;
+            skipExhausted();
+        }
+
+        // Pasa a la hoja siguiente si la actual se terminó; corta al superar el límite superior
+        private void skipExhausted() {
+            while (leaf != null && pos >= leaf.count) {
+                leaf = leaf.next;
+                pos = 0;
+            }
+            if (leaf != null && to != null) {
+                int comparison = key(leaf, pos).compareTo(to);
+                if (comparison > 0 || (comparison == 0 && !toInclusive)) {
+                    leaf = null;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        @Override
+        public E next() {
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            E x = key(leaf, pos++);
+            skipExhausted();
+            return x;
+        }
+    }
+
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        for (E x : this) {
+            sb.append(x).append(" ");
+        }
+        return sb.toString();
+    }
+
+    // Recorrido por niveles: claves de cada nodo entre corchetes, un nivel por línea
+    public String breadthFirst() {
+        StringBuilder sb = new StringBuilder();
+        Node[] level = root == null ? new Node[0] : new Node[] { root };
+        while (level.length > 0) {
+            int next = 0;
+            for (Node node : level) {
+                sb.append(Arrays.toString(Arrays.copyOf(node.keys, node.count))).append(" ");
+                if (node instanceof Internal) {
+                    next += node.count + 1;
+                }
+            }
+            sb.append("\n");
+            Node[] children = new Node[next];
+            int i = 0;
+            for (Node node : level) {
+                if (node instanceof Internal) {
+                    for (int c = 0; c <= node.count; c++) {
+                        children[i++] = ((Internal) node).children[c];
+                    }
+                }
+            }
+            level = children;
+        }
+        return sb.toString();
+    }
+
+    // Verifica ocupación, orden y separadores de cada nodo, profundidad de las hojas, el
+    // enlace entre hojas y el tamaño
+    public void checkInvariants() {
+        if (root == null) {
+            if (size != 0) {
+                throw new IllegalStateException("Árbol vacío con tamaño " + size);
+            }
+            return;
+        }
+        Leaf[] lastLeaf = new Leaf[1];
+        int counted = check(root, 0, null, null, lastLeaf);
+        if (counted != size) {
+            throw new IllegalStateException("Tamaño inconsistente: " + counted + " != " + size);
+        }
+        if (lastLeaf[0].next != null) {
+            throw new IllegalStateException("La última hoja tiene siguiente");
+        }
+    }
+
+    // Cuenta los elementos del subárbol; low <= claves < high
+    private int check(Node node, int depth, E low, E high, Leaf[] lastLeaf) {
+        if (node != root && node.count < minKeys) {
+            throw new IllegalStateException("Nodo con " + node.count + " claves, mínimo " + minKeys);
+        }
+        if (node.count > maxKeys) {
+            throw new IllegalStateException("Nodo con " + node.count + " claves, máximo " + maxKeys);
+        }
+        for (int i = 0; i < node.count; i++) {
+            E k = key(node, i);
+            if ((i > 0 && key(node, i - 1).compareTo(k) >= 0) || (low != null && k.compareTo(low) < 0)
+                    || (high != null && k.compareTo(high) >= 0)) {
+                throw new IllegalStateException("Clave fuera de orden: " + k);
+            }
+        }
+        for (int i = node.count; i < node.keys.length; i++) {
+            if (node.keys[i] != null) {
+                throw new IllegalStateException("Referencia sobrante en la posición " + i);
+            }
+        }
+        if (node instanceof Leaf) {
+            if (depth != height) {
+                throw new IllegalStateException("Hoja a profundidad " + depth + ", se esperaba " + height);
+            }
+            if (lastLeaf[0] != null && lastLeaf[0].next != node) {
+                throw new IllegalStateException("Enlace entre hojas roto antes de " + key(node, 0));
+            }
+            lastLeaf[0] = (Leaf) node;
+            return node.count;
+        }
+        Internal internal = (Internal) node;
+        int total = 0;
+        for (int i = 0; i <= internal.count; i++) {
+            E childLow = i == 0 ? low : key(internal, i - 1);
+            E childHigh = i == internal.count ? high : key(internal, i);
+            total += check(internal.children[i], depth + 1, childLow, childHigh, lastLeaf);
+        }
+        return total;
+    }
+}
@@ -1,8 +1,22 @@
 package complements;
 
 import exceptions.*;
-
-public class BSTree<E extends Comparable<E>> implements BinarySearchTree<E> {
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class BSTree<E extends Comparable<E>> implements BinarySearchTree<E>, Iterable<E> {
 
     public class Node {
         public E data;
@@ -21,70 +35,146 @@ public class BSTree<E extends Comparable<E>> implements BinarySearchTree<E> {
     }
 
     public Node root; // Atributo root de tipo Node
+    protected TreeListener listener; // null: sin métricas
 
     public BSTree() {
         this.root = null;
     }
 
+    // Activa (o con null desactiva) las métricas de insert, search y delete. Desactivadas
+    // solo cuestan leer este campo en cada operación.
+    public void setListener(TreeListener listener) {
+        this.listener = listener;
+    }
+
+    public TreeListener getListener() {
+        return listener;
+    }
+
     // Inserta un elemento en el árbol
     @Override
     public void insert(E data) throws ItemDuplicated {
-        this.root = insertRec(this.root, data);
+        if (!add(data)) {
+            throw new ItemDuplicated("El elemento ya existe en el árbol");
+        }
     }
 
-    private Node insertRec(Node actual, E data) throws ItemDuplicated {
-        if (actual == null) {
-            return new Node(data);
+    // Inserta sin lanzar excepción; devuelve false si el elemento ya existía
+    @Override
+    public boolean add(E data) {
+        TreeListener observer = this.listener;
+        long start = observer == null ? 0 : System.nanoTime();
+        int comparisons = 0;
+        boolean added = false;
+        if (this.root == null) {
+            this.root = new Node(data);
+            added = true;
         }
 
-        int comparacion = data.compareTo(actual.data);
-
-        if (comparacion < 0) {
-            actual.left = insertRec(actual.left, data);
-        } else if (comparacion > 0) {
-            actual.right = insertRec(actual.right, data);
-        } else {
-            throw new ItemDuplicated("El elemento ya existe en el árbol");
+        Node actual = added ? null : this.root;
+        while (actual != null) {
+            int comparacion = data.compareTo(actual.data);
+            comparisons++;
+
+            if (comparacion < 0) {
+                if (actual.left == null) {
+                    actual.left = new Node(data);
+                    added = true;
+                    break;
+                }
+                actual = actual.left;
+            } else if (comparacion > 0) {
+                if (actual.right == null) {
+                    actual.right = new Node(data);
+                    added = true;
+                    break;
+                }
+                actual = actual.right;
+            } else {
+                break;
+            }
         }
-        return actual;
+        if (observer != null) {
+            observer.onOperation(TreeListener.Operation.INSERT, comparisons, 0, System.nanoTime() - start);
+        }
+        return added;
     }
 
     // Busca un elemento en el árbol
     @Override
     public E search(E data) throws ItemNotFound {
-        Node result = searchRec(this.root, data);
+        E result = get(data);
         if (result == null) {
             throw new ItemNotFound("El elemento no se encuentra en el árbol");
         }
-        return result.data;
+        return result;
     }
 
-    private Node searchRec(Node actual, E data) {
-        if (actual == null) {
-            return null;
-        }
+    // Busca sin lanzar excepción; devuelve null si no se encuentra
+    @Override
+    public E get(E data) {
+        Node result = this.listener == null ? searchNode(data) : observedSearch(data);
+        return result == null ? null : result.data;
+    }
+
+    @Override
+    public boolean contains(E data) {
+        return (this.listener == null ? searchNode(data) : observedSearch(data)) != null;
+    }
 
-        int comparacion = data.compareTo(actual.data);
+    private Node searchNode(E data) {
+        Node actual = this.root;
+        while (actual != null) {
+            int comparacion = data.compareTo(actual.data);
 
-        if (comparacion == 0) {
-            return actual;
-        } else if (comparacion < 0) {
-            return searchRec(actual.left, data);
-        } else {
-            return searchRec(actual.right, data);
+            if (comparacion == 0) {
+                return actual;
+            }
+            actual = comparacion < 0 ? actual.left : actual.right;
         }
+        return null;
     }
 
-    // Calcula la altura del árbol
-    public int height() {
-        return height(root);
+    // searchNode contando comparaciones y tiempo; aparte para no tocar el camino sin métricas
+    private Node observedSearch(E data) {
+        TreeListener observer = this.listener;
+        long start = System.nanoTime();
+        int comparisons = 0;
+        Node actual = this.root;
+        while (actual != null) {
+            int comparacion = data.compareTo(actual.data);
+            comparisons++;
+
+            if (comparacion == 0) {
+                break;
+            }
+            actual = comparacion < 0 ? actual.left : actual.right;
+        }
+        observer.onOperation(TreeListener.Operation.SEARCH, comparisons, 0, System.nanoTime() - start);
+        return actual;
     }
 
-    private int height(Node node) {
-        if (node == null) {
-            return -1; // Height of an empty tree is -1
+    // Calcula la altura del árbol recorriéndolo por niveles
+    public int height() {
+        int height = -1; // Height of an empty tree is -1
+        Queue<Node> level = new ArrayDeque<>();
+        if (root != null) {
+            level.offer(root);
         }
-        return 1 + Math.max(height(node.left), height(node.right));
+
+        while (!level.isEmpty()) {
+            height++;
+            for (int i = level.size(); i > 0; i--) {
+                Node node = level.poll();
+                if (node.left != null) {
+                    level.offer(node.left);
+                }
+                if (node.right != null) {
+                    level.offer(node.right);
+                }
+            }
+        }
+        return height;
     }
 
     // Borra el elemento de un nodo
@@ -93,44 +183,70 @@ public class BSTree<E extends Comparable<E>> implements BinarySearchTree<E> {
         if (isEmpty()) {
             throw new ExceptionIsEmpty("El árbol está vacío");
         }
-
-        this.root = deleteRec(this.root, data);
+        remove(data);
     }
 
-    private Node deleteRec(Node actual, E data) {
+    // Elimina sin lanzar excepción; devuelve el elemento quitado o null si no estaba
+    @Override
+    public E remove(E data) {
+        TreeListener observer = this.listener;
+        long start = observer == null ? 0 : System.nanoTime();
+        int comparisons = 0;
+        Node parent = null;
+        Node actual = this.root;
+        while (actual != null) {
+            int comparacion = data.compareTo(actual.data);
+            comparisons++;
+            if (comparacion == 0) {
+                break;
+            }
+            parent = actual;
+            actual = comparacion < 0 ? actual.left : actual.right;
+        }
         if (actual == null) {
+            if (observer != null) {
+                observer.onOperation(TreeListener.Operation.DELETE, comparisons, 0, System.nanoTime() - start);
+            }
             return null;
         }
-
-        int comparacion = data.compareTo(actual.data);
-
-        if (comparacion < 0) {
-            actual.left = deleteRec(actual.left, data);
-        } else if (comparacion > 0) {
-            actual.right = deleteRec(actual.right, data);
-        } else {
-            // Caso 1: Nodo hoja (sin hijos)
-            if (actual.left == null && actual.right == null) {
-                return null;
-            }
-
-            // Caso 2: Nodo con un solo hijo
-            if (actual.left == null) {
-                return actual.right;
-            }
-            if (actual.right == null) {
-                return actual.left;
+        E removed = actual.data;
+
+        // Caso 3: Nodo con dos hijos
+        // Se copia el sucesor (el menor elemento en el subárbol derecho) y se elimina el sucesor
+        if (actual.left != null && actual.right != null) {
+            Node minParent = actual;
+            Node minNode = actual.right;
+            while (minNode.left != null) {
+                minParent = minNode;
+                minNode = minNode.left;
             }
-
-            // Caso 3: Nodo con dos hijos
-            // Encontrar el sucesor (el menor elemento en el subárbol derecho)
-            Node minNode = findMinNode(actual.right);
             actual.data = minNode.data;
+            parent = minParent;
+            actual = minNode;
+        }
 
-            // Eliminar el sucesor
-            actual.right = deleteRec(actual.right, actual.data);
+        // Casos 1 y 2: nodo hoja o con un solo hijo, que ocupa su lugar
+        Node child = actual.left != null ? actual.left : actual.right;
+        if (parent == null) {
+            this.root = child;
+        } else if (parent.left == actual) {
+            parent.left = child;
+        } else {
+            parent.right = child;
         }
-        return actual;
+        if (observer != null) {
+            observer.onOperation(TreeListener.Operation.DELETE, comparisons, 0, System.nanoTime() - start);
+        }
+        return removed;
+    }
+
+    // Cantidad de elementos; recorre el árbol completo
+    public int size() {
+        int count = 0;
+        for (Iterator<E> it = iterator(); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
     }
 
     // Verifica si el árbol está vacío
@@ -143,83 +259,288 @@ public class BSTree<E extends Comparable<E>> implements BinarySearchTree<E> {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        toString(root, sb, 0);
-        return sb.toString();
-    }
-
-    private void toString(Node node, StringBuilder sb, int nivel) {
-        if (node != null) {
-            // Visitar subárbol derecho
-            toString(node.right, sb, nivel + 1);
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Integer> niveles = new ArrayDeque<>();
+        Node node = root;
+        int nivel = 0;
+
+        while (node != null || !stack.isEmpty()) {
+            // Bajar por el subárbol derecho
+            while (node != null) {
+                stack.push(node);
+                niveles.push(nivel++);
+                node = node.right;
+            }
 
             // Visitar nodo actual
+            node = stack.pop();
+            nivel = niveles.pop();
             for (int i = 0; i < nivel; i++) {
                 sb.append("    ");
             }
             sb.append(node.data).append("\n");
 
-            // Visitar subárbol izquierdo
-            toString(node.left, sb, nivel + 1);
+            // Continuar con el subárbol izquierdo
+            node = node.left;
+            nivel++;
         }
+        return sb.toString();
     }
 
     // RECORRIDO IN ORDEN
     public String inOrder() {
+        return join(inOrderIterator());
+    }
+
+    // RECORRIDO EN PRE ORDEN
+    public String preOrder() {
+        return join(preOrderIterator());
+    }
+
+    // RECORRIDO EN POST ORDEN
+    public String postOrder() {
+        return join(postOrderIterator());
+    }
+
+    private String join(Iterator<E> it) {
         StringBuilder sb = new StringBuilder();
-        inOrder(root, sb);
+        while (it.hasNext()) {
+            sb.append(it.next()).append(" ");
+        }
         return sb.toString();
     }
 
-    private void inOrder(Node node, StringBuilder sb) {
-        if (node != null) {
-            // Visitar subárbol izquierdo
-            inOrder(node.left, sb);
+    // Por defecto se itera en orden; los iteradores usan memoria O(altura)
+    @Override
+    public Iterator<E> iterator() {
+        return inOrderIterator();
+    }
 
-            // Visitar nodo actual
-            sb.append(node.data).append(" ");
+    public Iterator<E> inOrderIterator() {
+        return new InOrderIterator(root);
+    }
 
-            // Visitar subárbol derecho
-            inOrder(node.right, sb);
-        }
+    public Iterator<E> preOrderIterator() {
+        return new PreOrderIterator(root);
     }
 
-    // RECORRIDO EN PRE ORDEN
-    public String preOrder() {
-        StringBuilder sb = new StringBuilder();
-        preOrder(root, sb);
-        return sb.toString();
+    public Iterator<E> postOrderIterator() {
+        return new PostOrderIterator(root);
     }
 
-    private void preOrder(Node node, StringBuilder sb) {
-        if (node != null) {
-            // Visitar nodo actual
-            sb.append(node.data).append(" ");
+    // Divide por subárboles, de modo que stream().parallel() reparte el árbol entre núcleos
+    @Override
+    public Spliterator<E> spliterator() {
+        long size = subtreeSize(root);
+        return size < 0 ? new TreeSpliterator(null, root, Long.MAX_VALUE, false)
+                : new TreeSpliterator(null, root, size, true);
+    }
+
+    public Stream<E> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    // Cantidad de elementos del subárbol, o -1 si no se conoce sin recorrerlo
+    protected long subtreeSize(Node node) {
+        return node == null ? 0 : -1;
+    }
 
-            // Visitar subárbol izquierdo
-            preOrder(node.left, sb);
+    private class InOrderIterator implements Iterator<E> {
+        private final Deque<Node> stack = new ArrayDeque<>();
 
-            // Visitar subárbol derecho
-            preOrder(node.right, sb);
+        InOrderIterator(Node node) {
+            pushLeft(node);
+        }
+
+        private void pushLeft(Node node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            pushLeft(node.right);
+            return node.data;
         }
     }
 
-    // RECORRIDO EN POST ORDEN
-    public String postOrder() {
-        StringBuilder sb = new StringBuilder();
-        postOrder(root, sb);
-        return sb.toString();
+    private class PreOrderIterator implements Iterator<E> {
+        private final Deque<Node> stack = new ArrayDeque<>();
+
+        PreOrderIterator(Node node) {
+            if (node != null) {
+                stack.push(node);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            // El izquierdo se apila último para visitarlo primero
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+            return node.data;
+        }
     }
 
-    private void postOrder(Node node, StringBuilder sb) {
-        if (node != null) {
-            // Visitar subárbol izquierdo
-            postOrder(node.left, sb);
+    private class PostOrderIterator implements Iterator<E> {
+        private final Deque<Node> stack = new ArrayDeque<>();
 
-            // Visitar subárbol derecho
-            postOrder(node.right, sb);
+        PostOrderIterator(Node node) {
+            descend(node);
+        }
 
-            // Visitar nodo actual
-            sb.append(node.data).append(" ");
+        // Baja hasta la primera hoja en post orden, prefiriendo siempre el hijo izquierdo
+        private void descend(Node node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left != null ? node.left : node.right;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            // Si venimos del hijo izquierdo, falta el subárbol derecho del padre
+            if (!stack.isEmpty() && stack.peek().left == node) {
+                descend(stack.peek().right);
+            }
+            return node.data;
+        }
+    }
+
+    // Recorre en orden 'first' (si no es null) y luego el subárbol 'subtree'. Mientras no
+    // haya empezado a recorrer se divide en (first + subtree.left) y (subtree + subtree.right).
+    private class TreeSpliterator implements Spliterator<E> {
+        private Node first;
+        private Node subtree;
+        private Deque<Node> stack; // Se crea al empezar el recorrido
+        private long estimate;
+        private boolean exact;     // estimate es el tamaño exacto
+
+        TreeSpliterator(Node first, Node subtree, long estimate, boolean exact) {
+            this.first = first;
+            this.subtree = subtree;
+            this.estimate = estimate;
+            this.exact = exact;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            if (stack != null || subtree == null) {
+                return null;
+            }
+            Node prefixFirst = first;
+            Node prefixTree = subtree.left;
+            if (prefixFirst == null && prefixTree == null) {
+                // Nada a la izquierda: se separa solo la raíz del subárbol
+                prefixFirst = subtree;
+            } else {
+                first = subtree;
+            }
+            subtree = subtree.right;
+
+            long prefixSize = sizeOf(prefixFirst, prefixTree);
+            long remainingSize = sizeOf(first, subtree);
+            if (prefixSize < 0 || remainingSize < 0) {
+                // Sin tamaños conocidos se supone que cada mitad tiene la mitad
+                prefixSize = remainingSize = estimate >>> 1;
+                exact = false;
+            }
+            estimate = remainingSize;
+            return new TreeSpliterator(prefixFirst, prefixTree, prefixSize, exact);
+        }
+
+        private long sizeOf(Node single, Node tree) {
+            long size = subtreeSize(tree);
+            return size < 0 ? -1 : size + (single == null ? 0 : 1);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (first != null) {
+                Node node = first;
+                first = null;
+                consumed();
+                action.accept(node.data);
+                return true;
+            }
+            if (stack == null) {
+                stack = new ArrayDeque<>();
+                pushLeft(subtree);
+                subtree = null;
+            }
+            if (stack.isEmpty()) {
+                return false;
+            }
+            Node node = stack.pop();
+            pushLeft(node.right);
+            consumed();
+            action.accept(node.data);
+            return true;
+        }
+
+        private void consumed() {
+            if (exact) {
+                estimate--;
+            }
+        }
+
+        private void pushLeft(Node node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            int characteristics = ORDERED | DISTINCT | SORTED | NONNULL;
+            if (exact) {
+                characteristics |= SIZED | SUBSIZED;
+            }
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return null; // Orden natural
         }
     }
 
@@ -255,7 +576,7 @@ public class BSTree<E extends Comparable<E>> implements BinarySearchTree<E> {
         while (node.right != null) {
             node = node.right;
         }
-        return search(node.data);
+        return node.data;
     }
 
     public E findMax() throws ItemNotFound {
@@ -265,6 +586,161 @@ public class BSTree<E extends Comparable<E>> implements BinarySearchTree<E> {
         return findMaxNode(root);
     }
 
+    // Mayor elemento <= x, o null si no existe
+    public E floor(E x) {
+        return dataOf(floorNode(x, true));
+    }
+
+    // Mayor elemento < x, o null si no existe
+    public E lower(E x) {
+        return dataOf(floorNode(x, false));
+    }
+
+    // Menor elemento >= x, o null si no existe
+    public E ceiling(E x) {
+        return dataOf(ceilingNode(x, true));
+    }
+
+    // Menor elemento > x, o null si no existe
+    public E higher(E x) {
+        return dataOf(ceilingNode(x, false));
+    }
+
+    private E dataOf(Node node) {
+        return node == null ? null : node.data;
+    }
+
+    private Node floorNode(E x, boolean inclusive) {
+        Node best = null;
+        Node node = root;
+        while (node != null) {
+            int comparacion = x.compareTo(node.data);
+            if (comparacion == 0 && inclusive) {
+                return node;
+            }
+            if (comparacion > 0) {
+                // node es candidato; puede haber uno mayor a la derecha
+                best = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return best;
+    }
+
+    private Node ceilingNode(E x, boolean inclusive) {
+        Node best = null;
+        Node node = root;
+        while (node != null) {
+            int comparacion = x.compareTo(node.data);
+            if (comparacion == 0 && inclusive) {
+                return node;
+            }
+            if (comparacion < 0) {
+                // node es candidato; puede haber uno menor a la izquierda
+                best = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return best;
+    }
+
+    // Elementos en [from, to) en orden
+    public Iterator<E> range(E from, E to) {
+        return range(from, true, to, false);
+    }
+
+    // Elementos entre from y to en orden, en O(log n + k) para k resultados.
+    // Un límite null deja ese extremo abierto.
+    public Iterator<E> range(E from, boolean fromInclusive, E to, boolean toInclusive) {
+        return new RangeIterator(from, fromInclusive, to, toInclusive);
+    }
+
+    private class RangeIterator implements Iterator<E> {
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private final E to;
+        private final boolean toInclusive;
+
+        RangeIterator(E from, boolean fromInclusive, E to, boolean toInclusive) {
+            this.to = to;
+            this.toInclusive = toInclusive;
+            // Se apilan los nodos del camino hacia from que quedan dentro del límite inferior
+            Node node = root;
+            while (node != null) {
+                int comparacion = from == null ? -1 : from.compareTo(node.data);
+                if (comparacion < 0 || (comparacion == 0 && fromInclusive)) {
+                    stack.push(node);
+                    node = comparacion == 0 ? null : node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (stack.isEmpty()) {
+                return false;
+            }
+            if (to == null) {
+                return true;
+            }
+            int comparacion = stack.peek().data.compareTo(to);
+            return comparacion < 0 || (comparacion == 0 && toInclusive);
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            Node child = node.right;
+            while (child != null) {
+                stack.push(child);
+                child = child.left;
+            }
+            return node.data;
+        }
+    }
+
+    // Guarda las claves en orden en un snapshot binario (formato en TreeSnapshot)
+    public void writeTo(WritableByteChannel out, KeyCodec<E> codec) throws IOException {
+        TreeSnapshot.write(this, size(), codec, out);
+    }
+
+    public void writeTo(Path file, KeyCodec<E> codec) throws IOException {
+        TreeSnapshot.write(this, size(), codec, file);
+    }
+
+    // Recarga un snapshot en O(n): las claves vienen ordenadas y se arma el árbol balanceado
+    public static <T extends Comparable<T>> BSTree<T> readFrom(ReadableByteChannel in, KeyCodec<T> codec)
+            throws IOException {
+        return load(new BSTree<T>(), TreeSnapshot.read(in, codec));
+    }
+
+    public static <T extends Comparable<T>> BSTree<T> readFrom(Path file, KeyCodec<T> codec) throws IOException {
+        return load(new BSTree<T>(), TreeSnapshot.read(file, codec));
+    }
+
+    protected static <T extends Comparable<T>, B extends BSTree<T>> B load(B tree, Object[] sorted) {
+        tree.root = tree.buildBalanced(sorted, 0, sorted.length);
+        return tree;
+    }
+
+    // Árbol balanceado con los elementos ordenados de [from, to): el central es la raíz
+    @SuppressWarnings("unchecked")
+    protected Node buildBalanced(Object[] items, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node((E) items[mid], buildBalanced(items, from, mid), buildBalanced(items, mid + 1, to));
+    }
+
     // Destruye todos los nodos
     public void destroyNodes() throws ExceptionIsEmpty {
         if (isEmpty()) {
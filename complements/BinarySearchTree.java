@@ -1,10 +1,39 @@
 package complements;
 import exceptions.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 public interface BinarySearchTree<E> {
     void insert(E data) throws ItemDuplicated;
     E search(E data) throws ItemNotFound;
     void delete(E data) throws ExceptionIsEmpty;
     boolean isEmpty();
-}
 
+    // Variantes sin excepciones para los caminos frecuentes (duplicados y fallos)
+    boolean add(E data);      // false si el elemento ya estaba
+    boolean contains(E data);
+    E get(E data);            // null si no se encuentra
+    E remove(E data);         // elemento eliminado o null si no estaba
+
+    // Operaciones por lotes: no abortan en el primer fallo, devuelven los elementos rechazados
+    default List<E> insertAll(Collection<? extends E> items) { // Devuelve los duplicados
+        List<E> rejected = new ArrayList<>();
+        for (E x : items) {
+            if (!add(x)) {
+                rejected.add(x);
+            }
+        }
+        return rejected;
+    }
+
+    default List<E> deleteAll(Collection<? extends E> items) { // Devuelve los que no estaban
+        List<E> rejected = new ArrayList<>();
+        for (E x : items) {
+            if (remove(x) == null) {
+                rejected.add(x);
+            }
+        }
+        return rejected;
+    }
+}
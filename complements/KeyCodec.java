@@ -0,0 +1,18 @@
+package complements;
+
+import java.io.IOException;
+
+// Codificación binaria de las claves de un TreeSnapshot. Las claves llegan en orden
+// estrictamente creciente, así que cada una puede escribirse relativa a la anterior
+// (delta, prefijo común). Implementaciones estándar en KeyCodecs.
+public interface KeyCodec<E> {
+
+    // Identifica el formato en la cabecera; al leer debe coincidir con el del codec usado
+    String name();
+
+    // previous es la clave anterior, o null si key es la primera
+    void encode(E previous, E key, TreeSnapshot.Output out) throws IOException;
+
+    // Inversa de encode con la misma clave anterior
+    E decode(E previous, TreeSnapshot.Input in) throws IOException;
+}
@@ -0,0 +1,121 @@
+package complements;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Codecs para las claves más comunes
+public final class KeyCodecs {
+
+    private KeyCodecs() {
+    }
+
+    // Primera clave en zigzag, el resto como distancia a la anterior: claves densas ocupan un byte
+    public static final KeyCodec<Integer> INT = new KeyCodec<>() {
+        @Override
+        public String name() {
+            return "int-delta";
+        }
+
+        @Override
+        public void encode(Integer previous, Integer key, TreeSnapshot.Output out) throws IOException {
+            if (previous == null) {
+                out.writeVarLong(zigzag(key));
+                return;
+            }
+            long delta = (long) key - previous;
+            if (delta <= 0) {
+                throw new IllegalArgumentException("Las claves no están ordenadas: " + previous + ", " + key);
+            }
+            out.writeVarLong(delta);
+        }
+
+        @Override
+        public Integer decode(Integer previous, TreeSnapshot.Input in) throws IOException {
+            if (previous == null) {
+                return (int) unzigzag(in.readVarLong());
+            }
+            long key = previous + in.readVarLong();
+            if (key > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot corrupto: clave fuera de rango");
+            }
+            return (int) key;
+        }
+    };
+
+    // Igual que INT; la distancia entre dos long puede pasar de Long.MAX_VALUE y se escribe sin signo
+    public static final KeyCodec<Long> LONG = new KeyCodec<>() {
+        @Override
+        public String name() {
+            return "long-delta";
+        }
+
+        @Override
+        public void encode(Long previous, Long key, TreeSnapshot.Output out) throws IOException {
+            if (previous == null) {
+                out.writeVarLong(zigzag(key));
+                return;
+            }
+            if (key <= previous) {
+                throw new IllegalArgumentException("Las claves no están ordenadas: " + previous + ", " + key);
+            }
+            out.writeVarLong(key - previous);
+        }
+
+        @Override
+        public Long decode(Long previous, TreeSnapshot.Input in) throws IOException {
+            if (previous == null) {
+                return unzigzag(in.readVarLong());
+            }
+            return previous + in.readVarLong();
+        }
+    };
+
+    // Largo del prefijo común con la anterior y el resto en UTF-8
+    public static final KeyCodec<String> STRING = new KeyCodec<>() {
+        @Override
+        public String name() {
+            return "string-prefix";
+        }
+
+        @Override
+        public void encode(String previous, String key, TreeSnapshot.Output out) throws IOException {
+            int shared = 0;
+            if (previous != null) {
+                int max = Math.min(previous.length(), key.length());
+                while (shared < max && previous.charAt(shared) == key.charAt(shared)) {
+                    shared++;
+                }
+                // No se corta un par sustituto: el resto no sería UTF-8 válido
+                if (shared > 0 && Character.isHighSurrogate(key.charAt(shared - 1))) {
+                    shared--;
+                }
+            }
+            byte[] suffix = key.substring(shared).getBytes(StandardCharsets.UTF_8);
+            out.writeVarLong(shared);
+            out.writeVarLong(suffix.length);
+            out.writeBytes(suffix, 0, suffix.length);
+        }
+
+        @Override
+        public String decode(String previous, TreeSnapshot.Input in) throws IOException {
+            long shared = in.readVarLong();
+            long length = in.readVarLong();
+            int available = previous == null ? 0 : previous.length();
+            if (shared > available || length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot corrupto: prefijo o largo inválido");
+            }
+            byte[] suffix = new byte[(int) length];
+            in.readBytes(suffix, 0, suffix.length);
+            String rest = new String(suffix, StandardCharsets.UTF_8);
+            return shared == 0 ? rest : previous.substring(0, (int) shared).concat(rest);
+        }
+    };
+
+    static long zigzag(long x) {
+        return (x << 1) ^ (x >> 63);
+    }
+
+    static long unzigzag(long x) {
+        return (x >>> 1) ^ -(x & 1);
+    }
+}
@@ -0,0 +1,26 @@
+package complements;
+
+// Recibe las métricas de cada operación de un BSTree/AVLTree (ver setListener).
+// Se llama en el hilo que hace la operación, con el árbol ya modificado: tiene que ser rápido
+// y no tocar el árbol. Sin listener los árboles no miden nada.
+public interface TreeListener {
+
+    enum Operation {
+        INSERT, SEARCH, DELETE
+    }
+
+    // Los cuatro casos de balanceToLeft/balanceToRight en AVLTree
+    enum Rotation {
+        SINGLE_LEFT,       // Subárbol derecho pesado hacia la derecha
+        DOUBLE_RIGHT_LEFT, // Subárbol derecho pesado hacia la izquierda
+        SINGLE_RIGHT,      // Subárbol izquierdo pesado hacia la izquierda
+        DOUBLE_LEFT_RIGHT  // Subárbol izquierdo pesado hacia la derecha
+    }
+
+    // comparisons: comparaciones de claves; rebalanceSteps: nodos del camino que se
+    // rebalancearon de abajo hacia arriba (0 en BSTree y en búsquedas); nanos: duración.
+    void onOperation(Operation operation, int comparisons, int rebalanceSteps, long nanos);
+
+    default void onRotation(Rotation rotation) {
+    }
+}
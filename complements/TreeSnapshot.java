@@ -0,0 +1,313 @@
+package complements;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+// Formato binario para guardar y recargar las claves de un árbol.
+// Las claves se guardan en orden, así la recarga arma el árbol balanceado en O(n)
+// sin rotaciones (ver BSTree.readFrom / AVLTree.readFrom).
+//
+// Formato (little endian):
+//   magic (8 bytes, "TREESNAP") | versión (int) | layout (byte) |
+//   largo del nombre del codec (varint) | nombre (UTF-8) | cantidad de claves (varint) |
+//   claves (codec) | CRC32C de todo lo anterior (int)
+public final class TreeSnapshot {
+
+    private static final long MAGIC = 0x50414E5345455254L; // "TREESNAP"
+    private static final int VERSION = 1;
+    private static final byte LAYOUT_SORTED = 1;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private TreeSnapshot() {
+    }
+
+    // Escribe count claves en orden estrictamente creciente
+    public static <E> void write(Iterable<? extends E> sorted, long count, KeyCodec<E> codec,
+            WritableByteChannel channel) throws IOException {
+        Output out = new Output(channel);
+        out.writeLong(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(LAYOUT_SORTED);
+        byte[] name = codec.name().getBytes(StandardCharsets.UTF_8);
+        out.writeVarLong(name.length);
+        out.writeBytes(name, 0, name.length);
+        out.writeVarLong(count);
+
+        E previous = null;
+        long written = 0;
+        for (E key : sorted) {
+            codec.encode(previous, key, out);
+            previous = key;
+            written++;
+        }
+        if (written != count) {
+            throw new IllegalArgumentException("Se esperaban " + count + " claves y se recorrieron " + written);
+        }
+        out.finish();
+    }
+
+    // Escribe en un archivo temporal y lo renombra: un snapshot anterior no queda a medias
+    public static <E> void write(Iterable<? extends E> sorted, long count, KeyCodec<E> codec, Path file)
+            throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(sorted, count, codec, channel);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Devuelve las claves en orden. Lanza IOException si el formato, el codec o el checksum no coinciden.
+    public static <E extends Comparable<E>> Object[] read(ReadableByteChannel channel, KeyCodec<E> codec)
+            throws IOException {
+        return read(new Input(channel), codec);
+    }
+
+    // Mapea el archivo en memoria y decodifica directamente sobre el mapeo
+    public static <E extends Comparable<E>> Object[] read(Path file, KeyCodec<E> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return read(channel, codec);
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(new Input(mapped), codec);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Comparable<E>> Object[] read(Input in, KeyCodec<E> codec) throws IOException {
+        if (in.readLong() != MAGIC) {
+            throw new IOException("El archivo no es un snapshot de árbol");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Versión de snapshot no soportada: " + version);
+        }
+        byte layout = in.readByte();
+        if (layout != LAYOUT_SORTED) {
+            throw new IOException("Layout de snapshot no soportado: " + layout);
+        }
+        long nameLength = in.readVarLong();
+        if (nameLength > 1024) {
+            throw new IOException("Snapshot corrupto: nombre de codec inválido");
+        }
+        byte[] name = new byte[(int) nameLength];
+        in.readBytes(name, 0, name.length);
+        String codecName = new String(name, StandardCharsets.UTF_8);
+        if (!codecName.equals(codec.name())) {
+            throw new IOException("El snapshot usa el codec " + codecName + ", no " + codec.name());
+        }
+        long count = in.readVarLong();
+        if (count < 0 || count > Integer.MAX_VALUE - 8) {
+            throw new IOException("Snapshot corrupto: cantidad de claves inválida");
+        }
+
+        Object[] keys = new Object[(int) count];
+        E previous = null;
+        for (int i = 0; i < keys.length; i++) {
+            E key = codec.decode(previous, in);
+            if (previous != null && previous.compareTo(key) >= 0) {
+                throw new IOException("Snapshot corrupto: claves desordenadas en la posición " + i);
+            }
+            keys[i] = key;
+            previous = key;
+        }
+        in.checkCrc();
+        return keys;
+    }
+
+    // Escritura en un buffer directo que se vuelca al canal cuando se llena o con flush()
+    public static final class Output {
+        private final WritableByteChannel channel;
+        private ByteBuffer buffer = newBuffer(BUFFER_BYTES);
+        private final CRC32C crc = new CRC32C();
+
+        public Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        public void writeByte(int b) throws IOException {
+            ensure(1);
+            buffer.put((byte) b);
+        }
+
+        public void writeInt(int x) throws IOException {
+            ensure(4);
+            buffer.putInt(x);
+        }
+
+        public void writeLong(long x) throws IOException {
+            ensure(8);
+            buffer.putLong(x);
+        }
+
+        // Sin signo, 7 bits por byte (LEB128)
+        public void writeVarLong(long x) throws IOException {
+            ensure(10);
+            while ((x & ~0x7FL) != 0) {
+                buffer.put((byte) ((x & 0x7F) | 0x80));
+                x >>>= 7;
+            }
+            buffer.put((byte) x);
+        }
+
+        public void writeBytes(byte[] src, int offset, int length) throws IOException {
+            ensure(length);
+            buffer.put(src, offset, length);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            flush();
+            if (buffer.capacity() < bytes) {
+                buffer = newBuffer(bytes);
+            }
+        }
+
+        public void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        // El CRC cubre todo lo escrito hasta aquí; se agrega al final
+        private void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // Lectura desde un canal (con un buffer que se rellena) o desde un buffer ya completo (mapeo)
+    public static final class Input {
+        private final ReadableByteChannel channel; // null si todo el contenido está en buffer
+        private ByteBuffer buffer;
+        private final CRC32C crc = new CRC32C();
+        private int crcMark; // Lo anterior a esta posición del buffer ya está sumado al CRC
+
+        private Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            this.buffer = newBuffer(BUFFER_BYTES);
+            buffer.flip();
+        }
+
+        public Input(ByteBuffer contents) {
+            this.channel = null;
+            this.buffer = contents.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        public byte readByte() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+
+        public int readInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        public long readLong() throws IOException {
+            ensure(8);
+            return buffer.getLong();
+        }
+
+        public long readVarLong() throws IOException {
+            if (buffer.remaining() < 10) {
+                return readVarLongSlow();
+            }
+            long x = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                x |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return x;
+                }
+            }
+            throw new IOException("Snapshot corrupto: varint demasiado largo");
+        }
+
+        // Cerca del final del buffer: byte por byte, rellenando si hace falta
+        private long readVarLongSlow() throws IOException {
+            long x = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                x |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return x;
+                }
+            }
+            throw new IOException("Snapshot corrupto: varint demasiado largo");
+        }
+
+        public void readBytes(byte[] dst, int offset, int length) throws IOException {
+            ensure(length);
+            buffer.get(dst, offset, length);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            if (channel == null) {
+                throw new EOFException("El snapshot está truncado");
+            }
+            sumCrc();
+            if (buffer.capacity() < bytes) {
+                ByteBuffer larger = newBuffer(bytes);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("El snapshot está truncado");
+                }
+            }
+            buffer.flip();
+            crcMark = 0;
+        }
+
+        private void sumCrc() {
+            ByteBuffer consumed = buffer.duplicate();
+            consumed.limit(buffer.position()).position(crcMark);
+            crc.update(consumed);
+            crcMark = buffer.position();
+        }
+
+        // Compara el CRC de lo leído con el que sigue en el snapshot
+        private void checkCrc() throws IOException {
+            sumCrc();
+            int expected = readInt();
+            if (expected != (int) crc.getValue()) {
+                throw new IOException("Snapshot corrupto: el checksum no coincide");
+            }
+        }
+    }
+
+    private static ByteBuffer newBuffer(int bytes) {
+        return ByteBuffer.allocateDirect(Math.max(bytes, BUFFER_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
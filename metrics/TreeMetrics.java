@@ -0,0 +1,258 @@
+package metrics;
+
+import complements.BSTree;
+import complements.TreeListener;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Acumula las métricas de uno o más árboles (comparaciones, rotaciones por caso, pasos de
+// rebalanceo e histogramas de latencia por operación) y las publica por JMX:
+//
+//   TreeMetrics metrics = TreeMetrics.attach(tree);
+//   metrics.register("indice-clientes");   // trees:type=TreeMetrics,name=indice-clientes
+//
+// Los contadores son seguros entre hilos, así una misma instancia puede escuchar varios árboles.
+// Tamaño y altura se leen del árbol al consultarlos (O(1) en AVLTree, O(n) en BSTree); como el
+// árbol no es seguro entre hilos, leídos desde JMX son aproximados y -1 si la lectura falló.
+public class TreeMetrics implements TreeListener, TreeMetricsMBean {
+
+    private static final TreeListener.Operation[] OPERATIONS = TreeListener.Operation.values();
+
+    private final LongAdder[] counts = adders(OPERATIONS.length);
+    private final LongAdder comparisons = new LongAdder();
+    private final LongAccumulator maxComparisons = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] rotations = adders(TreeListener.Rotation.values().length);
+    private final LongAdder rebalanceSteps = new LongAdder();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private BSTree<?> tree; // Para tamaño y altura; null si no se usó attach
+    private ObjectName name;
+
+    public TreeMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    // Crea las métricas y las activa en tree
+    public static TreeMetrics attach(BSTree<?> tree) {
+        TreeMetrics metrics = new TreeMetrics();
+        metrics.tree = tree;
+        tree.setListener(metrics);
+        return metrics;
+    }
+
+    // Desactiva las métricas en el árbol de attach y las quita de JMX si estaban registradas
+    public void detach() throws JMException {
+        if (tree != null && tree.getListener() == this) {
+            tree.setListener(null);
+        }
+        unregister();
+    }
+
+    // Publica las métricas en el MBeanServer de la plataforma
+    public ObjectName register(String treeName) throws JMException {
+        unregister();
+        ObjectName objectName = new ObjectName("trees:type=TreeMetrics,name=" + ObjectName.quote(treeName));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.name = objectName;
+        return objectName;
+    }
+
+    public void unregister() throws JMException {
+        if (name != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            name = null;
+        }
+    }
+
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // ---- TreeListener ----
+
+    @Override
+    public void onOperation(Operation operation, int comparisons, int rebalanceSteps, long nanos) {
+        counts[operation.ordinal()].increment();
+        this.comparisons.add(comparisons);
+        maxComparisons.accumulate(comparisons);
+        if (rebalanceSteps != 0) {
+            this.rebalanceSteps.add(rebalanceSteps);
+        }
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void onRotation(Rotation rotation) {
+        rotations[rotation.ordinal()].increment();
+    }
+
+    // ---- Consultas ----
+
+    public long count(Operation operation) {
+        return counts[operation.ordinal()].sum();
+    }
+
+    public long rotations(Rotation rotation) {
+        return rotations[rotation.ordinal()].sum();
+    }
+
+    public LatencyHistogram latency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    @Override
+    public long getInserts() {
+        return count(Operation.INSERT);
+    }
+
+    @Override
+    public long getSearches() {
+        return count(Operation.SEARCH);
+    }
+
+    @Override
+    public long getDeletes() {
+        return count(Operation.DELETE);
+    }
+
+    @Override
+    public double getMeanComparisons() {
+        long operations = getInserts() + getSearches() + getDeletes();
+        return operations == 0 ? 0 : (double) comparisons.sum() / operations;
+    }
+
+    @Override
+    public long getMaxComparisons() {
+        return maxComparisons.get();
+    }
+
+    @Override
+    public long getSingleLeftRotations() {
+        return rotations(Rotation.SINGLE_LEFT);
+    }
+
+    @Override
+    public long getDoubleRightLeftRotations() {
+        return rotations(Rotation.DOUBLE_RIGHT_LEFT);
+    }
+
+    @Override
+    public long getSingleRightRotations() {
+        return rotations(Rotation.SINGLE_RIGHT);
+    }
+
+    @Override
+    public long getDoubleLeftRightRotations() {
+        return rotations(Rotation.DOUBLE_LEFT_RIGHT);
+    }
+
+    @Override
+    public double getMeanRebalanceSteps() {
+        long updates = getInserts() + getDeletes();
+        return updates == 0 ? 0 : (double) rebalanceSteps.sum() / updates;
+    }
+
+    @Override
+    public int getSize() {
+        try {
+            return tree == null ? -1 : tree.size();
+        } catch (RuntimeException e) {
+            return -1; // El árbol cambió durante la lectura
+        }
+    }
+
+    @Override
+    public int getHeight() {
+        try {
+            return tree == null ? -1 : tree.height();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public double getHeightBound() {
+        int size = getSize();
+        return size < 0 ? -1 : heightBound(size);
+    }
+
+    // Altura máxima de un AVL con n nodos (altura de una hoja = 0)
+    public static double heightBound(int n) {
+        return 1.4405 * (Math.log(n + 2) / Math.log(2)) - 1.3277;
+    }
+
+    @Override
+    public long getInsertP99Nanos() {
+        return latency(Operation.INSERT).percentile(99);
+    }
+
+    @Override
+    public long getSearchP99Nanos() {
+        return latency(Operation.SEARCH).percentile(99);
+    }
+
+    @Override
+    public long getDeleteP99Nanos() {
+        return latency(Operation.DELETE).percentile(99);
+    }
+
+    @Override
+    public long getInsertMaxNanos() {
+        return latency(Operation.INSERT).max();
+    }
+
+    @Override
+    public long getSearchMaxNanos() {
+        return latency(Operation.SEARCH).max();
+    }
+
+    @Override
+    public long getDeleteMaxNanos() {
+        return latency(Operation.DELETE).max();
+    }
+
+    @Override
+    public long percentileNanos(String operation, double percentile) {
+        return latency(Operation.valueOf(operation.toUpperCase(Locale.ROOT))).percentile(percentile);
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder count : counts) {
+            count.reset();
+        }
+        for (LongAdder rotation : rotations) {
+            rotation.reset();
+        }
+        comparisons.reset();
+        maxComparisons.reset();
+        rebalanceSteps.reset();
+        for (LatencyHistogram latency : latencies) {
+            latency.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Operation operation : OPERATIONS) {
+            sb.append(operation).append(": ").append(latency(operation)).append("\n");
+        }
+        sb.append(String.format("comparaciones/op %.1f (máx %d), rebalanceo/actualización %.2f%n",
+                getMeanComparisons(), getMaxComparisons(), getMeanRebalanceSteps()));
+        sb.append(String.format("rotaciones: simple izq %d, doble der-izq %d, simple der %d, doble izq-der %d%n",
+                getSingleLeftRotations(), getDoubleRightLeftRotations(), getSingleRightRotations(),
+                getDoubleLeftRightRotations()));
+        sb.append(String.format("altura %d, cota AVL %.1f, tamaño %d", getHeight(), getHeightBound(), getSize()));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package metrics;
+
+// Atributos y operaciones de TreeMetrics publicados por JMX (jconsole, VisualVM...).
+// Las latencias están en nanosegundos.
+public interface TreeMetricsMBean {
+
+    long getInserts();
+
+    long getSearches();
+
+    long getDeletes();
+
+    double getMeanComparisons();
+
+    long getMaxComparisons();
+
+    long getSingleLeftRotations();
+
+    long getDoubleRightLeftRotations();
+
+    long getSingleRightRotations();
+
+    long getDoubleLeftRightRotations();
+
+    // Nodos rebalanceados por inserción o eliminación, en promedio
+    double getMeanRebalanceSteps();
+
+    int getSize();
+
+    int getHeight();
+
+    // Altura máxima de un AVL con getSize() elementos: 1,44 log2(n + 2) - 1,33 (hoja = 0)
+    double getHeightBound();
+
+    long getInsertP99Nanos();
+
+    long getSearchP99Nanos();
+
+    long getDeleteP99Nanos();
+
+    long getInsertMaxNanos();
+
+    long getSearchMaxNanos();
+
+    long getDeleteMaxNanos();
+
+    // operation: INSERT, SEARCH o DELETE
+    long percentileNanos(String operation, double percentile);
+
+    void reset();
+}
@@ -0,0 +1,512 @@
+package wavltree;
+
+import complements.BinarySearchTree;
+import exceptions.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+// Árbol weak AVL (WAVL, Haeupler, Sen y Tarjan): balanceado por rangos en lugar de alturas.
+// Cada nodo tiene un rango (null = -1) y la diferencia de rango con cada hijo es 1 o 2; las
+// hojas tienen rango 0. Sin eliminaciones los rangos son las alturas y el árbol es un AVL.
+// A diferencia de AVLTree, una eliminación hace a lo sumo dos rotaciones (una simple o una
+// doble) y el total de cambios de rango es O(1) amortizado por operación: los cambios de
+// estructura no se propagan hasta la raíz. La altura queda acotada por 2 log2 n.
+public class WAVLTree<E extends Comparable<E>> implements BinarySearchTree<E>, Iterable<E> {
+
+    static final class Node<E> {
+        E data;
+        Node<E> left;
+        Node<E> right;
+        int rank;
+
+        Node(E data) {
+            this.data = data;
+        }
+    }
+
+    private static final int INITIAL_PATH = 64;
+
+    private Node<E> root;
+    private int size;
+    private long rotations;   // Rotaciones simples (una doble cuenta dos)
+    private long rankChanges; // Promociones y degradaciones de rango
+    private Node<E>[] path = newPath(INITIAL_PATH); // Camino raíz -> nodo de la última operación
+
+    private static int rank(Node<?> node) {
+        return node == null ? -1 : node.rank;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E> Node<E>[] newPath(int length) {
+        return (Node<E>[]) new Node[length];
+    }
+
+    private void push(int depth, Node<E> node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, 2 * depth);
+        }
+        path[depth] = node;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    // Cantidad de elementos en O(1)
+    public int size() {
+        return size;
+    }
+
+    // Rango de la raíz, en O(1): cota superior de la altura
+    public int rootRank() {
+        return rank(root);
+    }
+
+    // Rotaciones y cambios de rango acumulados desde la creación del árbol
+    public long rotations() {
+        return rotations;
+    }
+
+    public long rankChanges() {
+        return rankChanges;
+    }
+
+    // ---- Búsqueda ----
+
+    @Override
+    public E search(E x) throws ItemNotFound {
+        E result = get(x);
+        if (result == null) {
+            throw new ItemNotFound("El elemento no se encuentra en el árbol");
+        }
+        return result;
+    }
+
+    @Override
+    public E get(E x) {
+        Node<E> node = root;
+        while (node != null) {
+            int comparison = x.compareTo(node.data);
+            if (comparison == 0) {
+                return node.data;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean contains(E x) {
+        return get(x) != null;
+    }
+
+    // ---- Inserción ----
+
+    @Override
+    public void insert(E x) throws ItemDuplicated {
+        if (!add(x)) {
+            throw new ItemDuplicated(x + " ya se encuentra en el árbol");
+        }
+    }
+
+    // Inserta sin lanzar excepción; devuelve false si el elemento ya existía
+    @Override
+    public boolean add(E x) {
+        if (root == null) {
+            root = new Node<>(x);
+            size = 1;
+            return true;
+        }
+
+        int depth = 0;
+        Node<E> node = root;
+        Node<E> created;
+        while (true) {
+            int comparison = x.compareTo(node.data);
+            if (comparison == 0) {
+                Arrays.fill(path, 0, depth, null);
+                return false;
+            }
+            push(depth++, node);
+            Node<E> next = comparison < 0 ? node.left : node.right;
+            if (next == null) {
+                created = new Node<>(x);
+                if (comparison < 0) {
+                    node.left = created;
+                } else {
+                    node.right = created;
+                }
+                break;
+            }
+            node = next;
+        }
+        size++;
+        rebalanceAfterInsert(depth, created);
+        return true;
+    }
+
+    // La hoja nueva puede ser 0-hijo de su padre (mismo rango). Mientras el hermano sea
+    // 1-hijo se promueve al padre y el problema sube; si es 2-hijo, una rotación (simple o
+    // doble) lo resuelve y se termina.
+    private void rebalanceAfterInsert(int depth, Node<E> x) {
+        int i = depth - 1;
+        for (; i >= 0; i--) {
+            Node<E> p = path[i];
+            path[i] = null;
+            if (p.rank != x.rank) {
+                break;
+            }
+            Node<E> sibling = p.left == x ? p.right : p.left;
+            if (p.rank - rank(sibling) == 1) {
+                p.rank++;
+                rankChanges++;
+                x = p;
+                continue;
+            }
+            // p es 0,2: x fue promovido y es 1,2
+            Node<E> parent = i == 0 ? null : path[i - 1];
+            Node<E> top;
+            if (x == p.left) {
+                Node<E> inner = x.right;
+                if (x.rank - rank(inner) == 2) {
+                    top = rotateRight(p);
+                    p.rank--;
+                    rankChanges++;
+                } else {
+                    p.left = rotateLeft(x);
+                    top = rotateRight(p);
+                    inner.rank++;
+                    x.rank--;
+                    p.rank--;
+                    rankChanges += 3;
+                }
+            } else {
+                Node<E> inner = x.left;
+                if (x.rank - rank(inner) == 2) {
+                    top = rotateLeft(p);
+                    p.rank--;
+                    rankChanges++;
+                } else {
+                    p.right = rotateRight(x);
+                    top = rotateLeft(p);
+                    inner.rank++;
+                    x.rank--;
+                    p.rank--;
+                    rankChanges += 3;
+                }
+            }
+            replaceChild(parent, p, top);
+            break;
+        }
+        Arrays.fill(path, 0, Math.max(i, 0), null);
+    }
+
+    // ---- Eliminación ----
+
+    @Override
+    public void delete(E x) throws ExceptionIsEmpty {
+        if (isEmpty()) {
+            throw new ExceptionIsEmpty("The tree is empty");
+        }
+        remove(x);
+    }
+
+    // Elimina sin lanzar excepción; devuelve el elemento quitado o null si no estaba
+    @Override
+    public E remove(E x) {
+        int depth = 0;
+        Node<E> node = root;
+        while (node != null) {
+            int comparison = x.compareTo(node.data);
+            if (comparison == 0) {
+                break;
+            }
+            push(depth++, node);
+            node = comparison < 0 ? node.left : node.right;
+        }
+        if (node == null) {
+            Arrays.fill(path, 0, depth, null);
+            return null;
+        }
+        E removed = node.data;
+
+        // Nodo con dos hijos: se copia el sucesor y se elimina el sucesor, que tiene a lo sumo un hijo
+        if (node.left != null && node.right != null) {
+            Node<E> target = node;
+            push(depth++, node);
+            node = node.right;
+            while (node.left != null) {
+                push(depth++, node);
+                node = node.left;
+            }
+            target.data = node.data;
+        }
+
+        Node<E> child = node.left != null ? node.left : node.right;
+        replaceChild(depth == 0 ? null : path[depth - 1], node, child);
+        size--;
+        rebalanceAfterDelete(depth, child);
+        return removed;
+    }
+
+    // Tras quitar un nodo su reemplazo x (quizás null) puede quedar como 3-hijo, o el padre
+    // como hoja 2,2. Las degradaciones suben por el camino mientras el hermano lo permita;
+    // si no, una rotación simple o doble termina: no hay más rotaciones en esa eliminación.
+    private void rebalanceAfterDelete(int depth, Node<E> x) {
+        int i = depth - 1;
+        if (i >= 0) {
+            Node<E> p = path[i];
+            if (p.left == null && p.right == null && p.rank == 1) {
+                // Hoja 2,2: se degrada y el problema pasa al padre
+                p.rank = 0;
+                rankChanges++;
+                x = p;
+                path[i--] = null;
+            }
+        }
+        for (; i >= 0; i--) {
+            Node<E> p = path[i];
+            path[i] = null;
+            if (p.rank - rank(x) != 3) {
+                break;
+            }
+            Node<E> y = p.left == x ? p.right : p.left; // Hermano de x; existe porque p tiene rango >= 2
+            if (p.rank - y.rank == 2) {
+                p.rank--;
+                rankChanges++;
+                x = p;
+                continue;
+            }
+            if (y.rank - rank(y.left) == 2 && y.rank - rank(y.right) == 2) {
+                p.rank--;
+                y.rank--;
+                rankChanges += 2;
+                x = p;
+                continue;
+            }
+            // y es 1-hijo y no es 2,2: rotación hacia el lado de x
+            Node<E> parent = i == 0 ? null : path[i - 1];
+            Node<E> top;
+            if (y == p.right) {
+                Node<E> outer = y.right;
+                if (y.rank - rank(outer) == 1) {
+                    top = rotateLeft(p);
+                    demoteAfterSingleRotation(y, p);
+                } else {
+                    Node<E> inner = y.left;
+                    p.right = rotateRight(y);
+                    top = rotateLeft(p);
+                    demoteAfterDoubleRotation(inner, y, p);
+                }
+            } else {
+                Node<E> outer = y.left;
+                if (y.rank - rank(outer) == 1) {
+                    top = rotateRight(p);
+                    demoteAfterSingleRotation(y, p);
+                } else {
+                    Node<E> inner = y.right;
+                    p.left = rotateLeft(y);
+                    top = rotateRight(p);
+                    demoteAfterDoubleRotation(inner, y, p);
+                }
+            }
+            replaceChild(parent, p, top);
+            break;
+        }
+        Arrays.fill(path, 0, Math.max(i, 0), null);
+    }
+
+    // y sube un rango y p baja uno; si p quedó hoja baja otro (no puede ser hoja 2,2)
+    private void demoteAfterSingleRotation(Node<E> y, Node<E> p) {
+        y.rank++;
+        p.rank--;
+        rankChanges += 2;
+        if (p.left == null && p.right == null) {
+            p.rank--;
+            rankChanges++;
+        }
+    }
+
+    // El nieto inner queda arriba: sube dos rangos, y baja uno y p baja dos
+    private void demoteAfterDoubleRotation(Node<E> inner, Node<E> y, Node<E> p) {
+        inner.rank += 2;
+        y.rank--;
+        p.rank -= 2;
+        rankChanges += 3;
+    }
+
+    private void replaceChild(Node<E> parent, Node<E> oldChild, Node<E> newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+    }
+
+    // Rotación simple a la izquierda; los rangos los ajusta quien llama
+    private Node<E> rotateLeft(Node<E> node) {
+        Node<E> newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        rotations++;
+        return newRoot;
+    }
+
+    // Rotación simple a la derecha
+    private Node<E> rotateRight(Node<E> node) {
+        Node<E> newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        rotations++;
+        return newRoot;
+    }
+
+    // ---- Mínimo, máximo, altura ----
+
+    public E findMin() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        Node<E> node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.data;
+    }
+
+    public E findMax() throws ItemNotFound {
+        if (isEmpty()) {
+            throw new ItemNotFound("El árbol está vacío");
+        }
+        Node<E> node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.data;
+    }
+
+    // Altura real recorriendo por niveles, O(n); rootRank() es una cota en O(1)
+    public int height() {
+        int height = -1;
+        Queue<Node<E>> level = new ArrayDeque<>();
+        if (root != null) {
+            level.offer(root);
+        }
+        while (!level.isEmpty()) {
+            height++;
+            for (int i = level.size(); i > 0; i--) {
+                Node<E> node = level.poll();
+                if (node.left != null) {
+                    level.offer(node.left);
+                }
+                if (node.right != null) {
+                    level.offer(node.right);
+                }
+            }
+        }
+        return height;
+    }
+
+    // ---- Recorridos ----
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final Deque<Node<E>> stack = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node<E> node) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<E> node = stack.pop();
+                pushLeft(node.right);
+                return node.data;
+            }
+        };
+    }
+
+    // RECORRIDO IN ORDEN
+    public String inOrder() {
+        StringBuilder sb = new StringBuilder();
+        for (E x : this) {
+            sb.append(x).append(" ");
+        }
+        return sb.toString();
+    }
+
+    // Recorrido BFS con el rango de cada nodo
+    public String breadthFirst() {
+        StringBuilder sb = new StringBuilder();
+        Queue<Node<E>> queue = new ArrayDeque<>();
+        if (root != null) {
+            queue.offer(root);
+        }
+        while (!queue.isEmpty()) {
+            for (int i = queue.size(); i > 0; i--) {
+                Node<E> current = queue.poll();
+                sb.append(current.data).append(" (r=").append(current.rank).append(") ");
+                if (current.left != null) {
+                    queue.offer(current.left);
+                }
+                if (current.right != null) {
+                    queue.offer(current.right);
+                }
+            }
+            sb.append("| "); // Separador por niveles
+        }
+        return sb.toString();
+    }
+
+    // Comprueba el orden, diferencias de rango 1 o 2, hojas de rango 0 y el tamaño
+    public void checkInvariants() {
+        int[] count = new int[1];
+        checkInvariants(root, null, null, count);
+        if (count[0] != size) {
+            throw new IllegalStateException("Tamaño incorrecto: " + size + " guardado, " + count[0] + " reales");
+        }
+    }
+
+    private void checkInvariants(Node<E> node, E low, E high, int[] count) {
+        if (node == null) {
+            return;
+        }
+        count[0]++;
+        if ((low != null && node.data.compareTo(low) <= 0) || (high != null && node.data.compareTo(high) >= 0)) {
+            throw new IllegalStateException("Orden incorrecto en " + node.data);
+        }
+        int leftDifference = node.rank - rank(node.left);
+        int rightDifference = node.rank - rank(node.right);
+        if (leftDifference < 1 || leftDifference > 2 || rightDifference < 1 || rightDifference > 2) {
+            throw new IllegalStateException("Diferencia de rango inválida en " + node.data);
+        }
+        if (node.left == null && node.right == null && node.rank != 0) {
+            throw new IllegalStateException("Hoja con rango " + node.rank + ": " + node.data);
+        }
+        checkInvariants(node.left, low, node.data, count);
+        checkInvariants(node.right, node.data, high, count);
+    }
+}